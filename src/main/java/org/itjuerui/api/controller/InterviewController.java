@@ -1,20 +1,30 @@
 package org.itjuerui.api.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.itjuerui.api.dto.AnswerRequest;
 import org.itjuerui.api.dto.InterviewCreateRequest;
 import org.itjuerui.api.dto.NextQuestionResponse;
 import org.itjuerui.api.dto.SessionDetailResponse;
 import org.itjuerui.api.dto.SessionListRequest;
 import org.itjuerui.api.dto.SessionListResponse;
+import org.itjuerui.api.dto.TurnImportResponse;
 import org.itjuerui.api.dto.TurnRequest;
 import org.itjuerui.common.dto.ApiResponse;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
+import org.itjuerui.api.dto.ReportJobResponse;
 import org.itjuerui.service.InterviewService;
+import org.itjuerui.service.ReportJobService;
 import org.itjuerui.service.ReportService;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * 面试管理控制器
  */
@@ -23,8 +33,13 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 @RequiredArgsConstructor
 public class InterviewController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final InterviewService interviewService;
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
 
     /**
      * 创建面试会话
@@ -45,6 +60,24 @@ public class InterviewController {
         return ApiResponse.success(turnId);
     }
 
+    /**
+     * 批量导入轮次（JSON 数组），按数组顺序写入，响应中列出未写入的轮次及原因
+     */
+    @PostMapping(value = "/sessions/{id}/turns/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<TurnImportResponse> importTurns(@PathVariable("id") Long sessionId,
+                                                       @RequestBody List<TurnRequest> turns) {
+        return ApiResponse.success(interviewService.importTurns(sessionId, turns));
+    }
+
+    /**
+     * 批量导入轮次（NDJSON，每行一个轮次），边读取边写入，适合大文件流式上传
+     */
+    @PostMapping(value = "/sessions/{id}/turns/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ApiResponse<TurnImportResponse> importTurnsNdjson(@PathVariable("id") Long sessionId,
+                                                             HttpServletRequest request) throws IOException {
+        return ApiResponse.success(interviewService.importTurns(sessionId, request.getInputStream()));
+    }
+
     /**
      * 查询会话详情（包含 turns）
      */
@@ -55,14 +88,17 @@ public class InterviewController {
     }
 
     /**
-     * 查询会话列表（支持可选筛选 resumeId/status，支持分页）
+     * 查询会话列表（支持可选筛选 resumeId/status，支持页码分页与游标分页）
+     * 传入上一页返回的 cursor 时按游标续读；withTotal 未传时页码模式统计总数、游标模式不统计
      */
     @GetMapping("/sessions")
     public ApiResponse<SessionListResponse> getSessionList(
             @RequestParam(required = false) Long resumeId,
             @RequestParam(required = false) String status,
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "10") Integer size) {
+            @RequestParam(required = false, defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal) {
         SessionListRequest request = new SessionListRequest();
         request.setResumeId(resumeId);
         if (status != null && !status.isEmpty()) {
@@ -74,26 +110,67 @@ public class InterviewController {
         }
         request.setPage(page);
         request.setSize(size);
+        request.setCursor(cursor);
+        request.setWithTotal(withTotal);
         
         SessionListResponse response = interviewService.getSessionList(request);
         return ApiResponse.success(response);
     }
 
     /**
-     * 获取下一个问题（占位实现）
+     * 获取下一个问题
+     * 可携带 Idempotency-Key 请求头，网络重试时返回同一道问题
      */
     @PostMapping("/sessions/{id}/next-question")
-    public ApiResponse<NextQuestionResponse> getNextQuestion(@PathVariable("id") Long sessionId) {
-        NextQuestionResponse response = interviewService.getNextQuestion(sessionId);
+    public ApiResponse<NextQuestionResponse> getNextQuestion(
+            @PathVariable("id") Long sessionId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        NextQuestionResponse response = interviewService.getNextQuestion(sessionId, idempotencyKey);
         return ApiResponse.success(response);
     }
 
     /**
      * 获取下一个问题（流式输出）
+     * chunk 事件携带 id，断线后携带 Last-Event-ID 重连会从断点续传同一次生成
      */
     @GetMapping(value = "/sessions/{id}/next-question/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamNextQuestion(@PathVariable("id") Long sessionId) {
-        return interviewService.streamNextQuestion(sessionId);
+    public SseEmitter streamNextQuestion(
+            @PathVariable("id") Long sessionId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return interviewService.streamNextQuestion(sessionId, idempotencyKey, lastEventId);
+    }
+
+    /**
+     * 提交候选人回答并流式获取追问
+     * 一次请求完成回答落库与追问生成：chunk 事件逐段输出追问，done 事件携带 answerTurnId 与 turnId；
+     * 可携带 Idempotency-Key 请求头，网络重试时不会重复写入回答
+     */
+    @PostMapping(value = "/sessions/{id}/answer/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAnswer(
+            @PathVariable("id") Long sessionId,
+            @Valid @RequestBody AnswerRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return interviewService.streamAnswer(sessionId, request.getContent(), idempotencyKey);
+    }
+
+    /**
+     * 按会话内序号读取轮次（afterSeq 之后、toSeq 之前含），用于客户端增量拉取
+     */
+    @GetMapping("/sessions/{id}/turns")
+    public ApiResponse<List<InterviewTurn>> getTurns(@PathVariable("id") Long sessionId,
+            @RequestParam(required = false) Integer afterSeq,
+            @RequestParam(required = false) Integer toSeq,
+            @RequestParam(required = false) Integer limit) {
+        return ApiResponse.success(interviewService.getTurns(sessionId, afterSeq, toSeq, limit));
+    }
+
+    /**
+     * 查询会话各阶段的回答统计（用于实时进度展示）
+     */
+    @GetMapping("/sessions/{id}/stats")
+    public ApiResponse<List<StageAnswerStats>> getStageStats(@PathVariable("id") Long sessionId) {
+        return ApiResponse.success(interviewService.getStageStats(sessionId));
     }
 
     /**
@@ -114,13 +191,39 @@ public class InterviewController {
     }
 
     /**
-     * 生成面试报告
+     * 同步生成面试报告（含 AI 润色），保留兼容；推荐使用报告生成任务
      */
     @PostMapping("/sessions/{id}/report")
     public ApiResponse<?> generateReport(@PathVariable("id") Long sessionId) {
         return ApiResponse.success(reportService.generateReport(sessionId));
     }
 
+    /**
+     * 提交报告生成任务
+     * 规则版报告在返回前已保存，可立即查询；阶段小结与 AI 润色在后台执行
+     */
+    @PostMapping("/sessions/{id}/report/jobs")
+    public ApiResponse<ReportJobResponse> submitReportJob(@PathVariable("id") Long sessionId) {
+        return ApiResponse.success(reportJobService.submit(sessionId));
+    }
+
+    /**
+     * 查询报告生成任务状态
+     */
+    @GetMapping("/report/jobs/{jobId}")
+    public ApiResponse<ReportJobResponse> getReportJob(@PathVariable String jobId) {
+        return ApiResponse.success(reportJobService.getJob(jobId));
+    }
+
+    /**
+     * 订阅报告生成任务进度（SSE），携带 Last-Event-ID 重连时只补发之后的事件
+     */
+    @GetMapping(value = "/report/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReportJob(@PathVariable String jobId,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return reportJobService.streamEvents(jobId, lastEventId);
+    }
+
     /**
      * 查询面试报告
      */
@@ -148,9 +251,8 @@ public class InterviewController {
     }
 
     @GetMapping(value = "/interviews/{sessionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public ApiResponse<?> streamInterview(@PathVariable Long sessionId, @RequestParam String candidateText) {
-        // SSE 流式输出实现
-        return ApiResponse.success(interviewService.streamResponse(sessionId, candidateText));
+    public SseEmitter streamInterview(@PathVariable Long sessionId, @RequestParam String candidateText) {
+        return interviewService.streamResponse(sessionId, candidateText);
     }
 
     @PostMapping("/interviews/{sessionId}/finish")
@@ -0,0 +1,16 @@
+package org.itjuerui.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * 候选人回答请求
+ */
+@Data
+public class AnswerRequest {
+    /**
+     * 回答内容
+     */
+    @NotBlank(message = "回答内容不能为空")
+    private String content;
+}
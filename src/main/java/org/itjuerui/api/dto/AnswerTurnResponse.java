@@ -0,0 +1,24 @@
+package org.itjuerui.api.dto;
+
+import lombok.Data;
+
+/**
+ * 提交回答并获取追问的响应
+ */
+@Data
+public class AnswerTurnResponse {
+    /**
+     * 候选人回答的 turnId
+     */
+    private Long answerTurnId;
+
+    /**
+     * 追问内容
+     */
+    private String question;
+
+    /**
+     * 追问的 turnId
+     */
+    private Long turnId;
+}
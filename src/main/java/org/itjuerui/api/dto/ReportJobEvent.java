@@ -0,0 +1,29 @@
+package org.itjuerui.api.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 报告生成任务的进度事件
+ */
+@Data
+public class ReportJobEvent {
+    /**
+     * 事件序号，从 1 开始，作为 SSE 事件ID（断线重连时通过 Last-Event-ID 续传）
+     */
+    private long id;
+
+    /**
+     * 事件类型：rule_report_ready / stage_summaries_ready / ai_polish_done / completed / failed
+     */
+    private String type;
+
+    /**
+     * 事件数据
+     */
+    private Map<String, Object> data;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,38 @@
+package org.itjuerui.api.dto;
+
+import lombok.Data;
+import org.itjuerui.domain.report.enums.ReportJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 报告生成任务状态
+ */
+@Data
+public class ReportJobResponse {
+    private String jobId;
+
+    private Long sessionId;
+
+    private ReportJobStatus status;
+
+    /**
+     * 报告ID，规则版报告落库后即有值
+     */
+    private Long reportId;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    /**
+     * 已发生的进度事件
+     */
+    private List<ReportJobEvent> events;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+}
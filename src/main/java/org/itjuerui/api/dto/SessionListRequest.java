@@ -19,12 +19,22 @@ public class SessionListRequest {
     private SessionStatus status;
 
     /**
-     * 页码，从1开始
+     * 页码，从1开始（传入 cursor 时忽略）
      */
     private Integer page = 1;
 
     /**
-     * 每页大小
+     * 每页大小，最大 100
      */
     private Integer size = 10;
+
+    /**
+     * 游标（可选），取上一页响应的 nextCursor；传入时按 (created_at, id) 续读，不使用 OFFSET
+     */
+    private String cursor;
+
+    /**
+     * 是否统计总记录数；未传时页码模式统计、游标模式不统计（沿用首页得到的 total，省去每页的 COUNT 查询）
+     */
+    private Boolean withTotal;
 }
@@ -16,12 +16,12 @@ public class SessionListResponse {
     private List<InterviewSession> sessions;
 
     /**
-     * 总记录数
+     * 总记录数（withTotal=false 时为空）
      */
     private Long total;
 
     /**
-     * 当前页码
+     * 当前页码（游标翻页时为空）
      */
     private Integer page;
 
@@ -31,7 +31,17 @@ public class SessionListResponse {
     private Integer size;
 
     /**
-     * 总页数
+     * 总页数（withTotal=false 时为空）
      */
     private Integer totalPages;
+
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+
+    /**
+     * 下一页游标，没有下一页时为空
+     */
+    private String nextCursor;
 }
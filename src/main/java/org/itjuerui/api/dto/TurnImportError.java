@@ -0,0 +1,23 @@
+package org.itjuerui.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量导入中未写入的轮次
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TurnImportError {
+    /**
+     * 轮次在请求中的位置（JSON 数组下标，或 NDJSON 行号减一），从 0 开始
+     */
+    private Integer index;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+}
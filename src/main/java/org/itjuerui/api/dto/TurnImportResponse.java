@@ -0,0 +1,38 @@
+package org.itjuerui.api.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入轮次响应
+ */
+@Data
+public class TurnImportResponse {
+    /**
+     * 收到的轮次数
+     */
+    private int received;
+
+    /**
+     * 成功写入的轮次数
+     */
+    private int imported;
+
+    /**
+     * 未写入的轮次数
+     */
+    private int failed;
+
+    /**
+     * 本次写入的第一个与最后一个会话内序号，没有写入时为空
+     */
+    private Integer firstSeq;
+    private Integer lastSeq;
+
+    /**
+     * 未写入的轮次及原因，按请求中的位置排列
+     */
+    private List<TurnImportError> errors = new ArrayList<>();
+}
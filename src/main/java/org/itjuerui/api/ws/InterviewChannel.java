@@ -0,0 +1,148 @@
+package org.itjuerui.api.ws;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单条面试 WebSocket 连接的状态
+ * 下行消息经有界发送缓冲写出（多个线程可并发发送）；上行的回答片段在提交前累计在连接上
+ */
+@Slf4j
+class InterviewChannel {
+
+    private final WebSocketSession session;
+    private final Long sessionId;
+    private final Runnable onOverflow;
+    private final StringBuilder answerBuffer = new StringBuilder();
+    private final AtomicBoolean streaming = new AtomicBoolean();
+    private volatile Runnable leaveStream;
+    private volatile long lastActivityAt = System.currentTimeMillis();
+
+    InterviewChannel(WebSocketSession session, Long sessionId, int sendTimeLimitMillis, int sendBufferSizeBytes,
+            Runnable onOverflow) {
+        // 积压超过发送缓冲或单次发送超时时，装饰器关闭连接并拒绝后续发送
+        this.session = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, sendBufferSizeBytes);
+        this.sessionId = sessionId;
+        this.onOverflow = onOverflow;
+    }
+
+
+    Long getSessionId() {
+        return sessionId;
+    }
+
+
+    long getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+
+    void touch() {
+        lastActivityAt = System.currentTimeMillis();
+    }
+
+
+    /**
+     * 发送一条下行消息
+     *
+     * @throws IOException 连接已关闭或因积压被关闭
+     */
+    void send(String payload) throws IOException {
+        if (!session.isOpen()) {
+            throw new IOException("连接已关闭");
+        }
+        try {
+            session.sendMessage(new TextMessage(payload));
+        } catch (SessionLimitExceededException ex) {
+            log.warn("面试 WebSocket 发送积压超限，关闭连接: sessionId={}, message={}", sessionId, ex.getMessage());
+            onOverflow.run();
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+
+    /**
+     * 追加一段未提交的回答
+     *
+     * @return 超过累计上限时返回 false，并丢弃已累计的内容
+     */
+    synchronized boolean appendAnswer(String text, int maxChars) {
+        if (text == null) {
+            return true;
+        }
+        if (answerBuffer.length() + text.length() > maxChars) {
+            answerBuffer.setLength(0);
+            return false;
+        }
+        answerBuffer.append(text);
+        return true;
+    }
+
+
+    /**
+     * 取出要提交的回答：显式给出的完整文本优先，否则为已累计的片段；取出后清空累计
+     */
+    synchronized String takeAnswer(String text) {
+        String content = text != null && !text.isBlank() ? text : answerBuffer.toString();
+        answerBuffer.setLength(0);
+        return content;
+    }
+
+
+    /**
+     * 提交失败时放回取出的回答，排在提交后新收到的片段之前
+     */
+    synchronized void restoreAnswer(String content) {
+        answerBuffer.insert(0, content);
+    }
+
+
+    boolean isStreaming() {
+        return streaming.get();
+    }
+
+
+    boolean beginStream() {
+        return streaming.compareAndSet(false, true);
+    }
+
+
+    void attachStream(Runnable leave) {
+        leaveStream = leave;
+        if (!streaming.get()) {
+            // 生成已同步结束（如幂等重放或校验失败）
+            leaveStream = null;
+        }
+    }
+
+
+    void endStream() {
+        streaming.set(false);
+        leaveStream = null;
+    }
+
+
+    void leaveStream() {
+        Runnable leave = leaveStream;
+        if (leave != null) {
+            leave.run();
+        }
+        endStream();
+    }
+
+
+    void close(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ex) {
+            log.debug("关闭面试 WebSocket 失败: sessionId={}", sessionId, ex);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.itjuerui.api.ws;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewWebSocketProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.service.InterviewService;
+import org.itjuerui.service.QuestionStreamListener;
+import org.itjuerui.service.support.InterviewGenerationExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 面试 WebSocket 通道
+ * 每场面试一条长连接（{path}/{sessionId}），全双工：候选人回答的语音识别片段持续上行的同时，问题增量持续下行。
+ * <p>
+ * 消息均为 JSON 文本帧，type 字段区分类型，id 为客户端消息ID（可选，用于确认与幂等）：
+ * <ul>
+ *   <li>上行 answer.delta {text}：追加一段未提交的回答（语音识别的部分结果）</li>
+ *   <li>上行 answer.commit {id, text?}：提交回答（text 为空时使用已累计的片段）并生成追问，id 同时作为幂等键</li>
+ *   <li>上行 question.next {id}：不提交回答，直接生成下一道问题</li>
+ *   <li>上行 stage.next {id}：推进到下一阶段</li>
+ *   <li>上行 ping {id}：客户端心跳</li>
+ *   <li>下行 ack {id}、question.delta {text}、question.done {answerTurnId, turnId, question}、
+ *       stage.changed {stage}、pong {id}、heartbeat、error {id, code, message}</li>
+ * </ul>
+ * 每个连接的下行消息经有界发送缓冲写出，客户端读取过慢导致积压超限或单条发送超时时关闭连接，不拖累生成线程；
+ * 可能阻塞的操作（阶段推进含阶段小结生成）在生成执行器上运行，不占用上行消息线程
+ */
+@Slf4j
+@Component
+public class InterviewWebSocketHandler extends TextWebSocketHandler {
+
+    private final InterviewService interviewService;
+    private final InterviewGenerationExecutor generationExecutor;
+    private final InterviewWebSocketProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InterviewChannel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    public InterviewWebSocketHandler(InterviewService interviewService, InterviewGenerationExecutor generationExecutor,
+            InterviewWebSocketProperties properties, MeterRegistry meterRegistry) {
+        this.interviewService = interviewService;
+        this.generationExecutor = generationExecutor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "interview-ws-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, properties.getHeartbeatSeconds());
+        heartbeatScheduler.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.SECONDS);
+
+        Gauge.builder("interview.ws.connections", channels, Map::size)
+                .description("面试 WebSocket 连接数")
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Long sessionId = parseSessionId(session);
+        if (sessionId == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("无效的会话ID"));
+            return;
+        }
+        session.setTextMessageSizeLimit(properties.getMaxTextMessageBytes());
+        InterviewChannel channel = new InterviewChannel(session, sessionId,
+                properties.getSendTimeLimitMillis(), properties.getSendBufferSizeBytes(),
+                () -> meterRegistry.counter("interview.ws.closed", "reason", "overflow").increment());
+        channels.put(session.getId(), channel);
+        log.info("面试 WebSocket 已连接: sessionId={}, connectionId={}", sessionId, session.getId());
+    }
+
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        InterviewChannel channel = channels.get(session.getId());
+        if (channel == null) {
+            return;
+        }
+        channel.touch();
+
+        JSONObject payload;
+        try {
+            payload = JSON.parseObject(message.getPayload());
+        } catch (JSONException ex) {
+            sendError(channel, null, 400, "消息格式错误");
+            return;
+        }
+        if (payload == null) {
+            sendError(channel, null, 400, "消息格式错误");
+            return;
+        }
+        String id = payload.getString("id");
+        String type = payload.getString("type");
+        try {
+            switch (type == null ? "" : type) {
+                case "answer.delta" -> appendAnswer(channel, id, payload.getString("text"));
+                case "answer.commit" -> commitAnswer(channel, id, payload.getString("text"));
+                case "question.next" -> nextQuestion(channel, id);
+                case "stage.next" -> advanceStage(channel, id);
+                case "ping" -> send(channel, message("pong").fluentPut("id", id));
+                default -> sendError(channel, id, 400, "未知消息类型: " + type);
+            }
+        } catch (BusinessException ex) {
+            log.warn("WebSocket 业务异常: sessionId={}, type={}, message={}", channel.getSessionId(), type, ex.getMessage());
+            sendError(channel, id, ex.getCode(), ex.getMessage());
+        }
+    }
+
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.warn("面试 WebSocket 传输异常: connectionId={}, message={}", session.getId(), exception.getMessage());
+        session.close(CloseStatus.SERVER_ERROR);
+    }
+
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        InterviewChannel channel = channels.remove(session.getId());
+        if (channel != null) {
+            // 断开时离开进行中的生成；没有其他接收方时上游生成随之取消
+            channel.leaveStream();
+            log.info("面试 WebSocket 已断开: sessionId={}, status={}", channel.getSessionId(), status);
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        for (InterviewChannel channel : channels.values()) {
+            channel.close(CloseStatus.GOING_AWAY);
+        }
+    }
+
+
+    private void appendAnswer(InterviewChannel channel, String id, String text) {
+        if (!channel.appendAnswer(text, properties.getMaxAnswerChars())) {
+            throw new BusinessException(413, "回答内容过长");
+        }
+        ack(channel, id);
+    }
+
+
+    private void commitAnswer(InterviewChannel channel, String id, String text) {
+        if (channel.isStreaming()) {
+            // 保留已累计的片段，等上一道问题生成结束后再提交
+            throw new BusinessException(409, "上一道问题仍在生成");
+        }
+        boolean buffered = text == null || text.isBlank();
+        String content = channel.takeAnswer(text);
+        if (content.isBlank()) {
+            throw new BusinessException("回答内容不能为空");
+        }
+        // 回答写入前失败时，累计的片段放回连接，客户端可直接重新提交
+        startStream(channel, id, buffered ? content : null,
+                listener -> interviewService.streamAnswer(channel.getSessionId(), content, id, listener));
+    }
+
+
+    private void nextQuestion(InterviewChannel channel, String id) {
+        startStream(channel, id, null,
+                listener -> interviewService.streamNextQuestion(channel.getSessionId(), id, listener));
+    }
+
+
+    private void advanceStage(InterviewChannel channel, String id) {
+        ack(channel, id);
+        // 阶段推进可能同步生成阶段小结（调用 LLM），放到生成执行器上，上行片段不被阻塞
+        generationExecutor.submit(() -> {
+            try {
+                InterviewSession session = interviewService.advanceStage(channel.getSessionId());
+                send(channel, message("stage.changed").fluentPut("id", id)
+                        .fluentPut("stage", session.getCurrentStage() == null ? null : session.getCurrentStage().name()));
+            } catch (BusinessException ex) {
+                log.warn("WebSocket 阶段推进失败: sessionId={}, message={}", channel.getSessionId(), ex.getMessage());
+                sendError(channel, id, ex.getCode(), ex.getMessage());
+            } catch (RuntimeException ex) {
+                log.error("WebSocket 阶段推进失败: sessionId={}", channel.getSessionId(), ex);
+                sendError(channel, id, 500, "阶段推进失败");
+            }
+        });
+    }
+
+
+    private void startStream(InterviewChannel channel, String id, String pendingAnswer,
+            Function<QuestionStreamListener, Runnable> starter) {
+        // 每个连接同时只进行一次生成；生成期间仍可继续接收下一次回答的片段
+        if (!channel.beginStream()) {
+            if (pendingAnswer != null) {
+                channel.restoreAnswer(pendingAnswer);
+            }
+            throw new BusinessException(409, "上一道问题仍在生成");
+        }
+        ack(channel, id);
+        ChannelListener listener = new ChannelListener(channel, id, pendingAnswer);
+        try {
+            channel.attachStream(starter.apply(listener));
+        } catch (RuntimeException ex) {
+            listener.restoreAnswer();
+            channel.endStream();
+            throw ex;
+        }
+    }
+
+
+    private void ack(InterviewChannel channel, String id) {
+        if (id != null) {
+            send(channel, message("ack").fluentPut("id", id));
+        }
+    }
+
+
+    private void sendError(InterviewChannel channel, String id, int code, String message) {
+        send(channel, message("error").fluentPut("id", id).fluentPut("code", code).fluentPut("message", message));
+    }
+
+
+    private void send(InterviewChannel channel, JSONObject message) {
+        try {
+            channel.send(message.toJSONString());
+        } catch (IOException ex) {
+            log.warn("面试 WebSocket 发送失败: sessionId={}, message={}", channel.getSessionId(), ex.getMessage());
+        }
+    }
+
+
+    private void heartbeat() {
+        long idleMillis = TimeUnit.SECONDS.toMillis(properties.getIdleTimeoutSeconds());
+        long now = System.currentTimeMillis();
+        for (InterviewChannel channel : channels.values()) {
+            if (now - channel.getLastActivityAt() > idleMillis) {
+                log.info("面试 WebSocket 空闲超时: sessionId={}", channel.getSessionId());
+                meterRegistry.counter("interview.ws.closed", "reason", "idle").increment();
+                channel.close(CloseStatus.SESSION_NOT_RELIABLE.withReason("空闲超时"));
+            } else {
+                send(channel, message("heartbeat"));
+            }
+        }
+    }
+
+
+    private static JSONObject message(String type) {
+        return new JSONObject().fluentPut("type", type);
+    }
+
+
+    private static Long parseSessionId(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        String path = session.getUri().getPath();
+        try {
+            return Long.valueOf(path.substring(path.lastIndexOf('/') + 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+
+    /**
+     * 把一次问题生成推送到连接上
+     */
+    private final class ChannelListener implements QuestionStreamListener {
+        private final InterviewChannel channel;
+        private final String id;
+        private final AtomicReference<String> pendingAnswer;
+
+        private ChannelListener(InterviewChannel channel, String id, String pendingAnswer) {
+            this.channel = channel;
+            this.id = id;
+            this.pendingAnswer = new AtomicReference<>(pendingAnswer);
+        }
+
+
+        @Override
+        public void onAnswerSaved(Long answerTurnId) {
+            pendingAnswer.set(null);
+        }
+
+
+        @Override
+        public void onDelta(String delta, String eventId) throws IOException {
+            channel.send(message("question.delta").fluentPut("id", id).fluentPut("text", delta).toJSONString());
+        }
+
+
+        @Override
+        public void onDone(Long answerTurnId, InterviewTurn turn) throws IOException {
+            channel.endStream();
+            channel.send(message("question.done").fluentPut("id", id)
+                    .fluentPut("answerTurnId", answerTurnId)
+                    .fluentPut("turnId", turn.getId())
+                    .fluentPut("question", turn.getContentText())
+                    .toJSONString());
+        }
+
+
+        @Override
+        public void onError(int code, String message) {
+            restoreAnswer();
+            channel.endStream();
+            sendError(channel, id, code, message);
+        }
+
+
+        /**
+         * 回答尚未写入时放回连接的回答缓冲
+         */
+        private void restoreAnswer() {
+            String content = pendingAnswer.getAndSet(null);
+            if (content != null) {
+                channel.restoreAnswer(content);
+            }
+        }
+
+
+        @Override
+        public void onCancelled() {
+            channel.endStream();
+        }
+    }
+}
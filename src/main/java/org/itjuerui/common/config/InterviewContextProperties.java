@@ -0,0 +1,43 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 面试上下文窗口配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.context")
+public class InterviewContextProperties {
+    /**
+     * 原文保留的最近轮次数
+     */
+    private int recentTurns = 8;
+
+    /**
+     * 是否把更早的轮次折叠为滚动摘要
+     */
+    private boolean summaryEnabled = true;
+
+    /**
+     * 未折叠的较早轮次达到该数量时触发后台摘要
+     */
+    private int summaryBatchTurns = 4;
+
+    /**
+     * 摘要最大字数
+     */
+    private int summaryMaxChars = 800;
+
+    /**
+     * 面试提问 prompt 的 token 上限（估算值）
+     */
+    private int dialogTokenBudget = 3000;
+
+    /**
+     * 报告生成 prompt 的 token 上限（估算值）
+     */
+    private int reportTokenBudget = 12000;
+}
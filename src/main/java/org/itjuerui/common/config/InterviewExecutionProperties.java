@@ -0,0 +1,29 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 面试问题生成执行配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.execution")
+public class InterviewExecutionProperties {
+    /**
+     * 运行时支持虚拟线程（JDK 21+）时使用虚拟线程执行流式生成，否则退回有界平台线程池
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * 同时进行的问题生成上限，超出时立即返回 429 而不是排队等待；
+     * 0 表示取 LLM 并发隔离许可数减去预生成并发数，配置值超过该数时按该数生效
+     */
+    private int maxConcurrentGenerations = 0;
+
+    /**
+     * 关闭时等待进行中生成结束的最长时间（秒）
+     */
+    private long shutdownTimeoutSeconds = 10;
+}
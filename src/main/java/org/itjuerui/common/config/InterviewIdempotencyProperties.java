@@ -0,0 +1,23 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 提问接口幂等配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.idempotency")
+public class InterviewIdempotencyProperties {
+    /**
+     * 幂等结果保留时间（秒），期间携带相同 Idempotency-Key 的重试直接返回已生成的轮次
+     */
+    private long ttlSeconds = 600;
+
+    /**
+     * 最多保留的幂等结果数（LRU 淘汰）
+     */
+    private int maxEntries = 10000;
+}
@@ -0,0 +1,39 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 下一道问题预生成配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.prefetch")
+public class InterviewPrefetchProperties {
+    /**
+     * 是否在候选人回答落库后预生成下一道问题
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预生成结果的有效期（秒），过期未取用视为浪费
+     */
+    private long ttlSeconds = 600;
+
+    /**
+     * 非流式取用时预生成仍在进行，最长等待时间（毫秒），超时后改为直接生成；
+     * 流式取用不等待，直接转发进行中的预生成增量
+     */
+    private long maxWaitMillis = 15000;
+
+    /**
+     * 同时进行的预生成任务上限
+     */
+    private int maxConcurrent = 8;
+
+    /**
+     * 等待执行的预生成任务上限，超出时放弃预生成
+     */
+    private int queueCapacity = 100;
+}
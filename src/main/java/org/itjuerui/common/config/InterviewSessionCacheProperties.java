@@ -0,0 +1,28 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 面试会话状态缓存配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.session-cache")
+public class InterviewSessionCacheProperties {
+    /**
+     * 是否启用会话状态缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的会话数上限，超出时淘汰最久未使用的会话
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * 缓存有效期（秒）；未接入跨节点失效广播时，也是其他节点写入后本节点的最大陈旧时间
+     */
+    private long ttlSeconds = 30;
+}
@@ -0,0 +1,33 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SSE 推送配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.sse")
+public class InterviewSseProperties {
+    /**
+     * 增量合并窗口（毫秒）：窗口内的多段增量合并为一个事件发送；为 0 时不合并
+     */
+    private long coalesceWindowMillis = 40;
+
+    /**
+     * 合并中的增量达到该字节数时立即发送
+     */
+    private int coalesceMaxBytes = 512;
+
+    /**
+     * 心跳间隔（秒）：连接在该时间内没有发送任何事件时发送注释行，防止空闲代理断开连接
+     */
+    private long heartbeatSeconds = 15;
+
+    /**
+     * 发送线程数：执行到期的合并发送与心跳，一个慢客户端最多占住一个线程
+     */
+    private int senderThreads = 2;
+}
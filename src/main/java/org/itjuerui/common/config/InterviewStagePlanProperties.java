@@ -0,0 +1,23 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 阶段计划配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.stage-plan")
+public class InterviewStagePlanProperties {
+    /**
+     * 启动时是否把内嵌 stage_plan_json 的历史会话迁移为按ID引用；未迁移的会话在首次访问时迁移
+     */
+    private boolean migrateOnStartup = true;
+
+    /**
+     * 启动迁移每批处理的会话数
+     */
+    private int migrationBatchSize = 500;
+}
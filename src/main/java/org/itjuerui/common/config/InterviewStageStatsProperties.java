@@ -0,0 +1,18 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 阶段回答统计配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.stage-stats")
+public class InterviewStageStatsProperties {
+    /**
+     * 启动时是否为尚无统计的历史会话补齐统计；未补齐的会话在首次读取时按会话重建
+     */
+    private boolean backfillOnStartup = true;
+}
@@ -0,0 +1,29 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SSE 断线续传配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.stream-replay")
+public class InterviewStreamReplayProperties {
+    /**
+     * 生成结束后保留已推送内容的时间（秒），期间携带 Last-Event-ID 重连可补齐剩余内容与完成事件
+     */
+    private long ttlSeconds = 120;
+
+    /**
+     * 最多保留的流数（LRU 淘汰）
+     */
+    private int maxStreams = 10000;
+
+    /**
+     * 已推送过内容的流在最后一个接收方断开后，等待重连的时间（毫秒），超时仍无人重连才取消上游生成；
+     * 宽限期内生成仍占用并发许可且可能落库，宜保持在几秒内，0 表示断开即取消
+     */
+    private long resumeGraceMillis = 3000;
+}
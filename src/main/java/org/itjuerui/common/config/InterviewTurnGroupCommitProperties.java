@@ -0,0 +1,38 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 轮次组提交配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.turn-group-commit")
+public class InterviewTurnGroupCommitProperties {
+    /**
+     * 是否启用组提交：并发写入的单条轮次排队后合并为一次批量插入、一次提交
+     */
+    private boolean enabled = false;
+
+    /**
+     * 攒批窗口（毫秒）：批次中第一条轮次入队后最多再等待的时间，为 0 时只合并上一批提交期间排队的轮次
+     */
+    private long windowMillis = 2;
+
+    /**
+     * 单批最多轮次数
+     */
+    private int maxBatchSize = 200;
+
+    /**
+     * 排队上限，队列已满时调用方直接单独写入
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 调用方等待提交结果的超时时间（毫秒）
+     */
+    private long timeoutMillis = 10000;
+}
@@ -0,0 +1,23 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量导入轮次配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.turn-import")
+public class InterviewTurnImportProperties {
+    /**
+     * 每批写入的轮次数：一批一个事务、一次 JDBC 批量执行
+     */
+    private int batchSize = 500;
+
+    /**
+     * 单次请求最多导入的轮次数
+     */
+    private int maxTurns = 20000;
+}
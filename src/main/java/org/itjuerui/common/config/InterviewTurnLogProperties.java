@@ -0,0 +1,28 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话轮次日志配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.turn-log")
+public class InterviewTurnLogProperties {
+    /**
+     * 是否启用内存轮次日志；关闭时每次读取全部轮次
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存轮次的会话数上限，超出时淘汰最久未使用的会话
+     */
+    private int maxSessions = 2000;
+
+    /**
+     * 会话空闲多久（秒）后释放其轮次日志
+     */
+    private long idleSeconds = 1800;
+}
@@ -0,0 +1,58 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 面试 WebSocket 通道配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "interview.websocket")
+public class InterviewWebSocketProperties {
+    /**
+     * 是否启用 WebSocket 面试通道
+     */
+    private boolean enabled = true;
+
+    /**
+     * 通道路径前缀，完整地址为 {path}/{sessionId}
+     */
+    private String path = "/ws/interview";
+
+    /**
+     * 允许的来源
+     */
+    private String[] allowedOrigins = {"*"};
+
+    /**
+     * 单个连接的发送缓冲上限（字节），客户端读取过慢导致积压超过上限时关闭连接
+     */
+    private int sendBufferSizeBytes = 256 * 1024;
+
+    /**
+     * 单条消息发送的最长阻塞时间（毫秒），超过时关闭连接
+     */
+    private int sendTimeLimitMillis = 10_000;
+
+    /**
+     * 单条入站消息的最大字节数
+     */
+    private int maxTextMessageBytes = 64 * 1024;
+
+    /**
+     * 未提交回答的累计字符数上限
+     */
+    private int maxAnswerChars = 20_000;
+
+    /**
+     * 服务端心跳间隔（秒）
+     */
+    private long heartbeatSeconds = 25;
+
+    /**
+     * 连接空闲超时（秒），期间未收到任何客户端消息则关闭连接
+     */
+    private long idleTimeoutSeconds = 120;
+}
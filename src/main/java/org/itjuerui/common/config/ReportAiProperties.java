@@ -15,4 +15,24 @@ public class ReportAiProperties {
      * 是否启用 AI 报告润色
      */
     private boolean enabled = false;
+
+    /**
+     * 阶段小结润色方式：PARALLEL 每个阶段一次调用并发执行，BATCH 所有阶段合并为一次调用
+     */
+    private PolishMode polishMode = PolishMode.PARALLEL;
+
+    /**
+     * PARALLEL 方式下同时进行的阶段润色调用上限（所有报告共享）
+     */
+    private int maxParallelism = 4;
+
+    /**
+     * 推进阶段时只保存规则版小结，生成报告时与总报告一起润色，避免推进阶段等待 LLM
+     */
+    private boolean deferStagePolish = true;
+
+    public enum PolishMode {
+        PARALLEL,
+        BATCH
+    }
 }
@@ -0,0 +1,43 @@
+package org.itjuerui.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 报告生成任务配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.job")
+public class ReportJobProperties {
+    /**
+     * 后台工作线程数（阶段小结与 AI 润色）
+     */
+    private int workers = 2;
+
+    /**
+     * 等待执行的任务上限，队列满时提交返回 429
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 任务结束后保留状态与进度事件的时间（秒）
+     */
+    private long retainSeconds = 600;
+
+    /**
+     * 最多保留的任务数（LRU 淘汰）
+     */
+    private int maxJobs = 10000;
+
+    /**
+     * 进度事件流的超时时间（秒）
+     */
+    private long streamTimeoutSeconds = 300;
+
+    /**
+     * 关闭时等待进行中任务结束的时间（秒）
+     */
+    private long shutdownTimeoutSeconds = 30;
+}
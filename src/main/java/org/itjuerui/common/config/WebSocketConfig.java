@@ -0,0 +1,28 @@
+package org.itjuerui.common.config;
+
+import lombok.RequiredArgsConstructor;
+import org.itjuerui.api.ws.InterviewWebSocketHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket配置
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "interview.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final InterviewWebSocketHandler interviewWebSocketHandler;
+    private final InterviewWebSocketProperties properties;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(interviewWebSocketHandler, properties.getPath() + "/*")
+                .setAllowedOrigins(properties.getAllowedOrigins());
+    }
+}
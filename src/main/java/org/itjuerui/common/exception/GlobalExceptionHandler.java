@@ -24,9 +24,12 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<ApiResponse<?>> handleBusinessException(BusinessException e) {
         log.error("业务异常: {}", e.getMessage(), e);
-        // 根据业务code决定HTTP状态码：400为参数错误，500为系统错误
+        // 根据业务code决定HTTP状态码：4xx/5xx 直接对应（如 400 参数错误、429 限流、503 熔断），其余按系统错误处理
         int businessCode = e.getCode();
-        HttpStatus httpStatus = (businessCode == 400) ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+        HttpStatus httpStatus = HttpStatus.resolve(businessCode);
+        if (httpStatus == null || !httpStatus.isError()) {
+            httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
         ApiResponse<?> response = ApiResponse.error(businessCode, e.getMessage());
         return ResponseEntity.status(httpStatus).body(response);
     }
@@ -0,0 +1,108 @@
+package org.itjuerui.common.sse;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * SSE 事件构建器
+ * 按规范输出 "field: value" 格式，多行数据拆分为多个 data 字段
+ */
+public class SseEvent implements SseEmitter.SseEventBuilder {
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final StringBuilder sb = new StringBuilder();
+
+    private SseEvent() {
+    }
+
+
+    /**
+     * 创建带事件名的 SSE 事件
+     *
+     * @param name 事件名
+     * @return 事件构建器
+     */
+    public static SseEvent named(String name) {
+        return new SseEvent().name(name);
+    }
+
+
+    /**
+     * 创建注释行事件（用于心跳保活）
+     *
+     * @param comment 注释内容
+     * @return 事件构建器
+     */
+    public static SseEvent commentLine(String comment) {
+        return new SseEvent().comment(comment);
+    }
+
+
+    @Override
+    public SseEvent id(String id) {
+        append("id", id);
+        return this;
+    }
+
+
+    @Override
+    public SseEvent name(String eventName) {
+        append("event", eventName);
+        return this;
+    }
+
+
+    @Override
+    public SseEvent reconnectTime(long reconnectTimeMillis) {
+        append("retry", String.valueOf(reconnectTimeMillis));
+        return this;
+    }
+
+
+    @Override
+    public SseEvent comment(String comment) {
+        append("", comment);
+        return this;
+    }
+
+
+    @Override
+    public SseEvent data(Object object) {
+        String text = String.valueOf(object);
+        for (String line : text.split("\r\n|\r|\n", -1)) {
+            append("data", line);
+        }
+        return this;
+    }
+
+
+    @Override
+    public SseEvent data(Object object, MediaType mediaType) {
+        return data(object);
+    }
+
+
+    @Override
+    public Set<ResponseBodyEmitter.DataWithMediaType> build() {
+        return Collections.singleton(new ResponseBodyEmitter.DataWithMediaType(sb + "\n", TEXT_PLAIN_UTF8));
+    }
+
+
+    /**
+     * 序列化后的事件文本
+     */
+    public String text() {
+        return sb + "\n";
+    }
+
+
+    private void append(String field, String value) {
+        sb.append(field).append(": ").append(value).append('\n');
+    }
+}
@@ -0,0 +1,23 @@
+package org.itjuerui.domain.interview.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 面试上下文摘要实体
+ * 保存已折叠轮次的滚动摘要，summarizedTurnId 为已纳入摘要的最后一个轮次ID
+ */
+@Data
+@TableName("interview_context_summary")
+public class InterviewContextSummary {
+    @TableId(type = IdType.INPUT)
+    private Long sessionId;
+    private String summaryText;
+    private Long summarizedTurnId;
+    private Integer summarizedTurnCount;
+    private LocalDateTime updatedAt;
+}
@@ -22,6 +22,13 @@ public class InterviewSession {
     private Integer durationMinutes;
     private SessionStatus status;
     private InterviewStage currentStage;
+    /**
+     * 引用的阶段计划ID
+     */
+    private String stagePlanId;
+    /**
+     * 历史会话内嵌的阶段计划，迁移后清空；会话详情接口按引用的计划填充
+     */
     private String stagePlanJson;
     private LocalDateTime startedAt;
     private LocalDateTime endedAt;
@@ -0,0 +1,21 @@
+package org.itjuerui.domain.interview.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 阶段计划实体
+ * 保存非内置的阶段计划（如历史会话迁移而来的计划），以内容哈希为ID去重，写入后不再修改
+ */
+@Data
+@TableName("interview_stage_plan")
+public class InterviewStagePlan {
+    @TableId(type = IdType.INPUT)
+    private String id;
+    private String planJson;
+    private LocalDateTime createdAt;
+}
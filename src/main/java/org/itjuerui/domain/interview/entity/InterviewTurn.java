@@ -17,6 +17,7 @@ public class InterviewTurn {
     @TableId(type = IdType.AUTO)
     private Long id;
     private Long sessionId;
+    private Integer seq;
     private TurnRole role;
     private String contentText;
     private String stageCode;
@@ -0,0 +1,60 @@
+package org.itjuerui.domain.interview.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 阶段回答统计实体
+ * 候选人回答写入时按（会话, 阶段）累加，报告与进度展示直接读取，不再扫描全部对话；
+ * 未分阶段的回答 stageCode 为空串
+ */
+@Data
+@TableName("stage_answer_stats")
+public class StageAnswerStats {
+    private Long sessionId;
+    private String stageCode;
+    private Integer turnCount;
+    private Long totalChars;
+    private Integer minChars;
+    private Integer maxChars;
+    private LocalDateTime lastActivityAt;
+
+    /**
+     * 平均回答长度（字数），没有回答时为 0
+     */
+    public int getAverageChars() {
+        int count = turnCount == null ? 0 : turnCount;
+        return count == 0 ? 0 : (int) (totalChars / count);
+    }
+
+
+    /**
+     * 合并多个阶段的统计（用于整场面试）
+     */
+    public static StageAnswerStats merge(Long sessionId, List<StageAnswerStats> stages) {
+        StageAnswerStats total = new StageAnswerStats();
+        total.setSessionId(sessionId);
+        total.setTurnCount(0);
+        total.setTotalChars(0L);
+        total.setMinChars(0);
+        total.setMaxChars(0);
+        for (StageAnswerStats stage : stages) {
+            if (stage.getTurnCount() == null || stage.getTurnCount() == 0) {
+                continue;
+            }
+            total.setMinChars(total.getTurnCount() == 0 ? stage.getMinChars()
+                    : Math.min(total.getMinChars(), stage.getMinChars()));
+            total.setMaxChars(Math.max(total.getMaxChars(), stage.getMaxChars()));
+            total.setTurnCount(total.getTurnCount() + stage.getTurnCount());
+            total.setTotalChars(total.getTotalChars() + stage.getTotalChars());
+            if (total.getLastActivityAt() == null || (stage.getLastActivityAt() != null
+                    && stage.getLastActivityAt().isAfter(total.getLastActivityAt()))) {
+                total.setLastActivityAt(stage.getLastActivityAt());
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package org.itjuerui.domain.interview.support;
+
+import com.alibaba.fastjson2.JSON;
+import org.itjuerui.domain.interview.dto.StagePlanStage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 不可变的阶段计划
+ * 解析一次后在所有引用它的会话间共享，按阶段编码 O(1) 查找阶段与其位置；
+ * 阶段节点对象同样共享，调用方不得修改
+ */
+public final class StagePlan {
+
+    private final String id;
+    private final List<StagePlanStage> stages;
+    private final Map<String, Integer> indexByCode;
+    private final String json;
+
+    public StagePlan(String id, List<StagePlanStage> stages) {
+        this.id = id;
+        this.stages = List.copyOf(stages);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < this.stages.size(); i++) {
+            index.putIfAbsent(normalize(this.stages.get(i).getCode()), i);
+        }
+        this.indexByCode = Map.copyOf(index);
+        this.json = JSON.toJSONString(this.stages);
+    }
+
+
+    /**
+     * 计划ID：内置模板为 "名称-v版本"，其他计划为内容哈希
+     */
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * 全部阶段（只读）
+     */
+    public List<StagePlanStage> getStages() {
+        return stages;
+    }
+
+
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+
+    /**
+     * 阶段编码在计划中的位置
+     *
+     * @param code 阶段编码，忽略大小写
+     * @return 位置，不存在时返回 -1
+     */
+    public int indexOf(String code) {
+        if (code == null) {
+            return -1;
+        }
+        Integer index = indexByCode.get(normalize(code));
+        return index == null ? -1 : index;
+    }
+
+
+    /**
+     * 按阶段编码查找阶段
+     *
+     * @param code 阶段编码，忽略大小写
+     * @return 阶段，不存在时返回 null
+     */
+    public StagePlanStage stageOf(String code) {
+        int index = indexOf(code);
+        return index < 0 ? null : stages.get(index);
+    }
+
+
+    /**
+     * 计划的 JSON 表示，仅用于接口返回与持久化，构造时生成一次
+     */
+    public String toJson() {
+        return json;
+    }
+
+
+    private static String normalize(String code) {
+        return code == null ? "" : code.toUpperCase(Locale.ROOT);
+    }
+}
@@ -11,6 +11,11 @@ import java.util.List;
  */
 public final class StagePlanFactory {
 
+    /**
+     * 默认阶段计划模板ID；模板内容变化时递增版本号，已有会话仍引用旧版本
+     */
+    public static final String DEFAULT_PLAN_ID = "default-v1";
+
     private StagePlanFactory() {
     }
 
@@ -0,0 +1,30 @@
+package org.itjuerui.domain.report.enums;
+
+/**
+ * 报告生成任务状态
+ */
+public enum ReportJobStatus {
+    /**
+     * 规则版报告已落库，等待后台执行
+     */
+    QUEUED,
+
+    /**
+     * 正在生成阶段小结或 AI 润色
+     */
+    RUNNING,
+
+    /**
+     * 已完成
+     */
+    SUCCEEDED,
+
+    /**
+     * 失败（规则版报告仍然可用）
+     */
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,17 @@
+package org.itjuerui.infra.llm;
+
+/**
+ * LLM 调用类型
+ * 不同类型对应不同的超时与重试策略
+ */
+public enum LlmCallType {
+    /**
+     * 面试对话（提问、追问）
+     */
+    DIALOG,
+
+    /**
+     * 报告生成与润色
+     */
+    REPORT
+}
@@ -0,0 +1,78 @@
+package org.itjuerui.infra.llm;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LLM 调用取消令牌
+ * 由调用方（如 SSE 连接断开）触发取消，客户端实现注册回调以中止进行中的 HTTP 请求
+ */
+@Slf4j
+public class LlmCancellationToken {
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * 触发取消，执行所有已注册回调（幂等）
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            runQuietly(callback);
+        }
+    }
+
+
+    /**
+     * 是否已取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+
+    /**
+     * 注册取消回调；若已取消则立即执行
+     *
+     * @param callback 回调
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        runQuietly(callback);
+    }
+
+
+    /**
+     * 已取消时抛出 LlmCancelledException
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new LlmCancelledException();
+        }
+    }
+
+
+    private void runQuietly(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception ex) {
+            log.debug("执行取消回调失败: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.itjuerui.infra.llm;
+
+/**
+ * LLM 调用被取消
+ */
+public class LlmCancelledException extends RuntimeException {
+
+    public LlmCancelledException() {
+        super("LLM 调用已取消");
+    }
+}
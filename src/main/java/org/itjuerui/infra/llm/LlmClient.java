@@ -1,12 +1,22 @@
 package org.itjuerui.infra.llm;
 
 import org.itjuerui.infra.llm.dto.Message;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * LLM 客户端接口
  */
 public interface LlmClient {
+    /**
+     * 提供商名称，用于指标与熔断维度
+     */
+    default String getProviderName() {
+        return getClass().getSimpleName();
+    }
+
+
     /**
      * 聊天接口
      *
@@ -14,4 +24,50 @@ public interface LlmClient {
      * @return LLM 响应内容
      */
     String chat(List<Message> messages);
+
+
+    /**
+     * 按调用类型聊天（不同类型使用不同超时）
+     *
+     * @param messages 消息列表
+     * @param callType 调用类型
+     * @return LLM 响应内容
+     */
+    default String chat(List<Message> messages, LlmCallType callType) {
+        return chat(messages);
+    }
+
+
+    /**
+     * 流式聊天接口
+     * 每收到一段增量内容即回调 onDelta，调用线程阻塞直到生成结束
+     *
+     * @param messages 消息列表
+     * @param onDelta  增量内容回调
+     * @return 完整响应内容
+     */
+    default String streamChat(List<Message> messages, Consumer<String> onDelta) {
+        return streamChat(messages, onDelta, new LlmCancellationToken());
+    }
+
+
+    /**
+     * 可取消的流式聊天接口
+     * 令牌被取消时应中止进行中的上游请求，并抛出 LlmCancelledException
+     *
+     * @param messages          消息列表
+     * @param onDelta           增量内容回调
+     * @param cancellationToken 取消令牌
+     * @return 完整响应内容
+     */
+    default String streamChat(List<Message> messages, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken) {
+        cancellationToken.throwIfCancelled();
+        String content = chat(messages);
+        cancellationToken.throwIfCancelled();
+        if (content != null && !content.isEmpty()) {
+            onDelta.accept(content);
+        }
+        return content;
+    }
 }
@@ -0,0 +1,43 @@
+package org.itjuerui.infra.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * LLM 调用指标
+ * 统计 token 用量与流式调用取消情况，用于评估断连取消节省的成本
+ */
+@Component
+public class LlmMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public LlmMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    /**
+     * 记录 token 用量
+     *
+     * @param provider         提供商
+     * @param promptTokens     输入 token 数
+     * @param completionTokens 输出 token 数
+     */
+    public void recordUsage(String provider, long promptTokens, long completionTokens) {
+        meterRegistry.counter("llm.tokens", "provider", provider, "type", "prompt").increment(promptTokens);
+        meterRegistry.counter("llm.tokens", "provider", provider, "type", "completion").increment(completionTokens);
+    }
+
+
+    /**
+     * 记录一次被取消的流式调用
+     *
+     * @param provider      提供商
+     * @param receivedChars 取消前已收到的字符数
+     */
+    public void recordCancelled(String provider, long receivedChars) {
+        meterRegistry.counter("llm.stream.cancelled", "provider", provider).increment();
+        meterRegistry.counter("llm.stream.cancelled.chars", "provider", provider).increment(receivedChars);
+    }
+}
@@ -3,22 +3,27 @@ package org.itjuerui.infra.llm;
 import lombok.extern.slf4j.Slf4j;
 import org.itjuerui.common.exception.BusinessException;
 import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.llm.resilience.LlmResilienceExecutor;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * LLM 服务封装
+ * 所有调用经 LlmResilienceExecutor 执行：按调用类型重试、按 provider 熔断、限制全局并发
  */
 @Slf4j
 @Service
 public class LlmService {
 
     private final ObjectProvider<LlmClient> clientProvider;
+    private final LlmResilienceExecutor resilienceExecutor;
 
-    public LlmService(ObjectProvider<LlmClient> clientProvider) {
+    public LlmService(ObjectProvider<LlmClient> clientProvider, LlmResilienceExecutor resilienceExecutor) {
         this.clientProvider = clientProvider;
+        this.resilienceExecutor = resilienceExecutor;
     }
 
 
@@ -29,15 +34,71 @@ public class LlmService {
      * @return LLM 响应内容
      */
     public String chat(List<Message> messages) {
+        return chat(messages, LlmCallType.DIALOG);
+    }
+
+
+    /**
+     * 按调用类型调用 LLM 生成内容
+     *
+     * @param messages 消息列表
+     * @param callType 调用类型
+     * @return LLM 响应内容
+     */
+    public String chat(List<Message> messages, LlmCallType callType) {
         LlmClient client = clientProvider.getIfAvailable();
         if (client == null) {
             throw new BusinessException(500, "LLM 未配置");
         }
         try {
-            return client.chat(messages);
+            return resilienceExecutor.execute(client.getProviderName(), callType,
+                    () -> client.chat(messages, callType));
+        } catch (BusinessException | LlmCancelledException e) {
+            throw e;
         } catch (Exception e) {
             log.error("LLM 调用失败", e);
             throw new BusinessException(500, "LLM 调用失败");
         }
     }
+
+
+    /**
+     * 流式调用 LLM，增量内容通过 onDelta 回调
+     *
+     * @param messages 消息列表
+     * @param onDelta  增量内容回调
+     * @return 完整响应内容
+     */
+    public String streamChat(List<Message> messages, Consumer<String> onDelta) {
+        return streamChat(messages, onDelta, new LlmCancellationToken());
+    }
+
+
+    /**
+     * 可取消的流式调用，令牌取消后抛出 LlmCancelledException
+     *
+     * @param messages          消息列表
+     * @param onDelta           增量内容回调
+     * @param cancellationToken 取消令牌
+     * @return 完整响应内容
+     */
+    public String streamChat(List<Message> messages, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken) {
+        LlmClient client = clientProvider.getIfAvailable();
+        if (client == null) {
+            throw new BusinessException(500, "LLM 未配置");
+        }
+        try {
+            return resilienceExecutor.executeStream(client.getProviderName(), onDelta, cancellationToken,
+                    (delta, token) -> client.streamChat(messages, delta, token));
+        } catch (BusinessException | LlmCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            if (cancellationToken.isCancelled()) {
+                throw new LlmCancelledException();
+            }
+            log.error("LLM 流式调用失败", e);
+            throw new BusinessException(500, "LLM 调用失败");
+        }
+    }
 }
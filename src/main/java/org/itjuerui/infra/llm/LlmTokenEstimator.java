@@ -0,0 +1,97 @@
+package org.itjuerui.infra.llm;
+
+import org.itjuerui.infra.llm.dto.Message;
+
+import java.util.List;
+
+/**
+ * prompt token 数估算
+ * 不依赖具体模型的分词器：CJK 字符按 1 token 计，其余字符按 4 个字符 1 token 计，偏保守
+ */
+public final class LlmTokenEstimator {
+
+    /**
+     * 每条消息的固定开销（角色标记等）
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private LlmTokenEstimator() {
+    }
+
+
+    /**
+     * 估算文本 token 数
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (isCjk(text.charAt(i))) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+
+    /**
+     * 估算消息列表 token 数
+     */
+    public static int estimate(List<Message> messages) {
+        int total = 0;
+        for (Message message : messages) {
+            total += MESSAGE_OVERHEAD_TOKENS + estimate(message.getContent());
+        }
+        return total;
+    }
+
+
+    /**
+     * 截断文本使其不超过 token 上限，保留开头部分
+     *
+     * @param text      文本
+     * @param maxTokens token 上限
+     * @return 截断后的文本（被截断时以省略号结尾）
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || estimate(text) <= maxTokens) {
+            return text;
+        }
+        if (maxTokens <= 1) {
+            return "";
+        }
+        int budget = maxTokens - 1;
+        int cjk = 0;
+        int other = 0;
+        int end = 0;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            int nextCjk = cjk + (isCjk(c) ? 1 : 0);
+            int nextOther = other + (isCjk(c) ? 0 : 1);
+            if (nextCjk + (nextOther + 3) / 4 > budget) {
+                break;
+            }
+            cjk = nextCjk;
+            other = nextOther;
+            end++;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+}
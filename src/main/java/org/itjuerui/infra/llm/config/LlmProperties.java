@@ -1,6 +1,8 @@
 package org.itjuerui.infra.llm.config;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -41,6 +43,21 @@ public class LlmProperties {
      */
     private DeepseekConfig deepseek = new DeepseekConfig();
 
+    /**
+     * HTTP 传输层配置
+     */
+    private HttpConfig http = new HttpConfig();
+
+    /**
+     * 多 provider 路由配置
+     */
+    private RoutingConfig routing = new RoutingConfig();
+
+    /**
+     * 重试、熔断与并发隔离配置
+     */
+    private ResilienceConfig resilience = new ResilienceConfig();
+
     @Data
     public static class QwenConfig {
         private String apiKey;
@@ -54,4 +71,184 @@ public class LlmProperties {
         private String baseUrl;
         private String model;
     }
+
+    @Data
+    public static class HttpConfig {
+        /**
+         * 建连超时（毫秒）
+         */
+        private long connectTimeoutMillis = 5000;
+
+        /**
+         * 对话类调用超时（毫秒），对应面试提问
+         */
+        private long dialogTimeoutMillis = 15000;
+
+        /**
+         * 报告类调用超时（毫秒）
+         */
+        private long reportTimeoutMillis = 60000;
+
+        /**
+         * 是否优先使用 HTTP/2（服务端不支持时自动降级为 HTTP/1.1）
+         */
+        private boolean http2Enabled = true;
+
+        /**
+         * 启动后是否预热到各 provider 的连接
+         */
+        private boolean warmupEnabled = true;
+    }
+
+    @Data
+    public static class RoutingConfig {
+        /**
+         * 是否启用多 provider 路由（启用后同时装配 Qwen 与 DeepSeek 客户端）
+         */
+        private boolean enabled = false;
+
+        /**
+         * EWMA 平滑系数，越大越偏向最近的观测
+         */
+        private double ewmaAlpha = 0.2;
+
+        /**
+         * 错误率惩罚（毫秒），评分 = 延迟 EWMA + 错误率 EWMA * 惩罚
+         */
+        private long errorPenaltyMillis = 10000;
+
+        /**
+         * 探索比例：按该概率把请求发往非最优 provider，使其统计能恢复
+         */
+        private double exploreRatio = 0.05;
+
+        /**
+         * 是否为面试提问启用对冲请求
+         */
+        private boolean hedgeEnabled = false;
+
+        /**
+         * 对冲延迟下限（毫秒），实际延迟取首选 provider 的 p95 与该值的较大者
+         */
+        private long hedgeMinDelayMillis = 300;
+
+        /**
+         * 计算 p95 使用的最近样本数
+         */
+        private int latencyWindowSize = 100;
+    }
+
+    @Data
+    public static class ResilienceConfig {
+        /**
+         * 是否启用重试/熔断/并发隔离
+         */
+        private boolean enabled = true;
+
+        /**
+         * 面试提问调用策略
+         */
+        private PolicyConfig dialog = new PolicyConfig(2, 200, 1000, 20000);
+
+        /**
+         * 报告生成调用策略
+         */
+        private PolicyConfig report = new PolicyConfig(3, 500, 4000, 120000);
+
+        /**
+         * 熔断器配置（每个 provider 一个）
+         */
+        private BreakerConfig breaker = new BreakerConfig();
+
+        /**
+         * 并发隔离配置（所有 LLM 调用共享）
+         */
+        private BulkheadConfig bulkhead = new BulkheadConfig();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PolicyConfig {
+        /**
+         * 最大尝试次数（含首次调用）
+         */
+        private int maxAttempts;
+
+        /**
+         * 首次重试退避（毫秒），之后按 2 倍递增并叠加随机抖动
+         */
+        private long initialBackoffMillis;
+
+        /**
+         * 退避上限（毫秒）
+         */
+        private long maxBackoffMillis;
+
+        /**
+         * 整体截止时间（毫秒），包含所有重试与退避，超时后立即返回
+         */
+        private long deadlineMillis;
+    }
+
+    @Data
+    public static class BreakerConfig {
+        /**
+         * 触发熔断的失败率
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 统计失败率的最近调用数
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口内至少有多少次调用才计算失败率
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * 熔断打开后的冷却时间（毫秒），之后进入半开状态放行探测请求
+         */
+        private long openDurationMillis = 30000;
+
+        /**
+         * 半开状态放行的探测请求数，全部成功后关闭熔断
+         */
+        private int halfOpenPermits = 2;
+    }
+
+    @Data
+    public static class BulkheadConfig {
+        /**
+         * 最大并发 LLM 调用数，按调用类型划分：报告类调用（报告润色、上下文摘要）占 reportMaxConcurrentCalls，
+         * 其余留给对话类调用（问题生成与预生成）
+         */
+        private int maxConcurrentCalls = 64;
+
+        /**
+         * 报告类调用的并发许可数，报告润色与上下文摘要再多也不会占用问题生成的许可
+         */
+        private int reportMaxConcurrentCalls = 16;
+
+        /**
+         * 并发已满时的最长等待（毫秒），0 表示立即拒绝
+         */
+        private long maxWaitMillis = 0;
+
+        /**
+         * 对话类调用的并发许可数（总数扣除报告类许可，至少 1）
+         */
+        public int dialogCalls() {
+            return Math.max(1, maxConcurrentCalls - reportCalls());
+        }
+
+        /**
+         * 报告类调用的并发许可数（不超过总数，至少 1）
+         */
+        public int reportCalls() {
+            return Math.max(1, Math.min(reportMaxConcurrentCalls, maxConcurrentCalls - 1));
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package org.itjuerui.infra.llm.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LLM 共享 HTTP 传输层
+ * 所有 provider 共用一个 JDK HttpClient：连接池复用保活连接，支持 HTTP/2 多路复用；
+ * 按 (provider, 调用类型) 缓存 RestClient，不同调用类型使用不同的请求超时
+ */
+@Slf4j
+@Component
+public class LlmHttpTransport {
+
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private final LlmProperties.HttpConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService httpExecutor;
+    private final HttpClient httpClient;
+    private final Map<String, RestClient> restClients = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> warmupTargets = ConcurrentHashMap.newKeySet();
+
+    public LlmHttpTransport(LlmProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getHttp();
+        this.meterRegistry = meterRegistry;
+
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.httpExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llm-http-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(config.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .executor(httpExecutor)
+                .build();
+
+        // JDK HttpClient 连接池参数是进程级的，只能通过启动参数 -D 设置（见 README），这里只读取生效值
+        int maxPooledConnections = Integer.getInteger(POOL_SIZE_PROPERTY, 0);
+        Gauge.builder("llm.http.pool.max", () -> maxPooledConnections)
+                .description("每个目标地址的最大保活连接数（0 表示不限制）")
+                .register(meterRegistry);
+        log.info("LLM HTTP 传输层初始化完成: http2={}, connectTimeout={}ms, dialogTimeout={}ms, reportTimeout={}ms, "
+                        + "connectionPoolSize={}, keepAliveTimeout={}s",
+                config.isHttp2Enabled(), config.getConnectTimeoutMillis(),
+                config.getDialogTimeoutMillis(), config.getReportTimeoutMillis(), maxPooledConnections,
+                System.getProperty(KEEP_ALIVE_PROPERTY, "1200"));
+    }
+
+
+    /**
+     * 获取指定 provider 与调用类型的 RestClient（线程安全，按需创建并缓存）
+     *
+     * @param provider 提供商名称
+     * @param baseUrl  接口地址
+     * @param apiKey   API Key
+     * @param callType 调用类型
+     * @return RestClient
+     */
+    public RestClient restClient(String provider, String baseUrl, String apiKey, LlmCallType callType) {
+        String key = provider + "|" + baseUrl + "|" + callType;
+        return restClients.computeIfAbsent(key, k -> buildRestClient(provider, baseUrl, apiKey, callType));
+    }
+
+
+    /**
+     * 登记需要在启动后预热的地址
+     *
+     * @param baseUrl 接口地址
+     */
+    public void registerWarmupTarget(String baseUrl) {
+        if (baseUrl != null && !baseUrl.isBlank()) {
+            warmupTargets.add(baseUrl);
+        }
+    }
+
+
+    /**
+     * 调用类型对应的请求超时
+     */
+    public Duration timeoutOf(LlmCallType callType) {
+        return Duration.ofMillis(callType == LlmCallType.REPORT
+                ? config.getReportTimeoutMillis()
+                : config.getDialogTimeoutMillis());
+    }
+
+
+    /**
+     * 应用启动后异步预热：提前完成 TCP/TLS 握手与 HTTP/2 协商，避免首个面试请求承担建连开销
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!config.isWarmupEnabled()) {
+            return;
+        }
+        for (String target : warmupTargets) {
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(URI.create(target))
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                        .timeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                        .build();
+            } catch (IllegalArgumentException ex) {
+                log.warn("LLM 连接预热地址无效: {}", target);
+                continue;
+            }
+            long start = System.nanoTime();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        long costMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (ex != null) {
+                            log.warn("LLM 连接预热失败: target={}, error={}", target, ex.getMessage());
+                        } else {
+                            log.info("LLM 连接预热完成: target={}, version={}, cost={}ms",
+                                    target, response.version(), costMillis);
+                        }
+                    });
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+
+    private RestClient buildRestClient(String provider, String baseUrl, String apiKey, LlmCallType callType) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, httpExecutor);
+        requestFactory.setReadTimeout(timeoutOf(callType));
+
+        AtomicInteger counter = inFlight.computeIfAbsent(provider, p -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("llm.http.inflight", value, AtomicInteger::get)
+                    .description("进行中的 LLM HTTP 请求数")
+                    .tag("provider", p)
+                    .register(meterRegistry);
+            return value;
+        });
+
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(baseUrl)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .requestInterceptor((request, body, execution) -> {
+                    // 统计首字节延迟（流式调用时为收到响应头的时间）
+                    counter.incrementAndGet();
+                    long start = System.nanoTime();
+                    String outcome = "error";
+                    try {
+                        ClientHttpResponse response = execution.execute(request, body);
+                        outcome = response.getStatusCode().isError() ? "http_error" : "success";
+                        return response;
+                    } catch (IOException ex) {
+                        outcome = "io_error";
+                        throw ex;
+                    } finally {
+                        counter.decrementAndGet();
+                        Timer.builder("llm.http.latency")
+                                .description("LLM HTTP 请求首字节延迟")
+                                .tag("provider", provider)
+                                .tag("callType", callType.name())
+                                .tag("outcome", outcome)
+                                .publishPercentiles(0.5, 0.95, 0.99)
+                                .register(meterRegistry)
+                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .build();
+    }
+}
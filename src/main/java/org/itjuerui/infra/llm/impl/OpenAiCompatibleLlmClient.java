@@ -0,0 +1,282 @@
+package org.itjuerui.infra.llm.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.LlmCancelledException;
+import org.itjuerui.infra.llm.LlmClient;
+import org.itjuerui.infra.llm.LlmMetrics;
+import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.llm.http.LlmHttpTransport;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * OpenAI 兼容协议的 LLM 客户端基类
+ * Qwen（compatible-mode）与 DeepSeek 均使用 /chat/completions 接口，stream=true 时以 SSE 返回增量
+ */
+@Slf4j
+public abstract class OpenAiCompatibleLlmClient implements LlmClient {
+
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
+
+    private final LlmHttpTransport transport;
+    private final LlmMetrics llmMetrics;
+    private final String providerName;
+    private final String configKey;
+    private final String apiKey;
+    private final String baseUrl;
+    private final String model;
+
+    protected OpenAiCompatibleLlmClient(LlmHttpTransport transport, LlmMetrics llmMetrics,
+            String providerName, String configKey, String apiKey, String baseUrl, String model) {
+        this.transport = transport;
+        this.llmMetrics = llmMetrics;
+        this.providerName = providerName;
+        this.configKey = configKey;
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.model = model;
+        transport.registerWarmupTarget(baseUrl);
+    }
+
+
+    /**
+     * 提供商名称
+     */
+    @Override
+    public String getProviderName() {
+        return providerName;
+    }
+
+
+    /**
+     * 提供商配置键（qwen / deepseek）
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+
+
+    /**
+     * 获取共享传输层中对应调用类型的 RestClient
+     */
+    private RestClient getRestClient(LlmCallType callType) {
+        if (this.baseUrl == null || this.baseUrl.isEmpty()) {
+            throw new IllegalStateException(providerName + " Base URL 未配置，请在 application.properties 中设置 llm.baseUrl 或 llm."
+                    + configKey + ".baseUrl");
+        }
+        if (this.apiKey == null || this.apiKey.isEmpty()) {
+            throw new IllegalStateException(providerName + " API Key 未配置，请在 application.properties 中设置 llm.apiKey 或 llm."
+                    + configKey + ".apiKey");
+        }
+        return transport.restClient(providerName, baseUrl, apiKey, callType);
+    }
+
+
+    @Override
+    public String chat(List<Message> messages) {
+        return chat(messages, LlmCallType.DIALOG);
+    }
+
+
+    @Override
+    public String chat(List<Message> messages, LlmCallType callType) {
+        validateModel();
+
+        try {
+            Map<String, Object> requestBody = buildRequestBody(messages, false);
+            log.debug("{} API 请求: {}", providerName, JSON.toJSONString(requestBody));
+
+            // 发送请求（getRestClient 会检查 apiKey 和 baseUrl）
+            String responseBody = getRestClient(callType).post()
+                    .uri("/chat/completions")
+                    .body(requestBody)
+                    .retrieve()
+                    .body(String.class);
+
+            log.debug("{} API 响应: {}", providerName, responseBody);
+
+            // 解析响应
+            JSONObject responseJson = JSON.parseObject(responseBody);
+            recordUsage(responseJson.getJSONObject("usage"));
+            if (responseJson.containsKey("choices") && responseJson.getJSONArray("choices").size() > 0) {
+                JSONObject choice = responseJson.getJSONArray("choices").getJSONObject(0);
+                JSONObject message = choice.getJSONObject("message");
+                return message.getString("content");
+            } else {
+                throw new IllegalStateException(providerName + " API 响应格式异常: " + responseBody);
+            }
+        } catch (Exception e) {
+            log.error("调用 {} API 失败", providerName, e);
+            throw new IllegalStateException("调用 " + providerName + " API 失败: " + e.getMessage(), e);
+        }
+    }
+
+
+    @Override
+    public String streamChat(List<Message> messages, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken) {
+        validateModel();
+        cancellationToken.throwIfCancelled();
+
+        StringBuilder content = new StringBuilder();
+        try {
+            Map<String, Object> requestBody = buildRequestBody(messages, true);
+            log.debug("{} API 流式请求: {}", providerName, JSON.toJSONString(requestBody));
+
+            getRestClient(LlmCallType.DIALOG).post()
+                    .uri("/chat/completions")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .body(requestBody)
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().isError()) {
+                            byte[] errorBody = StreamUtils.copyToByteArray(response.getBody());
+                            String message = providerName + " API 返回错误状态 " + response.getStatusCode().value()
+                                    + ": " + new String(errorBody, StandardCharsets.UTF_8);
+                            // 保留状态码异常类型，便于上层区分可重试的 5xx/429
+                            if (response.getStatusCode().is5xxServerError()) {
+                                throw HttpServerErrorException.create(message, response.getStatusCode(),
+                                        response.getStatusText(), response.getHeaders(), errorBody,
+                                        StandardCharsets.UTF_8);
+                            }
+                            throw HttpClientErrorException.create(message, response.getStatusCode(),
+                                    response.getStatusText(), response.getHeaders(), errorBody,
+                                    StandardCharsets.UTF_8);
+                        }
+                        InputStream body = response.getBody();
+                        // 取消时关闭响应流，读线程随即从阻塞中返回，上游请求被中止
+                        cancellationToken.onCancel(() -> closeQuietly(body));
+                        readEventStream(body, content, onDelta, cancellationToken);
+                        return null;
+                    });
+            return content.toString();
+        } catch (Exception e) {
+            if (cancellationToken.isCancelled()) {
+                log.info("{} API 流式调用已取消: receivedChars={}", providerName, content.length());
+                llmMetrics.recordCancelled(providerName, content.length());
+                throw new LlmCancelledException();
+            }
+            log.error("流式调用 {} API 失败", providerName, e);
+            throw new IllegalStateException("流式调用 " + providerName + " API 失败: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * 逐行解析 SSE 响应，提取 choices[0].delta.content 并回调
+     */
+    private void readEventStream(InputStream body, StringBuilder content, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                cancellationToken.throwIfCancelled();
+                if (!line.startsWith(SSE_DATA_PREFIX)) {
+                    continue;
+                }
+                String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+                if (data.isEmpty()) {
+                    continue;
+                }
+                if (SSE_DONE.equals(data)) {
+                    break;
+                }
+                JSONObject chunk = JSON.parseObject(data);
+                recordUsage(chunk.getJSONObject("usage"));
+                String delta = extractDelta(chunk);
+                if (delta != null && !delta.isEmpty()) {
+                    content.append(delta);
+                    onDelta.accept(delta);
+                }
+            }
+        }
+        cancellationToken.throwIfCancelled();
+        log.debug("{} API 流式响应完成: length={}", providerName, content.length());
+    }
+
+
+    private String extractDelta(JSONObject chunk) {
+        JSONArray choices = chunk.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        JSONObject delta = choices.getJSONObject(0).getJSONObject("delta");
+        return delta == null ? null : delta.getString("content");
+    }
+
+
+    private Map<String, Object> buildRequestBody(List<Message> messages, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", this.model);
+        if (stream) {
+            requestBody.put("stream", true);
+            // 最后一个数据块携带 usage，便于统计 token 用量
+            requestBody.put("stream_options", Map.of("include_usage", true));
+        }
+
+        // 转换消息格式
+        List<Map<String, String>> messageList = new ArrayList<>();
+        for (Message msg : messages) {
+            Map<String, String> messageMap = new HashMap<>();
+            messageMap.put("role", msg.getRole());
+            messageMap.put("content", msg.getContent());
+            messageList.add(messageMap);
+        }
+        requestBody.put("messages", messageList);
+        return requestBody;
+    }
+
+
+    private void recordUsage(JSONObject usage) {
+        if (usage == null) {
+            return;
+        }
+        llmMetrics.recordUsage(providerName,
+                usage.getLongValue("prompt_tokens"), usage.getLongValue("completion_tokens"));
+    }
+
+
+    private void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ex) {
+            log.debug("关闭 {} 响应流失败: {}", providerName, ex.getMessage());
+        }
+    }
+
+
+    private void validateModel() {
+        // 验证配置（调用时检查，允许应用启动）
+        if (this.model == null || this.model.isEmpty()) {
+            throw new IllegalStateException(providerName + " Model 未配置，请在 application.properties 中设置 llm.model 或 llm."
+                    + configKey + ".model");
+        }
+    }
+
+
+    /**
+     * 优先使用 provider 特定配置，否则使用通用配置
+     */
+    protected static String resolve(String specific, String common) {
+        return (specific != null && !specific.isEmpty()) ? specific : common;
+    }
+}
@@ -0,0 +1,139 @@
+package org.itjuerui.infra.llm.resilience;
+
+/**
+ * 基于计数滑动窗口的熔断器
+ * CLOSED：正常放行并统计失败率；OPEN：快速失败；HALF_OPEN：放行少量探测请求决定是否恢复
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenPermits;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failureCount;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls,
+            long openDurationMillis, int halfOpenPermits) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = minimumCalls;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermits = Math.max(1, halfOpenPermits);
+    }
+
+
+    /**
+     * 申请放行
+     *
+     * @return 是否允许调用
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.OPEN) {
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenPermits) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+
+    /**
+     * 记录成功
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenPermits) {
+                reset();
+            }
+            return;
+        }
+        record(false);
+    }
+
+
+    /**
+     * 记录 provider 侧失败
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            trip();
+            return;
+        }
+        record(true);
+        if (windowCount >= minimumCalls && (double) failureCount / windowCount >= failureRateThreshold) {
+            trip();
+        }
+    }
+
+
+    /**
+     * 调用结果与 provider 健康无关（如取消、参数错误），释放半开许可
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+
+    public synchronized State getState() {
+        return state;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    private void record(boolean failure) {
+        if (windowCount == window.length && window[windowIndex]) {
+            failureCount--;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+    }
+
+
+    private void trip() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openDurationMillis;
+    }
+
+
+    private void reset() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        failureCount = 0;
+    }
+}
@@ -0,0 +1,343 @@
+package org.itjuerui.infra.llm.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.LlmCancelledException;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * LLM 调用弹性执行器
+ * 按调用类型应用重试策略（指数退避 + 抖动、整体截止时间），按 provider 熔断，并以信号量限制全局并发。
+ * 并发许可按调用类型划分为两份：报告类（报告润色、上下文摘要）与对话类（问题生成、预生成），
+ * 报告任务积压时不会占用问题生成的许可
+ * <p>
+ * 拒绝与超时以 BusinessException 返回：并发已满 429、熔断打开 503、超过截止时间 504
+ */
+@Slf4j
+@Component
+public class LlmResilienceExecutor {
+
+    private final LlmProperties.ResilienceConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore dialogBulkhead;
+    private final Semaphore reportBulkhead;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ExecutorService callExecutor;
+    private final ScheduledExecutorService deadlineScheduler;
+
+    public LlmResilienceExecutor(LlmProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getResilience();
+        this.meterRegistry = meterRegistry;
+        this.dialogBulkhead = new Semaphore(config.getBulkhead().dialogCalls());
+        this.reportBulkhead = new Semaphore(config.getBulkhead().reportCalls());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.callExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llm-call-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llm-deadline-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("llm.bulkhead.available", dialogBulkhead, Semaphore::availablePermits)
+                .description("LLM 并发隔离剩余许可数")
+                .tag("callType", LlmCallType.DIALOG.name())
+                .register(meterRegistry);
+        Gauge.builder("llm.bulkhead.available", reportBulkhead, Semaphore::availablePermits)
+                .description("LLM 并发隔离剩余许可数")
+                .tag("callType", LlmCallType.REPORT.name())
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 执行非流式调用
+     * 每次尝试在独立线程上运行，调用方最多等待到截止时间；超时后中断该尝试
+     *
+     * @param provider 提供商名称（熔断器维度）
+     * @param callType 调用类型（重试策略维度）
+     * @param call     实际调用
+     * @return 调用结果
+     */
+    public String execute(String provider, LlmCallType callType, Supplier<String> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        LlmProperties.PolicyConfig policy = policyOf(callType);
+        CircuitBreaker breaker = breakerOf(provider);
+        Semaphore bulkhead = bulkheadOf(callType);
+        long deadline = System.currentTimeMillis() + policy.getDeadlineMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            acquire(provider, breaker, bulkhead);
+            Future<String> future;
+            try {
+                future = callExecutor.submit(() -> {
+                    try {
+                        return call.get();
+                    } finally {
+                        bulkhead.release();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                bulkhead.release();
+                breaker.onIgnored();
+                throw ex;
+            }
+
+            RuntimeException failure;
+            try {
+                String result = future.get(remaining(deadline), TimeUnit.MILLISECONDS);
+                breaker.onSuccess();
+                return result;
+            } catch (TimeoutException ex) {
+                future.cancel(true);
+                breaker.onFailure();
+                throw deadlineExceeded(provider, callType, attempt);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                breaker.onIgnored();
+                throw new LlmCancelledException();
+            } catch (ExecutionException ex) {
+                failure = ex.getCause() instanceof RuntimeException runtimeException
+                        ? runtimeException
+                        : new IllegalStateException(ex.getCause());
+            }
+
+            if (!isTransient(failure)) {
+                breaker.onIgnored();
+                throw failure;
+            }
+            breaker.onFailure();
+            backoffOrThrow(provider, callType, policy, attempt, deadline, failure);
+        }
+    }
+
+
+    /**
+     * 执行流式调用
+     * 仅在尚未向调用方输出任何增量时重试；截止时间到达时取消上游请求
+     *
+     * @param provider          提供商名称
+     * @param onDelta           增量内容回调
+     * @param cancellationToken 调用方取消令牌
+     * @param call              实际调用
+     * @return 完整响应内容
+     */
+    public String executeStream(String provider, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken, StreamCall call) {
+        if (!config.isEnabled()) {
+            return call.stream(onDelta, cancellationToken);
+        }
+        LlmProperties.PolicyConfig policy = policyOf(LlmCallType.DIALOG);
+        Semaphore bulkhead = bulkheadOf(LlmCallType.DIALOG);
+        CircuitBreaker breaker = breakerOf(provider);
+        long deadline = System.currentTimeMillis() + policy.getDeadlineMillis();
+        AtomicBoolean emitted = new AtomicBoolean();
+        Consumer<String> trackingDelta = delta -> {
+            emitted.set(true);
+            onDelta.accept(delta);
+        };
+
+        for (int attempt = 1; ; attempt++) {
+            cancellationToken.throwIfCancelled();
+            acquire(provider, breaker, bulkhead);
+
+            // 每次尝试使用独立令牌：调用方取消或截止时间到达都会中止本次尝试
+            LlmCancellationToken attemptToken = new LlmCancellationToken();
+            cancellationToken.onCancel(attemptToken::cancel);
+            AtomicBoolean deadlineHit = new AtomicBoolean();
+            ScheduledFuture<?> deadlineTask = deadlineScheduler.schedule(() -> {
+                deadlineHit.set(true);
+                attemptToken.cancel();
+            }, remaining(deadline), TimeUnit.MILLISECONDS);
+
+            RuntimeException failure;
+            try {
+                String result = call.stream(trackingDelta, attemptToken);
+                breaker.onSuccess();
+                return result;
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } finally {
+                deadlineTask.cancel(false);
+                bulkhead.release();
+            }
+
+            if (cancellationToken.isCancelled()) {
+                breaker.onIgnored();
+                throw new LlmCancelledException();
+            }
+            if (deadlineHit.get()) {
+                breaker.onFailure();
+                throw deadlineExceeded(provider, LlmCallType.DIALOG, attempt);
+            }
+            if (!isTransient(failure)) {
+                breaker.onIgnored();
+                throw failure;
+            }
+            breaker.onFailure();
+            if (emitted.get()) {
+                // 已有内容推送给客户端，重试会导致内容重复
+                throw failure;
+            }
+            backoffOrThrow(provider, LlmCallType.DIALOG, policy, attempt, deadline, failure);
+        }
+    }
+
+
+    /**
+     * 获取 provider 对应的熔断器（按需创建并注册指标）
+     */
+    public CircuitBreaker breakerOf(String provider) {
+        return breakers.computeIfAbsent(provider, p -> {
+            LlmProperties.BreakerConfig breakerConfig = config.getBreaker();
+            CircuitBreaker breaker = new CircuitBreaker(p, breakerConfig.getFailureRateThreshold(),
+                    breakerConfig.getWindowSize(), breakerConfig.getMinimumCalls(),
+                    breakerConfig.getOpenDurationMillis(), breakerConfig.getHalfOpenPermits());
+            Gauge.builder("llm.breaker.state", breaker, b -> b.getState().ordinal())
+                    .description("LLM 熔断器状态：0 关闭，1 打开，2 半开")
+                    .tag("provider", p)
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        deadlineScheduler.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+
+
+    private LlmProperties.PolicyConfig policyOf(LlmCallType callType) {
+        return callType == LlmCallType.REPORT ? config.getReport() : config.getDialog();
+    }
+
+
+    private Semaphore bulkheadOf(LlmCallType callType) {
+        return callType == LlmCallType.REPORT ? reportBulkhead : dialogBulkhead;
+    }
+
+
+    private void acquire(String provider, CircuitBreaker breaker, Semaphore bulkhead) {
+        if (!breaker.tryAcquire()) {
+            meterRegistry.counter("llm.breaker.rejected", "provider", provider).increment();
+            throw new BusinessException(503, "LLM 服务暂不可用，请稍后重试");
+        }
+        boolean acquired;
+        try {
+            long maxWait = config.getBulkhead().getMaxWaitMillis();
+            acquired = maxWait > 0
+                    ? bulkhead.tryAcquire(maxWait, TimeUnit.MILLISECONDS)
+                    : bulkhead.tryAcquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            breaker.onIgnored();
+            throw new LlmCancelledException();
+        }
+        if (!acquired) {
+            breaker.onIgnored();
+            meterRegistry.counter("llm.bulkhead.rejected", "provider", provider).increment();
+            throw new BusinessException(429, "LLM 请求过多，请稍后重试");
+        }
+    }
+
+
+    private void backoffOrThrow(String provider, LlmCallType callType, LlmProperties.PolicyConfig policy,
+            int attempt, long deadline, RuntimeException failure) {
+        if (attempt >= policy.getMaxAttempts()) {
+            throw failure;
+        }
+        long backoff = Math.min(policy.getMaxBackoffMillis(),
+                policy.getInitialBackoffMillis() << Math.min(attempt - 1, 16));
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        if (backoff >= remaining(deadline)) {
+            throw failure;
+        }
+        log.warn("LLM 调用失败，{}ms 后重试: provider={}, callType={}, attempt={}, error={}",
+                backoff, provider, callType, attempt, failure.getMessage());
+        meterRegistry.counter("llm.retry", "provider", provider, "callType", callType.name()).increment();
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LlmCancelledException();
+        }
+    }
+
+
+    private BusinessException deadlineExceeded(String provider, LlmCallType callType, int attempt) {
+        log.warn("LLM 调用超过截止时间: provider={}, callType={}, attempt={}", provider, callType, attempt);
+        meterRegistry.counter("llm.deadline.exceeded", "provider", provider, "callType", callType.name())
+                .increment();
+        return new BusinessException(504, "LLM 调用超时，请稍后重试");
+    }
+
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+
+    /**
+     * 是否为可重试的瞬时故障：网络异常、超时、5xx、429
+     * 配置缺失、鉴权失败、响应格式异常等重试无意义，也不计入熔断统计
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException
+                    || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException
+                    || cause instanceof HttpClientErrorException.TooManyRequests) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * 可取消的流式调用
+     */
+    @FunctionalInterface
+    public interface StreamCall {
+        String stream(Consumer<String> onDelta, LlmCancellationToken cancellationToken);
+    }
+}
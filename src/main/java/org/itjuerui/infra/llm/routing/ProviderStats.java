@@ -0,0 +1,142 @@
+package org.itjuerui.infra.llm.routing;
+
+import org.itjuerui.infra.llm.LlmCallType;
+
+import java.util.Arrays;
+
+/**
+ * 单个 provider 在一种延迟口径下的滚动延迟与错误率统计
+ * 延迟与错误率使用 EWMA 平滑，另保留最近 N 个延迟样本用于估算 p95；
+ * 首个增量耗时与完整响应耗时不可比，按 {@link Kind} 分开统计
+ */
+public class ProviderStats {
+
+    /**
+     * 延迟口径
+     */
+    public enum Kind {
+        /**
+         * 流式调用（含对冲）：首个增量到达的耗时
+         */
+        FIRST_DELTA,
+
+        /**
+         * 非流式对话调用：完整响应耗时
+         */
+        DIALOG,
+
+        /**
+         * 非流式报告调用：完整响应耗时
+         */
+        REPORT;
+
+        /**
+         * 非流式调用对应的口径
+         */
+        public static Kind blocking(LlmCallType callType) {
+            return callType == LlmCallType.REPORT ? REPORT : DIALOG;
+        }
+    }
+
+    private final String provider;
+    private final Kind kind;
+    private final double alpha;
+    private final long[] window;
+    private int windowCount;
+    private int windowIndex;
+    private double latencyEwma;
+    private double errorEwma;
+    private long samples;
+
+    public ProviderStats(String provider, Kind kind, double alpha, int windowSize) {
+        this.provider = provider;
+        this.kind = kind;
+        this.alpha = alpha;
+        this.window = new long[Math.max(1, windowSize)];
+    }
+
+
+    /**
+     * 记录一次成功调用
+     *
+     * @param latencyMillis 延迟（毫秒）
+     */
+    public synchronized void recordSuccess(long latencyMillis) {
+        record(latencyMillis, 0.0);
+    }
+
+
+    /**
+     * 记录一次失败调用
+     *
+     * @param latencyMillis 失败前耗时（毫秒）
+     */
+    public synchronized void recordFailure(long latencyMillis) {
+        record(latencyMillis, 1.0);
+    }
+
+
+    /**
+     * 路由评分，越小越好
+     *
+     * @param errorPenaltyMillis 错误率惩罚
+     * @return 评分
+     */
+    public synchronized double score(long errorPenaltyMillis) {
+        return latencyEwma + errorEwma * errorPenaltyMillis;
+    }
+
+
+    /**
+     * 最近窗口内的 p95 延迟，无样本时返回 -1
+     */
+    public synchronized long p95() {
+        if (windowCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(window, windowCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(windowCount * 0.95) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+
+    public String getProvider() {
+        return provider;
+    }
+
+
+    public Kind getKind() {
+        return kind;
+    }
+
+
+    public synchronized double getLatencyEwma() {
+        return latencyEwma;
+    }
+
+
+    public synchronized double getErrorEwma() {
+        return errorEwma;
+    }
+
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+
+    private void record(long latencyMillis, double error) {
+        if (samples == 0) {
+            latencyEwma = latencyMillis;
+            errorEwma = error;
+        } else {
+            latencyEwma = alpha * latencyMillis + (1 - alpha) * latencyEwma;
+            errorEwma = alpha * error + (1 - alpha) * errorEwma;
+        }
+        samples++;
+        window[windowIndex] = latencyMillis;
+        windowIndex = (windowIndex + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+    }
+}
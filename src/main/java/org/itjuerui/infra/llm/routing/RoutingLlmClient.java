@@ -0,0 +1,359 @@
+package org.itjuerui.infra.llm.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.LlmCancelledException;
+import org.itjuerui.infra.llm.LlmClient;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.llm.impl.OpenAiCompatibleLlmClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 多 provider 路由客户端
+ * 按延迟/错误率 EWMA 评分把请求路由到当前最优的 provider，流式调用按首个增量耗时、非流式调用按完整响应耗时分别评分；
+ * 面试提问可启用对冲：首选 provider 超过 p95 仍未返回首个增量时，向次优 provider 发起第二个请求，
+ * 先产出内容者胜出，另一请求被取消
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "llm.routing.enabled", havingValue = "true")
+public class RoutingLlmClient implements LlmClient {
+
+    private final List<OpenAiCompatibleLlmClient> clients;
+    private final Map<OpenAiCompatibleLlmClient, Map<ProviderStats.Kind, ProviderStats>> stats = new LinkedHashMap<>();
+    private final LlmProperties.RoutingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService hedgeExecutor;
+    private final ScheduledExecutorService hedgeScheduler;
+
+    public RoutingLlmClient(List<OpenAiCompatibleLlmClient> clients, LlmProperties properties,
+            MeterRegistry meterRegistry) {
+        if (clients.isEmpty()) {
+            throw new IllegalStateException("LLM 路由已启用，但没有可用的 provider 客户端");
+        }
+        this.config = properties.getRouting();
+        this.meterRegistry = meterRegistry;
+
+        // 配置的默认 provider 排在首位，评分相同时优先使用
+        String preferred = properties.getProvider();
+        List<OpenAiCompatibleLlmClient> ordered = new ArrayList<>(clients);
+        ordered.sort(Comparator.comparing(client -> !client.getConfigKey().equalsIgnoreCase(preferred)));
+        this.clients = List.copyOf(ordered);
+
+        for (OpenAiCompatibleLlmClient client : this.clients) {
+            Map<ProviderStats.Kind, ProviderStats> clientStats = new EnumMap<>(ProviderStats.Kind.class);
+            for (ProviderStats.Kind kind : ProviderStats.Kind.values()) {
+                ProviderStats providerStats = new ProviderStats(client.getProviderName(), kind,
+                        config.getEwmaAlpha(), config.getLatencyWindowSize());
+                clientStats.put(kind, providerStats);
+                Gauge.builder("llm.routing.latency.ewma", providerStats, ProviderStats::getLatencyEwma)
+                        .tag("provider", client.getProviderName())
+                        .tag("kind", kind.name())
+                        .register(meterRegistry);
+                Gauge.builder("llm.routing.error.ewma", providerStats, ProviderStats::getErrorEwma)
+                        .tag("provider", client.getProviderName())
+                        .tag("kind", kind.name())
+                        .register(meterRegistry);
+            }
+            stats.put(client, clientStats);
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llm-route-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hedgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llm-hedge-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("LLM 路由已启用: providers={}, hedge={}",
+                this.clients.stream().map(OpenAiCompatibleLlmClient::getProviderName).toList(),
+                config.isHedgeEnabled());
+    }
+
+
+    @Override
+    public String getProviderName() {
+        return "router";
+    }
+
+
+    @Override
+    public String chat(List<Message> messages) {
+        return chat(messages, LlmCallType.DIALOG);
+    }
+
+
+    @Override
+    public String chat(List<Message> messages, LlmCallType callType) {
+        if (shouldHedge(callType)) {
+            return hedgedStream(messages, delta -> { }, new LlmCancellationToken());
+        }
+        ProviderStats.Kind kind = ProviderStats.Kind.blocking(callType);
+        OpenAiCompatibleLlmClient client = select(kind);
+        long start = System.nanoTime();
+        try {
+            String content = client.chat(messages, callType);
+            stats(client, kind).recordSuccess(elapsedMillis(start));
+            return content;
+        } catch (RuntimeException ex) {
+            stats(client, kind).recordFailure(elapsedMillis(start));
+            throw ex;
+        }
+    }
+
+
+    @Override
+    public String streamChat(List<Message> messages, Consumer<String> onDelta,
+            LlmCancellationToken cancellationToken) {
+        if (shouldHedge(LlmCallType.DIALOG)) {
+            return hedgedStream(messages, onDelta, cancellationToken);
+        }
+        OpenAiCompatibleLlmClient client = select(ProviderStats.Kind.FIRST_DELTA);
+        ProviderStats clientStats = stats(client, ProviderStats.Kind.FIRST_DELTA);
+        long start = System.nanoTime();
+        AtomicBoolean firstDelta = new AtomicBoolean();
+        try {
+            // 流式调用以首个增量的到达时间作为延迟样本
+            return client.streamChat(messages, delta -> {
+                if (firstDelta.compareAndSet(false, true)) {
+                    clientStats.recordSuccess(elapsedMillis(start));
+                }
+                onDelta.accept(delta);
+            }, cancellationToken);
+        } catch (LlmCancelledException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!firstDelta.get()) {
+                clientStats.recordFailure(elapsedMillis(start));
+            }
+            throw ex;
+        }
+    }
+
+
+    /**
+     * 指定延迟口径下的 provider 统计快照（按评分升序）
+     */
+    public List<ProviderStats> snapshot(ProviderStats.Kind kind) {
+        return rank(kind).stream().map(client -> stats(client, kind)).toList();
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeScheduler.shutdownNow();
+        hedgeExecutor.shutdownNow();
+    }
+
+
+    private boolean shouldHedge(LlmCallType callType) {
+        return config.isHedgeEnabled() && callType == LlmCallType.DIALOG && clients.size() > 1;
+    }
+
+
+    private ProviderStats stats(OpenAiCompatibleLlmClient client, ProviderStats.Kind kind) {
+        return stats.get(client).get(kind);
+    }
+
+
+    private List<OpenAiCompatibleLlmClient> rank(ProviderStats.Kind kind) {
+        List<OpenAiCompatibleLlmClient> ranked = new ArrayList<>(clients);
+        ranked.sort(Comparator.comparingDouble(client -> stats(client, kind).score(config.getErrorPenaltyMillis())));
+        return ranked;
+    }
+
+
+    private OpenAiCompatibleLlmClient select(ProviderStats.Kind kind) {
+        List<OpenAiCompatibleLlmClient> ranked = rank(kind);
+        if (ranked.size() > 1 && ThreadLocalRandom.current().nextDouble() < config.getExploreRatio()) {
+            return ranked.get(1 + ThreadLocalRandom.current().nextInt(ranked.size() - 1));
+        }
+        return ranked.get(0);
+    }
+
+
+    private long hedgeDelayMillis(OpenAiCompatibleLlmClient primary) {
+        return Math.max(config.getHedgeMinDelayMillis(), stats(primary, ProviderStats.Kind.FIRST_DELTA).p95());
+    }
+
+
+    private String hedgedStream(List<Message> messages, Consumer<String> onDelta,
+            LlmCancellationToken callerToken) {
+        List<OpenAiCompatibleLlmClient> ranked = rank(ProviderStats.Kind.FIRST_DELTA);
+        HedgedCall call = new HedgedCall(messages, onDelta,
+                new Attempt(ranked.get(0)), new Attempt(ranked.get(1)));
+        callerToken.onCancel(call::cancelAll);
+
+        call.launch(call.primary);
+        long delay = hedgeDelayMillis(call.primary.client);
+        call.hedgeTask = hedgeScheduler.schedule(() -> {
+            if (call.winner.get() == null && !call.result.isDone()) {
+                meterRegistry.counter("llm.routing.hedged").increment();
+                log.debug("首选 provider 超过 {}ms 未响应，发起对冲请求: {}", delay,
+                        call.secondary.client.getProviderName());
+                call.launch(call.secondary);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+
+        try {
+            return call.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            call.cancelAll();
+            throw new LlmCancelledException();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+
+    /**
+     * 一次对冲调用中的单个请求
+     */
+    private static final class Attempt {
+        private final OpenAiCompatibleLlmClient client;
+        private final LlmCancellationToken token = new LlmCancellationToken();
+        private final AtomicBoolean launched = new AtomicBoolean();
+        private volatile boolean failed;
+
+        private Attempt(OpenAiCompatibleLlmClient client) {
+            this.client = client;
+        }
+    }
+
+
+    /**
+     * 对冲调用：两个请求竞争，首个产出增量者胜出
+     */
+    private final class HedgedCall {
+        private final List<Message> messages;
+        private final Consumer<String> onDelta;
+        private final Attempt primary;
+        private final Attempt secondary;
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> hedgeTask;
+
+        private HedgedCall(List<Message> messages, Consumer<String> onDelta, Attempt primary, Attempt secondary) {
+            this.messages = messages;
+            this.onDelta = onDelta;
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+
+
+        private Attempt other(Attempt attempt) {
+            return attempt == primary ? secondary : primary;
+        }
+
+
+        private void cancelAll() {
+            primary.token.cancel();
+            secondary.token.cancel();
+            if (hedgeTask != null) {
+                hedgeTask.cancel(false);
+            }
+        }
+
+
+        private boolean claim(Attempt attempt, long start) {
+            if (winner.compareAndSet(null, attempt)) {
+                stats(attempt.client, ProviderStats.Kind.FIRST_DELTA).recordSuccess(elapsedMillis(start));
+                other(attempt).token.cancel();
+                if (hedgeTask != null) {
+                    hedgeTask.cancel(false);
+                }
+                if (attempt == secondary) {
+                    meterRegistry.counter("llm.routing.hedge.wins", "provider", attempt.client.getProviderName())
+                            .increment();
+                }
+            }
+            return winner.get() == attempt;
+        }
+
+
+        private void launch(Attempt attempt) {
+            if (!attempt.launched.compareAndSet(false, true)) {
+                return;
+            }
+            hedgeExecutor.execute(() -> run(attempt));
+        }
+
+
+        private void run(Attempt attempt) {
+            long start = System.nanoTime();
+            try {
+                String content = attempt.client.streamChat(messages, delta -> {
+                    if (!claim(attempt, start)) {
+                        throw new LlmCancelledException();
+                    }
+                    onDelta.accept(delta);
+                }, attempt.token);
+                if (claim(attempt, start)) {
+                    result.complete(content);
+                }
+            } catch (LlmCancelledException ex) {
+                if (winner.get() == attempt || (primary.token.isCancelled() && secondary.token.isCancelled()
+                        && winner.get() == null)) {
+                    result.completeExceptionally(ex);
+                }
+            } catch (RuntimeException ex) {
+                attempt.failed = true;
+                if (winner.get() == attempt) {
+                    result.completeExceptionally(ex);
+                    return;
+                }
+                stats(attempt.client, ProviderStats.Kind.FIRST_DELTA).recordFailure(elapsedMillis(start));
+                Attempt other = other(attempt);
+                if (!other.launched.get()) {
+                    // 首个请求在对冲前失败，立即切换到另一 provider
+                    if (hedgeTask != null) {
+                        hedgeTask.cancel(false);
+                    }
+                    launch(other);
+                } else if (other.failed) {
+                    result.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.itjuerui.infra.repo;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.itjuerui.domain.interview.entity.InterviewContextSummary;
+
+/**
+ * 面试上下文摘要Mapper
+ */
+@Mapper
+public interface InterviewContextSummaryMapper extends BaseMapper<InterviewContextSummary> {
+}
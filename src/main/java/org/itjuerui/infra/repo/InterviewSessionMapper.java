@@ -1,12 +1,61 @@
 package org.itjuerui.infra.repo;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.enums.InterviewStage;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.time.LocalDateTime;
+
 /**
  * 面试会话Mapper
+ * 状态与阶段变更只写变化的列，并以变更前的状态为条件（乐观并发）：返回 0 表示会话已被其他请求改变，
+ * 调用方应重新读取；不使用 updateById，避免整行回写（含阶段计划 JSON）覆盖并发修改
  */
 @Mapper
 public interface InterviewSessionMapper extends BaseMapper<InterviewSession> {
+
+    /**
+     * 开始面试：CREATED → RUNNING，首次开始时记录开始时间
+     *
+     * @return 影响行数，0 表示会话已不是 CREATED
+     */
+    @Update("UPDATE interview_session SET status = 'RUNNING', started_at = COALESCE(started_at, #{startedAt}) "
+            + "WHERE id = #{id} AND status = 'CREATED'")
+    int start(@Param("id") Long id, @Param("startedAt") LocalDateTime startedAt);
+
+    /**
+     * 结束面试：未结束 → ENDED，首次结束时记录结束时间
+     *
+     * @return 影响行数，0 表示会话已结束
+     */
+    @Update("UPDATE interview_session SET status = 'ENDED', ended_at = COALESCE(ended_at, #{endedAt}) "
+            + "WHERE id = #{id} AND status <> 'ENDED'")
+    int end(@Param("id") Long id, @Param("endedAt") LocalDateTime endedAt);
+
+    /**
+     * 阶段推进：当前阶段仍为 expectedStage 且会话未结束时切换到 targetStage，同时写入引用的阶段计划
+     *
+     * @param expectedStage 推进前的阶段，为空表示尚未进入任何阶段
+     * @return 影响行数，0 表示阶段已被并发推进或会话已结束
+     */
+    @Update("UPDATE interview_session SET current_stage = #{targetStage}, stage_plan_id = #{stagePlanId} "
+            + "WHERE id = #{id} AND status <> 'ENDED' "
+            + "AND COALESCE(current_stage, '') = COALESCE(#{expectedStage}, '')")
+    int transitionStage(@Param("id") Long id, @Param("expectedStage") InterviewStage expectedStage,
+            @Param("targetStage") InterviewStage targetStage, @Param("stagePlanId") String stagePlanId);
+
+    /**
+     * 为没有可用阶段计划的会话引用阶段计划，尚未进入阶段时从 initialStage 开始
+     *
+     * @param expectedPlanId 读取时的计划ID，为空表示没有计划
+     * @return 影响行数，0 表示计划已被其他请求设置
+     */
+    @Update("UPDATE interview_session SET stage_plan_id = #{stagePlanId}, "
+            + "current_stage = COALESCE(current_stage, #{initialStage}) "
+            + "WHERE id = #{id} AND COALESCE(stage_plan_id, '') = COALESCE(#{expectedPlanId}, '')")
+    int assignStagePlan(@Param("id") Long id, @Param("expectedPlanId") String expectedPlanId,
+            @Param("stagePlanId") String stagePlanId, @Param("initialStage") InterviewStage initialStage);
 }
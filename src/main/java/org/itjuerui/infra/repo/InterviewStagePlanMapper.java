@@ -0,0 +1,12 @@
+package org.itjuerui.infra.repo;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.itjuerui.domain.interview.entity.InterviewStagePlan;
+
+/**
+ * 阶段计划Mapper
+ */
+@Mapper
+public interface InterviewStagePlanMapper extends BaseMapper<InterviewStagePlan> {
+}
@@ -1,12 +1,74 @@
 package org.itjuerui.infra.repo;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.itjuerui.domain.interview.entity.InterviewTurn;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 /**
  * 面试对话Mapper
  */
 @Mapper
 public interface InterviewTurnMapper extends BaseMapper<InterviewTurn> {
+
+    /**
+     * 插入轮次并分配会话内序号（当前最大 seq + 1）
+     * 序号在同一条语句内计算，(session_id, seq) 唯一索引保证并发写入不会得到相同序号，冲突时由调用方重试
+     *
+     * @param turn 待写入的轮次，写入成功后回填ID（序号需通过 {@link #selectSeqById} 读取）
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO interview_turn (session_id, seq, role, content_text, stage_code, audio_url, token_usage, created_at) "
+            + "SELECT #{sessionId}, COALESCE(MAX(seq), 0) + 1, #{role}, #{contentText}, #{stageCode}, #{audioUrl}, "
+            + "#{tokenUsage}, #{createdAt} FROM interview_turn WHERE session_id = #{sessionId}")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertWithSeq(InterviewTurn turn);
+
+    /**
+     * 条件插入面试官轮次：会话未结束、阶段未变化且 afterTurnId 之后没有新轮次时才写入，同时分配会话内序号
+     * 单条语句完成冲突检查与写入，不需要跨越 LLM 调用持有事务或行锁
+     *
+     * @param turn        待写入的轮次，写入成功后回填ID
+     * @param afterTurnId 生成问题时看到的最后一个轮次ID，没有轮次时为 0
+     * @return 影响行数，0 表示会话状态已变化
+     */
+    @Insert("INSERT INTO interview_turn (session_id, seq, role, content_text, stage_code, created_at) "
+            + "SELECT #{turn.sessionId}, COALESCE(MAX(seq), 0) + 1, #{turn.role}, #{turn.contentText}, #{turn.stageCode}, "
+            + "#{turn.createdAt} FROM interview_turn WHERE session_id = #{turn.sessionId} "
+            + "HAVING COALESCE(MAX(id), 0) <= #{afterTurnId} "
+            + "AND NOT EXISTS (SELECT 1 FROM interview_session WHERE id = #{turn.sessionId} "
+            + "AND (status = 'ENDED' OR COALESCE(current_stage, '') <> COALESCE(#{turn.stageCode}, '')))")
+    @Options(useGeneratedKeys = true, keyProperty = "turn.id", keyColumn = "id")
+    int insertIfUnchanged(@Param("turn") InterviewTurn turn, @Param("afterTurnId") long afterTurnId);
+
+    /**
+     * 读取会话当前最大的轮次序号，没有轮次时为 0（批量写入时据此连续分配序号）
+     */
+    @Select("SELECT COALESCE(MAX(seq), 0) FROM interview_turn WHERE session_id = #{sessionId}")
+    int selectMaxSeq(@Param("sessionId") Long sessionId);
+
+    /**
+     * 读取轮次的会话内序号
+     */
+    @Select("SELECT seq FROM interview_turn WHERE id = #{id}")
+    Integer selectSeqById(@Param("id") Long id);
+
+    /**
+     * 读取存在未编号轮次的会话ID（按会话ID升序，从 afterSessionId 之后开始），供历史轮次回填序号
+     */
+    @Select("SELECT DISTINCT session_id FROM interview_turn WHERE seq IS NULL AND session_id > #{afterSessionId} "
+            + "ORDER BY session_id LIMIT #{limit}")
+    List<Long> selectSessionIdsWithoutSeq(@Param("afterSessionId") long afterSessionId, @Param("limit") int limit);
+
+    /**
+     * 为未编号的轮次写入序号
+     */
+    @Update("UPDATE interview_turn SET seq = #{seq} WHERE id = #{id} AND seq IS NULL")
+    int updateSeqIfAbsent(@Param("id") Long id, @Param("seq") int seq);
 }
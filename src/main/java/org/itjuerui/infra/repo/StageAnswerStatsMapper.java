@@ -0,0 +1,75 @@
+package org.itjuerui.infra.repo;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
+
+import java.time.LocalDateTime;
+
+/**
+ * 阶段回答统计Mapper
+ */
+@Mapper
+public interface StageAnswerStatsMapper extends BaseMapper<StageAnswerStats> {
+
+    /**
+     * 累加一次回答：单条语句插入或原子更新，与回答写入处于同一事务
+     *
+     * @param sessionId 会话ID
+     * @param stageCode 阶段编码，未分阶段时为空串
+     * @param chars     回答字数
+     * @param at        回答时间
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO stage_answer_stats (session_id, stage_code, turn_count, total_chars, min_chars, max_chars, last_activity_at) "
+            + "VALUES (#{sessionId}, #{stageCode}, 1, #{chars}, #{chars}, #{chars}, #{at}) "
+            + "ON DUPLICATE KEY UPDATE turn_count = turn_count + 1, total_chars = total_chars + VALUES(total_chars), "
+            + "min_chars = LEAST(min_chars, VALUES(min_chars)), max_chars = GREATEST(max_chars, VALUES(max_chars)), "
+            + "last_activity_at = GREATEST(COALESCE(last_activity_at, VALUES(last_activity_at)), VALUES(last_activity_at))")
+    int accumulate(@Param("sessionId") Long sessionId, @Param("stageCode") String stageCode,
+            @Param("chars") int chars, @Param("at") LocalDateTime at);
+
+
+    /**
+     * 累加一批回答的汇总（批量导入），语义同 {@link #accumulate}
+     *
+     * @param delta 同一会话同一阶段的回答汇总：回答数、总字数、最短/最长字数与最后回答时间
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO stage_answer_stats (session_id, stage_code, turn_count, total_chars, min_chars, max_chars, last_activity_at) "
+            + "VALUES (#{delta.sessionId}, #{delta.stageCode}, #{delta.turnCount}, #{delta.totalChars}, #{delta.minChars}, "
+            + "#{delta.maxChars}, #{delta.lastActivityAt}) "
+            + "ON DUPLICATE KEY UPDATE turn_count = turn_count + VALUES(turn_count), total_chars = total_chars + VALUES(total_chars), "
+            + "min_chars = LEAST(min_chars, VALUES(min_chars)), max_chars = GREATEST(max_chars, VALUES(max_chars)), "
+            + "last_activity_at = GREATEST(COALESCE(last_activity_at, VALUES(last_activity_at)), VALUES(last_activity_at))")
+    int accumulateAll(@Param("delta") StageAnswerStats delta);
+
+    /**
+     * 从对话重建一个会话的统计（统计表上线前的历史会话）
+     *
+     * @param sessionId 会话ID
+     * @return 写入的行数
+     */
+    @Insert("INSERT INTO stage_answer_stats (session_id, stage_code, turn_count, total_chars, min_chars, max_chars, last_activity_at) "
+            + "SELECT session_id, COALESCE(stage_code, ''), COUNT(*), SUM(CHAR_LENGTH(content_text)), "
+            + "MIN(CHAR_LENGTH(content_text)), MAX(CHAR_LENGTH(content_text)), MAX(created_at) "
+            + "FROM interview_turn WHERE session_id = #{sessionId} AND role = 'CANDIDATE' "
+            + "GROUP BY session_id, COALESCE(stage_code, '')")
+    int rebuild(@Param("sessionId") Long sessionId);
+
+
+    /**
+     * 为尚无统计的历史会话批量补齐统计
+     *
+     * @return 写入的行数
+     */
+    @Insert("INSERT INTO stage_answer_stats (session_id, stage_code, turn_count, total_chars, min_chars, max_chars, last_activity_at) "
+            + "SELECT t.session_id, COALESCE(t.stage_code, ''), COUNT(*), SUM(CHAR_LENGTH(t.content_text)), "
+            + "MIN(CHAR_LENGTH(t.content_text)), MAX(CHAR_LENGTH(t.content_text)), MAX(t.created_at) "
+            + "FROM interview_turn t WHERE t.role = 'CANDIDATE' "
+            + "AND NOT EXISTS (SELECT 1 FROM stage_answer_stats s WHERE s.session_id = t.session_id) "
+            + "GROUP BY t.session_id, COALESCE(t.stage_code, '')")
+    int backfill();
+}
@@ -8,18 +8,69 @@ import org.itjuerui.domain.interview.entity.InterviewTurn;
 public interface InterviewAiService {
     /**
      * 生成下一道面试问题并落库
+     * 同一会话的并发请求共享一次生成
      *
-     * @param sessionId 会话ID
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
      * @return 新增的对话轮次
      */
-    InterviewTurn generateNextQuestion(Long sessionId);
+    InterviewTurn generateNextQuestion(Long sessionId, String idempotencyKey);
 
 
     /**
      * 流式生成下一道面试问题并落库
+     * 同一会话的并发流共享一次上游生成
      *
-     * @param sessionId 会话ID
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
      * @return SSE 流
      */
-    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamNextQuestion(Long sessionId);
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamNextQuestion(Long sessionId,
+            String idempotencyKey);
+
+
+    /**
+     * 断线重连：从 Last-Event-ID 处续传进行中或刚结束的生成，不重新调用 LLM
+     *
+     * @param sessionId   会话ID
+     * @param lastEventId 客户端收到的最后一个事件ID
+     * @return SSE 流；无法续传时返回 null
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter resumeQuestionStream(Long sessionId,
+            String lastEventId);
+
+
+    /**
+     * 写入候选人回答后，在同一个 SSE 流中生成追问并落库
+     * 完成事件同时携带回答与追问的轮次ID
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @param answerWriter   写入回答并返回轮次ID，失败时以错误事件结束
+     * @return SSE 流
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamNextQuestion(Long sessionId,
+            String idempotencyKey, java.util.function.Supplier<Long> answerWriter);
+
+
+    /**
+     * 流式生成问题并推送给任意传输方式的接收方（如 WebSocket）
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @param answerWriter   写入回答并返回轮次ID，为空时只生成问题
+     * @param listener       接收方
+     * @return 离开本次生成的操作；最后一个接收方离开时取消上游生成
+     */
+    Runnable streamNextQuestion(Long sessionId, String idempotencyKey, java.util.function.Supplier<Long> answerWriter,
+            QuestionStreamListener listener);
+
+
+    /**
+     * 后台预生成下一道面试问题，供后续的提问请求直接取用
+     *
+     * @param sessionId  会话ID
+     * @param lastTurnId 触发预生成的最后一个轮次ID
+     */
+    void prefetchNextQuestion(Long sessionId, Long lastTurnId);
 }
@@ -1,10 +1,12 @@
 package org.itjuerui.service;
 
+import org.itjuerui.api.dto.AnswerTurnResponse;
 import org.itjuerui.api.dto.InterviewCreateRequest;
 import org.itjuerui.api.dto.NextQuestionResponse;
 import org.itjuerui.api.dto.SessionDetailResponse;
 import org.itjuerui.api.dto.SessionListRequest;
 import org.itjuerui.api.dto.SessionListResponse;
+import org.itjuerui.api.dto.TurnImportResponse;
 import org.itjuerui.api.dto.TurnRequest;
 
 /**
@@ -21,11 +23,33 @@ public interface InterviewService {
      */
     Long addTurn(Long sessionId, TurnRequest request);
 
+    /**
+     * 批量导入轮次（录制的面试、离线转写等），按数组顺序写入；逐条校验，未写入的轮次在响应中列出
+     */
+    TurnImportResponse importTurns(Long sessionId, java.util.List<TurnRequest> turns);
+
+    /**
+     * 批量导入轮次，请求体为 NDJSON（每行一个轮次），边读取边分批写入
+     */
+    TurnImportResponse importTurns(Long sessionId, java.io.InputStream ndjson);
+
     /**
      * 查询会话详情（包含 turns）
      */
     SessionDetailResponse getSessionDetail(Long sessionId);
 
+    /**
+     * 按会话内序号读取轮次：afterSeq 之后（不含）、toSeq 之前（含）的轮次，按序号升序，最多 limit 条
+     * 客户端与上下文构建可只拉取增量轮次
+     */
+    java.util.List<org.itjuerui.domain.interview.entity.InterviewTurn> getTurns(Long sessionId, Integer afterSeq,
+            Integer toSeq, Integer limit);
+
+    /**
+     * 查询会话各阶段的回答统计（回答数、字数、最后回答时间），不读取对话内容
+     */
+    java.util.List<org.itjuerui.domain.interview.entity.StageAnswerStats> getStageStats(Long sessionId);
+
     /**
      * 查询会话列表（支持筛选和分页）
      */
@@ -33,15 +57,45 @@ public interface InterviewService {
 
     /**
      * 获取下一个问题
-     * 根据历史对话生成面试官问题，并自动写入一条 role=INTERVIEWER 的 turn
+     * 根据历史对话生成面试官问题，并自动写入一条 role=INTERVIEWER 的 turn；
+     * 携带相同幂等键的重试返回同一个 turn
      */
-    NextQuestionResponse getNextQuestion(Long sessionId);
+    NextQuestionResponse getNextQuestion(Long sessionId, String idempotencyKey);
 
 
     /**
      * 流式获取下一个问题
+     * 携带 Last-Event-ID 重连时从断点续传同一次生成，无法续传时重新开始
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamNextQuestion(Long sessionId,
+            String idempotencyKey, String lastEventId);
+
+
+    /**
+     * 提交候选人回答并流式获取追问
+     * 一次请求完成回答落库与追问生成，完成事件同时携带两个 turnId；
+     * 携带相同幂等键的重试不会重复写入回答
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamAnswer(Long sessionId, String content,
+            String idempotencyKey);
+
+
+    /**
+     * 提交候选人回答并把追问流式推送给接收方（WebSocket 等长连接使用）
+     *
+     * @return 离开本次生成的操作，连接断开时调用
+     */
+    Runnable streamAnswer(Long sessionId, String content, String idempotencyKey,
+            org.itjuerui.service.QuestionStreamListener listener);
+
+
+    /**
+     * 把下一道问题流式推送给接收方（WebSocket 等长连接使用）
+     *
+     * @return 离开本次生成的操作，连接断开时调用
      */
-    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamNextQuestion(Long sessionId);
+    Runnable streamNextQuestion(Long sessionId, String idempotencyKey,
+            org.itjuerui.service.QuestionStreamListener listener);
 
 
     /**
@@ -61,14 +115,15 @@ public interface InterviewService {
     Object startInterview(Long sessionId);
 
     /**
-     * 提交一轮对话
+     * 提交一轮对话：写入候选人回答并生成追问
      */
-    Object submitTurn(Long sessionId, String candidateText);
+    AnswerTurnResponse submitTurn(Long sessionId, String candidateText);
 
     /**
-     * 流式响应
+     * 流式响应：写入候选人回答并流式输出追问
      */
-    Object streamResponse(Long sessionId, String candidateText);
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamResponse(Long sessionId,
+            String candidateText);
 
     /**
      * 结束面试
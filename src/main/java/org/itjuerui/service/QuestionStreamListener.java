@@ -0,0 +1,54 @@
+package org.itjuerui.service;
+
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+
+import java.io.IOException;
+
+/**
+ * 流式问题生成的接收方
+ * 与传输方式无关，SSE 与 WebSocket 各自实现；回调可能在生成线程上执行
+ */
+public interface QuestionStreamListener {
+
+    /**
+     * 收到一段问题增量
+     *
+     * @param delta   增量内容
+     * @param eventId 事件ID，断线重连时作为 Last-Event-ID 从此处续传；无法续传时为 null
+     * @throws IOException 写入失败（连接已断开）时抛出，此后不再回调
+     */
+    void onDelta(String delta, String eventId) throws IOException;
+
+
+    /**
+     * 同一请求携带的候选人回答已写入，在问题生成开始前回调
+     *
+     * @param answerTurnId 回答轮次ID
+     */
+    default void onAnswerSaved(Long answerTurnId) {
+    }
+
+
+    /**
+     * 问题已落库
+     *
+     * @param answerTurnId 同一请求写入的候选人回答轮次ID，没有时为 null
+     * @param turn         新增的问题轮次
+     */
+    void onDone(Long answerTurnId, InterviewTurn turn) throws IOException;
+
+
+    /**
+     * 生成失败
+     *
+     * @param code    错误码
+     * @param message 错误信息
+     */
+    void onError(int code, String message);
+
+
+    /**
+     * 生成因所有接收方离开而取消
+     */
+    void onCancelled();
+}
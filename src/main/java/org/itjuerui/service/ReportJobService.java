@@ -0,0 +1,35 @@
+package org.itjuerui.service;
+
+import org.itjuerui.api.dto.ReportJobResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 报告生成任务服务
+ * 提交时同步生成并保存规则版报告，阶段小结补齐与 AI 润色在有界后台线程池中执行；同一会话同时只有一个进行中的任务
+ */
+public interface ReportJobService {
+
+    /**
+     * 提交报告生成任务
+     *
+     * @param sessionId 会话ID
+     * @return 任务状态；该会话已有进行中的任务时返回该任务
+     */
+    ReportJobResponse submit(Long sessionId);
+
+
+    /**
+     * 查询任务状态
+     */
+    ReportJobResponse getJob(String jobId);
+
+
+    /**
+     * 订阅任务进度事件
+     *
+     * @param jobId       任务ID
+     * @param lastEventId 客户端已收到的最后一个事件ID，可为空
+     * @return SSE 流，任务结束后关闭
+     */
+    SseEmitter streamEvents(String jobId, String lastEventId);
+}
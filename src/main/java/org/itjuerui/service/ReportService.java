@@ -16,6 +16,18 @@ public interface ReportService {
     org.itjuerui.domain.report.entity.Report generateReport(Long sessionId);
 
 
+    /**
+     * 生成并保存规则版报告（不调用 LLM）
+     */
+    org.itjuerui.domain.report.entity.Report generateRuleReport(Long sessionId);
+
+
+    /**
+     * 补齐会话最后所在阶段的小结，返回全部阶段小结
+     */
+    java.util.List<org.itjuerui.domain.report.entity.StageMiniReport> completeStageMiniReports(Long sessionId);
+
+
     /**
      * 生成阶段小结
      */
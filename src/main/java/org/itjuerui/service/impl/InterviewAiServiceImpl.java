@@ -1,31 +1,47 @@
 package org.itjuerui.service.impl;
 
-import com.alibaba.fastjson2.JSON;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.common.sse.SseEvent;
 import org.itjuerui.domain.interview.dto.StagePlanStage;
 import org.itjuerui.domain.interview.entity.InterviewSession;
 import org.itjuerui.domain.interview.entity.InterviewTurn;
 import org.itjuerui.domain.interview.enums.InterviewStage;
 import org.itjuerui.domain.interview.enums.SessionStatus;
 import org.itjuerui.domain.interview.enums.TurnRole;
-import org.itjuerui.domain.interview.support.StagePlanFactory;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.LlmCancelledException;
 import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.llm.LlmTokenEstimator;
 import org.itjuerui.infra.llm.dto.Message;
 import org.itjuerui.infra.repo.InterviewSessionMapper;
 import org.itjuerui.infra.repo.InterviewTurnMapper;
 import org.itjuerui.service.InterviewAiService;
+import org.itjuerui.service.QuestionStreamListener;
+import org.itjuerui.service.support.InterviewContextManager;
+import org.itjuerui.service.support.InterviewGenerationExecutor;
+import org.itjuerui.service.support.InterviewSessionCache;
+import org.itjuerui.service.support.InterviewTurnLog;
+import org.itjuerui.service.support.NextQuestionPrefetcher;
+import org.itjuerui.service.support.NextQuestionSingleFlight;
+import org.itjuerui.service.support.SseStreamWriter;
+import org.itjuerui.service.support.StagePlanRegistry;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * 面试 AI 服务实现
@@ -35,112 +51,289 @@ import java.util.concurrent.Executors;
 @RequiredArgsConstructor
 public class InterviewAiServiceImpl implements InterviewAiService {
 
+    /**
+     * SSE 连接超时时间
+     */
+    private static final long STREAM_TIMEOUT_MILLIS = 180_000L;
+
+    /**
+     * 写入生成的问题时与并发写入死锁的最多尝试次数
+     */
+    private static final int PERSIST_LOCK_ATTEMPTS = 3;
+
+    private final InterviewSessionCache sessionCache;
     private final InterviewSessionMapper sessionMapper;
     private final InterviewTurnMapper turnMapper;
+    private final InterviewTurnLog turnLog;
     private final LlmService llmService;
-    private final ExecutorService streamExecutor = Executors.newCachedThreadPool();
+    private final InterviewContextManager contextManager;
+    private final NextQuestionPrefetcher prefetcher;
+    private final NextQuestionSingleFlight singleFlight;
+    private final TransactionTemplate transactionTemplate;
+    private final InterviewGenerationExecutor generationExecutor;
+    private final StagePlanRegistry stagePlanRegistry;
+    private final SseStreamWriter sseStreamWriter;
 
 
     /**
      * 生成下一道面试问题并落库
+     * 同一会话的并发请求共享一次生成；携带相同幂等键的重试直接返回已生成的轮次
      *
-     * @param sessionId 会话ID
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
      * @return 新增的对话轮次
      */
     @Override
-    @Transactional
-    public InterviewTurn generateNextQuestion(Long sessionId) {
-        InterviewSession session = sessionMapper.selectById(sessionId);
-        if (session == null) {
-            throw new BusinessException("会话不存在: " + sessionId);
+    public InterviewTurn generateNextQuestion(Long sessionId, String idempotencyKey) {
+        InterviewTurn replayed = singleFlight.completed(sessionId, idempotencyKey);
+        if (replayed != null) {
+            return replayed;
         }
-        if (session.getStatus() == SessionStatus.ENDED) {
-            throw new BusinessException("会话已结束");
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(sessionId, idempotencyKey);
+        try {
+            if (flight.tryStart()) {
+                try {
+                    // 只有执行生成的请求占用准入许可，合并进来的等待方不占用
+                    InterviewTurn turn = generationExecutor.call(() -> doGenerateNextQuestion(sessionId));
+                    singleFlight.complete(flight, turn);
+                } catch (RuntimeException ex) {
+                    singleFlight.fail(flight, ex);
+                    throw ex;
+                }
+            }
+            return awaitFlight(flight);
+        } finally {
+            flight.detach();
         }
+    }
+
 
-        ensureSessionRunning(session);
+    /**
+     * 流式生成下一道面试问题并落库
+     * 同一会话的并发流共享一次上游生成，后加入者先收到已生成的部分
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @return SSE 流
+     */
+    @Override
+    public SseEmitter streamNextQuestion(Long sessionId, String idempotencyKey) {
+        return streamNextQuestion(sessionId, idempotencyKey, null);
+    }
 
-        LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
-                .orderByAsc(InterviewTurn::getCreatedAt);
-        List<InterviewTurn> turns = turnMapper.selectList(queryWrapper);
 
-        StagePlanStage stageInfo = resolveStageInfo(session);
-        List<Message> messages = buildMessages(turns, stageInfo);
-        String question = llmService.chat(messages);
-        if (question == null || question.trim().isEmpty()) {
-            throw new BusinessException(500, "LLM 返回空问题");
+    /**
+     * 写入候选人回答后流式生成追问，一次请求完成“回答 + 追问”
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @param answerWriter   写入回答并返回轮次ID，为空时只生成问题
+     * @return SSE 流
+     */
+    @Override
+    public SseEmitter streamNextQuestion(Long sessionId, String idempotencyKey, Supplier<Long> answerWriter) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        SseStreamWriter.Stream stream = sseStreamWriter.open(emitter);
+        Runnable leave = streamNextQuestion(sessionId, idempotencyKey, answerWriter, new SseStreamListener(stream));
+        bindLifecycle(emitter, stream, leave);
+        return emitter;
+    }
+
+
+    /**
+     * 流式生成问题并推送给任意传输方式的接收方
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @param answerWriter   写入回答并返回轮次ID，为空时只生成问题
+     * @param listener       接收方
+     * @return 离开本次生成的操作，接收方断开时调用
+     */
+    @Override
+    public Runnable streamNextQuestion(Long sessionId, String idempotencyKey, Supplier<Long> answerWriter,
+            QuestionStreamListener listener) {
+        InterviewTurn replayed = singleFlight.completed(sessionId, idempotencyKey);
+        if (replayed != null) {
+            Long answerTurnId = answerWriter == null ? null : singleFlight.answered(sessionId, idempotencyKey);
+            if (answerTurnId != null) {
+                listener.onAnswerSaved(answerTurnId);
+            }
+            StreamSubscriber subscriber = new StreamSubscriber(listener, null, answerTurnId, false);
+            subscriber.finish(replayed, null);
+            return subscriber::leave;
         }
 
-        InterviewTurn turn = new InterviewTurn();
-        turn.setSessionId(sessionId);
-        turn.setRole(TurnRole.INTERVIEWER);
-        turn.setContentText(question.trim());
-        if (session.getCurrentStage() != null) {
-            turn.setStageCode(session.getCurrentStage().name());
+        Long answerTurnId = null;
+        QuestionContext context;
+        List<Message> messages;
+        try {
+            // 回答写入、会话校验与 prompt 构建在请求线程完成，异常可立即返回给客户端
+            if (answerWriter != null) {
+                answerTurnId = answerWriter.get();
+                listener.onAnswerSaved(answerTurnId);
+            }
+            context = loadQuestionContext(sessionId);
+            messages = buildMessages(sessionId, context.turns, context.stageInfo);
+        } catch (BusinessException ex) {
+            log.warn("流式生成业务异常: {}", ex.getMessage());
+            listener.onError(ex.getCode(), ex.getMessage());
+            return () -> { };
         }
-        turn.setCreatedAt(LocalDateTime.now());
-        turnMapper.insert(turn);
 
-        log.info("生成下一道面试问题: sessionId={}, turnId={}", sessionId, turn.getId());
-        return turn;
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(sessionId, idempotencyKey);
+        StreamSubscriber subscriber = new StreamSubscriber(listener, flight, answerTurnId, false);
+        flight.subscribe(subscriber, 0);
+        flight.result().whenComplete(subscriber::finish);
+
+        if (flight.tryStart()) {
+            try {
+                generationExecutor.submit(() -> runStreamingGeneration(flight, context, messages));
+            } catch (BusinessException ex) {
+                // 达到并发上限：立即以错误事件结束，不为其保留线程
+                log.warn("拒绝流式生成: sessionId={}, reason={}", sessionId, ex.getMessage());
+                singleFlight.fail(flight, ex);
+            }
+        }
+        return subscriber::leave;
     }
 
 
     /**
-     * 流式生成下一道面试问题并落库
+     * 断线重连：回到 Last-Event-ID 所属的进行中或刚结束的生成，从断点补发剩余增量与完成事件
      *
-     * @param sessionId 会话ID
-     * @return SSE 流
+     * @param sessionId   会话ID
+     * @param lastEventId 客户端收到的最后一个事件ID
+     * @return SSE 流；流已过期或无法续传时返回 null
      */
     @Override
-    public SseEmitter streamNextQuestion(Long sessionId) {
-        SseEmitter emitter = new SseEmitter(0L);
-        streamExecutor.submit(() -> {
-            try {
-                InterviewSession session = sessionMapper.selectById(sessionId);
-                if (session == null) {
-                    sendError(emitter, "会话不存在: " + sessionId);
-                    return;
-                }
-                if (session.getStatus() == SessionStatus.ENDED) {
-                    sendError(emitter, "会话已结束");
-                    return;
-                }
+    public SseEmitter resumeQuestionStream(Long sessionId, String lastEventId) {
+        NextQuestionSingleFlight.Flight flight = singleFlight.resume(sessionId, lastEventId);
+        if (flight == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        SseStreamWriter.Stream stream = sseStreamWriter.open(emitter);
+        StreamSubscriber subscriber = new StreamSubscriber(new SseStreamListener(stream), flight, null, true);
+        bindLifecycle(emitter, stream, subscriber::leave);
+        flight.subscribe(subscriber, NextQuestionSingleFlight.offsetOf(lastEventId));
+        flight.result().whenComplete(subscriber::finish);
+        return emitter;
+    }
+
+
+    /**
+     * 读事务 → 事务外调用 LLM → 条件写入，LLM 等待期间不占用数据库连接
+     */
+    private InterviewTurn doGenerateNextQuestion(Long sessionId) {
+        QuestionContext context = loadQuestionContext(sessionId);
 
-                ensureSessionRunning(session);
+        String question = prefetcher.take(sessionId, context.lastTurnId, context.stageInfo.getCode());
+        if (question == null) {
+            List<Message> messages = buildMessages(sessionId, context.turns, context.stageInfo);
+            question = llmService.chat(messages);
+        }
+        if (question == null || question.trim().isEmpty()) {
+            throw new BusinessException(500, "LLM 返回空问题");
+        }
 
-                LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
-                        .orderByAsc(InterviewTurn::getCreatedAt);
-                List<InterviewTurn> turns = turnMapper.selectList(queryWrapper);
+        InterviewTurn turn = persistTurn(context, question.trim());
+        log.info("生成下一道面试问题: sessionId={}, turnId={}", sessionId, turn.getId());
+        return turn;
+    }
 
-                StagePlanStage stageInfo = resolveStageInfo(session);
-                List<Message> messages = buildMessages(turns, stageInfo);
-                String question = llmService.chat(messages);
-                if (question == null || question.trim().isEmpty()) {
-                    sendError(emitter, "LLM 返回空问题");
-                    return;
-                }
-                String trimmedQuestion = question.trim();
 
-                InterviewTurn turn = persistTurn(session, trimmedQuestion);
-                sendChunks(emitter, trimmedQuestion);
-                sendDone(emitter, turn.getId(), trimmedQuestion);
-                emitter.complete();
-            } catch (BusinessException ex) {
-                log.warn("SSE 业务异常: {}", ex.getMessage());
-                sendError(emitter, ex.getMessage());
-            } catch (Exception ex) {
-                log.error("SSE 生成下一道面试问题失败", ex);
-                sendError(emitter, "系统内部错误，请稍后重试");
+    private void runStreamingGeneration(NextQuestionSingleFlight.Flight flight, QuestionContext context,
+            List<Message> messages) {
+        Long sessionId = context.session.getId();
+        LlmCancellationToken cancellationToken = flight.cancellationToken();
+        try {
+            // 预生成进行中时转发其增量，已完成时一次性推送；未命中时上游每返回一段增量即广播给所有订阅方
+            String question = prefetcher.relay(sessionId, context.lastTurnId, context.stageInfo.getCode(),
+                    flight::publish, cancellationToken);
+            if (question == null) {
+                question = llmService.streamChat(messages, flight::publish, cancellationToken);
             }
+            if (question == null || question.trim().isEmpty()) {
+                throw new BusinessException(500, "LLM 返回空问题");
+            }
+            if (cancellationToken.isCancelled()) {
+                log.info("SSE 连接已关闭，丢弃生成结果: sessionId={}", sessionId);
+                throw new LlmCancelledException();
+            }
+
+            InterviewTurn turn = persistTurn(context, question.trim());
+            log.info("流式生成下一道面试问题: sessionId={}, turnId={}", sessionId, turn.getId());
+            singleFlight.complete(flight, turn);
+        } catch (LlmCancelledException ex) {
+            log.info("SSE 连接已关闭，已取消上游生成: sessionId={}", sessionId);
+            singleFlight.fail(flight, ex);
+        } catch (BusinessException ex) {
+            log.warn("SSE 业务异常: {}", ex.getMessage());
+            singleFlight.fail(flight, ex);
+        } catch (Exception ex) {
+            log.error("SSE 生成下一道面试问题失败", ex);
+            singleFlight.fail(flight, ex);
+        }
+    }
+
+
+    private InterviewTurn awaitFlight(NextQuestionSingleFlight.Flight flight) {
+        try {
+            return flight.result().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(500, "等待问题生成被中断");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException(500, "LLM 调用失败");
+        }
+    }
+
+
+    /**
+     * 后台预生成下一道面试问题
+     * 在预生成线程中读取已提交的会话与轮次；若历史已变化或会话已结束则放弃
+     *
+     * @param sessionId  会话ID
+     * @param lastTurnId 触发预生成的最后一个轮次ID
+     */
+    @Override
+    public void prefetchNextQuestion(Long sessionId, Long lastTurnId) {
+        prefetcher.start(sessionId, lastTurnId, (cancellationToken, sink) -> {
+            InterviewSession session = sessionCache.get(sessionId);
+            if (session == null || session.getStatus() == SessionStatus.ENDED
+                    || session.getStagePlanId() == null) {
+                return null;
+            }
+            List<InterviewTurn> turns = listTurns(sessionId);
+            if (!lastTurnId.equals(lastTurnIdOf(turns))) {
+                return null;
+            }
+            StagePlanStage stageInfo = resolveStageInfo(session);
+            sink.stage(stageInfo.getCode());
+            String question = llmService.streamChat(buildMessages(sessionId, turns, stageInfo),
+                    sink::delta, cancellationToken);
+            if (question == null || question.trim().isEmpty()) {
+                return null;
+            }
+            return new NextQuestionPrefetcher.Result(stageInfo.getCode(), question.trim());
         });
-        return emitter;
     }
 
 
-    private List<Message> buildMessages(List<InterviewTurn> turns, StagePlanStage stageInfo) {
+    private List<InterviewTurn> listTurns(Long sessionId) {
+        return turnLog.list(sessionId);
+    }
+
+
+    private Long lastTurnIdOf(List<InterviewTurn> turns) {
+        return turns.isEmpty() ? null : turns.get(turns.size() - 1).getId();
+    }
+
+
+    private List<Message> buildMessages(Long sessionId, List<InterviewTurn> turns, StagePlanStage stageInfo) {
         List<Message> messages = new ArrayList<>();
         messages.add(new Message("system",
                 "你是资深Java后端面试官。请根据候选人与面试官的历史对话提出下一道问题，一次只问一个问题，只输出问题文本。"
@@ -148,41 +341,38 @@ public class InterviewAiServiceImpl implements InterviewAiService {
                         + "，阶段目标：" + stageInfo.getGoal()
                         + "，请围绕该阶段目标与难度范围提问。"));
 
-        StringBuilder historyBuilder = new StringBuilder();
-        if (turns.isEmpty()) {
-            historyBuilder.append("暂无历史对话，请提出第一道面试问题。");
-        } else {
-            historyBuilder.append("历史对话如下：\n");
-            for (InterviewTurn turn : turns) {
-                historyBuilder.append(formatRole(turn.getRole()))
-                        .append("：")
-                        .append(turn.getContentText())
-                        .append("\n");
-            }
-        }
-        historyBuilder.append("当前阶段信息：")
-                .append(stageInfo.getCode())
-                .append(" - ")
-                .append(stageInfo.getName())
-                .append("，目标：")
-                .append(stageInfo.getGoal())
-                .append("，建议轮次：")
-                .append(stageInfo.getMinTurns())
-                .append("。\n");
-        messages.add(new Message("user", historyBuilder.toString()));
-        return messages;
+        String stageLine = "当前阶段信息：" + stageInfo.getCode() + " - " + stageInfo.getName()
+                + "，目标：" + stageInfo.getGoal()
+                + "，建议轮次：" + stageInfo.getMinTurns() + "。\n";
+        // 历史对话只使用扣除固定部分后的剩余预算：最近轮次原文 + 较早轮次摘要
+        int historyBudget = contextManager.budgetOf(LlmCallType.DIALOG)
+                - LlmTokenEstimator.estimate(messages) - LlmTokenEstimator.estimate(stageLine) - 8;
+        String history = contextManager.buildHistory(sessionId, turns, historyBudget);
+        messages.add(new Message("user", history + stageLine));
+        return contextManager.enforceBudget(messages, LlmCallType.DIALOG);
     }
 
 
-    private String formatRole(TurnRole role) {
-        if (role == TurnRole.CANDIDATE) {
-            return "候选人";
-        }
-        return "面试官";
+    /**
+     * 短读事务：校验会话、补齐运行状态与阶段计划，并读取生成问题所需的历史
+     */
+    private QuestionContext loadQuestionContext(Long sessionId) {
+        return transactionTemplate.execute(status -> {
+            InterviewSession session = prepareSession(sessionId);
+
+            List<InterviewTurn> turns = listTurns(sessionId);
+
+            StagePlanStage stageInfo = resolveStageInfo(session);
+            return new QuestionContext(session, turns, stageInfo, lastTurnIdOf(turns));
+        });
     }
 
 
-    private InterviewTurn persistTurn(InterviewSession session, String question) {
+    /**
+     * 写入生成的问题，并检查 LLM 调用期间会话是否被结束、阶段是否被推进或出现了新的轮次
+     */
+    private InterviewTurn persistTurn(QuestionContext context, String question) {
+        InterviewSession session = context.session;
         InterviewTurn turn = new InterviewTurn();
         turn.setSessionId(session.getId());
         turn.setRole(TurnRole.INTERVIEWER);
@@ -191,83 +381,136 @@ public class InterviewAiServiceImpl implements InterviewAiService {
             turn.setStageCode(session.getCurrentStage().name());
         }
         turn.setCreatedAt(LocalDateTime.now());
-        turnMapper.insert(turn);
+        long afterTurnId = context.lastTurnId == null ? 0L : context.lastTurnId;
+        int inserted;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                inserted = turnMapper.insertIfUnchanged(turn, afterTurnId);
+                break;
+            } catch (DuplicateKeyException ex) {
+                // 序号冲突说明并发写入了新轮次，与 afterTurnId 检查失败同样处理
+                inserted = 0;
+                break;
+            } catch (PessimisticLockingFailureException ex) {
+                // 与并发写入在间隙锁上死锁，语句已回滚，重新检查并写入
+                if (attempt >= PERSIST_LOCK_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+        if (inserted == 0) {
+            log.warn("生成问题期间会话已变化，放弃写入: sessionId={}, lastTurnId={}", session.getId(), context.lastTurnId);
+            sessionCache.evict(session.getId());
+            throw new BusinessException(409, "会话状态已变化，请重新获取问题");
+        }
+        turn.setSeq(turnMapper.selectSeqById(turn.getId()));
+        turnLog.append(turn);
         return turn;
     }
 
 
-    private void sendChunks(SseEmitter emitter, String question) throws Exception {
-        List<String> chunks = splitIntoChunks(question, 8);
-        for (String chunk : chunks) {
-            emitter.send(SseEmitter.event().name("chunk").data(chunk));
-            Thread.sleep(30L);
-        }
+    /**
+     * 客户端断开、超时或出错时离开本次生成并释放写出流；最后一个等待方离开时取消上游生成，避免为无人接收的内容付费
+     */
+    private void bindLifecycle(SseEmitter emitter, SseStreamWriter.Stream stream, Runnable leave) {
+        Runnable close = () -> {
+            leave.run();
+            stream.close();
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(ex -> close.run());
     }
 
 
-    private void sendDone(SseEmitter emitter, Long turnId, String question) throws Exception {
-        String payload = "{\"turnId\":" + turnId + ",\"question\":\"" + escapeJson(question) + "\"}";
-        emitter.send(SseEmitter.event().name("done").data(payload));
+    private void sendDone(SseStreamWriter.Stream stream, Long answerTurnId, Long turnId, String question)
+            throws IOException {
+        String answerField = answerTurnId == null ? "" : "\"answerTurnId\":" + answerTurnId + ",";
+        String payload = "{" + answerField + "\"turnId\":" + turnId + ",\"question\":\"" + escapeJson(question) + "\"}";
+        stream.send(SseEvent.named("done").data(payload));
     }
 
 
-    private void sendError(SseEmitter emitter, String message) {
+    private void sendError(SseStreamWriter.Stream stream, String message) {
         try {
-            emitter.send(SseEmitter.event().name("error").data(message));
+            stream.send(SseEvent.named("error").data(message));
         } catch (Exception ex) {
             log.warn("发送 SSE 错误事件失败", ex);
         } finally {
-            emitter.complete();
+            stream.complete();
         }
     }
 
 
-    private List<String> splitIntoChunks(String text, int size) {
-        List<String> chunks = new ArrayList<>();
-        int start = 0;
-        while (start < text.length()) {
-            int end = Math.min(text.length(), start + size);
-            chunks.add(text.substring(start, end));
-            start = end;
-        }
-        return chunks;
-    }
-
-
     private String escapeJson(String value) {
         return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
 
-    private void ensureSessionRunning(InterviewSession session) {
-        if (session.getStatus() == SessionStatus.CREATED) {
-            session.setStatus(SessionStatus.RUNNING);
-            if (session.getStartedAt() == null) {
-                session.setStartedAt(LocalDateTime.now());
+    /**
+     * 读取会话并补齐运行状态与阶段计划；已初始化的会话不产生写入。
+     * 写入只涉及变化的列并以读取时的状态为条件，未命中说明其他请求已修改会话，失效缓存后重新读取
+     */
+    private InterviewSession prepareSession(Long sessionId) {
+        for (int attempt = 1; ; attempt++) {
+            InterviewSession session = sessionCache.get(sessionId);
+            if (session == null) {
+                throw new BusinessException("会话不存在: " + sessionId);
+            }
+            if (session.getStatus() == SessionStatus.ENDED) {
+                throw new BusinessException("会话已结束");
+            }
+
+            boolean needsStart = session.getStatus() == SessionStatus.CREATED;
+            // 历史会话内嵌的计划在 planOf 中迁移为引用；没有计划的会话引用默认计划
+            boolean needsPlan = stagePlanRegistry.planOf(session) == null;
+            if (!needsStart && !needsPlan) {
+                return session;
+            }
+            if ((!needsStart || startSession(session)) && (!needsPlan || assignDefaultPlan(session))) {
+                sessionCache.refresh(session);
+                return session;
+            }
+            sessionCache.evict(sessionId);
+            if (attempt >= 2) {
+                throw new BusinessException(409, "会话状态已变化，请重新获取问题");
             }
-            sessionMapper.updateById(session);
         }
     }
 
 
-    private StagePlanStage resolveStageInfo(InterviewSession session) {
-        List<StagePlanStage> stages;
-        if (session.getStagePlanJson() == null || session.getStagePlanJson().isBlank()) {
-            stages = StagePlanFactory.defaultStages();
-            session.setStagePlanJson(JSON.toJSONString(stages));
-            if (session.getCurrentStage() == null) {
-                session.setCurrentStage(InterviewStage.BASICS);
-            }
-            sessionMapper.updateById(session);
-        } else {
-            stages = JSON.parseArray(session.getStagePlanJson(), StagePlanStage.class);
+    private boolean startSession(InterviewSession session) {
+        LocalDateTime now = LocalDateTime.now();
+        if (sessionMapper.start(session.getId(), now) == 0) {
+            return false;
         }
+        session.setStatus(SessionStatus.RUNNING);
+        if (session.getStartedAt() == null) {
+            session.setStartedAt(now);
+        }
+        return true;
+    }
+
 
+    private boolean assignDefaultPlan(InterviewSession session) {
+        String planId = stagePlanRegistry.defaultPlan().getId();
+        if (sessionMapper.assignStagePlan(session.getId(), session.getStagePlanId(), planId,
+                InterviewStage.BASICS) == 0) {
+            return false;
+        }
+        session.setStagePlanId(planId);
+        if (session.getCurrentStage() == null) {
+            session.setCurrentStage(InterviewStage.BASICS);
+        }
+        return true;
+    }
+
+
+    private StagePlanStage resolveStageInfo(InterviewSession session) {
         String currentCode = session.getCurrentStage() == null ? InterviewStage.BASICS.name() : session.getCurrentStage().name();
-        for (StagePlanStage stage : stages) {
-            if (stage.getCode().equalsIgnoreCase(currentCode)) {
-                return stage;
-            }
+        StagePlanStage stage = stagePlanRegistry.get(session.getStagePlanId()).stageOf(currentCode);
+        if (stage != null) {
+            return stage;
         }
         StagePlanStage fallback = new StagePlanStage();
         fallback.setCode(currentCode);
@@ -276,4 +519,136 @@ public class InterviewAiServiceImpl implements InterviewAiService {
         fallback.setMinTurns(2);
         return fallback;
     }
+
+
+    /**
+     * 生成问题时读取的会话快照
+     */
+    private static final class QuestionContext {
+        private final InterviewSession session;
+        private final List<InterviewTurn> turns;
+        private final StagePlanStage stageInfo;
+        private final Long lastTurnId;
+
+        private QuestionContext(InterviewSession session, List<InterviewTurn> turns, StagePlanStage stageInfo,
+                Long lastTurnId) {
+            this.session = session;
+            this.turns = turns;
+            this.stageInfo = stageInfo;
+            this.lastTurnId = lastTurnId;
+        }
+    }
+
+
+    /**
+     * 单个接收方对一次生成的订阅
+     */
+    private final class StreamSubscriber implements NextQuestionSingleFlight.DeltaSubscriber {
+        private final QuestionStreamListener listener;
+        private final NextQuestionSingleFlight.Flight flight;
+        private final Long answerTurnId;
+        private final AtomicBoolean left = new AtomicBoolean();
+        private volatile boolean chunkSent;
+
+        /**
+         * @param resumed 断线续传：客户端已有断点之前的内容，结束时不补发完整问题
+         */
+        private StreamSubscriber(QuestionStreamListener listener, NextQuestionSingleFlight.Flight flight,
+                Long answerTurnId, boolean resumed) {
+            this.listener = listener;
+            this.flight = flight;
+            this.answerTurnId = answerTurnId;
+            this.chunkSent = resumed;
+        }
+
+
+        @Override
+        public void accept(String delta, int offset) {
+            if (left.get()) {
+                return;
+            }
+            try {
+                listener.onDelta(delta, flight == null ? null : flight.eventId(offset));
+                chunkSent = true;
+            } catch (IOException | IllegalStateException ex) {
+                // 写入失败说明客户端已断开
+                leave();
+            }
+        }
+
+
+        /**
+         * 生成结束：通知完成或失败
+         */
+        private void finish(InterviewTurn turn, Throwable failure) {
+            if (left.get()) {
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause == null) {
+                try {
+                    // 未收到增量（如非流式生成或幂等重放）时补发完整问题
+                    if (!chunkSent) {
+                        accept(turn.getContentText(), turn.getContentText().length());
+                    }
+                    listener.onDone(answerTurnId, turn);
+                } catch (Exception ex) {
+                    log.warn("推送完成事件失败: {}", ex.getMessage());
+                }
+            } else if (cause instanceof LlmCancelledException) {
+                listener.onCancelled();
+            } else if (cause instanceof BusinessException businessException) {
+                listener.onError(businessException.getCode(), businessException.getMessage());
+            } else {
+                listener.onError(500, "系统内部错误，请稍后重试");
+            }
+            leave();
+        }
+
+
+        private void leave() {
+            if (left.compareAndSet(false, true) && flight != null) {
+                flight.unsubscribe(this);
+                flight.detach();
+            }
+        }
+    }
+
+
+    /**
+     * SSE 接收方：增量合并为 chunk 事件，结束时推送 done 或 error 事件并关闭连接
+     */
+    private final class SseStreamListener implements QuestionStreamListener {
+        private final SseStreamWriter.Stream stream;
+
+        private SseStreamListener(SseStreamWriter.Stream stream) {
+            this.stream = stream;
+        }
+
+
+        @Override
+        public void onDelta(String delta, String eventId) throws IOException {
+            stream.chunk(delta, eventId);
+        }
+
+
+        @Override
+        public void onDone(Long answerTurnId, InterviewTurn turn) throws IOException {
+            sendDone(stream, answerTurnId, turn.getId(), turn.getContentText());
+            stream.complete();
+        }
+
+
+        @Override
+        public void onError(int code, String message) {
+            sendError(stream, message);
+        }
+
+
+        @Override
+        public void onCancelled() {
+            stream.complete();
+        }
+    }
 }
@@ -1,35 +1,64 @@
 package org.itjuerui.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.api.dto.AnswerTurnResponse;
 import org.itjuerui.api.dto.InterviewCreateRequest;
 import org.itjuerui.api.dto.NextQuestionResponse;
 import org.itjuerui.api.dto.SessionDetailResponse;
 import org.itjuerui.api.dto.SessionListRequest;
 import org.itjuerui.api.dto.SessionListResponse;
+import org.itjuerui.api.dto.TurnImportError;
+import org.itjuerui.api.dto.TurnImportResponse;
 import org.itjuerui.api.dto.TurnRequest;
+import org.itjuerui.common.config.InterviewTurnImportProperties;
 import org.itjuerui.common.exception.BusinessException;
 import org.itjuerui.domain.interview.dto.StagePlanStage;
 import org.itjuerui.domain.interview.entity.InterviewSession;
 import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
 import org.itjuerui.domain.interview.enums.InterviewStage;
 import org.itjuerui.domain.interview.enums.SessionStatus;
 import org.itjuerui.domain.interview.enums.TurnRole;
-import org.itjuerui.domain.interview.support.StagePlanFactory;
+import org.itjuerui.domain.interview.support.StagePlan;
 import org.itjuerui.infra.repo.InterviewSessionMapper;
 import org.itjuerui.infra.repo.InterviewTurnMapper;
 import org.itjuerui.service.InterviewAiService;
 import org.itjuerui.service.InterviewService;
+import org.itjuerui.service.QuestionStreamListener;
 import org.itjuerui.service.ReportService;
+import org.itjuerui.service.support.InterviewSessionCache;
+import org.itjuerui.service.support.InterviewTurnLog;
+import org.itjuerui.service.support.NextQuestionPrefetcher;
+import org.itjuerui.service.support.NextQuestionSingleFlight;
+import org.itjuerui.service.support.SessionListCursor;
+import org.itjuerui.service.support.StageAnswerStatsStore;
+import org.itjuerui.service.support.StagePlanRegistry;
+import org.itjuerui.service.support.TurnBatchWriter;
+import org.itjuerui.service.support.TurnGroupCommitter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -40,10 +69,33 @@ import java.util.List;
 @RequiredArgsConstructor
 public class InterviewServiceImpl implements InterviewService {
 
+    /**
+     * 轮次序号冲突或死锁时，写入事务的最多尝试次数
+     */
+    private static final int SEQ_INSERT_ATTEMPTS = 3;
+
+    /**
+     * 按序号读取轮次时的默认条数与上限
+     */
+    private static final int DEFAULT_TURN_LIMIT = 100;
+    private static final int MAX_TURN_LIMIT = 500;
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final InterviewSessionMapper sessionMapper;
     private final InterviewTurnMapper turnMapper;
     private final InterviewAiService interviewAiService;
     private final ReportService reportService;
+    private final NextQuestionPrefetcher prefetcher;
+    private final InterviewSessionCache sessionCache;
+    private final InterviewTurnLog turnLog;
+    private final StagePlanRegistry stagePlanRegistry;
+    private final NextQuestionSingleFlight singleFlight;
+    private final StageAnswerStatsStore stageStats;
+    private final TransactionTemplate transactionTemplate;
+    private final TurnBatchWriter turnBatchWriter;
+    private final TurnGroupCommitter groupCommitter;
+    private final InterviewTurnImportProperties turnImportProperties;
 
     @Override
     @Transactional
@@ -63,10 +115,9 @@ public class InterviewServiceImpl implements InterviewService {
     }
 
     @Override
-    @Transactional
     public Long addTurn(Long sessionId, TurnRequest request) {
         // 检查会话是否存在
-        InterviewSession session = sessionMapper.selectById(sessionId);
+        InterviewSession session = sessionCache.get(sessionId);
         if (session == null) {
             throw new BusinessException("会话不存在: " + sessionId);
         }
@@ -89,26 +140,99 @@ public class InterviewServiceImpl implements InterviewService {
         }
         turn.setCreatedAt(LocalDateTime.now());
 
-        turnMapper.insert(turn);
+        writeTurn(turn);
+        turnLog.append(turn);
         log.info("添加对话轮次: turnId={}, sessionId={}, role={}",
                 turn.getId(), sessionId, role);
+
+        // 候选人回答提交后预生成下一道问题；事务提交后再启动，保证后台线程能读到本轮次
+        if (role == TurnRole.CANDIDATE) {
+            Long turnId = turn.getId();
+            runAfterCommit(() -> interviewAiService.prefetchNextQuestion(sessionId, turnId));
+        }
         return turn.getId();
     }
 
     @Override
-    public SessionDetailResponse getSessionDetail(Long sessionId) {
-        // 查询会话
-        InterviewSession session = sessionMapper.selectById(sessionId);
-        if (session == null) {
+    public TurnImportResponse importTurns(Long sessionId, List<TurnRequest> turns) {
+        TurnImport turnImport = new TurnImport(sessionId);
+        for (int index = 0; index < turns.size() && turnImport.accepts(index); index++) {
+            turnImport.add(index, turns.get(index));
+        }
+        return turnImport.finish();
+    }
+
+    @Override
+    public TurnImportResponse importTurns(Long sessionId, InputStream ndjson) {
+        TurnImport turnImport = new TurnImport(sessionId);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            String line;
+            for (int index = 0; (line = reader.readLine()) != null && turnImport.accepts(index); index++) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                TurnRequest request;
+                try {
+                    request = JSON.parseObject(line, TurnRequest.class);
+                } catch (JSONException ex) {
+                    turnImport.reject(index, "无法解析的行");
+                    continue;
+                }
+                turnImport.add(index, request);
+            }
+        } catch (IOException ex) {
+            // 已读取的部分照常写入，响应中的 received 反映实际收到的行数
+            log.warn("读取导入内容中断: sessionId={}, message={}", sessionId, ex.getMessage());
+        }
+        return turnImport.finish();
+    }
+
+    @Override
+    public List<StageAnswerStats> getStageStats(Long sessionId) {
+        if (sessionCache.get(sessionId) == null) {
             throw new BusinessException("会话不存在: " + sessionId);
         }
+        return stageStats.list(sessionId);
+    }
 
-        // 查询该会话的所有 turns，按创建时间排序
+    @Override
+    public List<InterviewTurn> getTurns(Long sessionId, Integer afterSeq, Integer toSeq, Integer limit) {
+        if (sessionCache.get(sessionId) == null) {
+            throw new BusinessException("会话不存在: " + sessionId);
+        }
+        int size = limit != null && limit > 0 ? Math.min(limit, MAX_TURN_LIMIT) : DEFAULT_TURN_LIMIT;
+
+        // (session_id, seq) 唯一索引范围扫描，只读取请求的区间
         LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
-                .orderByAsc(InterviewTurn::getCreatedAt);
+                .gt(afterSeq != null && afterSeq > 0, InterviewTurn::getSeq, afterSeq)
+                .le(toSeq != null, InterviewTurn::getSeq, toSeq)
+                .orderByAsc(InterviewTurn::getSeq)
+                .last("LIMIT " + size);
         List<InterviewTurn> turns = turnMapper.selectList(queryWrapper);
 
+        log.info("按序号查询轮次: sessionId={}, afterSeq={}, toSeq={}, count={}",
+                sessionId, afterSeq, toSeq, turns.size());
+        return turns;
+    }
+
+    @Override
+    public SessionDetailResponse getSessionDetail(Long sessionId) {
+        // 查询会话
+        InterviewSession session = sessionCache.get(sessionId);
+        if (session == null) {
+            throw new BusinessException("会话不存在: " + sessionId);
+        }
+
+        // 查询该会话的所有 turns，按写入顺序排列
+        List<InterviewTurn> turns = turnLog.list(sessionId);
+
+        // 会话只保存计划ID，详情按引用的共享计划返回完整阶段计划
+        StagePlan plan = stagePlanRegistry.planOf(session);
+        if (plan != null) {
+            session.setStagePlanJson(plan.toJson());
+        }
+
         SessionDetailResponse response = new SessionDetailResponse();
         response.setSession(session);
         response.setTurns(turns);
@@ -119,47 +243,88 @@ public class InterviewServiceImpl implements InterviewService {
 
     @Override
     public SessionListResponse getSessionList(SessionListRequest request) {
-        // 构建查询条件
-        LambdaQueryWrapper<InterviewSession> queryWrapper = new LambdaQueryWrapper<>();
+        int size = request.getSize() != null && request.getSize() > 0
+                ? Math.min(request.getSize(), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        boolean cursorMode = request.getCursor() != null && !request.getCursor().isBlank();
+        // 未指定时游标翻页不统计总数，客户端沿用首页的 total
+        boolean withTotal = request.getWithTotal() != null ? request.getWithTotal() : !cursorMode;
 
-        // 可选筛选：resumeId
+        SessionListResponse response = new SessionListResponse();
+        response.setSize(size);
+        List<InterviewSession> sessions;
+        boolean hasMore;
+
+        if (cursorMode) {
+            // 游标翻页：从上一页最后一条 (created_at, id) 之后读取 size + 1 条，多出的一条仅用于判断是否还有下一页，
+            // 走 (筛选列, created_at, id) 索引范围扫描，深页与首页代价相同
+            SessionListCursor cursor = SessionListCursor.decode(request.getCursor());
+            LambdaQueryWrapper<InterviewSession> queryWrapper = buildSessionListQuery(request)
+                    .and(w -> w.lt(InterviewSession::getCreatedAt, cursor.getCreatedAt())
+                            .or(o -> o.eq(InterviewSession::getCreatedAt, cursor.getCreatedAt())
+                                    .lt(InterviewSession::getId, cursor.getId())))
+                    .orderByDesc(InterviewSession::getCreatedAt)
+                    .orderByDesc(InterviewSession::getId)
+                    .last("LIMIT " + (size + 1));
+            sessions = sessionMapper.selectList(queryWrapper);
+            hasMore = sessions.size() > size;
+            if (hasMore) {
+                sessions = sessions.subList(0, size);
+            }
+            if (withTotal) {
+                response.setTotal(sessionMapper.selectCount(buildSessionListQuery(request)));
+            }
+        } else {
+            // 页码翻页：保持原有语义，withTotal=false 时不执行 COUNT 查询
+            int page = request.getPage() != null && request.getPage() > 0 ? request.getPage() : 1;
+            LambdaQueryWrapper<InterviewSession> queryWrapper = buildSessionListQuery(request)
+                    .orderByDesc(InterviewSession::getCreatedAt)
+                    .orderByDesc(InterviewSession::getId);
+            Page<InterviewSession> pageParam = new Page<>(page, size, withTotal);
+            IPage<InterviewSession> pageResult = sessionMapper.selectPage(pageParam, queryWrapper);
+            sessions = pageResult.getRecords();
+            response.setPage(page);
+            if (withTotal) {
+                response.setTotal(pageResult.getTotal());
+                hasMore = page < pageResult.getPages();
+            } else {
+                // 未统计总数时按本页是否取满判断，恰好取完最后一页时下一页为空列表
+                hasMore = sessions.size() == size;
+            }
+        }
+
+        if (response.getTotal() != null) {
+            response.setTotalPages((int) ((response.getTotal() + size - 1) / size));
+        }
+        response.setSessions(sessions);
+        response.setHasMore(hasMore);
+        if (hasMore && !sessions.isEmpty()) {
+            response.setNextCursor(SessionListCursor.encode(sessions.get(sessions.size() - 1)));
+        }
+
+        log.info("查询会话列表: resumeId={}, status={}, page={}, cursor={}, size={}, total={}, hasMore={}",
+                request.getResumeId(), request.getStatus(), response.getPage(), request.getCursor() != null,
+                size, response.getTotal(), hasMore);
+        return response;
+    }
+
+    /**
+     * 会话列表筛选条件（可选 resumeId/status），排序与翻页条件由调用方追加
+     */
+    private LambdaQueryWrapper<InterviewSession> buildSessionListQuery(SessionListRequest request) {
+        LambdaQueryWrapper<InterviewSession> queryWrapper = new LambdaQueryWrapper<>();
         if (request.getResumeId() != null) {
             queryWrapper.eq(InterviewSession::getResumeId, request.getResumeId());
         }
-
-        // 可选筛选：status
         if (request.getStatus() != null) {
             queryWrapper.eq(InterviewSession::getStatus, request.getStatus());
         }
-
-        // 按创建时间倒序排列
-        queryWrapper.orderByDesc(InterviewSession::getCreatedAt);
-
-        // 分页参数
-        int page = request.getPage() != null && request.getPage() > 0 ? request.getPage() : 1;
-        int size = request.getSize() != null && request.getSize() > 0 ? request.getSize() : 10;
-
-        // 执行分页查询
-        Page<InterviewSession> pageParam = new Page<>(page, size);
-        IPage<InterviewSession> pageResult = sessionMapper.selectPage(pageParam, queryWrapper);
-
-        // 构建响应
-        SessionListResponse response = new SessionListResponse();
-        response.setSessions(pageResult.getRecords());
-        response.setTotal(pageResult.getTotal());
-        response.setPage(page);
-        response.setSize(size);
-        response.setTotalPages((int) pageResult.getPages());
-
-        log.info("查询会话列表: resumeId={}, status={}, page={}, size={}, total={}",
-                request.getResumeId(), request.getStatus(), page, size, pageResult.getTotal());
-        return response;
+        return queryWrapper;
     }
 
     @Override
-    @Transactional
-    public NextQuestionResponse getNextQuestion(Long sessionId) {
-        InterviewTurn turn = interviewAiService.generateNextQuestion(sessionId);
+    public NextQuestionResponse getNextQuestion(Long sessionId, String idempotencyKey) {
+        // 不开启外层事务：生成在自身事务中完成并提交后，才唤醒合并进来的并发请求
+        InterviewTurn turn = interviewAiService.generateNextQuestion(sessionId, idempotencyKey);
 
         NextQuestionResponse response = new NextQuestionResponse();
         response.setQuestion(turn.getContentText());
@@ -171,34 +336,78 @@ public class InterviewServiceImpl implements InterviewService {
 
 
     @Override
-    public SseEmitter streamNextQuestion(Long sessionId) {
-        return interviewAiService.streamNextQuestion(sessionId);
+    public SseEmitter streamNextQuestion(Long sessionId, String idempotencyKey, String lastEventId) {
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            SseEmitter resumed = interviewAiService.resumeQuestionStream(sessionId, lastEventId);
+            if (resumed != null) {
+                return resumed;
+            }
+            log.info("无法续传，重新生成: sessionId={}, lastEventId={}", sessionId, lastEventId);
+        }
+        return interviewAiService.streamNextQuestion(sessionId, idempotencyKey);
+    }
+
+
+    /**
+     * 提交回答并流式追问
+     * 回答在请求线程写入（不触发预生成，追问随即在同一请求中生成），追问由生成执行器流式输出
+     */
+    @Override
+    public SseEmitter streamAnswer(Long sessionId, String content, String idempotencyKey) {
+        return interviewAiService.streamNextQuestion(sessionId, idempotencyKey,
+                () -> singleFlight.answerOnce(sessionId, idempotencyKey, () -> saveAnswer(sessionId, content)));
+    }
+
+
+    @Override
+    public Runnable streamAnswer(Long sessionId, String content, String idempotencyKey,
+            QuestionStreamListener listener) {
+        return interviewAiService.streamNextQuestion(sessionId, idempotencyKey,
+                () -> singleFlight.answerOnce(sessionId, idempotencyKey, () -> saveAnswer(sessionId, content)),
+                listener);
+    }
+
+
+    @Override
+    public Runnable streamNextQuestion(Long sessionId, String idempotencyKey, QuestionStreamListener listener) {
+        return interviewAiService.streamNextQuestion(sessionId, idempotencyKey, null, listener);
     }
 
 
     @Override
     @Transactional
     public Long endSession(Long sessionId) {
-        InterviewSession session = sessionMapper.selectById(sessionId);
+        InterviewSession session = sessionCache.get(sessionId);
         if (session == null) {
             throw new BusinessException("会话不存在: " + sessionId);
         }
         if (session.getStatus() != SessionStatus.ENDED) {
+            // 只写状态与结束时间；未命中说明会话已被其他请求结束，失效缓存中的旧状态
+            LocalDateTime now = LocalDateTime.now();
+            if (sessionMapper.end(sessionId, now) == 0) {
+                sessionCache.evict(sessionId);
+                return sessionId;
+            }
             session.setStatus(SessionStatus.ENDED);
             if (session.getEndedAt() == null) {
-                session.setEndedAt(LocalDateTime.now());
+                session.setEndedAt(now);
             }
-            sessionMapper.updateById(session);
+            sessionCache.refresh(session);
+            prefetcher.discard(sessionId);
+            turnLog.evict(sessionId);
             log.info("结束面试会话: sessionId={}", sessionId);
         }
         return sessionId;
     }
 
 
+    /**
+     * 推进面试阶段
+     * 阶段小结的 LLM 调用不在事务内；最后以“阶段未被并发推进且会话未结束”为条件更新，冲突时返回 409
+     */
     @Override
-    @Transactional
     public InterviewSession advanceStage(Long sessionId) {
-        InterviewSession session = sessionMapper.selectById(sessionId);
+        InterviewSession session = sessionCache.get(sessionId);
         if (session == null) {
             throw new BusinessException("会话不存在: " + sessionId);
         }
@@ -206,53 +415,245 @@ public class InterviewServiceImpl implements InterviewService {
             throw new BusinessException("会话已结束");
         }
 
-        List<StagePlanStage> stages = getStagePlan(session);
-        if (stages.isEmpty()) {
+        StagePlan plan = stagePlanRegistry.planOf(session);
+        if (plan == null) {
+            plan = stagePlanRegistry.defaultPlan();
+            session.setStagePlanId(plan.getId());
+        }
+        if (plan.isEmpty()) {
             throw new BusinessException("阶段计划为空，无法推进");
         }
+        List<StagePlanStage> stages = plan.getStages();
 
         String currentCode = session.getCurrentStage() == null ? null : session.getCurrentStage().name();
-        int currentIndex = -1;
-        for (int i = 0; i < stages.size(); i++) {
-            if (stages.get(i).getCode().equalsIgnoreCase(currentCode)) {
-                currentIndex = i;
-                break;
-            }
-        }
+        int currentIndex = plan.indexOf(currentCode);
 
+        InterviewStage expectedStage = session.getCurrentStage();
         if (currentIndex < 0) {
             session.setCurrentStage(InterviewStage.valueOf(stages.get(0).getCode()));
         } else if (currentIndex + 1 < stages.size()) {
-            reportService.generateStageMiniReport(sessionId, session.getCurrentStage());
+            reportService.generateStageMiniReport(sessionId, expectedStage);
             session.setCurrentStage(InterviewStage.valueOf(stages.get(currentIndex + 1).getCode()));
         }
 
-        sessionMapper.updateById(session);
+        if (sessionMapper.transitionStage(sessionId, expectedStage, session.getCurrentStage(),
+                session.getStagePlanId()) == 0) {
+            log.warn("推进阶段冲突: sessionId={}, expectedStage={}", sessionId, expectedStage);
+            sessionCache.evict(sessionId);
+            throw new BusinessException(409, "会话阶段已变化或会话已结束，请刷新后重试");
+        }
+        sessionCache.refresh(session);
+        // 阶段变化后预生成的问题不再适用
+        prefetcher.discard(sessionId);
         return session;
     }
 
 
-    private void ensureDefaultStagePlan(InterviewSession session) {
-        if (session.getStagePlanJson() == null || session.getStagePlanJson().isBlank()) {
-            List<StagePlanStage> stages = StagePlanFactory.defaultStages();
-            session.setStagePlanJson(JSON.toJSONString(stages));
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-        if (session.getCurrentStage() == null) {
-            session.setCurrentStage(InterviewStage.BASICS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+
+    /**
+     * 写入候选人回答
+     */
+    private Long saveAnswer(Long sessionId, String content) {
+        if (content == null || content.isBlank()) {
+            throw new BusinessException("回答内容不能为空");
+        }
+        InterviewSession session = sessionCache.get(sessionId);
+        if (session == null) {
+            throw new BusinessException("会话不存在: " + sessionId);
+        }
+        if (session.getStatus() == SessionStatus.ENDED) {
+            throw new BusinessException("会话已结束");
         }
+
+        InterviewTurn turn = new InterviewTurn();
+        turn.setSessionId(sessionId);
+        turn.setRole(TurnRole.CANDIDATE);
+        turn.setContentText(content);
+        if (session.getCurrentStage() != null) {
+            turn.setStageCode(session.getCurrentStage().name());
+        }
+        turn.setCreatedAt(LocalDateTime.now());
+
+        writeTurn(turn);
+        turnLog.append(turn);
+        log.info("写入候选人回答: turnId={}, sessionId={}", turn.getId(), sessionId);
+        return turn.getId();
     }
 
 
-    private List<StagePlanStage> getStagePlan(InterviewSession session) {
-        if (session.getStagePlanJson() == null || session.getStagePlanJson().isBlank()) {
-            List<StagePlanStage> stages = StagePlanFactory.defaultStages();
-            session.setStagePlanJson(JSON.toJSONString(stages));
-            sessionMapper.updateById(session);
-            return stages;
+    /**
+     * 一次批量导入：会话只校验一次，轮次逐条校验后攒批写入，记录每条未写入轮次的位置与原因
+     */
+    private final class TurnImport {
+        private final Long sessionId;
+        private final String stageCode;
+        private final int maxTurns;
+        private final int batchSize;
+        private final List<InterviewTurn> pending = new ArrayList<>();
+        private final List<Integer> pendingIndexes = new ArrayList<>();
+        private final TurnImportResponse response = new TurnImportResponse();
+
+        private TurnImport(Long sessionId) {
+            InterviewSession session = sessionCache.get(sessionId);
+            if (session == null) {
+                throw new BusinessException("会话不存在: " + sessionId);
+            }
+            this.sessionId = sessionId;
+            this.stageCode = session.getCurrentStage() == null ? null : session.getCurrentStage().name();
+            this.maxTurns = Math.max(1, turnImportProperties.getMaxTurns());
+            this.batchSize = Math.max(1, turnImportProperties.getBatchSize());
+        }
+
+        /**
+         * 是否继续接收第 index 条；超出单次上限时记录一条错误并停止
+         */
+        private boolean accepts(int index) {
+            if (index < maxTurns) {
+                return true;
+            }
+            error(index, "超出单次导入上限 " + maxTurns + " 条，其后内容未导入");
+            return false;
+        }
+
+        private void add(int index, TurnRequest request) {
+            response.setReceived(response.getReceived() + 1);
+            if (request == null || request.getContent() == null || request.getContent().isBlank()) {
+                error(index, "内容不能为空");
+                return;
+            }
+            if (request.getRole() == null || request.getRole().isBlank()) {
+                error(index, "角色不能为空");
+                return;
+            }
+            TurnRole role;
+            try {
+                role = TurnRole.valueOf(request.getRole().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                error(index, "无效的角色: " + request.getRole());
+                return;
+            }
+
+            InterviewTurn turn = new InterviewTurn();
+            turn.setSessionId(sessionId);
+            turn.setRole(role);
+            turn.setContentText(request.getContent());
+            turn.setStageCode(stageCode);
+            turn.setCreatedAt(LocalDateTime.now());
+            pending.add(turn);
+            pendingIndexes.add(index);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * 收到一条无法解析的轮次
+         */
+        private void reject(int index, String message) {
+            response.setReceived(response.getReceived() + 1);
+            error(index, message);
+        }
+
+        private void error(int index, String message) {
+            response.getErrors().add(new TurnImportError(index, message));
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                turnBatchWriter.write(pending);
+                if (response.getFirstSeq() == null) {
+                    response.setFirstSeq(pending.get(0).getSeq());
+                }
+                response.setLastSeq(pending.get(pending.size() - 1).getSeq());
+                response.setImported(response.getImported() + pending.size());
+            } catch (DataAccessException ex) {
+                // 整批已回滚，其余批次继续写入
+                log.warn("批量导入轮次写入失败: sessionId={}, count={}, message={}",
+                        sessionId, pending.size(), ex.getMessage());
+                pendingIndexes.forEach(index -> error(index, "写入失败，请重试"));
+            }
+            pending.clear();
+            pendingIndexes.clear();
+        }
+
+        private TurnImportResponse finish() {
+            flush();
+            response.getErrors().sort(Comparator.comparing(TurnImportError::getIndex));
+            response.setFailed(response.getReceived() - response.getImported());
+            log.info("批量导入轮次: sessionId={}, received={}, imported={}, failed={}, seq=[{}, {}]",
+                    sessionId, response.getReceived(), response.getImported(), response.getFailed(),
+                    response.getFirstSeq(), response.getLastSeq());
+            return response;
+        }
+    }
+
+
+    /**
+     * 写入轮次与阶段统计（同一事务）并提交；启用组提交且调用方不在事务中时，与其他会话并发写入的轮次合并提交
+     * <p>
+     * 同一会话并发写入时序号唯一索引冲突，或 InnoDB 在 (session_id, seq) 上的间隙锁相互等待被判死锁，
+     * 此时整个事务已回滚，重新开启事务、重新计算序号后重试；加入调用方事务时无法单独重试
+     */
+    private void writeTurn(InterviewTurn turn) {
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        if (groupCommitter.isEnabled() && !joined) {
+            groupCommitter.insert(turn);
+            return;
+        }
+        int attempts = joined ? 1 : SEQ_INSERT_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insertTurn(turn);
+                    stageStats.record(turn);
+                });
+                return;
+            } catch (DuplicateKeyException | PessimisticLockingFailureException ex) {
+                if (attempt >= attempts) {
+                    log.warn("轮次序号分配冲突: sessionId={}, attempts={}, error={}",
+                            turn.getSessionId(), attempt, ex.getClass().getSimpleName());
+                    throw new BusinessException(409, "会话轮次写入冲突，请重试");
+                }
+            }
         }
-        return JSON.parseArray(session.getStagePlanJson(), StagePlanStage.class);
     }
 
+
+    /**
+     * 写入轮次并分配会话内序号（当前最大序号 + 1）
+     */
+    private void insertTurn(InterviewTurn turn) {
+        turnMapper.insertWithSeq(turn);
+        turn.setSeq(turnMapper.selectSeqById(turn.getId()));
+    }
+
+
+    private void ensureDefaultStagePlan(InterviewSession session) {
+        if (session.getStagePlanId() == null) {
+            session.setStagePlanId(stagePlanRegistry.defaultPlan().getId());
+        }
+        if (session.getCurrentStage() == null) {
+            session.setCurrentStage(InterviewStage.BASICS);
+        }
+    }
+
+
     @Override
     public Object startInterview(Long sessionId) {
         // TODO: 实现开始面试逻辑
@@ -261,17 +662,21 @@ public class InterviewServiceImpl implements InterviewService {
     }
 
     @Override
-    public Object submitTurn(Long sessionId, String candidateText) {
-        // TODO: 实现对话提交逻辑
-        log.info("提交对话: sessionId={}, text={}", sessionId, candidateText);
-        return null;
+    public AnswerTurnResponse submitTurn(Long sessionId, String candidateText) {
+        Long answerTurnId = saveAnswer(sessionId, candidateText);
+        InterviewTurn turn = interviewAiService.generateNextQuestion(sessionId, null);
+
+        AnswerTurnResponse response = new AnswerTurnResponse();
+        response.setAnswerTurnId(answerTurnId);
+        response.setQuestion(turn.getContentText());
+        response.setTurnId(turn.getId());
+        log.info("提交对话: sessionId={}, answerTurnId={}, turnId={}", sessionId, answerTurnId, turn.getId());
+        return response;
     }
 
     @Override
-    public Object streamResponse(Long sessionId, String candidateText) {
-        // TODO: 实现流式响应逻辑
-        log.info("流式响应: sessionId={}, text={}", sessionId, candidateText);
-        return null;
+    public SseEmitter streamResponse(Long sessionId, String candidateText) {
+        return streamAnswer(sessionId, candidateText, null);
     }
 
     @Override
@@ -0,0 +1,227 @@
+package org.itjuerui.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.alibaba.fastjson2.JSON;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.api.dto.ReportJobEvent;
+import org.itjuerui.api.dto.ReportJobResponse;
+import org.itjuerui.common.config.ReportJobProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.common.sse.SseEvent;
+import org.itjuerui.domain.report.entity.Report;
+import org.itjuerui.domain.report.entity.StageMiniReport;
+import org.itjuerui.service.ReportJobService;
+import org.itjuerui.service.ReportService;
+import org.itjuerui.service.support.ReportJob;
+import org.itjuerui.service.support.SseStreamWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 报告生成任务服务实现
+ * 规则版报告在提交请求内生成（不调用 LLM，一个短事务），返回时即可查询；
+ * 阶段小结补齐与 AI 润色在固定大小、有界队列的后台线程池中执行，不占用 Tomcat 线程与数据库事务
+ * <p>
+ * 指标：report.job.submitted{result}（accepted / deduplicated / rejected）、report.job.finished{status}、
+ * report.job.queued（排队中的任务数）
+ */
+@Slf4j
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private final ReportService reportService;
+    private final ReportJobProperties properties;
+    private final SseStreamWriter sseStreamWriter;
+    private final MeterRegistry meterRegistry;
+    private final LRUCache<String, ReportJob> jobs;
+    private final Map<Long, ReportJob> activeJobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public ReportJobServiceImpl(ReportService reportService, ReportJobProperties properties,
+            SseStreamWriter sseStreamWriter, MeterRegistry meterRegistry) {
+        this.reportService = reportService;
+        this.properties = properties;
+        this.sseStreamWriter = sseStreamWriter;
+        this.meterRegistry = meterRegistry;
+        this.jobs = CacheUtil.newLRUCache(properties.getMaxJobs(),
+                TimeUnit.SECONDS.toMillis(properties.getRetainSeconds()));
+
+        int workers = Math.max(1, properties.getWorkers());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("report.job.queued", executor, pool -> pool.getQueue().size())
+                .description("排队中的报告生成任务数")
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public ReportJobResponse submit(Long sessionId) {
+        ReportJob active = activeJobs.get(sessionId);
+        if (active != null) {
+            return deduplicated(active);
+        }
+
+        // 校验会话并保存规则版报告，失败（会话未结束、无回答等）直接返回错误，不创建任务
+        Report ruleReport = reportService.generateRuleReport(sessionId);
+
+        ReportJob job = new ReportJob(sessionId);
+        active = activeJobs.putIfAbsent(sessionId, job);
+        if (active != null) {
+            return deduplicated(active);
+        }
+        job.ruleReportReady(ruleReport.getId(), ruleReport.getOverallScore());
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            activeJobs.remove(sessionId, job);
+            job.fail("报告生成任务过多，AI 润色未执行");
+            meterRegistry.counter("report.job.submitted", "result", "rejected").increment();
+            throw new BusinessException(429, "报告生成任务过多，请稍后重试");
+        }
+        meterRegistry.counter("report.job.submitted", "result", "accepted").increment();
+        log.info("报告生成任务已提交: sessionId={}, jobId={}", sessionId, job.getId());
+        return job.toResponse();
+    }
+
+
+    @Override
+    public ReportJobResponse getJob(String jobId) {
+        return requireJob(jobId).toResponse();
+    }
+
+
+    @Override
+    public SseEmitter streamEvents(String jobId, String lastEventId) {
+        ReportJob job = requireJob(jobId);
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(properties.getStreamTimeoutSeconds()));
+        SseStreamWriter.Stream stream = sseStreamWriter.open(emitter);
+
+        ReportJob.Listener listener = event -> {
+            try {
+                stream.send(SseEvent.named(event.getType())
+                        .id(String.valueOf(event.getId()))
+                        .data(JSON.toJSONString(event.getData())));
+            } catch (IOException | IllegalStateException ex) {
+                stream.close();
+                return false;
+            }
+            if (isTerminal(event)) {
+                stream.complete();
+            }
+            return true;
+        };
+        Runnable close = () -> {
+            job.unsubscribe(listener);
+            stream.close();
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(ex -> close.run());
+
+        if (job.subscribe(parseEventId(lastEventId), listener)) {
+            // 任务已结束且终止事件已在此前送达（续传时），直接结束连接
+            stream.complete();
+        }
+        return emitter;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.warn("报告生成任务线程池关闭超时，中断剩余任务");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+
+    private void run(ReportJob job) {
+        Long sessionId = job.getSessionId();
+        job.start();
+        try {
+            List<StageMiniReport> stageReports = reportService.completeStageMiniReports(sessionId);
+            job.emit("stage_summaries_ready", Map.of("count", stageReports.size()));
+
+            // 重新生成完整报告：AI 润色（未启用或失败时为规则版）并合并全部阶段小结
+            Report report = reportService.generateReport(sessionId);
+            job.emit("ai_polish_done", Map.of("aiEnabled", Boolean.TRUE.equals(report.getAiEnabled())));
+
+            job.succeed(report.getId());
+            meterRegistry.counter("report.job.finished", "status", "succeeded").increment();
+            log.info("报告生成任务完成: sessionId={}, jobId={}", sessionId, job.getId());
+        } catch (BusinessException ex) {
+            log.warn("报告生成任务失败: sessionId={}, jobId={}, message={}", sessionId, job.getId(), ex.getMessage());
+            job.fail(ex.getMessage());
+            meterRegistry.counter("report.job.finished", "status", "failed").increment();
+        } catch (Exception ex) {
+            log.error("报告生成任务异常: sessionId={}, jobId={}", sessionId, job.getId(), ex);
+            job.fail("报告生成失败，已保留规则版报告");
+            meterRegistry.counter("report.job.finished", "status", "failed").increment();
+        } finally {
+            activeJobs.remove(sessionId, job);
+        }
+    }
+
+
+    private ReportJobResponse deduplicated(ReportJob job) {
+        meterRegistry.counter("report.job.submitted", "result", "deduplicated").increment();
+        log.info("会话已有进行中的报告生成任务: sessionId={}, jobId={}", job.getSessionId(), job.getId());
+        return job.toResponse();
+    }
+
+
+    private ReportJob requireJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new BusinessException(404, "报告生成任务不存在或已过期: " + jobId);
+        }
+        return job;
+    }
+
+
+    private static boolean isTerminal(ReportJobEvent event) {
+        return "completed".equals(event.getType()) || "failed".equals(event.getType());
+    }
+
+
+    private static long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -4,28 +4,29 @@ import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.itjuerui.common.config.ReportAiProperties;
 import org.itjuerui.common.exception.BusinessException;
 import org.itjuerui.domain.interview.entity.InterviewSession;
 import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
 import org.itjuerui.domain.interview.enums.InterviewStage;
 import org.itjuerui.domain.interview.enums.SessionStatus;
 import org.itjuerui.domain.interview.enums.TurnRole;
 import org.itjuerui.domain.report.entity.Report;
 import org.itjuerui.domain.report.entity.StageMiniReport;
-import org.itjuerui.infra.llm.LlmService;
-import org.itjuerui.infra.llm.config.LlmProperties;
-import org.itjuerui.infra.llm.dto.Message;
 import org.itjuerui.infra.repo.InterviewSessionMapper;
 import org.itjuerui.infra.repo.InterviewTurnMapper;
 import org.itjuerui.infra.repo.ReportMapper;
 import org.itjuerui.infra.repo.StageMiniReportMapper;
 import org.itjuerui.service.ReportService;
+import org.itjuerui.service.support.ReportPolishPipeline;
+import org.itjuerui.service.support.StageAnswerStatsStore;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -36,13 +37,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReportServiceImpl implements ReportService {
 
+    /**
+     * AI 润色时附带的最近回答条数
+     */
+    private static final int SNIPPET_TURNS = 3;
+
     private final InterviewSessionMapper sessionMapper;
     private final InterviewTurnMapper turnMapper;
     private final ReportMapper reportMapper;
     private final StageMiniReportMapper stageMiniReportMapper;
-    private final LlmService llmService;
-    private final LlmProperties llmProperties;
-    private final ReportAiProperties reportAiProperties;
+    private final ReportPolishPipeline polishPipeline;
+    private final StageAnswerStatsStore stageStats;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public Report getReport(Long sessionId) {
@@ -62,69 +68,85 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
+    /**
+     * 生成面试报告
+     * 读取统计与 LLM 润色都不在事务内，只有最后的写入是一个短事务，LLM 等待期间不占用数据库连接；
+     * 阶段小结推迟润色时，已有的阶段小结与总报告同时润色，耗时约为一次 LLM 调用
+     */
     @Override
-    @Transactional
     public Report generateReport(Long sessionId) {
-        InterviewSession session = sessionMapper.selectById(sessionId);
-        if (session == null) {
-            throw new BusinessException("会话不存在: " + sessionId);
-        }
-        if (session.getStatus() != SessionStatus.ENDED) {
-            throw new BusinessException("请先结束会话再生成报告");
-        }
+        ReportInput input = loadReportInput(sessionId);
+
+        List<ReportPolishPipeline.StageInput> stages = polishPipeline.isStagePolishDeferred()
+                ? buildStageInputs(sessionId, input)
+                : List.of();
+        Report polished = polishPipeline.polishReport(buildReport(sessionId, input.total), input.total,
+                listRecentCandidateTurns(sessionId, null), stages);
+        Report report = transactionTemplate.execute(status -> {
+            for (ReportPolishPipeline.StageInput stage : stages) {
+                // 润色失败的阶段不覆盖，保留此前的内容
+                if (stage.isPolished()) {
+                    saveStageMiniReport(stage.getReport());
+                }
+            }
+            return saveReport(polished, sessionId, input.turnCount);
+        });
 
-        List<InterviewTurn> turns = listTurns(sessionId);
-        if (turns.isEmpty()) {
-            throw new BusinessException("会话暂无对话内容，无法生成报告");
-        }
+        log.info("生成面试报告: sessionId={}, score={}", sessionId, report.getOverallScore());
+        return report;
+    }
 
-        List<InterviewTurn> candidateTurns = filterCandidateTurns(turns);
-        if (candidateTurns.isEmpty()) {
-            throw new BusinessException("缺少候选人回答，无法生成报告");
-        }
 
-        Report report = buildReport(sessionId, candidateTurns);
-        report = enhanceReportIfEnabled(report, candidateTurns);
-        report = attachStageMiniReports(report, sessionId);
-        Report existing = getReportBySessionId(sessionId);
-        if (existing == null) {
-            report.setCreatedAt(LocalDateTime.now());
-            report.setUpdatedAt(LocalDateTime.now());
-            reportMapper.insert(report);
-        } else {
-            report.setId(existing.getId());
-            report.setCreatedAt(existing.getCreatedAt());
-            report.setUpdatedAt(LocalDateTime.now());
-            reportMapper.updateById(report);
-        }
+    /**
+     * 生成规则版报告
+     * 不调用 LLM，已有报告（包括 AI 润色版）会被覆盖
+     */
+    @Override
+    public Report generateRuleReport(Long sessionId) {
+        ReportInput input = loadReportInput(sessionId);
+        Report ruleReport = buildReport(sessionId, input.total);
+        ruleReport.setAiEnabled(false);
+        Report report = transactionTemplate.execute(status -> saveReport(ruleReport, sessionId, input.turnCount));
 
-        log.info("生成面试报告: sessionId={}, score={}", sessionId, report.getOverallScore());
+        log.info("生成规则版报告: sessionId={}, score={}", sessionId, report.getOverallScore());
         return report;
     }
 
 
+    /**
+     * 补齐阶段小结
+     * 推进阶段时只为离开的阶段生成小结，结束会话时所在的最后一个阶段在这里补齐
+     */
+    @Override
+    public List<StageMiniReport> completeStageMiniReports(Long sessionId) {
+        InterviewSession session = sessionMapper.selectById(sessionId);
+        if (session == null) {
+            throw new BusinessException("会话不存在: " + sessionId);
+        }
+        InterviewStage stage = session.getCurrentStage();
+        if (stage != null && getStageMiniReport(sessionId, stage.name()) == null
+                && stageStats.get(sessionId, stage.name()) != null) {
+            generateStageMiniReport(sessionId, stage);
+        }
+        return listStageMiniReports(sessionId);
+    }
+
+
+    /**
+     * 生成阶段小结
+     * 与报告相同：读取与 LLM 润色在事务外，写入为短事务；推迟润色时只保存规则版，生成报告时再润色
+     */
     @Override
-    @Transactional
     public StageMiniReport generateStageMiniReport(Long sessionId, InterviewStage stage) {
         if (stage == null) {
             throw new BusinessException("阶段为空，无法生成小结");
         }
-        List<InterviewTurn> turns = listStageCandidateTurns(sessionId, stage.name());
-        StageMiniReport miniReport = buildStageMiniReport(sessionId, stage.name(), turns);
-        miniReport = enhanceStageMiniReportIfEnabled(miniReport, turns);
-
-        StageMiniReport existing = getStageMiniReport(sessionId, stage.name());
-        if (existing == null) {
-            miniReport.setCreatedAt(LocalDateTime.now());
-            miniReport.setUpdatedAt(LocalDateTime.now());
-            stageMiniReportMapper.insert(miniReport);
-        } else {
-            miniReport.setId(existing.getId());
-            miniReport.setCreatedAt(existing.getCreatedAt());
-            miniReport.setUpdatedAt(LocalDateTime.now());
-            stageMiniReportMapper.updateById(miniReport);
+        StageMiniReport miniReport = buildStageMiniReport(sessionId, stage.name(),
+                stageStats.get(sessionId, stage.name()));
+        if (!polishPipeline.isStagePolishDeferred()) {
+            polishPipeline.polishStage(miniReport, listRecentCandidateTurns(sessionId, stage.name()));
         }
-        return miniReport;
+        return transactionTemplate.execute(status -> saveStageMiniReport(miniReport));
     }
 
 
@@ -144,6 +166,56 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
+    private Report saveReport(Report report, Long sessionId, long expectedTurnCount) {
+        // 冲突检查：LLM 润色期间对话被改动时放弃写入，避免报告与对话不一致
+        LambdaQueryWrapper<InterviewTurn> countWrapper = new LambdaQueryWrapper<>();
+        countWrapper.eq(InterviewTurn::getSessionId, sessionId);
+        if (turnMapper.selectCount(countWrapper) != expectedTurnCount) {
+            log.warn("生成报告期间对话已变化，放弃写入: sessionId={}", sessionId);
+            throw new BusinessException(409, "会话内容已变化，请重新生成报告");
+        }
+
+        report = attachStageMiniReports(report, sessionId);
+        Report existing = getReportBySessionId(sessionId);
+        if (existing == null) {
+            report.setCreatedAt(LocalDateTime.now());
+            report.setUpdatedAt(LocalDateTime.now());
+            try {
+                reportMapper.insert(report);
+                return report;
+            } catch (DuplicateKeyException ex) {
+                // 并发生成已先写入，改为覆盖
+                existing = getReportBySessionId(sessionId);
+            }
+        }
+        report.setId(existing.getId());
+        report.setCreatedAt(existing.getCreatedAt());
+        report.setUpdatedAt(LocalDateTime.now());
+        reportMapper.updateById(report);
+        return report;
+    }
+
+
+    private StageMiniReport saveStageMiniReport(StageMiniReport miniReport) {
+        StageMiniReport existing = getStageMiniReport(miniReport.getSessionId(), miniReport.getStageCode());
+        if (existing == null) {
+            miniReport.setCreatedAt(LocalDateTime.now());
+            miniReport.setUpdatedAt(LocalDateTime.now());
+            try {
+                stageMiniReportMapper.insert(miniReport);
+                return miniReport;
+            } catch (DuplicateKeyException ex) {
+                existing = getStageMiniReport(miniReport.getSessionId(), miniReport.getStageCode());
+            }
+        }
+        miniReport.setId(existing.getId());
+        miniReport.setCreatedAt(existing.getCreatedAt());
+        miniReport.setUpdatedAt(LocalDateTime.now());
+        stageMiniReportMapper.updateById(miniReport);
+        return miniReport;
+    }
+
+
     private Report getReportBySessionId(Long sessionId) {
         LambdaQueryWrapper<Report> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Report::getSessionId, sessionId);
@@ -159,41 +231,74 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
-    private List<InterviewTurn> listTurns(Long sessionId) {
-        LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
-                .orderByAsc(InterviewTurn::getCreatedAt);
-        return turnMapper.selectList(queryWrapper);
+    /**
+     * 校验会话可以生成报告，读取轮次数与各阶段回答统计（不读取对话内容）
+     */
+    private ReportInput loadReportInput(Long sessionId) {
+        InterviewSession session = sessionMapper.selectById(sessionId);
+        if (session == null) {
+            throw new BusinessException("会话不存在: " + sessionId);
+        }
+        if (session.getStatus() != SessionStatus.ENDED) {
+            throw new BusinessException("请先结束会话再生成报告");
+        }
+
+        LambdaQueryWrapper<InterviewTurn> countWrapper = new LambdaQueryWrapper<>();
+        countWrapper.eq(InterviewTurn::getSessionId, sessionId);
+        long turnCount = turnMapper.selectCount(countWrapper);
+        if (turnCount == 0) {
+            throw new BusinessException("会话暂无对话内容，无法生成报告");
+        }
+
+        List<StageAnswerStats> stages = stageStats.list(sessionId);
+        StageAnswerStats total = StageAnswerStats.merge(sessionId, stages);
+        if (total.getTurnCount() == 0) {
+            throw new BusinessException("缺少候选人回答，无法生成报告");
+        }
+        return new ReportInput(turnCount, stages, total);
     }
 
 
-    private List<InterviewTurn> listStageCandidateTurns(Long sessionId, String stageCode) {
+    /**
+     * 读取最近几条候选人回答，作为 AI 润色的对话摘录
+     *
+     * @param stageCode 阶段编码，为空时不限阶段
+     * @return 按写入顺序排列
+     */
+    private List<InterviewTurn> listRecentCandidateTurns(Long sessionId, String stageCode) {
         LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
                 .eq(InterviewTurn::getRole, TurnRole.CANDIDATE)
-                .eq(InterviewTurn::getStageCode, stageCode)
-                .orderByAsc(InterviewTurn::getCreatedAt);
-        return turnMapper.selectList(queryWrapper);
+                .eq(stageCode != null, InterviewTurn::getStageCode, stageCode)
+                .orderByDesc(InterviewTurn::getSeq)
+                .last("LIMIT " + SNIPPET_TURNS);
+        List<InterviewTurn> turns = new ArrayList<>(turnMapper.selectList(queryWrapper));
+        Collections.reverse(turns);
+        return turns;
     }
 
 
-    private List<InterviewTurn> filterCandidateTurns(List<InterviewTurn> turns) {
-        List<InterviewTurn> candidateTurns = new ArrayList<>();
-        for (InterviewTurn turn : turns) {
-            if (turn.getRole() == TurnRole.CANDIDATE) {
-                candidateTurns.add(turn);
-            }
-        }
-        return candidateTurns;
+    /**
+     * 以当前统计重建已有阶段小结的规则版，作为润色输入
+     */
+    private List<ReportPolishPipeline.StageInput> buildStageInputs(Long sessionId, ReportInput input) {
+        List<ReportPolishPipeline.StageInput> stages = new ArrayList<>();
+        for (StageMiniReport existing : listStageMiniReports(sessionId)) {
+            StageAnswerStats stats = input.stages.stream()
+                    .filter(stage -> existing.getStageCode().equals(stage.getStageCode()))
+                    .findFirst()
+                    .orElse(null);
+            StageMiniReport miniReport = buildStageMiniReport(sessionId, existing.getStageCode(), stats);
+            stages.add(new ReportPolishPipeline.StageInput(miniReport,
+                    listRecentCandidateTurns(sessionId, existing.getStageCode())));
+        }
+        return stages;
     }
 
 
-    private Report buildReport(Long sessionId, List<InterviewTurn> candidateTurns) {
-        int totalTurns = candidateTurns.size();
-        int totalLength = candidateTurns.stream()
-                .mapToInt(turn -> turn.getContentText() == null ? 0 : turn.getContentText().length())
-                .sum();
-        int averageLength = totalLength / Math.max(1, totalTurns);
+    private Report buildReport(Long sessionId, StageAnswerStats total) {
+        int totalTurns = total.getTurnCount();
+        int averageLength = total.getAverageChars();
 
         int score = 50;
         score += Math.min(20, totalTurns * 5);
@@ -212,12 +317,9 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
-    private StageMiniReport buildStageMiniReport(Long sessionId, String stageCode, List<InterviewTurn> candidateTurns) {
-        int totalTurns = candidateTurns.size();
-        int totalLength = candidateTurns.stream()
-                .mapToInt(turn -> turn.getContentText() == null ? 0 : turn.getContentText().length())
-                .sum();
-        int averageLength = totalLength / Math.max(1, totalTurns);
+    private StageMiniReport buildStageMiniReport(Long sessionId, String stageCode, StageAnswerStats stats) {
+        int totalTurns = stats == null ? 0 : stats.getTurnCount();
+        int averageLength = stats == null ? 0 : stats.getAverageChars();
 
         int score = 40;
         score += Math.min(30, totalTurns * 8);
@@ -286,137 +388,6 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
-    private Report enhanceReportIfEnabled(Report report, List<InterviewTurn> candidateTurns) {
-        if (!reportAiProperties.isEnabled()) {
-            report.setAiEnabled(false);
-            return report;
-        }
-
-        List<Message> messages = buildAiMessages(report, candidateTurns);
-        try {
-            String response = llmService.chat(messages);
-            ReportAiResult result = parseAiResult(response);
-            if (result != null) {
-                report.setSummary(result.getSummary());
-                report.setStrengths(JSON.toJSONString(result.getStrengths()));
-                report.setWeaknesses(JSON.toJSONString(result.getWeaknesses()));
-                report.setSuggestions(JSON.toJSONString(result.getSuggestions()));
-                report.setAiEnabled(true);
-                report.setAiProvider(llmProperties.getProvider());
-                report.setAiModel(llmProperties.getModel());
-                return report;
-            }
-        } catch (Exception ex) {
-            log.warn("AI 报告润色失败，已降级为规则版: {}", ex.getMessage());
-        }
-
-        report.setAiEnabled(false);
-        return report;
-    }
-
-
-    private StageMiniReport enhanceStageMiniReportIfEnabled(StageMiniReport report, List<InterviewTurn> candidateTurns) {
-        if (!reportAiProperties.isEnabled()) {
-            return report;
-        }
-
-        List<Message> messages = buildStageAiMessages(report, candidateTurns);
-        try {
-            String response = llmService.chat(messages);
-            ReportAiResult result = parseAiResult(response);
-            if (result != null) {
-                report.setSummary(result.getSummary());
-                report.setStrengths(JSON.toJSONString(result.getStrengths()));
-                report.setWeaknesses(JSON.toJSONString(result.getWeaknesses()));
-                report.setSuggestions(JSON.toJSONString(result.getSuggestions()));
-                return report;
-            }
-        } catch (Exception ex) {
-            log.warn("阶段小结 AI 润色失败，已降级为规则版: {}", ex.getMessage());
-        }
-        return report;
-    }
-
-
-    private List<Message> buildAiMessages(Report report, List<InterviewTurn> candidateTurns) {
-        List<Message> messages = new ArrayList<>();
-        messages.add(new Message("system",
-                "你是资深Java后端面试官，需要将规则版面试报告润色成更自然的面试点评。"
-                        + "请严格输出JSON，字段包括 summary(字符串), strengths(字符串数组), weaknesses(字符串数组), suggestions(字符串数组)。"));
-
-        StringBuilder userContent = new StringBuilder();
-        userContent.append("规则评分信息：\n")
-                .append("overallScore=").append(report.getOverallScore()).append("\n")
-                .append("summary=").append(report.getSummary()).append("\n")
-                .append("strengths=").append(report.getStrengths()).append("\n")
-                .append("weaknesses=").append(report.getWeaknesses()).append("\n")
-                .append("suggestions=").append(report.getSuggestions()).append("\n");
-
-        int totalTurns = candidateTurns.size();
-        int totalLength = candidateTurns.stream()
-                .mapToInt(turn -> turn.getContentText() == null ? 0 : turn.getContentText().length())
-                .sum();
-        int averageLength = totalLength / Math.max(1, totalTurns);
-
-        userContent.append("候选人回答统计：回答次数=")
-                .append(totalTurns)
-                .append("，平均长度=")
-                .append(averageLength)
-                .append("。\n")
-                .append("对话摘录：\n")
-                .append(buildTurnSnippet(candidateTurns));
-
-        messages.add(new Message("user", userContent.toString()));
-        return messages;
-    }
-
-
-    private List<Message> buildStageAiMessages(StageMiniReport report, List<InterviewTurn> candidateTurns) {
-        List<Message> messages = new ArrayList<>();
-        messages.add(new Message("system",
-                "你是资深Java后端面试官，请润色阶段小结为更自然的面试点评。"
-                        + "请严格输出JSON，字段包括 summary(字符串), strengths(字符串数组), weaknesses(字符串数组), suggestions(字符串数组)。"));
-
-        StringBuilder userContent = new StringBuilder();
-        userContent.append("阶段小结规则信息：\n")
-                .append("stageCode=").append(report.getStageCode()).append("\n")
-                .append("score=").append(report.getScore()).append("\n")
-                .append("summary=").append(report.getSummary()).append("\n")
-                .append("strengths=").append(report.getStrengths()).append("\n")
-                .append("weaknesses=").append(report.getWeaknesses()).append("\n")
-                .append("suggestions=").append(report.getSuggestions()).append("\n");
-
-        userContent.append("对话摘录：\n")
-                .append(buildTurnSnippet(candidateTurns));
-        messages.add(new Message("user", userContent.toString()));
-        return messages;
-    }
-
-
-    private String buildTurnSnippet(List<InterviewTurn> candidateTurns) {
-        int startIndex = Math.max(0, candidateTurns.size() - 3);
-        StringBuilder snippet = new StringBuilder();
-        for (int i = startIndex; i < candidateTurns.size(); i++) {
-            InterviewTurn turn = candidateTurns.get(i);
-            snippet.append("候选人：").append(turn.getContentText()).append("\n");
-        }
-        return snippet.toString();
-    }
-
-
-    private ReportAiResult parseAiResult(String response) {
-        if (response == null || response.isBlank()) {
-            return null;
-        }
-        try {
-            return JSON.parseObject(response, ReportAiResult.class);
-        } catch (Exception ex) {
-            log.warn("AI 报告 JSON 解析失败: {}", ex.getMessage());
-            return null;
-        }
-    }
-
-
     private Report attachStageMiniReports(Report report, Long sessionId) {
         List<StageMiniReport> stageReports = listStageMiniReports(sessionId);
         if (stageReports.isEmpty()) {
@@ -470,42 +441,18 @@ public class ReportServiceImpl implements ReportService {
     }
 
 
-    private static class ReportAiResult {
-        private String summary;
-        private List<String> strengths;
-        private List<String> weaknesses;
-        private List<String> suggestions;
-
-        public String getSummary() {
-            return summary;
-        }
-
-        public void setSummary(String summary) {
-            this.summary = summary;
-        }
-
-        public List<String> getStrengths() {
-            return strengths;
-        }
-
-        public void setStrengths(List<String> strengths) {
-            this.strengths = strengths;
-        }
-
-        public List<String> getWeaknesses() {
-            return weaknesses;
-        }
-
-        public void setWeaknesses(List<String> weaknesses) {
-            this.weaknesses = weaknesses;
-        }
-
-        public List<String> getSuggestions() {
-            return suggestions;
-        }
+    /**
+     * 生成报告的输入：会话轮次数（写入时冲突检查用）与各阶段回答统计
+     */
+    private static final class ReportInput {
+        private final long turnCount;
+        private final List<StageAnswerStats> stages;
+        private final StageAnswerStats total;
 
-        public void setSuggestions(List<String> suggestions) {
-            this.suggestions = suggestions;
+        private ReportInput(long turnCount, List<StageAnswerStats> stages, StageAnswerStats total) {
+            this.turnCount = turnCount;
+            this.stages = stages;
+            this.total = total;
         }
     }
 }
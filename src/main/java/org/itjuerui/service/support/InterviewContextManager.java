@@ -0,0 +1,277 @@
+package org.itjuerui.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewContextProperties;
+import org.itjuerui.domain.interview.entity.InterviewContextSummary;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.enums.TurnRole;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.llm.LlmTokenEstimator;
+import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.repo.InterviewContextSummaryMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 面试上下文窗口管理
+ * 最近 N 轮原文保留，更早的轮次由后台任务增量折叠进会话摘要；
+ * 每次调用按调用类型的 token 上限裁剪 prompt，面试再长单次 prompt 大小也保持有界
+ */
+@Slf4j
+@Component
+public class InterviewContextManager {
+
+    private static final String HISTORY_HEADER = "历史对话如下：\n";
+    private static final String SUMMARY_HEADER = "此前对话摘要：";
+
+    private final InterviewContextProperties properties;
+    private final InterviewContextSummaryMapper summaryMapper;
+    private final LlmService llmService;
+    private final MeterRegistry meterRegistry;
+    private final Set<Long> summarizing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService summaryExecutor;
+
+    public InterviewContextManager(InterviewContextProperties properties, InterviewContextSummaryMapper summaryMapper,
+            LlmService llmService, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.summaryMapper = summaryMapper;
+        this.llmService = llmService;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.summaryExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "context-summary-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * 构建有界的历史对话文本
+     * 优先保留最近的轮次，其次是尚未折叠进摘要的较早轮次，剩余预算留给摘要；
+     * 未折叠的较早轮次积累到阈值时触发后台摘要
+     *
+     * @param sessionId 会话ID
+     * @param turns     按时间升序的全部轮次
+     * @param maxTokens 历史文本可用的 token 数
+     * @return 历史对话文本
+     */
+    public String buildHistory(Long sessionId, List<InterviewTurn> turns, int maxTokens) {
+        if (turns.isEmpty()) {
+            return "暂无历史对话，请提出第一道面试问题。\n";
+        }
+        int recentCount = Math.min(turns.size(), Math.max(1, properties.getRecentTurns()));
+        int olderCount = turns.size() - recentCount;
+
+        InterviewContextSummary summary = null;
+        if (olderCount > 0 && properties.isSummaryEnabled()) {
+            summary = summaryMapper.selectById(sessionId);
+        }
+        long summarizedTurnId = summary == null || summary.getSummarizedTurnId() == null
+                ? 0L : summary.getSummarizedTurnId();
+
+        // 候选原文：未纳入摘要的较早轮次 + 最近 N 轮
+        List<InterviewTurn> unfolded = new ArrayList<>();
+        for (int i = 0; i < olderCount; i++) {
+            InterviewTurn turn = turns.get(i);
+            if (turn.getId() == null || turn.getId() > summarizedTurnId) {
+                unfolded.add(turn);
+            }
+        }
+        if (properties.isSummaryEnabled() && unfolded.size() >= properties.getSummaryBatchTurns()) {
+            scheduleSummary(sessionId, summary, unfolded);
+        }
+        List<InterviewTurn> candidates = new ArrayList<>(unfolded);
+        candidates.addAll(turns.subList(olderCount, turns.size()));
+
+        int remaining = maxTokens - LlmTokenEstimator.estimate(HISTORY_HEADER);
+        Deque<String> lines = new ArrayDeque<>();
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            String line = formatTurn(candidates.get(i));
+            int cost = LlmTokenEstimator.estimate(line);
+            if (cost > remaining) {
+                if (lines.isEmpty()) {
+                    // 至少保留最近一轮（截断）
+                    lines.addFirst(LlmTokenEstimator.truncate(line, Math.max(0, remaining)) + "\n");
+                }
+                break;
+            }
+            lines.addFirst(line);
+            remaining -= cost;
+        }
+        int omitted = candidates.size() - lines.size();
+
+        StringBuilder history = new StringBuilder();
+        if (summary != null && summary.getSummaryText() != null && !summary.getSummaryText().isBlank()) {
+            int summaryBudget = remaining - LlmTokenEstimator.estimate(SUMMARY_HEADER) - 1;
+            if (summaryBudget > 0) {
+                history.append(SUMMARY_HEADER)
+                        .append(LlmTokenEstimator.truncate(summary.getSummaryText(), summaryBudget))
+                        .append("\n");
+            }
+        }
+        if (omitted > 0) {
+            history.append("（更早的 ").append(omitted).append(" 轮对话已省略）\n");
+        }
+        history.append(HISTORY_HEADER);
+        lines.forEach(history::append);
+        return history.toString();
+    }
+
+
+    /**
+     * 调用类型对应的 prompt token 上限
+     */
+    public int budgetOf(LlmCallType callType) {
+        return callType == LlmCallType.REPORT ? properties.getReportTokenBudget() : properties.getDialogTokenBudget();
+    }
+
+
+    /**
+     * 强制执行 token 上限：超出时截断最后一条消息，并记录 prompt 大小分布
+     *
+     * @param messages 消息列表（原地修改）
+     * @param callType 调用类型
+     * @return 消息列表
+     */
+    public List<Message> enforceBudget(List<Message> messages, LlmCallType callType) {
+        int budget = budgetOf(callType);
+        int total = LlmTokenEstimator.estimate(messages);
+        if (total > budget && !messages.isEmpty()) {
+            Message last = messages.get(messages.size() - 1);
+            int lastTokens = LlmTokenEstimator.estimate(last.getContent());
+            int allowed = Math.max(0, lastTokens - (total - budget));
+            last.setContent(LlmTokenEstimator.truncate(last.getContent(), allowed));
+            log.warn("prompt 超出 token 上限，已截断: callType={}, estimated={}, budget={}", callType, total, budget);
+            total = LlmTokenEstimator.estimate(messages);
+        }
+        DistributionSummary.builder("llm.prompt.tokens.estimated")
+                .description("LLM prompt 估算 token 数")
+                .tag("callType", callType.name())
+                .register(meterRegistry)
+                .record(total);
+        return messages;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        summaryExecutor.shutdownNow();
+    }
+
+
+    private void scheduleSummary(Long sessionId, InterviewContextSummary current, List<InterviewTurn> unfolded) {
+        // 同一会话同一时间只运行一个摘要任务
+        if (!summarizing.add(sessionId)) {
+            return;
+        }
+        List<InterviewTurn> batch = List.copyOf(unfolded);
+        try {
+            summaryExecutor.execute(() -> {
+                try {
+                    summarize(sessionId, current, batch);
+                } catch (Exception ex) {
+                    log.warn("生成上下文摘要失败: sessionId={}, error={}", sessionId, ex.getMessage());
+                } finally {
+                    summarizing.remove(sessionId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            summarizing.remove(sessionId);
+        }
+    }
+
+
+    private void summarize(Long sessionId, InterviewContextSummary current, List<InterviewTurn> unfolded) {
+        String previous = current == null ? null : current.getSummaryText();
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system",
+                "你是面试记录员。请把已有摘要与新增对话合并为一段简洁的摘要，保留已覆盖的话题、候选人回答要点与暴露的薄弱点，"
+                        + "不超过" + properties.getSummaryMaxChars() + "字，只输出摘要文本。"));
+
+        // 摘要 prompt 同样受报告类 token 上限约束，放不下的轮次留给下一次折叠
+        StringBuilder content = new StringBuilder();
+        content.append("已有摘要：").append(previous == null || previous.isBlank() ? "无" : previous).append("\n");
+        content.append("新增对话：\n");
+        int remaining = budgetOf(LlmCallType.REPORT) - LlmTokenEstimator.estimate(messages)
+                - LlmTokenEstimator.estimate(content.toString());
+        List<InterviewTurn> folded = new ArrayList<>();
+        for (InterviewTurn turn : unfolded) {
+            String line = formatTurn(turn);
+            int cost = LlmTokenEstimator.estimate(line);
+            if (cost > remaining && !folded.isEmpty()) {
+                break;
+            }
+            content.append(cost > remaining ? LlmTokenEstimator.truncate(line, Math.max(0, remaining)) + "\n" : line);
+            remaining -= cost;
+            folded.add(turn);
+        }
+        messages.add(new Message("user", content.toString()));
+
+        // 摘要不在用户请求的关键路径上，使用报告类调用的超时与重试策略
+        String text = llmService.chat(messages, LlmCallType.REPORT);
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        text = text.trim();
+        if (text.length() > properties.getSummaryMaxChars()) {
+            text = text.substring(0, properties.getSummaryMaxChars());
+        }
+
+        Long lastTurnId = folded.get(folded.size() - 1).getId();
+        int count = (current == null || current.getSummarizedTurnCount() == null ? 0 : current.getSummarizedTurnCount())
+                + folded.size();
+        if (current == null) {
+            InterviewContextSummary row = new InterviewContextSummary();
+            row.setSessionId(sessionId);
+            row.setSummaryText(text);
+            row.setSummarizedTurnId(lastTurnId);
+            row.setSummarizedTurnCount(count);
+            row.setUpdatedAt(LocalDateTime.now());
+            try {
+                summaryMapper.insert(row);
+            } catch (DuplicateKeyException ex) {
+                log.debug("上下文摘要已由其他节点写入: sessionId={}", sessionId);
+                return;
+            }
+        } else {
+            // 仅当摘要未被其他任务推进时写入，避免覆盖更新的摘要
+            LambdaUpdateWrapper<InterviewContextSummary> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.eq(InterviewContextSummary::getSessionId, sessionId)
+                    .eq(InterviewContextSummary::getSummarizedTurnId, current.getSummarizedTurnId())
+                    .set(InterviewContextSummary::getSummaryText, text)
+                    .set(InterviewContextSummary::getSummarizedTurnId, lastTurnId)
+                    .set(InterviewContextSummary::getSummarizedTurnCount, count)
+                    .set(InterviewContextSummary::getUpdatedAt, LocalDateTime.now());
+            if (summaryMapper.update(null, updateWrapper) == 0) {
+                log.debug("上下文摘要已被并发更新，丢弃本次结果: sessionId={}", sessionId);
+                return;
+            }
+        }
+        log.info("上下文摘要已更新: sessionId={}, foldedTurns={}, summarizedTurnId={}",
+                sessionId, count, lastTurnId);
+    }
+
+
+    private String formatTurn(InterviewTurn turn) {
+        return (turn.getRole() == TurnRole.CANDIDATE ? "候选人" : "面试官") + "：" + turn.getContentText() + "\n";
+    }
+}
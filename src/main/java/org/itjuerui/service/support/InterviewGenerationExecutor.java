@@ -0,0 +1,178 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewExecutionProperties;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 面试问题生成执行器
+ * 所有问题生成（阻塞与流式）先获取准入许可，达到上限时立即拒绝（429），不在线程池或连接上排队；
+ * 流式生成在 JDK 21+ 上使用虚拟线程，否则使用与准入上限等大的有界平台线程池。
+ * 每次生成至多占用一个 LLM 并发隔离的对话类许可。并发隔离把许可划分为报告类（报告润色、上下文摘要）
+ * 与对话类两份，对话类只由问题生成与预生成使用，因此准入上限不超过对话类许可数减去预生成并发数，
+ * 已准入的生成不会在并发隔离处被拒绝
+ * <p>
+ * 指标：interview.generation.active（进行中的生成数）、interview.generation.rejected（被拒绝的生成数）
+ */
+@Slf4j
+@Component
+public class InterviewGenerationExecutor {
+
+    private final InterviewExecutionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    public InterviewGenerationExecutor(InterviewExecutionProperties properties, LlmProperties llmProperties,
+            InterviewPrefetchProperties prefetchProperties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int limit = limitOf(properties, llmProperties, prefetchProperties);
+        this.permits = new Semaphore(limit);
+
+        ExecutorService virtualExecutor = properties.isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : newPlatformExecutor(limit);
+        log.info("问题生成执行器已初始化: virtualThreads={}, maxConcurrentGenerations={}", virtual, limit);
+
+        Gauge.builder("interview.generation.active", permits, semaphore -> limit - semaphore.availablePermits())
+                .description("进行中的问题生成数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 在调用线程上执行一次生成（阻塞接口）
+     *
+     * @param generation 生成逻辑
+     * @return 生成结果
+     * @throws BusinessException 达到并发上限时抛出 429
+     */
+    public <T> T call(Supplier<T> generation) {
+        acquire();
+        try {
+            return generation.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+
+    /**
+     * 异步执行一次生成（流式接口）
+     *
+     * @param generation 生成逻辑
+     * @throws BusinessException 达到并发上限或执行器已关闭时抛出
+     */
+    public void submit(Runnable generation) {
+        acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    generation.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            throw new BusinessException(503, "服务正在关闭，请稍后重试");
+        }
+    }
+
+
+    /**
+     * 是否使用虚拟线程
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.warn("问题生成执行器关闭超时，中断剩余生成");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * 准入上限：配置值不超过 LLM 并发隔离对话类许可中留给问题生成的部分；配置为 0 时直接取该许可数
+     */
+    static int limitOf(InterviewExecutionProperties properties, LlmProperties llmProperties,
+            InterviewPrefetchProperties prefetchProperties) {
+        int configured = properties.getMaxConcurrentGenerations();
+        if (!llmProperties.getResilience().isEnabled()) {
+            return Math.max(1, configured);
+        }
+        int reserved = prefetchProperties.isEnabled() ? prefetchProperties.getMaxConcurrent() : 0;
+        int available = Math.max(1, llmProperties.getResilience().getBulkhead().dialogCalls() - reserved);
+        if (configured <= 0) {
+            return available;
+        }
+        if (configured > available) {
+            log.warn("问题生成准入上限 {} 超过 LLM 并发隔离对话类可用许可 {}（已扣除预生成 {}），按 {} 生效",
+                    configured, available, reserved, available);
+            return available;
+        }
+        return configured;
+    }
+
+
+    private void acquire() {
+        if (!permits.tryAcquire()) {
+            meterRegistry.counter("interview.generation.rejected").increment();
+            throw new BusinessException(429, "当前面试请求过多，请稍后重试");
+        }
+    }
+
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // 项目以 Java 17 编译，运行在 JDK 21+ 时通过反射启用虚拟线程
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            log.info("当前 JDK 不支持虚拟线程，使用有界平台线程池");
+            return null;
+        }
+    }
+
+
+    private static ExecutorService newPlatformExecutor(int poolSize) {
+        // 提交前已获取准入许可，任务数不会超过线程数，队列不会堆积
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "interview-generation-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
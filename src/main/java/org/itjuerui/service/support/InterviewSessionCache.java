@@ -0,0 +1,177 @@
+package org.itjuerui.service.support;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.bean.BeanUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewSessionCacheProperties;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.infra.repo.InterviewSessionMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 面试会话状态缓存
+ * 位于 InterviewSessionMapper 之前，按数量（LRU）与时间淘汰；读取返回副本，调用方修改不会污染缓存。
+ * 状态与阶段变更采用写穿透：先写库，事务提交后才刷新缓存并发布 {@link InterviewSessionChangedEvent}，回滚则失效，
+ * 问题写入与阶段推进的条件更新因此始终以数据库为准。
+ * 未命中时读库的结果只在缓存中没有条目时放入，不会覆盖并发写穿透刷新的较新状态；只有写穿透刷新才覆盖条目
+ * <p>
+ * 指标：interview.session.cache.requests（result=hit/miss）用于计算命中率，
+ * interview.session.cache.flush.lag 为变更发生到提交后缓存刷新的延迟
+ */
+@Slf4j
+@Component
+public class InterviewSessionCache {
+
+    private final InterviewSessionCacheProperties properties;
+    private final InterviewSessionMapper sessionMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final LRUCache<Long, InterviewSession> cache;
+    private final Timer flushLag;
+
+    public InterviewSessionCache(InterviewSessionCacheProperties properties, InterviewSessionMapper sessionMapper,
+            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sessionMapper = sessionMapper;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.cache = CacheUtil.newLRUCache(properties.getMaxEntries(),
+                TimeUnit.SECONDS.toMillis(properties.getTtlSeconds()));
+        this.flushLag = Timer.builder("interview.session.cache.flush.lag")
+                .description("会话变更到缓存刷新的延迟")
+                .register(meterRegistry);
+
+        Gauge.builder("interview.session.cache.size", cache, LRUCache::size)
+                .description("缓存的会话数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 读取会话
+     *
+     * @param sessionId 会话ID
+     * @return 会话副本，不存在时返回 null
+     */
+    public InterviewSession get(Long sessionId) {
+        if (!properties.isEnabled()) {
+            return sessionMapper.selectById(sessionId);
+        }
+        InterviewSession cached = cache.get(sessionId);
+        if (cached != null) {
+            record("hit");
+            return copy(cached);
+        }
+        record("miss");
+        InterviewSession session = sessionMapper.selectById(sessionId);
+        if (session != null) {
+            // 事务内读到的可能是本事务未提交的数据，提交后再放入缓存
+            InterviewSession snapshot = copy(session);
+            afterCommit(() -> putIfAbsent(sessionId, snapshot), () -> { });
+        }
+        return session;
+    }
+
+
+    /**
+     * 写穿透更新会话（按主键更新非空字段），提交后刷新缓存
+     *
+     * @param session 已修改的会话
+     */
+    public void updateById(InterviewSession session) {
+        sessionMapper.updateById(session);
+        refresh(session);
+    }
+
+
+    /**
+     * 登记已写入数据库的会话状态（如条件更新成功后），提交后刷新缓存并发布变更事件
+     *
+     * @param session 写入后的会话
+     */
+    public void refresh(InterviewSession session) {
+        Long sessionId = session.getId();
+        InterviewSession snapshot = copy(session);
+        long changedAt = System.nanoTime();
+        afterCommit(() -> {
+            if (properties.isEnabled()) {
+                synchronized (cache) {
+                    cache.put(sessionId, snapshot);
+                }
+            }
+            flushLag.record(System.nanoTime() - changedAt, TimeUnit.NANOSECONDS);
+            eventPublisher.publishEvent(new InterviewSessionChangedEvent(sessionId));
+        }, () -> cache.remove(sessionId));
+    }
+
+
+    /**
+     * 失效会话缓存（如条件更新发现数据库状态已被其他请求改变），并通知其他节点
+     *
+     * @param sessionId 会话ID
+     */
+    public void evict(Long sessionId) {
+        cache.remove(sessionId);
+        afterCommit(() -> eventPublisher.publishEvent(new InterviewSessionChangedEvent(sessionId)), () -> { });
+    }
+
+
+    /**
+     * 仅失效本节点缓存，供跨节点失效广播的接收方调用
+     *
+     * @param sessionId 会话ID
+     */
+    public void evictLocal(Long sessionId) {
+        cache.remove(sessionId);
+        log.debug("收到会话变更通知，失效本地缓存: sessionId={}", sessionId);
+    }
+
+
+    /**
+     * 读库结果只补空缺：读库期间提交的写穿透刷新已放入较新的状态时保留后者
+     */
+    private void putIfAbsent(Long sessionId, InterviewSession snapshot) {
+        synchronized (cache) {
+            if (!cache.containsKey(sessionId)) {
+                cache.put(sessionId, snapshot);
+            }
+        }
+    }
+
+
+    private void afterCommit(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+
+    private void record(String result) {
+        meterRegistry.counter("interview.session.cache.requests", "result", result).increment();
+    }
+
+
+    private static InterviewSession copy(InterviewSession session) {
+        return BeanUtil.copyProperties(session, InterviewSession.class);
+    }
+}
@@ -0,0 +1,18 @@
+package org.itjuerui.service.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 会话状态已变更事件
+ * 本节点写入会话并提交后发布；多节点部署时可由消息通道（如 Redis pub/sub）转发，
+ * 其他节点收到后调用 {@link InterviewSessionCache#evictLocal(Long)} 失效本地缓存
+ */
+@Getter
+@AllArgsConstructor
+public class InterviewSessionChangedEvent {
+    /**
+     * 会话ID
+     */
+    private final Long sessionId;
+}
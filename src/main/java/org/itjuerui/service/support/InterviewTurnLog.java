@@ -0,0 +1,170 @@
+package org.itjuerui.service.support;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewTurnLogProperties;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.infra.repo.InterviewTurnMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 活跃会话的轮次日志
+ * 每个会话在内存中保留按会话内序号（seq）升序、只追加的轮次列表：新增轮次与生成的问题提交后追加，
+ * 读取时只增量查询日志末尾序号之后的新轮次（捕获其他节点写入的轮次），未命中时从数据库全量重建；
+ * 单次提问读取的行数因此不随面试长度增长
+ * <p>
+ * 只有已提交的数据进入日志：事务内的读取与追加在提交后合并，回滚时丢弃。
+ * 返回的轮次对象在会话间共享，调用方不得修改
+ * <p>
+ * 指标：interview.turn-log.requests（result=hit/miss）、interview.turn-log.rows.read（从数据库读取的轮次行数）
+ */
+@Slf4j
+@Component
+public class InterviewTurnLog {
+
+    private final InterviewTurnLogProperties properties;
+    private final InterviewTurnMapper turnMapper;
+    private final MeterRegistry meterRegistry;
+    private final LRUCache<Long, TurnBuffer> buffers;
+
+    public InterviewTurnLog(InterviewTurnLogProperties properties, InterviewTurnMapper turnMapper,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.turnMapper = turnMapper;
+        this.meterRegistry = meterRegistry;
+        this.buffers = CacheUtil.newLRUCache(properties.getMaxSessions(),
+                TimeUnit.SECONDS.toMillis(properties.getIdleSeconds()));
+
+        Gauge.builder("interview.turn-log.sessions", buffers, LRUCache::size)
+                .description("持有轮次日志的会话数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 读取会话的全部轮次
+     *
+     * @param sessionId 会话ID
+     * @return 按序号升序的轮次列表（新列表，可自由增删）
+     */
+    public List<InterviewTurn> list(Long sessionId) {
+        if (!properties.isEnabled()) {
+            return readRows(sessionId, 0);
+        }
+        TurnBuffer buffer = buffers.get(sessionId);
+        List<InterviewTurn> cached = buffer == null ? new ArrayList<>() : buffer.snapshot();
+        meterRegistry.counter("interview.turn-log.requests", "result", buffer == null ? "miss" : "hit").increment();
+
+        int afterSeq = cached.isEmpty() ? 0 : cached.get(cached.size() - 1).getSeq();
+        List<InterviewTurn> fetched = readRows(sessionId, afterSeq);
+        cached.addAll(fetched);
+
+        boolean rebuilt = buffer == null;
+        afterCommit(() -> {
+            TurnBuffer current = buffers.get(sessionId);
+            if (current != null) {
+                current.appendAll(fetched);
+            } else if (rebuilt) {
+                buffers.put(sessionId, new TurnBuffer(fetched));
+            }
+        });
+        return cached;
+    }
+
+
+    /**
+     * 追加新写入的轮次，所在事务提交后生效
+     *
+     * @param turn 已落库并回填序号的轮次
+     */
+    public void append(InterviewTurn turn) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        afterCommit(() -> {
+            // 没有日志的会话不追加，下次读取时全量重建
+            TurnBuffer buffer = buffers.get(turn.getSessionId());
+            if (buffer != null) {
+                buffer.appendAll(List.of(turn));
+            }
+        });
+    }
+
+
+    /**
+     * 释放会话的轮次日志（如会话结束）
+     */
+    public void evict(Long sessionId) {
+        buffers.remove(sessionId);
+    }
+
+
+    private List<InterviewTurn> readRows(Long sessionId, int afterSeq) {
+        LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(InterviewTurn::getSessionId, sessionId)
+                .gt(afterSeq > 0, InterviewTurn::getSeq, afterSeq)
+                .orderByAsc(InterviewTurn::getSeq);
+        List<InterviewTurn> rows = turnMapper.selectList(queryWrapper);
+        meterRegistry.counter("interview.turn-log.rows.read").increment(rows.size());
+        return rows;
+    }
+
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+
+    /**
+     * 单个会话的只追加轮次列表，按序号升序
+     */
+    private static final class TurnBuffer {
+        private final List<InterviewTurn> turns;
+
+        private TurnBuffer(List<InterviewTurn> turns) {
+            this.turns = new ArrayList<>(turns);
+        }
+
+
+        private synchronized List<InterviewTurn> snapshot() {
+            return new ArrayList<>(turns);
+        }
+
+
+        private synchronized void appendAll(List<InterviewTurn> newTurns) {
+            for (InterviewTurn turn : newTurns) {
+                // 追加回调与增量读取的执行顺序不确定：按序号插入到正确位置，已存在的跳过
+                int index = turns.size();
+                while (index > 0 && turns.get(index - 1).getSeq() >= turn.getSeq()) {
+                    if (turns.get(index - 1).getSeq().equals(turn.getSeq())) {
+                        index = -1;
+                        break;
+                    }
+                    index--;
+                }
+                if (index >= 0) {
+                    turns.add(index, turn);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.LlmCancelledException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 下一道面试问题预生成
+ * 候选人回答落库后在后台生成下一道问题，结果放入会话级槽位；
+ * 槽位以生成时的最后一个轮次ID与阶段为版本，取用时版本一致才命中，否则丢弃；
+ * 流式取用时若预生成仍在进行，已生成的部分立即补发，其余增量随上游返回实时转发
+ * <p>
+ * 指标：interview.prefetch.requests（outcome=hit/hit_pending/miss/stale/failed/timeout）用于计算命中率，
+ * interview.prefetch.wasted（reason=stale/superseded/expired/discarded）与 interview.prefetch.wasted.chars 统计浪费
+ */
+@Slf4j
+@Component
+public class NextQuestionPrefetcher {
+
+    private final InterviewPrefetchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    public NextQuestionPrefetcher(InterviewPrefetchProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.prefetchExecutor = new ThreadPoolExecutor(properties.getMaxConcurrent(), properties.getMaxConcurrent(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "question-prefetch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.prefetchExecutor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("interview.prefetch.slots", slots, Map::size)
+                .description("持有预生成问题的会话数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 启动预生成，替换该会话已有的槽位
+     *
+     * @param sessionId  会话ID
+     * @param lastTurnId 触发预生成的轮次ID（槽位版本）
+     * @param generator  生成逻辑，在后台线程执行；返回 null 表示放弃
+     */
+    public void start(Long sessionId, Long lastTurnId, Generator generator) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        evictExpired();
+
+        Slot slot = new Slot(lastTurnId);
+        Slot previous = slots.put(sessionId, slot);
+        if (previous != null) {
+            waste(previous, "superseded");
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                if (!slot.begin()) {
+                    // 排队期间已被取消（取用方改为直接生成、被替换或丢弃）
+                    slot.future.complete(null);
+                    return;
+                }
+                try {
+                    slot.future.complete(generator.generate(slot.token, slot));
+                } catch (LlmCancelledException ex) {
+                    slot.future.complete(null);
+                } catch (Exception ex) {
+                    log.warn("预生成下一道问题失败: sessionId={}, error={}", sessionId, ex.getMessage());
+                    slot.future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            slots.remove(sessionId, slot);
+            meterRegistry.counter("interview.prefetch.rejected").increment();
+            return;
+        }
+        meterRegistry.counter("interview.prefetch.started").increment();
+        log.debug("开始预生成下一道问题: sessionId={}, lastTurnId={}", sessionId, lastTurnId);
+    }
+
+
+    /**
+     * 取用预生成结果
+     * 槽位版本与当前历史一致时返回问题；预生成仍在进行则最多等待 maxWaitMillis
+     *
+     * @param sessionId  会话ID
+     * @param lastTurnId 当前最后一个轮次ID
+     * @param stageCode  当前阶段
+     * @return 预生成的问题，未命中时返回 null
+     */
+    public String take(Long sessionId, Long lastTurnId, String stageCode) {
+        Slot slot = claim(sessionId, lastTurnId);
+        if (slot == null) {
+            return null;
+        }
+
+        boolean pending = !slot.future.isDone();
+        Result result;
+        try {
+            result = slot.future.get(properties.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            slot.token.cancel();
+            record("timeout");
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            slot.token.cancel();
+            record("failed");
+            return null;
+        } catch (ExecutionException ex) {
+            record("failed");
+            return null;
+        }
+        return accept(sessionId, lastTurnId, stageCode, result, pending);
+    }
+
+
+    /**
+     * 流式取用预生成结果
+     * 预生成已完成时一次推送整道问题；仍在进行时先补发已生成的部分，其余增量随上游返回实时转发，
+     * 不额外发起上游调用；尚在排队时取消预生成，由调用方直接生成
+     *
+     * @param sessionId   会话ID
+     * @param lastTurnId  当前最后一个轮次ID
+     * @param stageCode   当前阶段
+     * @param onDelta     增量接收方
+     * @param callerToken 调用方取消令牌，取消时一并取消预生成
+     * @return 预生成的完整问题；未命中且未推送任何增量时返回 null
+     * @throws LlmCancelledException 调用方已取消
+     * @throws BusinessException     已转发部分增量后预生成失败
+     */
+    public String relay(Long sessionId, Long lastTurnId, String stageCode, Consumer<String> onDelta,
+            LlmCancellationToken callerToken) {
+        Slot slot = claim(sessionId, lastTurnId);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.future.isDone()) {
+            String question = accept(sessionId, lastTurnId, stageCode, slot.future.isCompletedExceptionally()
+                    ? null : slot.future.getNow(null), false);
+            if (question != null) {
+                onDelta.accept(question);
+            }
+            return question;
+        }
+        if (!slot.attach(stageCode, onDelta)) {
+            // 尚未开始生成或阶段已不同：取消预生成，调用方直接生成
+            waste(slot, "superseded");
+            record("miss");
+            return null;
+        }
+
+        callerToken.onCancel(slot.token::cancel);
+        Result result;
+        try {
+            result = slot.future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            slot.token.cancel();
+            throw new LlmCancelledException();
+        } catch (ExecutionException ex) {
+            result = null;
+        }
+        int relayedChars = slot.detach();
+        callerToken.throwIfCancelled();
+
+        String question = accept(sessionId, lastTurnId, stageCode, result, true);
+        if (question == null && relayedChars > 0) {
+            throw new BusinessException(500, "LLM 调用失败");
+        }
+        if (question != null && relayedChars == 0) {
+            // 生成逻辑未逐段写入增量
+            onDelta.accept(question);
+        }
+        return question;
+    }
+
+
+    /**
+     * 丢弃会话的预生成结果（如会话结束）
+     */
+    public void discard(Long sessionId) {
+        Slot slot = slots.remove(sessionId);
+        if (slot != null) {
+            waste(slot, "discarded");
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+
+    /**
+     * 取出版本与当前历史一致的槽位，未命中时记录结果并返回 null
+     */
+    private Slot claim(Long sessionId, Long lastTurnId) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Slot slot = slots.get(sessionId);
+        if (slot == null) {
+            record("miss");
+            return null;
+        }
+        if (!Objects.equals(slot.lastTurnId, lastTurnId) || slot.isExpired(properties.getTtlSeconds())) {
+            if (slots.remove(sessionId, slot)) {
+                waste(slot, "stale");
+            }
+            record("stale");
+            return null;
+        }
+        if (!slots.remove(sessionId, slot)) {
+            // 已被并发请求取走
+            record("miss");
+            return null;
+        }
+        return slot;
+    }
+
+
+    /**
+     * 校验已完成的预生成结果，命中时返回问题
+     */
+    private String accept(Long sessionId, Long lastTurnId, String stageCode, Result result, boolean pending) {
+        if (result == null || result.getQuestion() == null || result.getQuestion().isBlank()) {
+            record("failed");
+            return null;
+        }
+        if (!Objects.equals(result.getStageCode(), stageCode)) {
+            // 预生成后阶段已推进，问题不再适用
+            wasteChars(result, "stale");
+            record("stale");
+            return null;
+        }
+        record(pending ? "hit_pending" : "hit");
+        log.info("命中预生成问题: sessionId={}, lastTurnId={}, pending={}", sessionId, lastTurnId, pending);
+        return result.getQuestion();
+    }
+
+
+    private void evictExpired() {
+        slots.forEach((sessionId, slot) -> {
+            if (slot.isExpired(properties.getTtlSeconds()) && slots.remove(sessionId, slot)) {
+                waste(slot, "expired");
+            }
+        });
+    }
+
+
+    private void waste(Slot slot, String reason) {
+        slot.token.cancel();
+        if (slot.future.isDone() && !slot.future.isCompletedExceptionally()) {
+            wasteChars(slot.future.getNow(null), reason);
+        } else {
+            meterRegistry.counter("interview.prefetch.wasted", "reason", reason).increment();
+        }
+    }
+
+
+    private void wasteChars(Result result, String reason) {
+        meterRegistry.counter("interview.prefetch.wasted", "reason", reason).increment();
+        if (result != null && result.getQuestion() != null) {
+            meterRegistry.counter("interview.prefetch.wasted.chars").increment(result.getQuestion().length());
+        }
+    }
+
+
+    private void record(String outcome) {
+        meterRegistry.counter("interview.prefetch.requests", "outcome", outcome).increment();
+    }
+
+
+    /**
+     * 预生成逻辑
+     */
+    @FunctionalInterface
+    public interface Generator {
+        /**
+         * 在后台线程生成问题
+         *
+         * @param token 取消令牌
+         * @param sink  生成进度：调用上游前声明阶段，随后逐段写入增量，供流式取用方实时转发
+         * @return 生成结果，返回 null 表示放弃
+         */
+        Result generate(LlmCancellationToken token, Sink sink);
+    }
+
+
+    /**
+     * 预生成进度
+     */
+    public interface Sink {
+        /**
+         * 声明本次生成使用的阶段，须在首个增量之前调用
+         */
+        void stage(String stageCode);
+
+        /**
+         * 写入一段增量
+         */
+        void delta(String delta);
+    }
+
+
+    /**
+     * 预生成结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        /**
+         * 生成时的阶段
+         */
+        private final String stageCode;
+
+        /**
+         * 生成的问题
+         */
+        private final String question;
+    }
+
+
+    /**
+     * 会话级预生成槽位
+     */
+    private static final class Slot implements Sink {
+        private final Long lastTurnId;
+        private final long createdAt = System.currentTimeMillis();
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final LlmCancellationToken token = new LlmCancellationToken();
+        private final StringBuilder text = new StringBuilder();
+        /**
+         * 转发锁：保证转发按顺序进行，且转发（写客户端连接）不持有 Slot 锁，慢客户端不阻塞生成线程追加增量
+         */
+        private final Object relayLock = new Object();
+        private boolean started;
+        private String stageCode;
+        private String expectedStage;
+        private Consumer<String> relay;
+        private int relayedChars;
+
+        private Slot(Long lastTurnId) {
+            this.lastTurnId = lastTurnId;
+        }
+
+
+        /**
+         * 开始执行生成，已取消时返回 false
+         */
+        private synchronized boolean begin() {
+            started = !token.isCancelled();
+            return started;
+        }
+
+
+        @Override
+        public void stage(String stageCode) {
+            boolean mismatch;
+            synchronized (this) {
+                this.stageCode = stageCode;
+                mismatch = relay != null && !Objects.equals(stageCode, expectedStage);
+                if (mismatch) {
+                    relay = null;
+                }
+            }
+            if (mismatch) {
+                token.cancel();
+            }
+        }
+
+
+        @Override
+        public void delta(String delta) {
+            synchronized (this) {
+                text.append(delta);
+            }
+            drainRelay();
+        }
+
+
+        /**
+         * 挂接流式取用方并补发已生成的部分；尚未开始生成或阶段不同时返回 false
+         */
+        private boolean attach(String expectedStage, Consumer<String> onDelta) {
+            synchronized (this) {
+                if (!started || (stageCode != null && !Objects.equals(stageCode, expectedStage))) {
+                    return false;
+                }
+                this.expectedStage = expectedStage;
+                this.relay = onDelta;
+            }
+            drainRelay();
+            return true;
+        }
+
+
+        /**
+         * 解除流式取用方，等待进行中的转发结束后返回已转发的字符数
+         */
+        private int detach() {
+            synchronized (relayLock) {
+                synchronized (this) {
+                    relay = null;
+                    return relayedChars;
+                }
+            }
+        }
+
+
+        /**
+         * 在 Slot 锁外把尚未转发的部分推给取用方，按已转发字符数接续
+         */
+        private void drainRelay() {
+            synchronized (relayLock) {
+                Consumer<String> target;
+                String pending;
+                synchronized (this) {
+                    if (relay == null || relayedChars >= text.length()) {
+                        return;
+                    }
+                    target = relay;
+                    pending = text.substring(relayedChars);
+                    relayedChars = text.length();
+                }
+                target.accept(pending);
+            }
+        }
+
+
+        private boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - createdAt > TimeUnit.SECONDS.toMillis(ttlSeconds);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package org.itjuerui.service.support;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.IdUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewIdempotencyProperties;
+import org.itjuerui.common.config.InterviewStreamReplayProperties;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 下一道问题的会话级单飞
+ * 同一会话并发的提问请求（阻塞与 SSE）共享一次进行中的生成并得到同一个轮次；
+ * 携带 Idempotency-Key 的请求在生成完成后一段时间内重试，直接返回已生成的轮次；
+ * “提交回答并追问”的请求同样按幂等键只写入一次候选人回答。
+ * <p>
+ * 每次生成有一个流ID，推送的增量以“流ID:已推送字符数”作为事件ID；生成结束后流仍保留一段时间，
+ * 断线重连携带 Last-Event-ID 时回到同一次生成并从断点补发，不重新调用 LLM
+ * <p>
+ * 指标：interview.single-flight（outcome=started/joined/resumed/...）；
+ * outcome=abandoned_persisted 表示接收方全部离开、在重连宽限期内仍完成并落库的生成
+ */
+@Slf4j
+@Component
+public class NextQuestionSingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Flight> flights = new ConcurrentHashMap<>();
+    private final LRUCache<String, InterviewTurn> completed;
+    private final LRUCache<String, Long> answers;
+    private final LRUCache<String, Flight> streams;
+    private final long resumeGraceMillis;
+
+    public NextQuestionSingleFlight(InterviewIdempotencyProperties properties,
+            InterviewStreamReplayProperties replayProperties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.resumeGraceMillis = replayProperties.getResumeGraceMillis();
+        this.streams = CacheUtil.newLRUCache(replayProperties.getMaxStreams(),
+                TimeUnit.SECONDS.toMillis(replayProperties.getTtlSeconds()));
+        this.completed = CacheUtil.newLRUCache(properties.getMaxEntries(),
+                TimeUnit.SECONDS.toMillis(properties.getTtlSeconds()));
+        this.answers = CacheUtil.newLRUCache(properties.getMaxEntries(),
+                TimeUnit.SECONDS.toMillis(properties.getTtlSeconds()));
+
+        Gauge.builder("interview.single-flight.inflight", flights, Map::size)
+                .description("进行中的提问生成数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 查询幂等键对应的已完成轮次
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @return 已生成的轮次，不存在时返回 null
+     */
+    public InterviewTurn completed(Long sessionId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        InterviewTurn turn = completed.get(cacheKey(sessionId, idempotencyKey));
+        if (turn != null) {
+            meterRegistry.counter("interview.single-flight", "outcome", "idempotent_replay").increment();
+            log.info("幂等重试命中已生成轮次: sessionId={}, turnId={}", sessionId, turn.getId());
+        }
+        return turn;
+    }
+
+
+    /**
+     * 按幂等键只写入一次候选人回答；同一键的并发请求与重试得到同一个回答轮次
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，为空时每次都写入
+     * @param writer         写入回答并返回轮次ID
+     * @return 回答的轮次ID
+     */
+    public Long answerOnce(Long sessionId, String idempotencyKey, Supplier<Long> writer) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return writer.get();
+        }
+        String key = cacheKey(sessionId, idempotencyKey);
+        Long answerTurnId = answers.get(key);
+        if (answerTurnId != null) {
+            meterRegistry.counter("interview.single-flight", "outcome", "answer_replay").increment();
+            log.info("幂等重试命中已写入回答: sessionId={}, answerTurnId={}", sessionId, answerTurnId);
+            return answerTurnId;
+        }
+        // 按键加锁：同一键的并发请求只有一个执行写入
+        return answers.get(key, writer::get);
+    }
+
+
+    /**
+     * 查询幂等键对应的已写入回答
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @return 回答的轮次ID，不存在时返回 null
+     */
+    public Long answered(Long sessionId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        return answers.get(cacheKey(sessionId, idempotencyKey));
+    }
+
+
+    /**
+     * 加入会话当前的生成；没有进行中的生成时创建新的。
+     * 调用方通过 {@link Flight#tryStart()} 判断自己是否负责执行生成，结束时必须调用 {@link Flight#detach()}
+     *
+     * @param sessionId      会话ID
+     * @param idempotencyKey 幂等键，可为空
+     * @return 生成
+     */
+    public Flight join(Long sessionId, String idempotencyKey) {
+        AtomicBoolean joined = new AtomicBoolean();
+        Flight flight = flights.compute(sessionId, (id, existing) -> {
+            if (existing != null && !existing.result.isDone() && existing.attach()) {
+                joined.set(true);
+                return existing;
+            }
+            Flight created = new Flight(id, resumeGraceMillis);
+            created.attach();
+            return created;
+        });
+        if (!joined.get()) {
+            streams.put(flight.streamId, flight);
+        }
+        meterRegistry.counter("interview.single-flight", "outcome", joined.get() ? "joined" : "started").increment();
+        if (joined.get()) {
+            log.info("合并并发提问请求: sessionId={}", sessionId);
+        }
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            flight.addKey(idempotencyKey);
+        }
+        return flight;
+    }
+
+
+    /**
+     * 按 Last-Event-ID 回到进行中或刚结束的生成
+     * 调用方从 {@link #offsetOf(String)} 处订阅，结束时必须调用 {@link Flight#detach()}
+     *
+     * @param sessionId   会话ID
+     * @param lastEventId 客户端收到的最后一个事件ID
+     * @return 生成；流已过期、不属于该会话或已被取消时返回 null
+     */
+    public Flight resume(Long sessionId, String lastEventId) {
+        int separator = lastEventId == null ? -1 : lastEventId.lastIndexOf(':');
+        if (separator <= 0) {
+            return null;
+        }
+        Flight flight = streams.get(lastEventId.substring(0, separator));
+        if (flight == null || !flight.sessionId.equals(sessionId) || !flight.attach()) {
+            meterRegistry.counter("interview.single-flight", "outcome", "resume_miss").increment();
+            return null;
+        }
+        meterRegistry.counter("interview.single-flight", "outcome", "resumed").increment();
+        log.info("断线重连续传: sessionId={}, lastEventId={}", sessionId, lastEventId);
+        return flight;
+    }
+
+
+    /**
+     * 事件ID中的已推送字符数，无法解析时为 0（从头补发）
+     */
+    public static int offsetOf(String lastEventId) {
+        int separator = lastEventId == null ? -1 : lastEventId.lastIndexOf(':');
+        if (separator < 0) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(lastEventId.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+
+    /**
+     * 生成成功：唤醒所有等待方并记录幂等结果
+     */
+    public void complete(Flight flight, InterviewTurn turn) {
+        if (flight.isAbandoned()) {
+            meterRegistry.counter("interview.single-flight", "outcome", "abandoned_persisted").increment();
+            log.info("接收方已全部离开，宽限期内生成仍已落库: sessionId={}, turnId={}", flight.sessionId, turn.getId());
+        }
+        for (String key : flight.keys()) {
+            completed.put(cacheKey(flight.sessionId, key), turn);
+        }
+        flights.remove(flight.sessionId, flight);
+        flight.result.complete(turn);
+    }
+
+
+    /**
+     * 生成失败：所有等待方得到同一异常
+     */
+    public void fail(Flight flight, Throwable ex) {
+        flights.remove(flight.sessionId, flight);
+        flight.result.completeExceptionally(ex);
+    }
+
+
+    private static String cacheKey(Long sessionId, String idempotencyKey) {
+        return sessionId + ":" + idempotencyKey;
+    }
+
+
+    /**
+     * 一次进行中的生成
+     * 流式增量广播给所有订阅方，后加入的订阅方先收到已生成的部分；全部等待方离开后取消上游生成，
+     * 已推送过内容的生成先等待一段时间供断线重连。
+     * 订阅方回调（写 SSE/WebSocket 连接）在生成锁之外执行，每个订阅方按已推送字符数接续、依次收到增量，
+     * 慢客户端不会阻塞订阅、离开等需要生成锁的操作
+     */
+    public static class Flight {
+        private final Long sessionId;
+        private final String streamId = IdUtil.fastSimpleUUID();
+        private final long resumeGraceMillis;
+        private final CompletableFuture<InterviewTurn> result = new CompletableFuture<>();
+        private final LlmCancellationToken cancellationToken = new LlmCancellationToken();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final StringBuilder buffer = new StringBuilder();
+        private final List<Subscription> subscriptions = new ArrayList<>();
+        private final Set<String> keys = new HashSet<>();
+        private int attached;
+
+        private Flight(Long sessionId, long resumeGraceMillis) {
+            this.sessionId = sessionId;
+            this.resumeGraceMillis = resumeGraceMillis;
+        }
+
+
+        /**
+         * 争取执行权，仅第一个调用方返回 true
+         */
+        public boolean tryStart() {
+            return started.compareAndSet(false, true);
+        }
+
+
+        /**
+         * 广播一段增量
+         */
+        public void publish(String delta) {
+            List<Subscription> targets;
+            synchronized (this) {
+                buffer.append(delta);
+                targets = List.copyOf(subscriptions);
+            }
+            for (Subscription subscription : targets) {
+                subscription.drain();
+            }
+        }
+
+
+        /**
+         * 订阅增量，先回放已生成的部分
+         */
+        public void subscribe(Consumer<String> subscriber) {
+            subscribe((delta, offset) -> subscriber.accept(delta), 0);
+        }
+
+
+        /**
+         * 从指定位置订阅增量，先回放该位置之后已生成的部分
+         *
+         * @param subscriber 订阅方
+         * @param fromOffset 订阅方已收到的字符数
+         */
+        public void subscribe(DeltaSubscriber subscriber, int fromOffset) {
+            Subscription subscription = new Subscription(subscriber, fromOffset);
+            synchronized (this) {
+                subscriptions.add(subscription);
+            }
+            subscription.drain();
+        }
+
+
+        /**
+         * 取消订阅
+         */
+        public synchronized void unsubscribe(DeltaSubscriber subscriber) {
+            subscriptions.removeIf(subscription -> {
+                if (subscription.subscriber != subscriber) {
+                    return false;
+                }
+                subscription.removed = true;
+                return true;
+            });
+        }
+
+
+        /**
+         * 推送到指定位置时的事件ID
+         */
+        public String eventId(int offset) {
+            return streamId + ":" + offset;
+        }
+
+
+        /**
+         * 等待方离开；最后一个离开且生成未完成时取消上游生成
+         */
+        public void detach() {
+            boolean cancel;
+            boolean resumable;
+            synchronized (this) {
+                attached--;
+                cancel = attached <= 0 && !result.isDone();
+                resumable = buffer.length() > 0;
+            }
+            if (!cancel) {
+                return;
+            }
+            if (resumable && resumeGraceMillis > 0) {
+                // 客户端可能已收到部分内容后断线，留出重连时间，期间无人重连才取消
+                CompletableFuture.delayedExecutor(resumeGraceMillis, TimeUnit.MILLISECONDS)
+                        .execute(this::cancelIfAbandoned);
+            } else {
+                cancellationToken.cancel();
+            }
+        }
+
+
+        public CompletableFuture<InterviewTurn> result() {
+            return result;
+        }
+
+
+        public LlmCancellationToken cancellationToken() {
+            return cancellationToken;
+        }
+
+
+        private void cancelIfAbandoned() {
+            synchronized (this) {
+                if (attached > 0 || result.isDone()) {
+                    return;
+                }
+            }
+            cancellationToken.cancel();
+        }
+
+
+        /**
+         * 是否已没有任何等待方（断线后处于重连宽限期）
+         */
+        public synchronized boolean isAbandoned() {
+            return attached <= 0;
+        }
+
+
+        private synchronized boolean attach() {
+            if (cancellationToken.isCancelled()) {
+                return false;
+            }
+            attached++;
+            return true;
+        }
+
+
+        private synchronized void addKey(String key) {
+            keys.add(key);
+        }
+
+
+        private synchronized Set<String> keys() {
+            return Set.copyOf(keys);
+        }
+
+
+        /**
+         * 一个订阅方的推送进度；推送在订阅方自身的锁内进行，保证同一订阅方按顺序收到增量
+         */
+        private final class Subscription {
+            private final DeltaSubscriber subscriber;
+            private int delivered;
+            private boolean removed;
+
+            private Subscription(DeltaSubscriber subscriber, int fromOffset) {
+                this.subscriber = subscriber;
+                this.delivered = fromOffset;
+            }
+
+
+            /**
+             * 推送已推送位置之后生成的全部内容；在生成锁内取快照，在锁外回调
+             */
+            private synchronized void drain() {
+                String pending;
+                int offset;
+                synchronized (Flight.this) {
+                    if (removed || delivered >= buffer.length()) {
+                        return;
+                    }
+                    offset = buffer.length();
+                    pending = buffer.substring(delivered, offset);
+                }
+                delivered = offset;
+                subscriber.accept(pending, offset);
+            }
+        }
+    }
+
+
+    /**
+     * 增量订阅方
+     */
+    @FunctionalInterface
+    public interface DeltaSubscriber {
+        /**
+         * @param delta  增量内容
+         * @param offset 推送该增量后的已推送字符数
+         */
+        void accept(String delta, int offset);
+    }
+}
@@ -0,0 +1,157 @@
+package org.itjuerui.service.support;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.api.dto.ReportJobEvent;
+import org.itjuerui.api.dto.ReportJobResponse;
+import org.itjuerui.domain.report.enums.ReportJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 报告生成任务
+ * 记录状态与全部进度事件；订阅时先补发指定序号之后的事件再接收新事件，补发与新事件在同一把锁下按序送达
+ */
+@Slf4j
+public class ReportJob {
+
+    /**
+     * 进度事件的接收方
+     */
+    public interface Listener {
+        /**
+         * 收到进度事件；返回 false 表示接收方已失效，不再回调
+         */
+        boolean onEvent(ReportJobEvent event);
+    }
+
+    private final String id = IdUtil.fastSimpleUUID();
+    private final Long sessionId;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final List<ReportJobEvent> events = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ReportJobStatus status = ReportJobStatus.QUEUED;
+    private Long reportId;
+    private String error;
+    private LocalDateTime finishedAt;
+
+    public ReportJob(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+
+    public String getId() {
+        return id;
+    }
+
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+
+    public synchronized ReportJobStatus getStatus() {
+        return status;
+    }
+
+
+    /**
+     * 规则版报告已落库
+     */
+    public synchronized void ruleReportReady(Long reportId, Integer overallScore) {
+        this.reportId = reportId;
+        emit("rule_report_ready", Map.of("reportId", reportId, "overallScore", overallScore));
+    }
+
+
+    public synchronized void start() {
+        status = ReportJobStatus.RUNNING;
+    }
+
+
+    public synchronized void succeed(Long reportId) {
+        this.reportId = reportId;
+        status = ReportJobStatus.SUCCEEDED;
+        finishedAt = LocalDateTime.now();
+        emit("completed", Map.of("reportId", reportId));
+    }
+
+
+    public synchronized void fail(String message) {
+        error = message;
+        status = ReportJobStatus.FAILED;
+        finishedAt = LocalDateTime.now();
+        emit("failed", Map.of("message", message));
+    }
+
+
+    /**
+     * 记录一个进度事件并推送给订阅方
+     */
+    public synchronized void emit(String type, Map<String, Object> data) {
+        ReportJobEvent event = new ReportJobEvent();
+        event.setId(events.size() + 1L);
+        event.setType(type);
+        event.setData(data);
+        event.setCreatedAt(LocalDateTime.now());
+        events.add(event);
+        listeners.removeIf(listener -> !deliver(listener, event));
+        if (status.isFinished()) {
+            listeners.clear();
+        }
+    }
+
+
+    /**
+     * 订阅进度事件
+     *
+     * @param afterId  只补发序号大于该值的事件，0 表示全部
+     * @param listener 接收方
+     * @return 任务是否已结束（已结束时补发完即返回，不再登记接收方）
+     */
+    public synchronized boolean subscribe(long afterId, Listener listener) {
+        for (ReportJobEvent event : events) {
+            if (event.getId() > afterId && !deliver(listener, event)) {
+                return true;
+            }
+        }
+        if (status.isFinished()) {
+            return true;
+        }
+        listeners.add(listener);
+        return false;
+    }
+
+
+    public synchronized void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+
+    public synchronized ReportJobResponse toResponse() {
+        ReportJobResponse response = new ReportJobResponse();
+        response.setJobId(id);
+        response.setSessionId(sessionId);
+        response.setStatus(status);
+        response.setReportId(reportId);
+        response.setError(error);
+        response.setEvents(new ArrayList<>(events));
+        response.setCreatedAt(createdAt);
+        response.setFinishedAt(finishedAt);
+        return response;
+    }
+
+
+    private boolean deliver(Listener listener, ReportJobEvent event) {
+        try {
+            return listener.onEvent(event);
+        } catch (RuntimeException ex) {
+            log.debug("推送报告任务事件失败: jobId={}, message={}", id, ex.getMessage());
+            return false;
+        }
+    }
+}
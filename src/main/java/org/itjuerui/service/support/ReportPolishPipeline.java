@@ -0,0 +1,407 @@
+package org.itjuerui.service.support;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.ReportAiProperties;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
+import org.itjuerui.domain.report.entity.Report;
+import org.itjuerui.domain.report.entity.StageMiniReport;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.itjuerui.infra.llm.dto.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 报告 AI 润色流水线
+ * 总报告在调用线程上润色，同时阶段小结在有界线程池中并发润色（PARALLEL），或合并为一次结构化调用后按阶段拆分结果（BATCH），
+ * 报告耗时约为一次 LLM 调用而不是阶段数次；任一调用失败只影响对应部分，保留规则版内容
+ * <p>
+ * 指标：report.polish.duration{mode}（一次报告润色的总耗时）
+ */
+@Slf4j
+@Component
+public class ReportPolishPipeline {
+
+    private final LlmService llmService;
+    private final LlmProperties llmProperties;
+    private final ReportAiProperties properties;
+    private final InterviewContextManager contextManager;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    public ReportPolishPipeline(LlmService llmService, LlmProperties llmProperties, ReportAiProperties properties,
+            InterviewContextManager contextManager, MeterRegistry meterRegistry) {
+        this.llmService = llmService;
+        this.llmProperties = llmProperties;
+        this.properties = properties;
+        this.contextManager = contextManager;
+        this.meterRegistry = meterRegistry;
+
+        int parallelism = Math.max(1, properties.getMaxParallelism());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "report-polish-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * 待润色的阶段小结
+     */
+    public static class StageInput {
+        private final StageMiniReport report;
+        private final List<InterviewTurn> recentTurns;
+        private volatile boolean polished;
+
+        /**
+         * @param report      规则版阶段小结
+         * @param recentTurns 该阶段最近的候选人回答（对话摘录）
+         */
+        public StageInput(StageMiniReport report, List<InterviewTurn> recentTurns) {
+            this.report = report;
+            this.recentTurns = recentTurns;
+        }
+
+        public StageMiniReport getReport() {
+            return report;
+        }
+
+        /**
+         * 是否已被 AI 润色（失败时保留规则版内容，为 false）
+         */
+        public boolean isPolished() {
+            return polished;
+        }
+    }
+
+
+    /**
+     * 阶段小结是否推迟到生成报告时润色
+     */
+    public boolean isStagePolishDeferred() {
+        return properties.isEnabled() && properties.isDeferStagePolish();
+    }
+
+
+    /**
+     * 润色单个阶段小结
+     *
+     * @param recentTurns 该阶段最近的候选人回答（对话摘录）
+     * @return 是否润色成功；未启用或失败时保留规则版内容
+     */
+    public boolean polishStage(StageMiniReport report, List<InterviewTurn> recentTurns) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        try {
+            String response = llmService.chat(buildStageAiMessages(report, recentTurns), LlmCallType.REPORT);
+            ReportAiResult result = parseAiResult(response);
+            if (result != null) {
+                apply(report, result);
+                return true;
+            }
+        } catch (Exception ex) {
+            log.warn("阶段小结 AI 润色失败，已降级为规则版: stage={}, message={}", report.getStageCode(), ex.getMessage());
+        }
+        return false;
+    }
+
+
+    /**
+     * 润色总报告与阶段小结
+     * 阶段小结与总报告同时润色；返回时全部调用已结束
+     *
+     * @param report      规则版总报告
+     * @param stats       整场面试的回答统计
+     * @param recentTurns 最近的候选人回答（对话摘录）
+     * @param stages      需要一并润色的阶段小结，可为空
+     * @return 总报告（aiEnabled 标记总报告是否润色成功）
+     */
+    public Report polishReport(Report report, StageAnswerStats stats, List<InterviewTurn> recentTurns,
+            List<StageInput> stages) {
+        if (!properties.isEnabled()) {
+            report.setAiEnabled(false);
+            return report;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<Void> stagesDone = polishStagesAsync(stages);
+        polishOverall(report, stats, recentTurns);
+        try {
+            stagesDone.join();
+        } catch (Exception ex) {
+            log.warn("阶段小结 AI 润色异常，未完成的阶段保留规则版: {}", ex.getMessage());
+        }
+        sample.stop(Timer.builder("report.polish.duration")
+                .tag("mode", properties.getPolishMode().name().toLowerCase())
+                .description("一次报告润色的总耗时")
+                .register(meterRegistry));
+        return report;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    private CompletableFuture<Void> polishStagesAsync(List<StageInput> stages) {
+        if (stages == null || stages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (properties.getPolishMode() == ReportAiProperties.PolishMode.BATCH && stages.size() > 1) {
+            return async(() -> polishStagesBatch(stages));
+        }
+        CompletableFuture<?>[] futures = stages.stream()
+                .map(stage -> async(() -> stage.polished = polishStage(stage.report, stage.recentTurns)))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+
+    private CompletableFuture<Void> async(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, executor);
+        } catch (RejectedExecutionException ex) {
+            // 线程池已关闭（应用停止中），在调用线程上执行
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+
+    private void polishOverall(Report report, StageAnswerStats stats, List<InterviewTurn> recentTurns) {
+        try {
+            String response = llmService.chat(buildAiMessages(report, stats, recentTurns), LlmCallType.REPORT);
+            ReportAiResult result = parseAiResult(response);
+            if (result != null) {
+                report.setSummary(result.getSummary());
+                report.setStrengths(JSON.toJSONString(result.getStrengths()));
+                report.setWeaknesses(JSON.toJSONString(result.getWeaknesses()));
+                report.setSuggestions(JSON.toJSONString(result.getSuggestions()));
+                report.setAiEnabled(true);
+                report.setAiProvider(llmProperties.getProvider());
+                report.setAiModel(llmProperties.getModel());
+                return;
+            }
+        } catch (Exception ex) {
+            log.warn("AI 报告润色失败，已降级为规则版: {}", ex.getMessage());
+        }
+        report.setAiEnabled(false);
+    }
+
+
+    /**
+     * 所有阶段合并为一次调用，按 stageCode 拆分结果；缺失或解析失败的阶段保留规则版
+     */
+    private void polishStagesBatch(List<StageInput> stages) {
+        Map<String, ReportAiResult> results;
+        try {
+            String response = llmService.chat(buildBatchStageAiMessages(stages), LlmCallType.REPORT);
+            results = parseBatchResult(response);
+        } catch (Exception ex) {
+            log.warn("阶段小结批量 AI 润色失败，已降级为规则版: {}", ex.getMessage());
+            return;
+        }
+        for (StageInput stage : stages) {
+            ReportAiResult result = results.get(stage.report.getStageCode());
+            if (result != null) {
+                apply(stage.report, result);
+                stage.polished = true;
+            } else {
+                log.warn("阶段小结批量 AI 润色结果缺少阶段，保留规则版: stage={}", stage.report.getStageCode());
+            }
+        }
+    }
+
+
+    private void apply(StageMiniReport report, ReportAiResult result) {
+        report.setSummary(result.getSummary());
+        report.setStrengths(JSON.toJSONString(result.getStrengths()));
+        report.setWeaknesses(JSON.toJSONString(result.getWeaknesses()));
+        report.setSuggestions(JSON.toJSONString(result.getSuggestions()));
+    }
+
+
+    private List<Message> buildAiMessages(Report report, StageAnswerStats stats, List<InterviewTurn> recentTurns) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system",
+                "你是资深Java后端面试官，需要将规则版面试报告润色成更自然的面试点评。"
+                        + "请严格输出JSON，字段包括 summary(字符串), strengths(字符串数组), weaknesses(字符串数组), suggestions(字符串数组)。"));
+
+        StringBuilder userContent = new StringBuilder();
+        userContent.append("规则评分信息：\n")
+                .append("overallScore=").append(report.getOverallScore()).append("\n")
+                .append("summary=").append(report.getSummary()).append("\n")
+                .append("strengths=").append(report.getStrengths()).append("\n")
+                .append("weaknesses=").append(report.getWeaknesses()).append("\n")
+                .append("suggestions=").append(report.getSuggestions()).append("\n");
+
+        userContent.append("候选人回答统计：回答次数=")
+                .append(stats.getTurnCount())
+                .append("，平均长度=")
+                .append(stats.getAverageChars())
+                .append("。\n")
+                .append("对话摘录：\n")
+                .append(buildTurnSnippet(recentTurns));
+
+        messages.add(new Message("user", userContent.toString()));
+        return contextManager.enforceBudget(messages, LlmCallType.REPORT);
+    }
+
+
+    private List<Message> buildStageAiMessages(StageMiniReport report, List<InterviewTurn> recentTurns) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system",
+                "你是资深Java后端面试官，请润色阶段小结为更自然的面试点评。"
+                        + "请严格输出JSON，字段包括 summary(字符串), strengths(字符串数组), weaknesses(字符串数组), suggestions(字符串数组)。"));
+
+        StringBuilder userContent = new StringBuilder();
+        appendStageRuleInfo(userContent, report, recentTurns);
+        messages.add(new Message("user", userContent.toString()));
+        return contextManager.enforceBudget(messages, LlmCallType.REPORT);
+    }
+
+
+    private List<Message> buildBatchStageAiMessages(List<StageInput> stages) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system",
+                "你是资深Java后端面试官，请逐个润色以下多个阶段小结为更自然的面试点评。"
+                        + "请严格输出JSON，格式为 {\"stages\":[...]}，每个元素字段包括 stageCode(字符串，与输入一致), "
+                        + "summary(字符串), strengths(字符串数组), weaknesses(字符串数组), suggestions(字符串数组)。"));
+
+        StringBuilder userContent = new StringBuilder();
+        for (StageInput stage : stages) {
+            userContent.append("【").append(stage.report.getStageCode()).append("】\n");
+            appendStageRuleInfo(userContent, stage.report, stage.recentTurns);
+            userContent.append("\n");
+        }
+        messages.add(new Message("user", userContent.toString()));
+        return contextManager.enforceBudget(messages, LlmCallType.REPORT);
+    }
+
+
+    private void appendStageRuleInfo(StringBuilder userContent, StageMiniReport report,
+            List<InterviewTurn> recentTurns) {
+        userContent.append("阶段小结规则信息：\n")
+                .append("stageCode=").append(report.getStageCode()).append("\n")
+                .append("score=").append(report.getScore()).append("\n")
+                .append("summary=").append(report.getSummary()).append("\n")
+                .append("strengths=").append(report.getStrengths()).append("\n")
+                .append("weaknesses=").append(report.getWeaknesses()).append("\n")
+                .append("suggestions=").append(report.getSuggestions()).append("\n");
+
+        userContent.append("对话摘录：\n")
+                .append(buildTurnSnippet(recentTurns));
+    }
+
+
+    private String buildTurnSnippet(List<InterviewTurn> recentTurns) {
+        int startIndex = Math.max(0, recentTurns.size() - 3);
+        StringBuilder snippet = new StringBuilder();
+        for (int i = startIndex; i < recentTurns.size(); i++) {
+            InterviewTurn turn = recentTurns.get(i);
+            snippet.append("候选人：").append(turn.getContentText()).append("\n");
+        }
+        return snippet.toString();
+    }
+
+
+    private ReportAiResult parseAiResult(String response) {
+        if (response == null || response.isBlank()) {
+            return null;
+        }
+        try {
+            return JSON.parseObject(response, ReportAiResult.class);
+        } catch (Exception ex) {
+            log.warn("AI 报告 JSON 解析失败: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+
+    private Map<String, ReportAiResult> parseBatchResult(String response) {
+        Map<String, ReportAiResult> results = new HashMap<>();
+        if (response == null || response.isBlank()) {
+            return results;
+        }
+        try {
+            JSONArray stages = JSON.parseObject(response).getJSONArray("stages");
+            if (stages == null) {
+                return results;
+            }
+            for (int i = 0; i < stages.size(); i++) {
+                JSONObject stage = stages.getJSONObject(i);
+                String stageCode = stage == null ? null : stage.getString("stageCode");
+                if (stageCode != null && stage.getString("summary") != null) {
+                    results.put(stageCode, stage.to(ReportAiResult.class));
+                }
+            }
+        } catch (Exception ex) {
+            log.warn("阶段小结批量 AI 结果 JSON 解析失败: {}", ex.getMessage());
+        }
+        return results;
+    }
+
+
+    private static class ReportAiResult {
+        private String summary;
+        private List<String> strengths;
+        private List<String> weaknesses;
+        private List<String> suggestions;
+
+        public String getSummary() {
+            return summary;
+        }
+
+        public void setSummary(String summary) {
+            this.summary = summary;
+        }
+
+        public List<String> getStrengths() {
+            return strengths;
+        }
+
+        public void setStrengths(List<String> strengths) {
+            this.strengths = strengths;
+        }
+
+        public List<String> getWeaknesses() {
+            return weaknesses;
+        }
+
+        public void setWeaknesses(List<String> weaknesses) {
+            this.weaknesses = weaknesses;
+        }
+
+        public List<String> getSuggestions() {
+            return suggestions;
+        }
+
+        public void setSuggestions(List<String> suggestions) {
+            this.suggestions = suggestions;
+        }
+    }
+}
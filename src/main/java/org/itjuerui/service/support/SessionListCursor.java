@@ -0,0 +1,54 @@
+package org.itjuerui.service.support;
+
+import lombok.Getter;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 会话列表游标
+ * 记录上一页最后一条会话的 (created_at, id)，下一页从该位置之后继续读取；
+ * 对调用方是不透明的 URL 安全 Base64 字符串，内部格式变化不影响接口
+ */
+@Getter
+public final class SessionListCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private SessionListCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 以会话作为上一页的最后一条生成游标
+     */
+    public static String encode(InterviewSession last) {
+        String raw = last.getCreatedAt() + String.valueOf(SEPARATOR) + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，格式不合法时抛出 400
+     */
+    public static SessionListCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (index <= 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new SessionListCursor(LocalDateTime.parse(raw.substring(0, index)),
+                    Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+}
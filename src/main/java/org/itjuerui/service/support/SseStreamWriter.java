@@ -0,0 +1,335 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewSseProperties;
+import org.itjuerui.common.sse.SseEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SSE 流写出器
+ * 流式增量先在每个连接上合并，满足以下任一条件才作为一个 chunk 事件发送：合并窗口到期、累计字节数达到阈值、
+ * 增量以句末标点结尾；其他事件发送前先冲刷合并中的增量，保证顺序。
+ * 所有连接共用一个调度线程计时合并窗口与心跳，不为每个流单独创建定时器；调度线程只负责派发，
+ * 到期的发送交给少量发送线程执行，发送线程用 tryLock 跳过正被生成线程写出的流，
+ * 一个慢客户端最多占住一个发送线程，不拖慢其他流的合并发送与心跳
+ * <p>
+ * 指标：interview.sse.events / interview.sse.bytes（发送的事件数与字节数，按速率即每秒事件数与字节数）、
+ * interview.sse.stream.flushes（每个流的发送次数）、interview.sse.streams（打开的流数）
+ */
+@Slf4j
+@Component
+public class SseStreamWriter {
+
+    /**
+     * 句末标点：增量以这些字符结尾时立即发送，让客户端按句展示
+     */
+    private static final String SENTENCE_ENDINGS = "。！？；!?;\n";
+
+    private final InterviewSseProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService sender;
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final Counter events;
+    private final Counter bytes;
+    private final DistributionSummary flushesPerStream;
+
+    public SseStreamWriter(InterviewSseProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "interview-sse-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(Math.max(1, properties.getSenderThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "interview-sse-sender-" + senderIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 以半个心跳间隔巡检，空闲时长超过心跳间隔的流最迟在 1.5 倍间隔内收到心跳
+        long sweepMillis = TimeUnit.SECONDS.toMillis(Math.max(1, properties.getHeartbeatSeconds())) / 2;
+        scheduler.scheduleAtFixedRate(this::heartbeat, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+
+        this.events = Counter.builder("interview.sse.events").description("发送的 SSE 事件数").register(meterRegistry);
+        this.bytes = Counter.builder("interview.sse.bytes").baseUnit("bytes").description("发送的 SSE 字节数")
+                .register(meterRegistry);
+        this.flushesPerStream = DistributionSummary.builder("interview.sse.stream.flushes")
+                .description("每个 SSE 流的发送次数")
+                .register(meterRegistry);
+        Gauge.builder("interview.sse.streams", streams, Set::size)
+                .description("打开的 SSE 流数")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * 为 SSE 连接打开写出流，并纳入共享心跳
+     */
+    public Stream open(SseEmitter emitter) {
+        Stream stream = new Stream(emitter);
+        streams.add(stream);
+        return stream;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+
+    private void heartbeat() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, properties.getHeartbeatSeconds()));
+        long now = System.nanoTime();
+        for (Stream stream : streams) {
+            if (now - stream.lastSentAt >= idleNanos) {
+                stream.dispatchHeartbeat();
+            }
+        }
+    }
+
+
+    /**
+     * 单个 SSE 连接的写出流，方法可在生成线程与发送线程上并发调用
+     */
+    public final class Stream {
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean heartbeatQueued = new AtomicBoolean();
+        private final StringBuilder pending = new StringBuilder();
+        private String pendingEventId;
+        private int pendingBytes;
+        private ScheduledFuture<?> scheduledFlush;
+        private int flushes;
+        private boolean closed;
+        private volatile long lastSentAt = System.nanoTime();
+
+        private Stream(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+
+        /**
+         * 写入一段增量
+         *
+         * @param delta   增量内容
+         * @param eventId 推送到该增量后的事件ID（合并发送时事件携带最后一段的ID），可为空
+         * @throws IOException 连接已断开
+         */
+        public void chunk(String delta, String eventId) throws IOException {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("SSE 流已关闭");
+                }
+                pending.append(delta);
+                pendingEventId = eventId;
+                pendingBytes += delta.getBytes(StandardCharsets.UTF_8).length;
+
+                long window = properties.getCoalesceWindowMillis();
+                if (window <= 0 || pendingBytes >= properties.getCoalesceMaxBytes() || endsSentence(delta)) {
+                    flush();
+                } else if (scheduledFlush == null) {
+                    try {
+                        scheduledFlush = scheduleFlush(window);
+                    } catch (RejectedExecutionException ex) {
+                        flush();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * 发送一个事件，先冲刷合并中的增量
+         */
+        public void send(SseEvent event) throws IOException {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("SSE 流已关闭");
+                }
+                flush();
+                write(event);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * 冲刷剩余增量后正常结束连接
+         */
+        public void complete() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    try {
+                        flush();
+                    } catch (IOException ex) {
+                        log.debug("结束 SSE 流时冲刷失败: {}", ex.getMessage());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            close();
+            emitter.complete();
+        }
+
+
+        /**
+         * 释放流：取消待发送的合并、退出心跳并记录指标；连接断开或结束时调用，可重复调用
+         */
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                cancelScheduledFlush();
+                pending.setLength(0);
+            } finally {
+                lock.unlock();
+            }
+            streams.remove(this);
+            flushesPerStream.record(flushes);
+        }
+
+
+        private void flush() throws IOException {
+            cancelScheduledFlush();
+            if (pending.length() == 0) {
+                return;
+            }
+            SseEvent event = SseEvent.named("chunk");
+            if (pendingEventId != null) {
+                event.id(pendingEventId);
+            }
+            event.data(pending.toString());
+            pending.setLength(0);
+            pendingBytes = 0;
+            pendingEventId = null;
+            write(event);
+        }
+
+
+        /**
+         * 合并窗口到期时由调度线程派发冲刷，调度线程本身不写连接
+         */
+        private ScheduledFuture<?> scheduleFlush(long delayMillis) {
+            return scheduler.schedule(() -> dispatch(this::flushQuietly), delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+
+        private void flushQuietly() {
+            if (!lock.tryLock()) {
+                // 生成线程正在写出，稍后重试；期间写出的 send/complete 会一并冲刷合并中的增量
+                try {
+                    scheduleFlush(properties.getCoalesceWindowMillis());
+                } catch (RejectedExecutionException ignored) {
+                    // 写出器已关闭
+                }
+                return;
+            }
+            try {
+                scheduledFlush = null;
+                if (closed) {
+                    return;
+                }
+                flush();
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("SSE 合并发送失败，连接已断开: {}", ex.getMessage());
+                close();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        /**
+         * 派发心跳；同一个流同时最多排队一个心跳，发送线程积压时不重复派发
+         */
+        private void dispatchHeartbeat() {
+            if (heartbeatQueued.compareAndSet(false, true)) {
+                dispatch(() -> {
+                    heartbeatQueued.set(false);
+                    heartbeat();
+                });
+            }
+        }
+
+
+        private void heartbeat() {
+            // 流正在写出时无需心跳
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                if (closed) {
+                    return;
+                }
+                write(SseEvent.commentLine("heartbeat"));
+            } catch (IOException | IllegalStateException ex) {
+                close();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        private void dispatch(Runnable task) {
+            try {
+                sender.execute(task);
+            } catch (RejectedExecutionException ex) {
+                log.debug("SSE 写出器已关闭，跳过发送");
+            }
+        }
+
+
+        private void write(SseEvent event) throws IOException {
+            emitter.send(event);
+            lastSentAt = System.nanoTime();
+            flushes++;
+            events.increment();
+            bytes.increment(event.text().getBytes(StandardCharsets.UTF_8).length);
+        }
+
+
+        private void cancelScheduledFlush() {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+    }
+
+
+    private static boolean endsSentence(String delta) {
+        return !delta.isEmpty() && SENTENCE_ENDINGS.indexOf(delta.charAt(delta.length() - 1)) >= 0;
+    }
+}
@@ -0,0 +1,36 @@
+package org.itjuerui.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewStageStatsProperties;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时为历史会话补齐阶段回答统计
+ * 补齐失败（如数据库尚未执行建表脚本）不影响启动，未补齐的会话在首次读取统计时重建
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StageAnswerStatsBackfillRunner implements ApplicationRunner {
+
+    private final InterviewStageStatsProperties properties;
+    private final StageAnswerStatsStore statsStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isBackfillOnStartup()) {
+            return;
+        }
+        try {
+            int rows = statsStore.backfill();
+            if (rows > 0) {
+                log.info("历史会话阶段回答统计补齐完成: rows={}", rows);
+            }
+        } catch (Exception ex) {
+            log.warn("历史会话阶段回答统计补齐失败，将在读取时重建: {}", ex.getMessage());
+        }
+    }
+}
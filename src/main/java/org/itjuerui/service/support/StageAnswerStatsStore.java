@@ -0,0 +1,134 @@
+package org.itjuerui.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
+import org.itjuerui.domain.interview.enums.TurnRole;
+import org.itjuerui.infra.repo.StageAnswerStatsMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 阶段回答统计
+ * 候选人回答写入时在同一事务内累加（会话, 阶段）的回答数、总字数、最短/最长字数与最后回答时间，
+ * 报告、阶段小结与进度展示按阶段读取，耗时与阶段数相关而与对话长度无关
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StageAnswerStatsStore {
+
+    private final StageAnswerStatsMapper statsMapper;
+
+    /**
+     * 记录一条新写入的轮次，非候选人回答忽略；须在写入轮次的事务内调用
+     */
+    public void record(InterviewTurn turn) {
+        if (turn.getRole() != TurnRole.CANDIDATE) {
+            return;
+        }
+        int chars = turn.getContentText() == null ? 0 : turn.getContentText().length();
+        LocalDateTime at = turn.getCreatedAt() == null ? LocalDateTime.now() : turn.getCreatedAt();
+        statsMapper.accumulate(turn.getSessionId(), stageKey(turn.getStageCode()), chars, at);
+    }
+
+
+    /**
+     * 记录一批新写入的轮次（批量导入），按阶段汇总后每个阶段一条语句；须在写入轮次的事务内调用
+     */
+    public void recordAll(List<InterviewTurn> turns) {
+        Map<String, StageAnswerStats> deltas = new LinkedHashMap<>();
+        for (InterviewTurn turn : turns) {
+            if (turn.getRole() != TurnRole.CANDIDATE) {
+                continue;
+            }
+            int chars = turn.getContentText() == null ? 0 : turn.getContentText().length();
+            LocalDateTime at = turn.getCreatedAt() == null ? LocalDateTime.now() : turn.getCreatedAt();
+            StageAnswerStats delta = deltas.computeIfAbsent(stageKey(turn.getStageCode()), key -> {
+                StageAnswerStats stats = new StageAnswerStats();
+                stats.setSessionId(turn.getSessionId());
+                stats.setStageCode(key);
+                stats.setTurnCount(0);
+                stats.setTotalChars(0L);
+                stats.setMinChars(chars);
+                stats.setMaxChars(chars);
+                stats.setLastActivityAt(at);
+                return stats;
+            });
+            delta.setTurnCount(delta.getTurnCount() + 1);
+            delta.setTotalChars(delta.getTotalChars() + chars);
+            delta.setMinChars(Math.min(delta.getMinChars(), chars));
+            delta.setMaxChars(Math.max(delta.getMaxChars(), chars));
+            if (at.isAfter(delta.getLastActivityAt())) {
+                delta.setLastActivityAt(at);
+            }
+        }
+        deltas.values().forEach(statsMapper::accumulateAll);
+    }
+
+
+    /**
+     * 查询会话各阶段的统计
+     * 没有统计行时（统计表上线前的历史会话）从对话重建一次
+     *
+     * @return 按阶段编码排序的统计，没有候选人回答时为空
+     */
+    public List<StageAnswerStats> list(Long sessionId) {
+        List<StageAnswerStats> stats = select(sessionId);
+        if (!stats.isEmpty()) {
+            return stats;
+        }
+        try {
+            if (statsMapper.rebuild(sessionId) == 0) {
+                return stats;
+            }
+            log.info("已从对话重建阶段回答统计: sessionId={}", sessionId);
+        } catch (DuplicateKeyException ex) {
+            // 并发写入的回答已先建立统计行
+            log.debug("重建阶段回答统计时已存在统计行: sessionId={}", sessionId);
+        }
+        return select(sessionId);
+    }
+
+
+    /**
+     * 查询会话某个阶段的统计，没有回答时返回 null
+     */
+    public StageAnswerStats get(Long sessionId, String stageCode) {
+        String key = stageKey(stageCode);
+        return list(sessionId).stream()
+                .filter(stats -> key.equals(stats.getStageCode()))
+                .findFirst()
+                .orElse(null);
+    }
+
+
+    /**
+     * 为尚无统计的历史会话补齐统计
+     *
+     * @return 写入的统计行数
+     */
+    public int backfill() {
+        return statsMapper.backfill();
+    }
+
+
+    private List<StageAnswerStats> select(Long sessionId) {
+        LambdaQueryWrapper<StageAnswerStats> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(StageAnswerStats::getSessionId, sessionId)
+                .orderByAsc(StageAnswerStats::getStageCode);
+        return statsMapper.selectList(queryWrapper);
+    }
+
+
+    private static String stageKey(String stageCode) {
+        return stageCode == null ? "" : stageCode;
+    }
+}
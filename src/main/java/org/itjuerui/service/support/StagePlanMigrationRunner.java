@@ -0,0 +1,36 @@
+package org.itjuerui.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewStagePlanProperties;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时迁移内嵌阶段计划 JSON 的历史会话
+ * 迁移失败（如数据库尚未执行加列脚本）不影响启动，未迁移的会话在首次访问时迁移
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StagePlanMigrationRunner implements ApplicationRunner {
+
+    private final InterviewStagePlanProperties properties;
+    private final StagePlanRegistry stagePlanRegistry;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isMigrateOnStartup()) {
+            return;
+        }
+        try {
+            int migrated = stagePlanRegistry.migrateLegacySessions(properties.getMigrationBatchSize());
+            if (migrated > 0) {
+                log.info("历史会话阶段计划迁移完成: migrated={}", migrated);
+            }
+        } catch (Exception ex) {
+            log.warn("历史会话阶段计划迁移失败，将在访问时迁移: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.itjuerui.service.support;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.domain.interview.dto.StagePlanStage;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.entity.InterviewStagePlan;
+import org.itjuerui.domain.interview.support.StagePlan;
+import org.itjuerui.domain.interview.support.StagePlanFactory;
+import org.itjuerui.infra.repo.InterviewSessionMapper;
+import org.itjuerui.infra.repo.InterviewStagePlanMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 阶段计划注册表
+ * 内置模板按版本化ID（如 default-v1）在代码中定义，其他计划按内容哈希去重存入 interview_stage_plan；
+ * 每个计划只解析一次，以不可变 {@link StagePlan} 在所有会话间共享，提问与推进阶段的热路径不再解析 JSON。
+ * 历史会话内嵌的 stage_plan_json 在首次访问或启动批量迁移时转换为 stage_plan_id 引用
+ */
+@Slf4j
+@Component
+public class StagePlanRegistry {
+
+    private static final String HASH_ID_PREFIX = "sha-";
+
+    private final InterviewStagePlanMapper planMapper;
+    private final InterviewSessionMapper sessionMapper;
+    private final InterviewSessionCache sessionCache;
+    private final Map<String, StagePlan> plans = new ConcurrentHashMap<>();
+    private final StagePlan defaultPlan;
+
+    public StagePlanRegistry(InterviewStagePlanMapper planMapper, InterviewSessionMapper sessionMapper,
+            InterviewSessionCache sessionCache) {
+        this.planMapper = planMapper;
+        this.sessionMapper = sessionMapper;
+        this.sessionCache = sessionCache;
+        this.defaultPlan = new StagePlan(StagePlanFactory.DEFAULT_PLAN_ID, StagePlanFactory.defaultStages());
+        plans.put(defaultPlan.getId(), defaultPlan);
+    }
+
+
+    /**
+     * 当前默认计划，新会话引用它
+     */
+    public StagePlan defaultPlan() {
+        return defaultPlan;
+    }
+
+
+    /**
+     * 按ID查找计划；未知ID退回默认计划
+     *
+     * @param planId 计划ID
+     * @return 计划
+     */
+    public StagePlan get(String planId) {
+        if (planId == null) {
+            return defaultPlan;
+        }
+        StagePlan plan = plans.computeIfAbsent(planId, this::load);
+        if (plan == null) {
+            log.warn("阶段计划不存在，使用默认计划: planId={}", planId);
+            return defaultPlan;
+        }
+        return plan;
+    }
+
+
+    /**
+     * 注册阶段计划：内容相同的计划得到同一个实例与ID
+     *
+     * @param planJson 计划 JSON
+     * @return 计划
+     */
+    public StagePlan intern(String planJson) {
+        List<StagePlanStage> stages;
+        try {
+            stages = JSON.parseArray(planJson, StagePlanStage.class);
+        } catch (Exception ex) {
+            log.warn("阶段计划解析失败，使用默认计划: {}", ex.getMessage());
+            return defaultPlan;
+        }
+        if (stages == null || stages.isEmpty()) {
+            return defaultPlan;
+        }
+        String canonicalJson = JSON.toJSONString(stages);
+        if (canonicalJson.equals(defaultPlan.toJson())) {
+            return defaultPlan;
+        }
+
+        String planId = HASH_ID_PREFIX + DigestUtil.sha256Hex(canonicalJson).substring(0, 32);
+        StagePlan cached = plans.get(planId);
+        if (cached != null) {
+            return cached;
+        }
+        InterviewStagePlan row = new InterviewStagePlan();
+        row.setId(planId);
+        row.setPlanJson(canonicalJson);
+        row.setCreatedAt(LocalDateTime.now());
+        try {
+            planMapper.insert(row);
+        } catch (DuplicateKeyException ex) {
+            log.debug("阶段计划已存在: planId={}", planId);
+        }
+        return plans.computeIfAbsent(planId, id -> new StagePlan(id, stages));
+    }
+
+
+    /**
+     * 会话引用的计划；内嵌 JSON 的历史会话就地迁移为引用
+     *
+     * @param session 会话
+     * @return 计划，会话尚未分配计划时返回 null
+     */
+    public StagePlan planOf(InterviewSession session) {
+        if (session.getStagePlanId() != null) {
+            return get(session.getStagePlanId());
+        }
+        if (session.getStagePlanJson() == null || session.getStagePlanJson().isBlank()) {
+            return null;
+        }
+        StagePlan plan = intern(session.getStagePlanJson());
+        migrate(session, plan);
+        return plan;
+    }
+
+
+    /**
+     * 批量迁移内嵌 stage_plan_json 的历史会话
+     *
+     * @param batchSize 每批会话数
+     * @return 迁移的会话数
+     */
+    public int migrateLegacySessions(int batchSize) {
+        int migrated = 0;
+        while (true) {
+            LambdaQueryWrapper<InterviewSession> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.isNull(InterviewSession::getStagePlanId)
+                    .isNotNull(InterviewSession::getStagePlanJson)
+                    .orderByAsc(InterviewSession::getId)
+                    .last("LIMIT " + Math.max(1, batchSize));
+            List<InterviewSession> sessions = sessionMapper.selectList(queryWrapper);
+            if (sessions.isEmpty()) {
+                return migrated;
+            }
+            for (InterviewSession session : sessions) {
+                if (session.getStagePlanJson().isBlank()) {
+                    migrate(session, defaultPlan);
+                } else {
+                    planOf(session);
+                }
+                migrated++;
+            }
+        }
+    }
+
+
+    private StagePlan load(String planId) {
+        InterviewStagePlan row = planMapper.selectById(planId);
+        if (row == null) {
+            return null;
+        }
+        return new StagePlan(planId, JSON.parseArray(row.getPlanJson(), StagePlanStage.class));
+    }
+
+
+    private void migrate(InterviewSession session, StagePlan plan) {
+        LambdaUpdateWrapper<InterviewSession> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.eq(InterviewSession::getId, session.getId())
+                .isNull(InterviewSession::getStagePlanId)
+                .set(InterviewSession::getStagePlanId, plan.getId())
+                .set(InterviewSession::getStagePlanJson, null);
+        session.setStagePlanId(plan.getId());
+        session.setStagePlanJson(null);
+        if (sessionMapper.update(null, updateWrapper) > 0) {
+            sessionCache.refresh(session);
+            log.info("历史会话阶段计划已迁移: sessionId={}, planId={}", session.getId(), plan.getId());
+        } else {
+            sessionCache.evict(session.getId());
+        }
+    }
+}
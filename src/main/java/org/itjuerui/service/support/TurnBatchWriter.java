@@ -0,0 +1,95 @@
+package org.itjuerui.service.support;
+
+import com.baomidou.mybatisplus.core.batch.MybatisBatch;
+import com.baomidou.mybatisplus.core.toolkit.MybatisBatchUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.infra.repo.InterviewTurnMapper;
+import org.mybatis.spring.MyBatisExceptionTranslator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 轮次批量写入
+ * 一批轮次在一个事务内写入：按会话接续当前最大序号连续分配序号，使用 BATCH 执行器一次提交整批 INSERT
+ * （MySQL 连接开启 rewriteBatchedStatements 后改写为多值 INSERT），阶段统计按批汇总累加
+ */
+@Slf4j
+@Component
+public class TurnBatchWriter {
+
+    /**
+     * 与逐条写入并发导致序号冲突或 InnoDB 间隙锁死锁时，整批重新分配序号的最多尝试次数
+     */
+    private static final int SEQ_CONFLICT_ATTEMPTS = 3;
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final InterviewTurnMapper turnMapper;
+    private final StageAnswerStatsStore stageStats;
+    private final TransactionTemplate transactionTemplate;
+    private final MyBatisExceptionTranslator exceptionTranslator;
+    private final MybatisBatch.Method<InterviewTurn> turnMethod = new MybatisBatch.Method<>(InterviewTurnMapper.class);
+
+    public TurnBatchWriter(SqlSessionFactory sqlSessionFactory, InterviewTurnMapper turnMapper,
+            StageAnswerStatsStore stageStats, TransactionTemplate transactionTemplate) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.turnMapper = turnMapper;
+        this.stageStats = stageStats;
+        this.transactionTemplate = transactionTemplate;
+        this.exceptionTranslator = new MyBatisExceptionTranslator(
+                sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(), true);
+    }
+
+
+    /**
+     * 写入一批轮次（可来自多个会话），成功后回填ID与序号
+     *
+     * @param turns 轮次，同一会话的轮次按会话内顺序排列
+     * @throws DataAccessException 写入失败，整批已回滚
+     */
+    public void write(List<InterviewTurn> turns) {
+        // 加入调用方事务时冲突已使整个事务失效，不能在其中重试
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : SEQ_CONFLICT_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(turns));
+                return;
+            } catch (DuplicateKeyException | PessimisticLockingFailureException ex) {
+                if (attempt >= attempts) {
+                    throw ex;
+                }
+                log.debug("批量写入轮次序号冲突，整批重试: count={}, attempt={}, error={}",
+                        turns.size(), attempt, ex.getClass().getSimpleName());
+            }
+        }
+    }
+
+
+    private void insert(List<InterviewTurn> turns) {
+        Map<Long, Integer> seqs = new HashMap<>();
+        for (InterviewTurn turn : turns) {
+            int seq = seqs.computeIfAbsent(turn.getSessionId(), turnMapper::selectMaxSeq) + 1;
+            seqs.put(turn.getSessionId(), seq);
+            turn.setId(null);
+            turn.setSeq(seq);
+        }
+        try {
+            // 批量会话使用当前事务的连接，由外层事务统一提交或回滚
+            MybatisBatchUtils.execute(sqlSessionFactory, turns, turnMethod.insert());
+        } catch (PersistenceException ex) {
+            DataAccessException translated = exceptionTranslator.translateExceptionIfPossible(ex);
+            throw translated != null ? translated : ex;
+        }
+        stageStats.recordAll(turns);
+    }
+}
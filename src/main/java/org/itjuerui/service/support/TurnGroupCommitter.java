@@ -0,0 +1,255 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.common.config.InterviewTurnGroupCommitProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮次组提交
+ * 并发写入的单条轮次进入队列，由一个提交线程在短时间窗口内攒成一批，经 {@link TurnBatchWriter}
+ * 一次批量插入、一次提交；调用方阻塞到所在批次提交后才返回并拿到回填的ID与序号，持久性与逐条提交相同。
+ * 批次写入失败时整批回滚，再逐条单独写入，失败只影响对应的调用方。
+ * 等待超时时仍在排队的轮次被撤回，返回 503 时轮次一定未写入；已进入写入中批次的轮次等待批次结束。
+ * 序号冲突重试耗尽时与逐条写入一样返回 409
+ * <p>
+ * 指标：interview.turn-group-commit.batch.size（每批轮次数）、interview.turn-group-commit.queued（排队轮次数）、
+ * interview.turn-group-commit.fallback（批次失败后逐条写入的次数）、interview.turn-group-commit.direct（队列已满直接写入的次数）
+ */
+@Slf4j
+@Component
+public class TurnGroupCommitter {
+
+    private final InterviewTurnGroupCommitProperties properties;
+    private final TurnBatchWriter turnBatchWriter;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<PendingTurn> queue;
+    private volatile boolean running = true;
+    private volatile Thread flusher;
+
+    public TurnGroupCommitter(InterviewTurnGroupCommitProperties properties, TurnBatchWriter turnBatchWriter,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.turnBatchWriter = turnBatchWriter;
+        this.meterRegistry = meterRegistry;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.batchSizes = DistributionSummary.builder("interview.turn-group-commit.batch.size")
+                .description("组提交每批写入的轮次数")
+                .register(meterRegistry);
+
+        Gauge.builder("interview.turn-group-commit.queued", queue, BlockingQueue::size)
+                .description("等待组提交的轮次数")
+                .register(meterRegistry);
+    }
+
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+
+    /**
+     * 写入一条轮次（含阶段统计），阻塞到所在批次提交后返回；不得在已开启的事务内调用
+     *
+     * @param turn 待写入的轮次，返回时已回填ID与序号
+     */
+    public void insert(InterviewTurn turn) {
+        ensureStarted();
+        PendingTurn pending = new PendingTurn(turn);
+        if (!running || !queue.offer(pending)) {
+            writeDirectly(turn);
+            return;
+        }
+        // 入队时提交线程可能恰好退出：撤回成功则直接写入，否则已由提交线程取走
+        if (!running && withdraw(pending)) {
+            writeDirectly(turn);
+            return;
+        }
+        try {
+            try {
+                pending.future.get(properties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (withdraw(pending)) {
+                    log.warn("等待组提交超时，已撤回: sessionId={}, queued={}", turn.getSessionId(), queue.size());
+                    throw new BusinessException(503, "轮次写入超时，请稍后重试");
+                }
+                // 已进入写入中的批次，等待批次结束，避免返回 503 后轮次仍被写入
+                pending.future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(503, "轮次写入被中断");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw translate(turn, cause);
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread thread = flusher;
+        if (thread == null) {
+            return;
+        }
+        try {
+            // 提交线程在队列清空后退出
+            thread.join(properties.getTimeoutMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("轮次组提交线程关闭超时: queued={}", queue.size());
+            thread.interrupt();
+        }
+    }
+
+
+    private void writeDirectly(InterviewTurn turn) {
+        meterRegistry.counter("interview.turn-group-commit.direct").increment();
+        try {
+            turnBatchWriter.write(List.of(turn));
+        } catch (RuntimeException ex) {
+            throw translate(turn, ex);
+        }
+    }
+
+
+    /**
+     * 撤回排队中的轮次；提交线程已取走时返回 false
+     */
+    private boolean withdraw(PendingTurn pending) {
+        queue.remove(pending);
+        return pending.state.compareAndSet(PendingTurn.QUEUED, PendingTurn.WITHDRAWN);
+    }
+
+
+    /**
+     * 序号冲突重试耗尽时与逐条写入一致返回 409
+     */
+    private static RuntimeException translate(InterviewTurn turn, RuntimeException ex) {
+        if (ex instanceof DuplicateKeyException || ex instanceof PessimisticLockingFailureException) {
+            log.warn("轮次序号分配冲突: sessionId={}, error={}", turn.getSessionId(), ex.getClass().getSimpleName());
+            return new BusinessException(409, "会话轮次写入冲突，请重试");
+        }
+        return ex;
+    }
+
+
+    private void ensureStarted() {
+        if (flusher != null) {
+            return;
+        }
+        synchronized (this) {
+            if (flusher == null) {
+                Thread thread = new Thread(this::runFlusher, "turn-group-commit");
+                thread.setDaemon(true);
+                thread.start();
+                flusher = thread;
+                log.info("轮次组提交已启动: windowMillis={}, maxBatchSize={}",
+                        properties.getWindowMillis(), properties.getMaxBatchSize());
+            }
+        }
+    }
+
+
+    private void runFlusher() {
+        int maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        List<PendingTurn> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTurn first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                claim(batch, first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getWindowMillis());
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTurn next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    claim(batch, next);
+                }
+            } catch (InterruptedException ex) {
+                // 关闭超时被中断：提交已取出的批次后退出
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+
+    /**
+     * 取走排队中的轮次加入批次；调用方已撤回的跳过
+     */
+    private static void claim(List<PendingTurn> batch, PendingTurn pending) {
+        if (pending.state.compareAndSet(PendingTurn.QUEUED, PendingTurn.CLAIMED)) {
+            batch.add(pending);
+        }
+    }
+
+
+    private void flush(List<PendingTurn> batch) {
+        batchSizes.record(batch.size());
+        try {
+            turnBatchWriter.write(batch.stream().map(pending -> pending.turn).toList());
+            batch.forEach(pending -> pending.future.complete(null));
+            return;
+        } catch (RuntimeException ex) {
+            log.warn("组提交批次写入失败，改为逐条写入: count={}, message={}", batch.size(), ex.getMessage());
+            meterRegistry.counter("interview.turn-group-commit.fallback").increment();
+        }
+        for (PendingTurn pending : batch) {
+            try {
+                turnBatchWriter.write(List.of(pending.turn));
+                pending.future.complete(null);
+            } catch (RuntimeException ex) {
+                pending.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+
+    /**
+     * 排队中的轮次，提交完成（或失败）时完成 future；state 决定由提交线程写入还是由调用方撤回
+     */
+    private static final class PendingTurn {
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int WITHDRAWN = 2;
+
+        private final InterviewTurn turn;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private PendingTurn(InterviewTurn turn) {
+            this.turn = turn;
+        }
+    }
+}
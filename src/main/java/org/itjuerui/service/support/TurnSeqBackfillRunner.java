@@ -0,0 +1,86 @@
+package org.itjuerui.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.infra.repo.InterviewTurnMapper;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 启动时为历史轮次回填会话内序号
+ * 逐会话按ID顺序编号，每个会话一个事务，不依赖多表 UPDATE 或窗口函数，H2 与 MySQL 通用。
+ * 在单例初始化完成、Web 服务器接收请求之前执行：新轮次按 MAX(seq) + 1 分配序号，
+ * 正常情况下历史轮次先于新轮次得到序号。
+ * 上次回填失败后会话中可能已有新写入的带序号轮次，未编号的轮次因此从会话当前最大序号之后接续编号，
+ * 不与已有序号冲突；单个会话回填失败只记录日志，不影响其他会话，也不影响启动
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TurnSeqBackfillRunner implements SmartInitializingSingleton {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final InterviewTurnMapper turnMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            int sessions = backfill();
+            if (sessions > 0) {
+                log.info("历史轮次序号回填完成: sessions={}", sessions);
+            }
+        } catch (Exception ex) {
+            log.warn("历史轮次序号回填失败: {}", ex.getMessage());
+        }
+    }
+
+
+    /**
+     * 回填所有存在未编号轮次的会话
+     *
+     * @return 回填成功的会话数
+     */
+    public int backfill() {
+        int sessions = 0;
+        long afterSessionId = 0;
+        while (true) {
+            List<Long> sessionIds = turnMapper.selectSessionIdsWithoutSeq(afterSessionId, BATCH_SIZE);
+            if (sessionIds.isEmpty()) {
+                return sessions;
+            }
+            for (Long sessionId : sessionIds) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> backfillSession(sessionId));
+                    sessions++;
+                } catch (RuntimeException ex) {
+                    log.warn("会话轮次序号回填失败: sessionId={}, error={}", sessionId, ex.getMessage());
+                }
+            }
+            afterSessionId = sessionIds.get(sessionIds.size() - 1);
+        }
+    }
+
+
+    /**
+     * 未编号轮次按ID顺序从会话当前最大序号之后接续编号
+     */
+    private void backfillSession(Long sessionId) {
+        LambdaQueryWrapper<InterviewTurn> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(InterviewTurn::getId)
+                .eq(InterviewTurn::getSessionId, sessionId)
+                .isNull(InterviewTurn::getSeq)
+                .orderByAsc(InterviewTurn::getId);
+        List<InterviewTurn> turns = turnMapper.selectList(queryWrapper);
+        int seq = turnMapper.selectMaxSeq(sessionId);
+        for (InterviewTurn turn : turns) {
+            turnMapper.updateSeqIfAbsent(turn.getId(), ++seq);
+        }
+    }
+}
@@ -21,6 +21,9 @@ CREATE TABLE IF NOT EXISTS `resume` (
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP
 );
 
+-- 已有库升级：会话表的单列 user_id 索引已被 idx_session_user_created 覆盖；
+-- H2 中索引名在 schema 内全局唯一，须在创建 resume 的同名索引之前删除，避免误删 resume 索引
+DROP INDEX IF EXISTS `idx_user_id` ON `interview_session`;
 CREATE INDEX IF NOT EXISTS `idx_user_id` ON `resume` (`user_id`);
 
 -- 面试会话表
@@ -31,6 +34,7 @@ CREATE TABLE IF NOT EXISTS `interview_session` (
     `duration_minutes` INT NOT NULL,
     `status` VARCHAR(20) NOT NULL,
     `current_stage` VARCHAR(20),
+    `stage_plan_id` VARCHAR(64),
     `stage_plan_json` VARCHAR(5000),
     `started_at` DATETIME,
     `ended_at` DATETIME,
@@ -38,14 +42,22 @@ CREATE TABLE IF NOT EXISTS `interview_session` (
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
-CREATE INDEX IF NOT EXISTS `idx_user_id` ON `interview_session` (`user_id`);
-CREATE INDEX IF NOT EXISTS `idx_resume_id` ON `interview_session` (`resume_id`);
-CREATE INDEX IF NOT EXISTS `idx_status` ON `interview_session` (`status`);
+-- 已有库升级：单列索引是下列复合索引的最左前缀，保留只会增加会话写入与状态更新的开销
+DROP INDEX IF EXISTS `idx_resume_id` ON `interview_session`;
+DROP INDEX IF EXISTS `idx_status` ON `interview_session`;
+-- 会话列表按 created_at DESC, id DESC 排序并按 (created_at, id) 游标翻页，复合索引覆盖筛选列与排序列
+CREATE INDEX IF NOT EXISTS `idx_session_user_created` ON `interview_session` (`user_id`, `created_at`, `id`);
+CREATE INDEX IF NOT EXISTS `idx_session_resume_created` ON `interview_session` (`resume_id`, `created_at`, `id`);
+CREATE INDEX IF NOT EXISTS `idx_session_status_created` ON `interview_session` (`status`, `created_at`, `id`);
+CREATE INDEX IF NOT EXISTS `idx_session_created` ON `interview_session` (`created_at`, `id`);
+-- 已有库升级：会话改为按ID引用阶段计划，stage_plan_json 仅保留给待迁移的历史会话
+ALTER TABLE `interview_session` ADD COLUMN IF NOT EXISTS `stage_plan_id` VARCHAR(64);
 
 -- 面试对话轮次表
 CREATE TABLE IF NOT EXISTS `interview_turn` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
     `session_id` BIGINT NOT NULL,
+    `seq` INT,
     `role` VARCHAR(20) NOT NULL,
     `content_text` TEXT NOT NULL,
     `stage_code` VARCHAR(30),
@@ -56,6 +68,21 @@ CREATE TABLE IF NOT EXISTS `interview_turn` (
 
 CREATE INDEX IF NOT EXISTS `idx_session_id` ON `interview_turn` (`session_id`);
 CREATE INDEX IF NOT EXISTS `idx_created_at` ON `interview_turn` (`created_at`);
+-- 已有库升级：轮次增加会话内连续序号（写入时分配），历史轮次由 TurnSeqBackfillRunner 在启动时按ID顺序逐会话回填
+ALTER TABLE `interview_turn` ADD COLUMN IF NOT EXISTS `seq` INT;
+CREATE UNIQUE INDEX IF NOT EXISTS `uk_session_seq` ON `interview_turn` (`session_id`, `seq`);
+
+-- 阶段回答统计表（候选人回答写入时增量维护，每个会话每个阶段一行；未分阶段的回答 stage_code 为空串）
+CREATE TABLE IF NOT EXISTS `stage_answer_stats` (
+    `session_id` BIGINT NOT NULL,
+    `stage_code` VARCHAR(30) NOT NULL DEFAULT '',
+    `turn_count` INT NOT NULL DEFAULT 0,
+    `total_chars` BIGINT NOT NULL DEFAULT 0,
+    `min_chars` INT NOT NULL DEFAULT 0,
+    `max_chars` INT NOT NULL DEFAULT 0,
+    `last_activity_at` DATETIME,
+    PRIMARY KEY (`session_id`, `stage_code`)
+);
 
 -- 报告表
 CREATE TABLE IF NOT EXISTS `report` (
@@ -92,3 +119,19 @@ CREATE TABLE IF NOT EXISTS `stage_mini_report` (
 );
 
 CREATE INDEX IF NOT EXISTS `idx_stage_session_id` ON `stage_mini_report` (`session_id`);
+
+-- 面试上下文摘要表（较早轮次折叠后的滚动摘要，每个会话一行）
+CREATE TABLE IF NOT EXISTS `interview_context_summary` (
+    `session_id` BIGINT PRIMARY KEY,
+    `summary_text` TEXT,
+    `summarized_turn_id` BIGINT NOT NULL DEFAULT 0,
+    `summarized_turn_count` INT NOT NULL DEFAULT 0,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- 阶段计划表（非内置计划按内容哈希去重保存，会话通过 stage_plan_id 引用）
+CREATE TABLE IF NOT EXISTS `interview_stage_plan` (
+    `id` VARCHAR(64) PRIMARY KEY,
+    `plan_json` VARCHAR(5000) NOT NULL,
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP
+);
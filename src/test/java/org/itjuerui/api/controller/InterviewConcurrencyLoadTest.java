@@ -0,0 +1,111 @@
+package org.itjuerui.api.controller;
+
+import com.alibaba.fastjson2.JSON;
+import org.itjuerui.api.dto.InterviewCreateRequest;
+import org.itjuerui.api.dto.NextQuestionResponse;
+import org.itjuerui.common.dto.ApiResponse;
+import org.itjuerui.infra.llm.LlmService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * 并发面试负载测试
+ * 连接池只有 2 个连接、LLM 延迟 600ms 时，12 个会话同时提问应全部成功且总耗时接近单次 LLM 延迟，
+ * 说明并发面试数不再受连接池大小限制（LLM 等待期间不占用连接）
+ */
+@SpringBootTest(properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+    "spring.datasource.hikari.maximum-pool-size=2",
+    "spring.datasource.hikari.connection-timeout=500",
+    "interview.prefetch.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InterviewConcurrencyLoadTest {
+
+    private static final int CONCURRENT_INTERVIEWS = 12;
+    private static final long LLM_LATENCY_MILLIS = 600;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LlmService llmService;
+
+    @Test
+    void testConcurrentInterviewsNotBoundedByPoolSize() throws Exception {
+        when(llmService.chat(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(LLM_LATENCY_MILLIS);
+            return "请介绍一下线程池的核心参数";
+        });
+
+        List<Long> sessionIds = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_INTERVIEWS; i++) {
+            sessionIds.add(createSession());
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_INTERVIEWS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        try {
+            List<Future<ApiResponse<NextQuestionResponse>>> futures = new ArrayList<>();
+            for (Long sessionId : sessionIds) {
+                futures.add(clients.submit(() -> {
+                    startGate.await();
+                    MvcResult result = mockMvc.perform(post("/api/interview/sessions/{id}/next-question", sessionId))
+                            .andReturn();
+                    return JSON.parseObject(result.getResponse().getContentAsString(),
+                            new com.alibaba.fastjson2.TypeReference<ApiResponse<NextQuestionResponse>>() {});
+                }));
+            }
+
+            long startedAt = System.currentTimeMillis();
+            startGate.countDown();
+            for (Future<ApiResponse<NextQuestionResponse>> future : futures) {
+                ApiResponse<NextQuestionResponse> response = future.get();
+                assertEquals(0, response.getCode(), response.getMessage());
+                assertNotNull(response.getData().getTurnId());
+            }
+            long elapsed = System.currentTimeMillis() - startedAt;
+
+            // 若每次 LLM 调用都占用连接，2 个连接需要 6 轮串行（约 3.6s），且部分请求会因取连接超时而失败
+            long serializedMillis = LLM_LATENCY_MILLIS * CONCURRENT_INTERVIEWS / 2;
+            assertTrue(elapsed < serializedMillis * 2 / 3,
+                    "并发提问耗时 " + elapsed + "ms，应明显小于连接池串行耗时 " + serializedMillis + "ms");
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private Long createSession() throws Exception {
+        InterviewCreateRequest request = new InterviewCreateRequest();
+        request.setResumeId(1L);
+        request.setDurationMinutes(30);
+        MvcResult result = mockMvc.perform(post("/api/interview/sessions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(request)))
+                .andReturn();
+        ApiResponse<Long> response = JSON.parseObject(result.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<Long>>() {});
+        return response.getData();
+    }
+}
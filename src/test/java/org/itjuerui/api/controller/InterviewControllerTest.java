@@ -9,39 +9,54 @@ import org.itjuerui.api.dto.TurnRequest;
 import org.itjuerui.common.dto.ApiResponse;
 import org.itjuerui.common.config.ReportAiProperties;
 import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
 import org.itjuerui.domain.interview.enums.InterviewStage;
 import org.itjuerui.domain.interview.enums.SessionStatus;
 import org.itjuerui.domain.interview.enums.TurnRole;
 import org.itjuerui.domain.report.entity.Report;
 import org.itjuerui.domain.report.entity.StageMiniReport;
 import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.repo.InterviewSessionMapper;
+import org.itjuerui.infra.repo.InterviewTurnMapper;
+import org.itjuerui.infra.repo.StageAnswerStatsMapper;
 import org.itjuerui.infra.repo.StageMiniReportMapper;
+import org.itjuerui.service.support.SessionListCursor;
+import org.itjuerui.service.support.TurnSeqBackfillRunner;
 import org.itjuerui.infra.llm.dto.Message;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
  * 面试控制器集成测试
+ * <p>
+ * 不打印请求与响应：SSE 请求启动异步后生成线程即开始写响应头，打印处理器此时遍历响应头会偶发 ConcurrentModificationException
  */
 @SpringBootTest(properties = {
     "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration"
 })
-@AutoConfigureMockMvc
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
 @ActiveProfiles("test")
 @Transactional
 class InterviewControllerTest {
@@ -57,6 +72,18 @@ class InterviewControllerTest {
 
     @Autowired
     private StageMiniReportMapper stageMiniReportMapper;
+
+    @Autowired
+    private StageAnswerStatsMapper stageAnswerStatsMapper;
+
+    @Autowired
+    private InterviewSessionMapper sessionMapper;
+
+    @Autowired
+    private InterviewTurnMapper turnMapper;
+
+    @Autowired
+    private TurnSeqBackfillRunner turnSeqBackfillRunner;
     @Test
     void testCreateSession_Success() throws Exception {
         InterviewCreateRequest request = new InterviewCreateRequest();
@@ -435,6 +462,42 @@ class InterviewControllerTest {
     }
 
 
+    @Test
+    void testSessionMutations_OnlyApplyFromExpectedState() throws Exception {
+        Mockito.when(llmService.chat(anyList())).thenReturn("请简要介绍你对 Spring Boot 的理解。");
+        Long sessionId = createSessionAndGetId(1L, 30);
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/next-question", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        InterviewSession running = sessionMapper.selectById(sessionId);
+        assertEquals(SessionStatus.RUNNING, running.getStatus());
+        assertNotNull(running.getStartedAt());
+        // 已开始的会话不会被重复开始，开始时间保持不变
+        assertEquals(0, sessionMapper.start(sessionId, running.getStartedAt().plusHours(1)));
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
+                .andExpect(status().isOk());
+        InterviewSession ended = sessionMapper.selectById(sessionId);
+        assertEquals(SessionStatus.ENDED, ended.getStatus());
+        assertEquals(running.getStartedAt(), ended.getStartedAt());
+        assertEquals(running.getStagePlanId(), ended.getStagePlanId());
+
+        // 重复结束是幂等的，基于旧状态的写入不会重新打开已结束的会话
+        mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(sessionId));
+        assertEquals(0, sessionMapper.end(sessionId, ended.getEndedAt().plusHours(1)));
+        assertEquals(0, sessionMapper.transitionStage(sessionId, running.getCurrentStage(),
+                InterviewStage.PROJECT, running.getStagePlanId()));
+
+        InterviewSession unchanged = sessionMapper.selectById(sessionId);
+        assertEquals(SessionStatus.ENDED, unchanged.getStatus());
+        assertEquals(ended.getEndedAt(), unchanged.getEndedAt());
+        assertEquals(running.getCurrentStage(), unchanged.getCurrentStage());
+    }
+
+
     @Test
     void testAdvanceStage_UpdatesCurrentStage() throws Exception {
         InterviewCreateRequest createRequest = new InterviewCreateRequest();
@@ -469,6 +532,215 @@ class InterviewControllerTest {
     }
 
 
+    @Test
+    void testStageStats_MaintainedOnWriteAndRebuiltWhenMissing() throws Exception {
+        Long sessionId = createSessionWithStageTurns();
+
+        TurnRequest interviewer = new TurnRequest();
+        interviewer.setContent("请说说 HashMap 的扩容过程。");
+        interviewer.setRole("INTERVIEWER");
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(interviewer)))
+                .andExpect(status().isOk());
+        TurnRequest candidate = new TurnRequest();
+        candidate.setContent("超过阈值时容量翻倍。");
+        candidate.setRole("CANDIDATE");
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(candidate)))
+                .andExpect(status().isOk());
+
+        int first = "我熟悉Java基础与常见集合框架。".length();
+        int second = "超过阈值时容量翻倍。".length();
+        mockMvc.perform(get("/api/interview/sessions/{id}/stats", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].stageCode").value(InterviewStage.BASICS.name()))
+                .andExpect(jsonPath("$.data[0].turnCount").value(2))
+                .andExpect(jsonPath("$.data[0].totalChars").value(first + second))
+                .andExpect(jsonPath("$.data[0].minChars").value(Math.min(first, second)))
+                .andExpect(jsonPath("$.data[0].maxChars").value(Math.max(first, second)))
+                .andExpect(jsonPath("$.data[0].lastActivityAt").exists());
+
+        // 统计表上线前的历史会话：首次读取时从对话重建
+        stageAnswerStatsMapper.delete(new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<StageAnswerStats>()
+                .eq(StageAnswerStats::getSessionId, sessionId));
+        mockMvc.perform(get("/api/interview/sessions/{id}/stats", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].turnCount").value(2))
+                .andExpect(jsonPath("$.data[0].totalChars").value(first + second));
+    }
+
+
+    @Test
+    void testTurns_SequencedAndReadByRange() throws Exception {
+        Long sessionId = createSessionWithTurns();
+        Mockito.when(llmService.chat(anyList())).thenReturn("请说说缓存穿透的应对方案。");
+        mockMvc.perform(post("/api/interview/sessions/{id}/next-question", sessionId))
+                .andExpect(status().isOk());
+        TurnRequest candidate = new TurnRequest();
+        candidate.setContent("使用布隆过滤器并缓存空值。");
+        candidate.setRole("CANDIDATE");
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(candidate)))
+                .andExpect(status().isOk());
+
+        // 会话内序号从 1 开始连续分配，详情按序号排列
+        mockMvc.perform(get("/api/interview/sessions/{id}", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.turns.length()").value(4))
+                .andExpect(jsonPath("$.data.turns[0].seq").value(1))
+                .andExpect(jsonPath("$.data.turns[2].seq").value(3))
+                .andExpect(jsonPath("$.data.turns[2].role").value("INTERVIEWER"))
+                .andExpect(jsonPath("$.data.turns[3].seq").value(4));
+
+        // 增量读取
+        mockMvc.perform(get("/api/interview/sessions/{id}/turns", sessionId).param("afterSeq", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].seq").value(3))
+                .andExpect(jsonPath("$.data[1].seq").value(4));
+
+        // 区间读取
+        mockMvc.perform(get("/api/interview/sessions/{id}/turns", sessionId)
+                        .param("afterSeq", "1")
+                        .param("toSeq", "3")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].seq").value(2));
+
+        mockMvc.perform(get("/api/interview/sessions/{id}/turns", sessionId).param("afterSeq", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+    }
+
+
+    @Test
+    void testTurnSeqBackfill_NumbersLegacyTurnsInIdOrder() throws Exception {
+        Long first = createSessionAndGetId(1L, 30);
+        Long second = createSessionAndGetId(1L, 30);
+        // 升级前写入的轮次没有序号，两个会话交替写入
+        List<Long> firstTurns = new java.util.ArrayList<>();
+        List<Long> secondTurns = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            firstTurns.add(insertLegacyTurn(first, "问题" + i));
+            secondTurns.add(insertLegacyTurn(second, "回答" + i));
+        }
+
+        assertEquals(2, turnSeqBackfillRunner.backfill());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, turnMapper.selectSeqById(firstTurns.get(i)));
+            assertEquals(i + 1, turnMapper.selectSeqById(secondTurns.get(i)));
+        }
+        assertEquals(0, turnSeqBackfillRunner.backfill());
+    }
+
+
+    @Test
+    void testTurnSeqBackfill_ContinuesAfterExistingSeq() throws Exception {
+        // 上次回填失败后会话中已写入带序号的新轮次
+        Long sessionId = createSessionAndGetId(1L, 30);
+        Long legacy = insertLegacyTurn(sessionId, "旧问题");
+        TurnRequest request = new TurnRequest();
+        request.setRole("INTERVIEWER");
+        request.setContent("新问题");
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(request)))
+                .andExpect(status().isOk());
+
+        assertEquals(1, turnSeqBackfillRunner.backfill());
+        assertEquals(2, turnMapper.selectSeqById(legacy));
+        assertEquals(2, turnMapper.selectMaxSeq(sessionId));
+    }
+
+    private Long insertLegacyTurn(Long sessionId, String content) {
+        InterviewTurn turn = new InterviewTurn();
+        turn.setSessionId(sessionId);
+        turn.setRole(TurnRole.INTERVIEWER);
+        turn.setContentText(content);
+        turn.setCreatedAt(java.time.LocalDateTime.now());
+        turnMapper.insert(turn);
+        return turn.getId();
+    }
+
+
+    @Test
+    void testImportTurns_JsonArrayReportsInvalidItems() throws Exception {
+        Long sessionId = createSessionWithStageTurns();
+        String body = "[{\"role\":\"INTERVIEWER\",\"content\":\"讲讲 volatile。\"},"
+                + "{\"role\":\"CANDIDATE\",\"content\":\"保证可见性与有序性。\"},"
+                + "{\"role\":\"HR\",\"content\":\"未知角色\"},"
+                + "{\"role\":\"CANDIDATE\",\"content\":\" \"},"
+                + "{\"role\":\"candidate\",\"content\":\"不保证原子性。\"}]";
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns/batch", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(5))
+                .andExpect(jsonPath("$.data.imported").value(3))
+                .andExpect(jsonPath("$.data.failed").value(2))
+                .andExpect(jsonPath("$.data.firstSeq").value(2))
+                .andExpect(jsonPath("$.data.lastSeq").value(4))
+                .andExpect(jsonPath("$.data.errors[0].index").value(2))
+                .andExpect(jsonPath("$.data.errors[0].message").value("无效的角色: HR"))
+                .andExpect(jsonPath("$.data.errors[1].index").value(3));
+
+        mockMvc.perform(get("/api/interview/sessions/{id}", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.turns.length()").value(4))
+                .andExpect(jsonPath("$.data.turns[3].contentText").value("不保证原子性。"))
+                .andExpect(jsonPath("$.data.turns[3].seq").value(4));
+        // 导入的候选人回答计入阶段统计
+        mockMvc.perform(get("/api/interview/sessions/{id}/stats", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].turnCount").value(3));
+    }
+
+
+    @Test
+    void testImportTurns_NdjsonAcrossBatches() throws Exception {
+        Long sessionId = createSessionAndGetId(1L, 60);
+        int lines = 1200;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String role = i % 2 == 0 ? "INTERVIEWER" : "CANDIDATE";
+            body.append("{\"role\":\"").append(role).append("\",\"content\":\"第").append(i).append("行\"}\n");
+            if (i == 10) {
+                body.append("{not json\n");
+            }
+        }
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/turns/batch", sessionId)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(lines + 1))
+                .andExpect(jsonPath("$.data.imported").value(lines))
+                .andExpect(jsonPath("$.data.errors.length()").value(1))
+                .andExpect(jsonPath("$.data.errors[0].index").value(11))
+                .andExpect(jsonPath("$.data.firstSeq").value(1))
+                .andExpect(jsonPath("$.data.lastSeq").value(lines));
+
+        // 跨批次序号连续，顺序与输入一致
+        mockMvc.perform(get("/api/interview/sessions/{id}/turns", sessionId)
+                        .param("afterSeq", "499")
+                        .param("toSeq", "501"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].contentText").value("第499行"))
+                .andExpect(jsonPath("$.data[1].contentText").value("第500行"));
+        mockMvc.perform(get("/api/interview/sessions/{id}/stats", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].turnCount").value(lines / 2));
+    }
+
+
     @Test
     void testAdvanceStage_GeneratesStageMiniReport() throws Exception {
         Long sessionId = createSessionWithStageTurns();
@@ -613,6 +885,48 @@ class InterviewControllerTest {
         assertFalse(detailResponse2.getData().getTurns().get(lastIndex).getContentText().isEmpty());
     }
 
+    @Test
+    void testGetNextQuestion_SameIdempotencyKey_ReturnsSameTurn() throws Exception {
+        Mockito.when(llmService.chat(anyList())).thenReturn("请解释 Java 中的 JVM 内存模型。", "说说你对 GC 调优的理解。");
+        InterviewCreateRequest createRequest = new InterviewCreateRequest();
+        createRequest.setResumeId(1L);
+        createRequest.setDurationMinutes(30);
+
+        MvcResult createResult = mockMvc.perform(post("/api/interview/sessions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(createRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        ApiResponse<Long> createResponse = JSON.parseObject(createResult.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<Long>>() {});
+        Long sessionId = createResponse.getData();
+
+        String idempotencyKey = "retry-" + sessionId;
+        MvcResult firstResult = mockMvc.perform(post("/api/interview/sessions/{id}/next-question", sessionId)
+                        .header("Idempotency-Key", idempotencyKey))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult retryResult = mockMvc.perform(post("/api/interview/sessions/{id}/next-question", sessionId)
+                        .header("Idempotency-Key", idempotencyKey))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ApiResponse<NextQuestionResponse> first = JSON.parseObject(firstResult.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<NextQuestionResponse>>() {});
+        ApiResponse<NextQuestionResponse> retry = JSON.parseObject(retryResult.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<NextQuestionResponse>>() {});
+        assertEquals(first.getData().getTurnId(), retry.getData().getTurnId());
+        assertEquals("请解释 Java 中的 JVM 内存模型。", retry.getData().getQuestion());
+        Mockito.verify(llmService, Mockito.times(1)).chat(anyList());
+
+        MvcResult detailResult = mockMvc.perform(get("/api/interview/sessions/{id}", sessionId))
+                .andExpect(status().isOk())
+                .andReturn();
+        ApiResponse<SessionDetailResponse> detail = JSON.parseObject(detailResult.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<SessionDetailResponse>>() {});
+        assertEquals(1, detail.getData().getTurns().size());
+    }
+
     @Test
     void testGetSessionList_WithPagination() throws Exception {
         // 创建多个会话用于测试分页
@@ -751,6 +1065,87 @@ class InterviewControllerTest {
     /**
      * 辅助方法：创建会话并返回会话ID
      */
+    @Test
+    void testGetSessionList_WithCursor() throws Exception {
+        // 同一简历下创建 5 个会话（created_at 可能相同，依赖 id 作为次序）
+        Long resumeId = 9001L;
+        List<Long> created = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createSessionAndGetId(resumeId, 30));
+        }
+
+        // 首页：页码模式，同时返回 nextCursor
+        SessionListResponse first = listSessions(resumeId, null, "true");
+        assertEquals(5L, first.getTotal());
+        assertTrue(first.getHasMore());
+        assertNotNull(first.getNextCursor());
+
+        // 后续页：游标模式，未指定 withTotal 时不统计总数
+        List<Long> seen = new java.util.ArrayList<>(first.getSessions().stream().map(InterviewSession::getId).toList());
+        String cursor = first.getNextCursor();
+        while (cursor != null) {
+            SessionListResponse next = listSessions(resumeId, cursor, null);
+            assertNull(next.getTotal());
+            assertNull(next.getPage());
+            assertTrue(next.getSessions().size() <= 2);
+            next.getSessions().forEach(session -> seen.add(session.getId()));
+            cursor = next.getNextCursor();
+            assertEquals(cursor != null, next.getHasMore());
+        }
+
+        // 不重复、不遗漏，按创建时间/ID 倒序
+        List<Long> expected = new java.util.ArrayList<>(created);
+        java.util.Collections.reverse(expected);
+        assertEquals(expected, seen);
+
+        // 游标模式显式要求时仍统计总数
+        assertEquals(5L, listSessions(resumeId, first.getNextCursor(), "true").getTotal());
+
+        // 非法游标
+        mockMvc.perform(get("/api/interview/sessions").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetSessionList_SizeCapped() throws Exception {
+        Long resumeId = 9002L;
+        createSessionAndGetId(resumeId, 30);
+        String cursor = SessionListCursor.encode(sessionMapper.selectById(createSessionAndGetId(resumeId, 30)));
+
+        for (String param : List.of("cursor", "page")) {
+            var builder = get("/api/interview/sessions")
+                    .param("resumeId", resumeId.toString())
+                    .param("size", String.valueOf(Integer.MAX_VALUE));
+            if ("cursor".equals(param)) {
+                builder.param("cursor", cursor);
+            }
+            mockMvc.perform(builder)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.size").value(100));
+        }
+    }
+
+    private SessionListResponse listSessions(Long resumeId, String cursor, String withTotal) throws Exception {
+        var builder = get("/api/interview/sessions")
+                .param("resumeId", resumeId.toString())
+                .param("size", "2");
+        if (withTotal != null) {
+            builder.param("withTotal", withTotal);
+        }
+        if (cursor != null) {
+            builder.param("cursor", cursor);
+        }
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        ApiResponse<SessionListResponse> response = JSON.parseObject(
+                result.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<SessionListResponse>>() {}
+        );
+        return response.getData();
+    }
+
     private Long createSessionAndGetId(Long resumeId, Integer durationMinutes) throws Exception {
         InterviewCreateRequest request = new InterviewCreateRequest();
         request.setResumeId(resumeId);
@@ -850,7 +1245,12 @@ class InterviewControllerTest {
 
     @Test
     void testGetNextQuestionStream_ReturnsChunksAndDone() throws Exception {
-        Mockito.when(llmService.chat(anyList())).thenReturn("请分享一次你解决线上故障的经历。");
+        Mockito.when(llmService.streamChat(anyList(), any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onDelta = invocation.getArgument(1);
+            onDelta.accept("请分享一次");
+            onDelta.accept("你解决线上故障的经历。");
+            return "请分享一次你解决线上故障的经历。";
+        });
 
         InterviewCreateRequest createRequest = new InterviewCreateRequest();
         createRequest.setResumeId(1L);
@@ -885,6 +1285,46 @@ class InterviewControllerTest {
     }
 
 
+    @Test
+    void testGetNextQuestionStream_ResumesWithLastEventIdWithoutNewGeneration() throws Exception {
+        Mockito.when(llmService.streamChat(anyList(), any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onDelta = invocation.getArgument(1);
+            onDelta.accept("请分享一次");
+            onDelta.accept("你解决线上故障的经历。");
+            return "请分享一次你解决线上故障的经历。";
+        });
+        Long sessionId = createSessionAndGetId(1L, 30);
+
+        MvcResult streamResult = mockMvc.perform(get("/api/interview/sessions/{id}/next-question/stream", sessionId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = mockMvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // 模拟客户端只收到前 5 个字符后断线（增量可能被合并发送，按事件ID中的流ID构造断点）
+        String eventId = content.lines()
+                .filter(line -> line.startsWith("id: "))
+                .findFirst()
+                .map(line -> line.substring("id: ".length()))
+                .orElseThrow();
+        String firstEventId = eventId.substring(0, eventId.lastIndexOf(':') + 1) + "请分享一次".length();
+
+        MvcResult resumeResult = mockMvc.perform(get("/api/interview/sessions/{id}/next-question/stream", sessionId)
+                        .header("Last-Event-ID", firstEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String resumed = mockMvc.perform(asyncDispatch(resumeResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(resumed.contains("data: 你解决线上故障的经历。"));
+        assertFalse(resumed.contains("data: 请分享一次"));
+        assertTrue(resumed.contains("event: done"));
+        Mockito.verify(llmService, Mockito.times(1)).streamChat(anyList(), any(), any());
+    }
+
+
     @Test
     void testGetNextQuestionStream_WhenSessionEnded_ReturnsErrorEvent() throws Exception {
         InterviewCreateRequest createRequest = new InterviewCreateRequest();
@@ -921,6 +1361,89 @@ class InterviewControllerTest {
     }
 
 
+    // 追问在后台线程的独立事务中写入，回答需先提交，追问才能分配到其后的序号
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testStreamAnswer_PersistsAnswerAndStreamsFollowUp() throws Exception {
+        Mockito.when(llmService.streamChat(anyList(), any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onDelta = invocation.getArgument(1);
+            onDelta.accept("那么 ConcurrentHashMap ");
+            onDelta.accept("是如何保证线程安全的？");
+            return "那么 ConcurrentHashMap 是如何保证线程安全的？";
+        });
+        Long sessionId = createSessionAndGetId(1L, 30);
+
+        MvcResult streamResult = mockMvc.perform(post("/api/interview/sessions/{id}/answer/stream", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"HashMap 底层是数组加链表/红黑树\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+
+        String content = asyncResult.getResponse().getContentAsString();
+        assertTrue(content.contains("event: chunk"));
+        assertTrue(content.contains("event: done"));
+        assertTrue(content.contains("\"answerTurnId\""));
+        assertTrue(content.contains("\"turnId\""));
+
+        MvcResult detailResult = mockMvc.perform(get("/api/interview/sessions/{id}", sessionId))
+                .andExpect(status().isOk())
+                .andReturn();
+        ApiResponse<SessionDetailResponse> detailResponse = JSON.parseObject(
+                detailResult.getResponse().getContentAsString(),
+                new com.alibaba.fastjson2.TypeReference<ApiResponse<SessionDetailResponse>>() {}
+        );
+        assertEquals(TurnRole.CANDIDATE, detailResponse.getData().getTurns().get(0).getRole());
+        assertEquals("HashMap 底层是数组加链表/红黑树", detailResponse.getData().getTurns().get(0).getContentText());
+    }
+
+
+    @Test
+    void testStreamAnswer_WhenSessionEnded_ReturnsErrorEvent() throws Exception {
+        Long sessionId = createSessionAndGetId(1L, 30);
+        mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
+                .andExpect(status().isOk());
+
+        MvcResult streamResult = mockMvc.perform(post("/api/interview/sessions/{id}/answer/stream", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"我的回答\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String content = asyncResult.getResponse().getContentAsString();
+        assertTrue(content.contains("event: error"));
+        assertFalse(content.contains("event: done"));
+    }
+
+
+    @Test
+    void testSubmitTurn_ReturnsAnswerAndFollowUpTurnIds() throws Exception {
+        Mockito.when(llmService.chat(anyList())).thenReturn("请解释一下 volatile 的内存语义。");
+        Long sessionId = createSessionAndGetId(1L, 30);
+
+        TurnRequest request = new TurnRequest();
+        request.setRole("CANDIDATE");
+        request.setContent("synchronized 可以保证可见性");
+
+        mockMvc.perform(post("/api/interview/interviews/{sessionId}/turn", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JSON.toJSONString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.answerTurnId").exists())
+                .andExpect(jsonPath("$.data.turnId").exists())
+                .andExpect(jsonPath("$.data.question").value("请解释一下 volatile 的内存语义。"));
+    }
+
+
     @Test
     void testGenerateReport_WhenSessionEnded_Success() throws Exception {
         Long sessionId = createSessionWithTurns();
@@ -988,6 +1511,47 @@ class InterviewControllerTest {
     }
 
 
+    @Test
+    void testSubmitReportJob_RuleReportVisibleImmediately() throws Exception {
+        Long sessionId = createSessionWithTurns();
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
+                .andExpect(status().isOk());
+
+        MvcResult jobResult = mockMvc.perform(post("/api/interview/sessions/{id}/report/jobs", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.jobId").exists())
+                .andExpect(jsonPath("$.data.reportId").exists())
+                .andExpect(jsonPath("$.data.events[0].type").value("rule_report_ready"))
+                .andReturn();
+        String jobId = JSON.parseObject(jobResult.getResponse().getContentAsString())
+                .getJSONObject("data").getString("jobId");
+
+        mockMvc.perform(get("/api/interview/sessions/{id}/report", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.overallScore").exists())
+                .andExpect(jsonPath("$.data.aiEnabled").value(false));
+
+        mockMvc.perform(get("/api/interview/report/jobs/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.sessionId").value(sessionId));
+    }
+
+
+    @Test
+    void testSubmitReportJob_WhenSessionNotEnded_Fails() throws Exception {
+        Long sessionId = createSessionWithTurns();
+
+        mockMvc.perform(post("/api/interview/sessions/{id}/report/jobs", sessionId))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+
+        mockMvc.perform(get("/api/interview/report/jobs/{jobId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+
     @Test
     void testGetReport_AfterGenerate() throws Exception {
         Long sessionId = createSessionWithTurns();
@@ -1052,7 +1616,7 @@ class InterviewControllerTest {
         try {
             String aiJson = "{\"summary\":\"AI 总评\",\"strengths\":[\"表达清晰\"],"
                     + "\"weaknesses\":[\"细节不足\"],\"suggestions\":[\"补充案例\"]}";
-            Mockito.when(llmService.chat(anyList())).thenReturn(aiJson);
+            Mockito.when(llmService.chat(anyList(), any())).thenReturn(aiJson);
 
             mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
                     .andExpect(status().isOk());
@@ -1083,7 +1647,7 @@ class InterviewControllerTest {
         reportAiProperties.setEnabled(true);
 
         try {
-            Mockito.when(llmService.chat(anyList())).thenThrow(new RuntimeException("mock error"));
+            Mockito.when(llmService.chat(anyList(), any())).thenThrow(new RuntimeException("mock error"));
 
             mockMvc.perform(post("/api/interview/sessions/{id}/end", sessionId))
                     .andExpect(status().isOk());
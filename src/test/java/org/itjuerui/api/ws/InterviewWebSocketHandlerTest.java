@@ -0,0 +1,218 @@
+package org.itjuerui.api.ws;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewExecutionProperties;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.common.config.InterviewWebSocketProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.enums.InterviewStage;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.itjuerui.service.InterviewService;
+import org.itjuerui.service.QuestionStreamListener;
+import org.itjuerui.service.support.InterviewGenerationExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * 面试 WebSocket 通道测试
+ */
+class InterviewWebSocketHandlerTest {
+
+    private InterviewService interviewService;
+    private InterviewGenerationExecutor generationExecutor;
+    private InterviewWebSocketHandler handler;
+    private WebSocketSession session;
+    private final List<JSONObject> sent = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        interviewService = Mockito.mock(InterviewService.class);
+        InterviewExecutionProperties executionProperties = new InterviewExecutionProperties();
+        executionProperties.setMaxConcurrentGenerations(4);
+        generationExecutor = new InterviewGenerationExecutor(executionProperties, new LlmProperties(),
+                new InterviewPrefetchProperties(), new SimpleMeterRegistry());
+        handler = new InterviewWebSocketHandler(interviewService, generationExecutor,
+                new InterviewWebSocketProperties(), new SimpleMeterRegistry());
+
+        session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.getId()).thenReturn("conn-1");
+        Mockito.when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/interview/42"));
+        Mockito.when(session.isOpen()).thenReturn(true);
+        Mockito.doAnswer(invocation -> {
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            sent.add(JSON.parseObject((String) message.getPayload()));
+            return null;
+        }).when(session).sendMessage(any());
+
+        handler.afterConnectionEstablished(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+        generationExecutor.shutdown();
+    }
+
+    @Test
+    void testAnswerFragmentsCommittedAndFollowUpStreamed() throws Exception {
+        Mockito.when(interviewService.streamAnswer(eq(42L), any(), eq("c1"), any())).thenAnswer(invocation -> {
+            QuestionStreamListener listener = invocation.getArgument(3);
+            listener.onDelta("那 volatile ", null);
+            listener.onDelta("呢？", null);
+            InterviewTurn turn = new InterviewTurn();
+            turn.setId(8L);
+            turn.setContentText("那 volatile 呢？");
+            listener.onDone(7L, turn);
+            return (Runnable) () -> { };
+        });
+
+        receive("{\"type\":\"answer.delta\",\"text\":\"synchronized \"}");
+        receive("{\"type\":\"answer.delta\",\"text\":\"保证原子性\"}");
+        receive("{\"type\":\"answer.commit\",\"id\":\"c1\"}");
+
+        ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(interviewService).streamAnswer(eq(42L), content.capture(), eq("c1"), any());
+        assertEquals("synchronized 保证原子性", content.getValue());
+
+        assertEquals(List.of("ack", "question.delta", "question.delta", "question.done"), types());
+        JSONObject done = sent.get(3);
+        assertEquals(7L, done.getLongValue("answerTurnId"));
+        assertEquals(8L, done.getLongValue("turnId"));
+        assertEquals("那 volatile 呢？", done.getString("question"));
+    }
+
+    @Test
+    void testFragmentsKeepFlowingWhileQuestionStreams() throws Exception {
+        AtomicReference<QuestionStreamListener> pending = new AtomicReference<>();
+        Mockito.when(interviewService.streamNextQuestion(eq(42L), eq("q1"), any(QuestionStreamListener.class))).thenAnswer(invocation -> {
+            pending.set(invocation.getArgument(2));
+            return (Runnable) () -> { };
+        });
+
+        receive("{\"type\":\"question.next\",\"id\":\"q1\"}");
+        pending.get().onDelta("请介绍", null);
+        receive("{\"type\":\"answer.delta\",\"id\":\"d1\",\"text\":\"我先\"}");
+        pending.get().onDelta("一下项目", null);
+
+        // 生成未结束时提交回答被拒绝，已累计的片段保留
+        receive("{\"type\":\"answer.commit\",\"id\":\"c1\"}");
+        assertEquals(409, sent.get(sent.size() - 1).getIntValue("code"));
+
+        InterviewTurn turn = new InterviewTurn();
+        turn.setId(3L);
+        turn.setContentText("请介绍一下项目");
+        pending.get().onDone(null, turn);
+
+        Mockito.when(interviewService.streamAnswer(eq(42L), any(), eq("c2"), any())).thenReturn(() -> { });
+        receive("{\"type\":\"answer.commit\",\"id\":\"c2\"}");
+        Mockito.verify(interviewService).streamAnswer(eq(42L), eq("我先"), eq("c2"), any());
+        assertEquals(List.of("ack", "question.delta", "ack", "question.delta", "error", "question.done", "ack"),
+                types());
+    }
+
+    @Test
+    void testFailedCommitKeepsAnswerFragments() throws Exception {
+        Mockito.when(interviewService.streamAnswer(eq(42L), any(), eq("c1"), any()))
+                .thenThrow(new BusinessException(429, "当前面试请求过多，请稍后重试"));
+        Mockito.when(interviewService.streamAnswer(eq(42L), any(), eq("c2"), any())).thenAnswer(invocation -> {
+            QuestionStreamListener listener = invocation.getArgument(3);
+            listener.onError(400, "会话已结束");
+            return (Runnable) () -> { };
+        });
+        Mockito.when(interviewService.streamAnswer(eq(42L), any(), eq("c3"), any())).thenAnswer(invocation -> {
+            QuestionStreamListener listener = invocation.getArgument(3);
+            listener.onAnswerSaved(7L);
+            listener.onError(500, "LLM 调用失败");
+            return (Runnable) () -> { };
+        });
+
+        receive("{\"type\":\"answer.delta\",\"text\":\"线程池\"}");
+        receive("{\"type\":\"answer.commit\",\"id\":\"c1\"}");
+        receive("{\"type\":\"answer.delta\",\"text\":\"的核心参数\"}");
+        receive("{\"type\":\"answer.commit\",\"id\":\"c2\"}");
+        // 回答写入前失败的两次提交，片段都放回连接
+        receive("{\"type\":\"answer.commit\",\"id\":\"c3\"}");
+        receive("{\"type\":\"answer.commit\",\"id\":\"c4\"}");
+
+        Mockito.verify(interviewService).streamAnswer(eq(42L), eq("线程池"), eq("c1"), any());
+        Mockito.verify(interviewService).streamAnswer(eq(42L), eq("线程池的核心参数"), eq("c2"), any());
+        Mockito.verify(interviewService).streamAnswer(eq(42L), eq("线程池的核心参数"), eq("c3"), any());
+        // 回答已写入后失败不再放回，避免重复提交
+        assertEquals(400, sent.get(sent.size() - 1).getIntValue("code"));
+        assertEquals("回答内容不能为空", sent.get(sent.size() - 1).getString("message"));
+    }
+
+    @Test
+    void testStageAdvanceDoesNotBlockInboundMessages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(interviewService.advanceStage(42L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            InterviewSession advanced = new InterviewSession();
+            advanced.setCurrentStage(InterviewStage.PROJECT);
+            return advanced;
+        });
+
+        receive("{\"type\":\"stage.next\",\"id\":\"s1\"}");
+        // 阶段小结生成期间回答片段照常确认
+        receive("{\"type\":\"answer.delta\",\"id\":\"d1\",\"text\":\"我负责\"}");
+        assertEquals(List.of("ack", "ack"), types());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sent.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("stage.changed", sent.get(2).getString("type"));
+        assertEquals("PROJECT", sent.get(2).getString("stage"));
+    }
+
+    @Test
+    void testDisconnectLeavesActiveGeneration() throws Exception {
+        Runnable leave = Mockito.mock(Runnable.class);
+        Mockito.when(interviewService.streamNextQuestion(eq(42L), eq("q1"), any(QuestionStreamListener.class))).thenReturn(leave);
+
+        receive("{\"type\":\"question.next\",\"id\":\"q1\"}");
+        handler.afterConnectionClosed(session, org.springframework.web.socket.CloseStatus.NORMAL);
+
+        Mockito.verify(leave).run();
+    }
+
+    @Test
+    void testPingAndUnknownType() throws Exception {
+        receive("{\"type\":\"ping\",\"id\":\"p1\"}");
+        receive("{\"type\":\"foo\"}");
+        receive("not json");
+
+        assertEquals(List.of("pong", "error", "error"), types());
+        assertEquals("p1", sent.get(0).getString("id"));
+    }
+
+    private void receive(String payload) throws Exception {
+        handler.handleMessage(session, new TextMessage(payload));
+    }
+
+    private List<String> types() {
+        return sent.stream().map(message -> message.getString("type")).toList();
+    }
+}
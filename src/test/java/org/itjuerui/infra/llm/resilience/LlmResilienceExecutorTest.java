@@ -0,0 +1,217 @@
+package org.itjuerui.infra.llm.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM 弹性执行器测试：重试、熔断、并发隔离与截止时间
+ */
+class LlmResilienceExecutorTest {
+
+    private LlmProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private LlmResilienceExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        LlmProperties.ResilienceConfig config = properties.getResilience();
+        config.setDialog(new LlmProperties.PolicyConfig(3, 10, 20, 2000));
+        config.setReport(new LlmProperties.PolicyConfig(3, 10, 20, 2000));
+        config.getBreaker().setWindowSize(4);
+        config.getBreaker().setMinimumCalls(4);
+        config.getBreaker().setOpenDurationMillis(60000);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRetriesTransientFailure() {
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute("qwen", LlmCallType.REPORT, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ResourceAccessException("connection reset");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.counter("llm.retry", "provider", "qwen", "callType", "REPORT").count());
+    }
+
+    @Test
+    void testDoesNotRetryNonTransientFailure() {
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> executor.execute("qwen", LlmCallType.DIALOG, () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("API Key 未配置");
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, executor.breakerOf("qwen").getState());
+    }
+
+    @Test
+    void testBreakerOpensAndFailsFast() {
+        properties.getResilience().setDialog(new LlmProperties.PolicyConfig(1, 10, 20, 2000));
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> executor.execute("deepseek", LlmCallType.DIALOG, () -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("503");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, executor.breakerOf("deepseek").getState());
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> executor.execute("deepseek", LlmCallType.DIALOG, () -> {
+                    calls.incrementAndGet();
+                    return "ok";
+                }));
+        assertEquals(503, ex.getCode());
+        assertEquals(4, calls.get());
+        assertEquals(1.0, meterRegistry.counter("llm.breaker.rejected", "provider", "deepseek").count());
+        assertEquals(1.0, meterRegistry.get("llm.breaker.state").tag("provider", "deepseek").gauge().value());
+    }
+
+    @Test
+    void testBreakerRecoversAfterHalfOpenProbes() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("qwen", 0.5, 4, 4, 50, 2);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(80);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testBulkheadRejectsWhenFull() throws InterruptedException {
+        properties.getResilience().getBulkhead().setMaxConcurrentCalls(1);
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> executor.execute("qwen", LlmCallType.DIALOG, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }));
+        holder.start();
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> executor.execute("qwen", LlmCallType.DIALOG, () -> "fast"));
+        assertEquals(429, ex.getCode());
+        assertEquals(1.0, meterRegistry.counter("llm.bulkhead.rejected", "provider", "qwen").count());
+
+        release.countDown();
+        holder.join(2000);
+        assertEquals("fast", executor.execute("qwen", LlmCallType.DIALOG, () -> "fast"));
+    }
+
+    @Test
+    void testReportCallsDoNotTakeDialogPermits() throws InterruptedException {
+        properties.getResilience().getBulkhead().setMaxConcurrentCalls(2);
+        properties.getResilience().getBulkhead().setReportMaxConcurrentCalls(1);
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> executor.execute("qwen", LlmCallType.REPORT, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "report";
+        }));
+        holder.start();
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // 报告类许可已占满：报告调用被拒绝，对话调用不受影响
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> executor.execute("qwen", LlmCallType.REPORT, () -> "report"));
+        assertEquals(429, ex.getCode());
+        assertEquals("dialog", executor.execute("qwen", LlmCallType.DIALOG, () -> "dialog"));
+
+        release.countDown();
+        holder.join(2000);
+    }
+
+    @Test
+    void testDeadlineCancelsSlowStream() {
+        properties.getResilience().setDialog(new LlmProperties.PolicyConfig(3, 10, 20, 100));
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        LlmCancellationToken callerToken = new LlmCancellationToken();
+
+        long start = System.currentTimeMillis();
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> executor.executeStream("qwen", delta -> { }, callerToken, (onDelta, token) -> {
+                    while (!token.isCancelled()) {
+                        Thread.onSpinWait();
+                    }
+                    token.throwIfCancelled();
+                    return "never";
+                }));
+        assertEquals(504, ex.getCode());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(callerToken.isCancelled());
+    }
+
+    @Test
+    void testStreamNotRetriedAfterFirstDelta() {
+        executor = new LlmResilienceExecutor(properties, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        List<String> received = new ArrayList<>();
+
+        assertThrows(ResourceAccessException.class,
+                () -> executor.executeStream("qwen", received::add, new LlmCancellationToken(), (onDelta, token) -> {
+                    calls.incrementAndGet();
+                    onDelta.accept("部分");
+                    throw new ResourceAccessException("connection reset");
+                }));
+        assertEquals(1, calls.get());
+        assertEquals(List.of("部分"), received);
+    }
+}
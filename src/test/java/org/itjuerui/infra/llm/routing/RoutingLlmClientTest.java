@@ -0,0 +1,218 @@
+package org.itjuerui.infra.llm.routing;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.infra.llm.LlmMetrics;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.llm.http.LlmHttpTransport;
+import org.itjuerui.infra.llm.impl.DeepseekLlmClient;
+import org.itjuerui.infra.llm.impl.QwenLlmClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多 provider 路由测试
+ * 使用两个本地桩 HTTP 服务模拟 Qwen 与 DeepSeek，并注入不同的响应延迟
+ */
+class RoutingLlmClientTest {
+
+    private StubProvider qwen;
+    private StubProvider deepseek;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        qwen = new StubProvider("qwen");
+        deepseek = new StubProvider("deepseek");
+    }
+
+    @AfterEach
+    void tearDown() {
+        qwen.stop();
+        deepseek.stop();
+    }
+
+    @Test
+    void testRoutesToFasterProvider() {
+        qwen.latencyMillis = 300;
+        deepseek.latencyMillis = 20;
+        RoutingLlmClient router = buildRouter(false);
+
+        for (int i = 0; i < 5; i++) {
+            router.chat(prompt());
+        }
+        String answer = router.chat(prompt());
+
+        assertEquals("deepseek answer", answer);
+        assertEquals(1, qwen.requests.get());
+        assertEquals("DeepSeek", router.snapshot(ProviderStats.Kind.DIALOG).get(0).getProvider());
+        router.shutdown();
+    }
+
+    @Test
+    void testBlockingLatencyDoesNotAffectStreamRanking() {
+        qwen.latencyMillis = 300;
+        deepseek.latencyMillis = 20;
+        RoutingLlmClient router = buildRouter(false);
+
+        for (int i = 0; i < 3; i++) {
+            router.chat(prompt());
+        }
+
+        // 完整响应耗时只计入非流式口径，流式调用仍按首个增量耗时评分
+        assertTrue(router.snapshot(ProviderStats.Kind.FIRST_DELTA).stream().allMatch(s -> s.getSamples() == 0));
+        assertEquals("qwen answer", router.streamChat(prompt(), delta -> { }));
+        assertEquals(1, router.snapshot(ProviderStats.Kind.FIRST_DELTA).stream()
+                .mapToLong(ProviderStats::getSamples).sum());
+        router.shutdown();
+    }
+
+    @Test
+    void testRoutesAwayFromFailingProvider() {
+        qwen.latencyMillis = 10;
+        qwen.failing = true;
+        deepseek.latencyMillis = 50;
+        RoutingLlmClient router = buildRouter(false);
+
+        assertThrows(RuntimeException.class, () -> router.chat(prompt()));
+        assertEquals("deepseek answer", router.chat(prompt()));
+        assertEquals("deepseek answer", router.chat(prompt()));
+        assertEquals(1, qwen.requests.get());
+        router.shutdown();
+    }
+
+    @Test
+    void testHedgedRequestReturnsFirstAnswer() {
+        qwen.latencyMillis = 2000;
+        deepseek.latencyMillis = 50;
+        RoutingLlmClient router = buildRouter(true);
+
+        long start = System.currentTimeMillis();
+        String answer = router.chat(prompt());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("deepseek answer", answer);
+        assertTrue(elapsed < 1500, "对冲请求应在首选 provider 返回前完成, elapsed=" + elapsed);
+        assertEquals(1, qwen.requests.get());
+        assertEquals(1, deepseek.requests.get());
+        router.shutdown();
+    }
+
+    @Test
+    void testHedgedStreamForwardsOnlyWinnerDeltas() {
+        qwen.latencyMillis = 20;
+        deepseek.latencyMillis = 20;
+        RoutingLlmClient router = buildRouter(true);
+
+        StringBuilder received = new StringBuilder();
+        String answer = router.streamChat(prompt(), received::append);
+
+        assertEquals("qwen answer", answer);
+        assertEquals("qwen answer", received.toString());
+        assertEquals(0, deepseek.requests.get());
+        router.shutdown();
+    }
+
+    private RoutingLlmClient buildRouter(boolean hedge) {
+        LlmProperties properties = new LlmProperties();
+        properties.setProvider("qwen");
+        properties.getQwen().setApiKey("test-key");
+        properties.getQwen().setBaseUrl(qwen.baseUrl());
+        properties.getQwen().setModel("qwen-test");
+        properties.getDeepseek().setApiKey("test-key");
+        properties.getDeepseek().setBaseUrl(deepseek.baseUrl());
+        properties.getDeepseek().setModel("deepseek-test");
+        properties.getHttp().setWarmupEnabled(false);
+        properties.getRouting().setEnabled(true);
+        properties.getRouting().setExploreRatio(0);
+        properties.getRouting().setHedgeEnabled(hedge);
+        properties.getRouting().setHedgeMinDelayMillis(100);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmHttpTransport transport = new LlmHttpTransport(properties, registry);
+        LlmMetrics metrics = new LlmMetrics(registry);
+        return new RoutingLlmClient(List.of(
+                new DeepseekLlmClient(properties, transport, metrics),
+                new QwenLlmClient(properties, transport, metrics)), properties, registry);
+    }
+
+    private List<Message> prompt() {
+        return List.of(new Message("user", "请提出一道面试题"));
+    }
+
+    /**
+     * OpenAI 兼容协议的桩服务
+     */
+    private static final class StubProvider {
+        private final String name;
+        private final HttpServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile long latencyMillis;
+        private volatile boolean failing;
+
+        private StubProvider(String name) throws IOException {
+            this.name = name;
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            this.server.setExecutor(Executors.newCachedThreadPool());
+            this.server.createContext("/chat/completions", exchange -> {
+                requests.incrementAndGet();
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                sleep(latencyMillis);
+                if (failing) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                String answer = name + " answer";
+                try (OutputStream out = exchange.getResponseBody()) {
+                    if (body.contains("\"stream\":true")) {
+                        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                        exchange.sendResponseHeaders(200, 0);
+                        for (String part : new String[]{name, " answer"}) {
+                            out.write(("data: {\"choices\":[{\"delta\":{\"content\":\"" + part + "\"}}]}\n\n")
+                                    .getBytes(StandardCharsets.UTF_8));
+                            out.flush();
+                        }
+                        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        byte[] json = ("{\"choices\":[{\"message\":{\"content\":\"" + answer + "\"}}]}")
+                                .getBytes(StandardCharsets.UTF_8);
+                        exchange.getResponseHeaders().add("Content-Type", "application/json");
+                        exchange.sendResponseHeaders(200, json.length);
+                        out.write(json);
+                    }
+                } catch (IOException ex) {
+                    // 客户端取消请求时连接被关闭
+                }
+            });
+            this.server.start();
+        }
+
+        private String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.itjuerui.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.api.dto.ReportJobEvent;
+import org.itjuerui.api.dto.ReportJobResponse;
+import org.itjuerui.common.config.InterviewSseProperties;
+import org.itjuerui.common.config.ReportJobProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.report.entity.Report;
+import org.itjuerui.domain.report.enums.ReportJobStatus;
+import org.itjuerui.service.ReportService;
+import org.itjuerui.service.support.ReportJob;
+import org.itjuerui.service.support.SseStreamWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 报告生成任务测试
+ */
+class ReportJobServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReportService reportService;
+    private SseStreamWriter sseStreamWriter;
+    private ReportJobServiceImpl jobService;
+
+    @BeforeEach
+    void setUp() {
+        reportService = Mockito.mock(ReportService.class);
+        Mockito.when(reportService.generateRuleReport(1L)).thenReturn(report(10L, false));
+        Mockito.when(reportService.completeStageMiniReports(1L)).thenReturn(List.of());
+        sseStreamWriter = new SseStreamWriter(new InterviewSseProperties(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (jobService != null) {
+            jobService.shutdown();
+        }
+        sseStreamWriter.shutdown();
+    }
+
+    @Test
+    void testRuleReportReadyOnSubmitAndPolishInBackground() throws Exception {
+        jobService = newJobService(1, 10);
+        Mockito.when(reportService.generateReport(1L)).thenReturn(report(10L, true));
+
+        ReportJobResponse submitted = jobService.submit(1L);
+        assertEquals(10L, submitted.getReportId());
+        assertEquals("rule_report_ready", submitted.getEvents().get(0).getType());
+
+        ReportJobResponse finished = awaitFinished(submitted.getJobId());
+        assertEquals(ReportJobStatus.SUCCEEDED, finished.getStatus());
+        assertEquals(List.of("rule_report_ready", "stage_summaries_ready", "ai_polish_done", "completed"),
+                types(finished.getEvents()));
+        assertEquals(Boolean.TRUE, finished.getEvents().get(2).getData().get("aiEnabled"));
+    }
+
+    @Test
+    void testSubmitDeduplicatedWhileJobActive() throws Exception {
+        jobService = newJobService(1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(reportService.generateReport(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return report(10L, false);
+        });
+
+        ReportJobResponse first = jobService.submit(1L);
+        ReportJobResponse second = jobService.submit(1L);
+        assertEquals(first.getJobId(), second.getJobId());
+        Mockito.verify(reportService, Mockito.times(1)).generateRuleReport(1L);
+
+        release.countDown();
+        awaitFinished(first.getJobId());
+        assertNotEquals(first.getJobId(), jobService.submit(1L).getJobId());
+    }
+
+    @Test
+    void testSubmitRejectedWhenQueueFull() throws Exception {
+        jobService = newJobService(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        for (long sessionId = 2; sessionId <= 4; sessionId++) {
+            Mockito.when(reportService.generateRuleReport(sessionId)).thenReturn(report(sessionId, false));
+            Mockito.when(reportService.completeStageMiniReports(sessionId)).thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return List.of();
+            });
+            Mockito.when(reportService.generateReport(sessionId)).thenReturn(report(sessionId, false));
+        }
+
+        jobService.submit(2L);
+        jobService.submit(3L);
+        BusinessException ex = assertThrows(BusinessException.class, () -> jobService.submit(4L));
+        assertEquals(429, ex.getCode());
+        release.countDown();
+    }
+
+    @Test
+    void testBackgroundFailureKeepsRuleReport() throws Exception {
+        jobService = newJobService(1, 10);
+        Mockito.when(reportService.generateReport(1L)).thenThrow(new BusinessException(409, "会话内容已变化，请重新生成报告"));
+
+        ReportJobResponse finished = awaitFinished(jobService.submit(1L).getJobId());
+        assertEquals(ReportJobStatus.FAILED, finished.getStatus());
+        assertEquals(10L, finished.getReportId());
+        assertEquals("会话内容已变化，请重新生成报告", finished.getError());
+    }
+
+    @Test
+    void testSubscribeReplaysAfterLastEventIdThenReceivesLiveEvents() {
+        ReportJob job = new ReportJob(1L);
+        job.ruleReportReady(10L, 70);
+        job.start();
+        job.emit("stage_summaries_ready", Map.of("count", 2));
+
+        List<String> received = new ArrayList<>();
+        boolean finished = job.subscribe(1, event -> received.add(event.getId() + ":" + event.getType()));
+        assertFalse(finished);
+        job.emit("ai_polish_done", Map.of("aiEnabled", false));
+        job.succeed(10L);
+
+        assertEquals(List.of("2:stage_summaries_ready", "3:ai_polish_done", "4:completed"), received);
+        assertTrue(job.subscribe(4, event -> fail("已结束的任务不应再推送")));
+    }
+
+    @Test
+    void testUnknownJob() {
+        jobService = newJobService(1, 10);
+        BusinessException ex = assertThrows(BusinessException.class, () -> jobService.getJob("missing"));
+        assertEquals(404, ex.getCode());
+    }
+
+    private ReportJobServiceImpl newJobService(int workers, int queueCapacity) {
+        ReportJobProperties properties = new ReportJobProperties();
+        properties.setWorkers(workers);
+        properties.setQueueCapacity(queueCapacity);
+        return new ReportJobServiceImpl(reportService, properties, sseStreamWriter, meterRegistry);
+    }
+
+    private ReportJobResponse awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ReportJobResponse response = jobService.getJob(jobId);
+        while (!response.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            response = jobService.getJob(jobId);
+        }
+        assertTrue(response.getStatus().isFinished());
+        return response;
+    }
+
+    private static Report report(Long id, boolean aiEnabled) {
+        Report report = new Report();
+        report.setId(id);
+        report.setOverallScore(70);
+        report.setAiEnabled(aiEnabled);
+        return report;
+    }
+
+    private static List<String> types(List<ReportJobEvent> events) {
+        return events.stream().map(ReportJobEvent::getType).toList();
+    }
+}
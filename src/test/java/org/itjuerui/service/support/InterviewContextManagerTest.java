@@ -0,0 +1,117 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewContextProperties;
+import org.itjuerui.domain.interview.entity.InterviewContextSummary;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.enums.TurnRole;
+import org.itjuerui.infra.llm.LlmCallType;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.llm.LlmTokenEstimator;
+import org.itjuerui.infra.llm.dto.Message;
+import org.itjuerui.infra.repo.InterviewContextSummaryMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 面试上下文窗口管理测试
+ */
+class InterviewContextManagerTest {
+
+    private InterviewContextProperties properties;
+    private InterviewContextSummaryMapper summaryMapper;
+    private LlmService llmService;
+    private InterviewContextManager contextManager;
+
+    @BeforeEach
+    void setUp() {
+        properties = new InterviewContextProperties();
+        properties.setRecentTurns(6);
+        properties.setDialogTokenBudget(1500);
+        summaryMapper = mock(InterviewContextSummaryMapper.class);
+        llmService = mock(LlmService.class);
+        contextManager = new InterviewContextManager(properties, summaryMapper, llmService, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        contextManager.shutdown();
+    }
+
+    @Test
+    void testHistoryStaysBoundedForLongInterview() {
+        when(llmService.chat(anyList(), any())).thenReturn("候选人熟悉集合与并发，JVM 调优经验不足。");
+
+        List<InterviewTurn> turns = buildTurns(200, 120);
+        String history = contextManager.buildHistory(1L, turns, 1000);
+
+        assertTrue(LlmTokenEstimator.estimate(history) <= 1000);
+        assertTrue(history.contains("第199轮"));
+        assertTrue(history.contains("已省略"));
+        verify(llmService, timeout(2000)).chat(anyList(), eq(LlmCallType.REPORT));
+        verify(summaryMapper, timeout(2000)).insert(any(InterviewContextSummary.class));
+    }
+
+    @Test
+    void testSummaryReplacesFoldedTurns() {
+        InterviewContextSummary summary = new InterviewContextSummary();
+        summary.setSessionId(1L);
+        summary.setSummaryText("已考察集合框架，候选人回答较好。");
+        summary.setSummarizedTurnId(10L);
+        summary.setSummarizedTurnCount(10);
+        when(summaryMapper.selectById(1L)).thenReturn(summary);
+
+        String history = contextManager.buildHistory(1L, buildTurns(16, 10), 1000);
+
+        assertTrue(history.startsWith("此前对话摘要：已考察集合框架"));
+        assertFalse(history.contains("第1轮"));
+        assertTrue(history.contains("第11轮"));
+        assertFalse(history.contains("已省略"));
+        verifyNoInteractions(llmService);
+    }
+
+    @Test
+    void testShortInterviewKeepsAllTurns() {
+        String history = contextManager.buildHistory(1L, buildTurns(4, 10), 1000);
+
+        assertTrue(history.startsWith("历史对话如下："));
+        assertTrue(history.contains("第1轮"));
+        verifyNoInteractions(summaryMapper, llmService);
+    }
+
+    @Test
+    void testEnforceBudgetTruncatesLastMessage() {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system", "你是面试官"));
+        messages.add(new Message("user", "很长的回答".repeat(1000)));
+
+        contextManager.enforceBudget(messages, LlmCallType.DIALOG);
+
+        assertTrue(LlmTokenEstimator.estimate(messages) <= properties.getDialogTokenBudget());
+        assertEquals("你是面试官", messages.get(0).getContent());
+    }
+
+    private List<InterviewTurn> buildTurns(int count, int answerLength) {
+        List<InterviewTurn> turns = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            InterviewTurn turn = new InterviewTurn();
+            turn.setId((long) i);
+            turn.setSessionId(1L);
+            turn.setRole(i % 2 == 1 ? TurnRole.INTERVIEWER : TurnRole.CANDIDATE);
+            turn.setContentText("第" + i + "轮" + "内容".repeat(answerLength / 2));
+            turns.add(turn);
+        }
+        return turns;
+    }
+}
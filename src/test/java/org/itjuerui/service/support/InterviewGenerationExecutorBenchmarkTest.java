@@ -0,0 +1,209 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewExecutionProperties;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式生成执行基准测试：对比原无界缓存线程池与有界准入执行器在 1k/5k 并发流下的线程数、内存与吞吐
+ * 默认不运行，执行方式：mvn test -Pbenchmark
+ * <p>
+ * 每个流模拟一次上游 LLM 流式调用：20 段增量，每段间隔 25ms（约 500ms）。
+ * 无界线程池完成全部流，与有界执行器的工作量不同，只用于观察线程数随并发增长；
+ * 吞吐对比使用同一准入上限下的缓存线程池，被拒绝的流单独统计，不计入吞吐
+ */
+@Tag("benchmark")
+class InterviewGenerationExecutorBenchmarkTest {
+
+    private static final int DELTAS = 20;
+    private static final long DELTA_INTERVAL_MILLIS = 25;
+    private static final int ADMISSION_LIMIT = 256;
+
+    @Test
+    void compareAt1kStreams() throws InterruptedException {
+        compare(1000);
+    }
+
+    @Test
+    void compareAt5kStreams() throws InterruptedException {
+        compare(5000);
+    }
+
+    private void compare(int streams) throws InterruptedException {
+        Result unbounded = runOnCachedPool("cached-pool", streams, false);
+        Result admitted = runOnCachedPool("cached-admitted", streams, true);
+
+        InterviewExecutionProperties properties = new InterviewExecutionProperties();
+        properties.setMaxConcurrentGenerations(ADMISSION_LIMIT);
+        LlmProperties llmProperties = new LlmProperties();
+        llmProperties.getResilience().getBulkhead().setMaxConcurrentCalls(
+                ADMISSION_LIMIT + llmProperties.getResilience().getBulkhead().getReportMaxConcurrentCalls());
+        InterviewPrefetchProperties prefetchProperties = new InterviewPrefetchProperties();
+        prefetchProperties.setEnabled(false);
+        InterviewGenerationExecutor executor = new InterviewGenerationExecutor(properties, llmProperties,
+                prefetchProperties, new SimpleMeterRegistry());
+        Result bounded;
+        try {
+            bounded = run(executor.isVirtual() ? "bounded-virtual" : "bounded-platform", streams, executor::submit);
+        } finally {
+            executor.shutdown();
+        }
+
+        System.out.printf("%nconcurrent streams=%d, admission limit=%d%n", streams, ADMISSION_LIMIT);
+        System.out.println(Result.HEADER);
+        System.out.println(unbounded + "  (all streams admitted, not comparable)");
+        System.out.println(admitted);
+        System.out.println(bounded);
+
+        assertEquals(streams, unbounded.completed);
+        assertEquals(streams, admitted.completed + admitted.rejected);
+        assertEquals(streams, bounded.completed + bounded.rejected);
+        // 有界执行器的线程数不随并发流数增长
+        if (!executor.isVirtual()) {
+            assertTrue(bounded.peakThreads - bounded.baseThreads <= ADMISSION_LIMIT + 4);
+        }
+    }
+
+    private Result runOnCachedPool(String name, int streams, boolean admission) throws InterruptedException {
+        // 每次使用新的线程池，避免上一轮的空闲线程计入线程数
+        ExecutorService cachedPool = Executors.newCachedThreadPool();
+        try {
+            return run(name, streams, admission ? admitted(cachedPool) : cachedPool::execute);
+        } finally {
+            cachedPool.shutdownNow();
+            assertTrue(cachedPool.awaitTermination(30, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 缓存线程池加同样的准入上限，与有界执行器处理相同的已准入负载
+     */
+    private static Consumer<Runnable> admitted(ExecutorService pool) {
+        Semaphore admission = new Semaphore(ADMISSION_LIMIT);
+        return task -> {
+            if (!admission.tryAcquire()) {
+                throw new BusinessException(429, "当前面试请求过多，请稍后重试");
+            }
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    admission.release();
+                }
+            });
+        };
+    }
+
+    private Result run(String name, int streams, Consumer<Runnable> submitter) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        int baseThreads = threads.getThreadCount();
+        long baseHeap = memory.getHeapMemoryUsage().getUsed();
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger peakThreads = new AtomicInteger(baseThreads);
+        AtomicInteger peakHeapMb = new AtomicInteger();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+                long heapMb = (memory.getHeapMemoryUsage().getUsed() - baseHeap) >> 20;
+                peakHeapMb.accumulateAndGet((int) heapMb, Math::max);
+                sleepQuietly(5);
+            }
+        });
+        sampler.start();
+
+        CountDownLatch finished = new CountDownLatch(streams);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < streams; i++) {
+            try {
+                submitter.accept(() -> {
+                    try {
+                        simulateStream();
+                        completed.incrementAndGet();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            } catch (BusinessException ex) {
+                rejected.incrementAndGet();
+                finished.countDown();
+            }
+        }
+        assertTrue(finished.await(5, TimeUnit.MINUTES));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        sampling.set(false);
+        sampler.join();
+
+        return new Result(name, baseThreads, peakThreads.get(), peakHeapMb.get(), completed.get(), rejected.get(),
+                elapsedMillis);
+    }
+
+    private static void simulateStream() {
+        StringBuilder question = new StringBuilder();
+        for (int i = 0; i < DELTAS; i++) {
+            sleepQuietly(DELTA_INTERVAL_MILLIS);
+            question.append("增量").append(i);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Result {
+        private static final String HEADER = String.format("%-18s %10s %12s %10s %10s %10s %12s",
+                "executor", "peakThreads", "peakHeapMB", "completed", "rejected", "elapsedMs", "completed/s");
+
+        private final String name;
+        private final int baseThreads;
+        private final int peakThreads;
+        private final int peakHeapMb;
+        private final int completed;
+        private final int rejected;
+        private final long elapsedMillis;
+
+        private Result(String name, int baseThreads, int peakThreads, int peakHeapMb, int completed, int rejected,
+                long elapsedMillis) {
+            this.name = name;
+            this.baseThreads = baseThreads;
+            this.peakThreads = peakThreads;
+            this.peakHeapMb = peakHeapMb;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            double throughput = elapsedMillis == 0 ? 0 : completed * 1000.0 / elapsedMillis;
+            return String.format("%-18s %10d %12d %10d %10d %10d %12.1f",
+                    name, peakThreads, peakHeapMb, completed, rejected, elapsedMillis, throughput);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewExecutionProperties;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 问题生成执行器测试
+ */
+class InterviewGenerationExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private InterviewGenerationExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        InterviewExecutionProperties properties = new InterviewExecutionProperties();
+        properties.setMaxConcurrentGenerations(2);
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new InterviewGenerationExecutor(properties, new LlmProperties(), new InterviewPrefetchProperties(),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testRejectsBeyondLimitWithoutQueueing() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.submit(() -> {
+                running.countDown();
+                awaitQuietly(release);
+            });
+        }
+        assertTrue(running.await(2, TimeUnit.SECONDS));
+
+        BusinessException streamRejected = assertThrows(BusinessException.class, () -> executor.submit(() -> { }));
+        assertEquals(429, streamRejected.getCode());
+        BusinessException callRejected = assertThrows(BusinessException.class, () -> executor.call(() -> "问题"));
+        assertEquals(429, callRejected.getCode());
+        assertEquals(2.0, meterRegistry.counter("interview.generation.rejected").count());
+        assertEquals(2.0, meterRegistry.get("interview.generation.active").gauge().value());
+
+        release.countDown();
+    }
+
+    @Test
+    void testPermitReleasedAfterGeneration() throws InterruptedException {
+        assertEquals("问题", executor.call(() -> "问题"));
+        assertThrows(IllegalStateException.class, () -> executor.call(() -> {
+            throw new IllegalStateException("LLM 调用失败");
+        }));
+
+        CountDownLatch done = new CountDownLatch(2);
+        executor.submit(done::countDown);
+        executor.submit(done::countDown);
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.get("interview.generation.active").gauge().value() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // 许可全部归还后可再次占满上限
+        assertEquals("问题", executor.call(() -> executor.call(() -> "问题")));
+        assertEquals(0.0, meterRegistry.counter("interview.generation.rejected").count());
+    }
+
+    @Test
+    void testLimitFitsWithinLlmBulkhead() {
+        InterviewExecutionProperties properties = new InterviewExecutionProperties();
+        LlmProperties llmProperties = new LlmProperties();
+        llmProperties.getResilience().getBulkhead().setMaxConcurrentCalls(64);
+        llmProperties.getResilience().getBulkhead().setReportMaxConcurrentCalls(16);
+        InterviewPrefetchProperties prefetchProperties = new InterviewPrefetchProperties();
+        prefetchProperties.setMaxConcurrent(8);
+
+        // 未配置时取对话类许可（64 - 16 报告类）中留给问题生成的部分，配置过大时被压到该数
+        properties.setMaxConcurrentGenerations(0);
+        assertEquals(40, InterviewGenerationExecutor.limitOf(properties, llmProperties, prefetchProperties));
+        properties.setMaxConcurrentGenerations(200);
+        assertEquals(40, InterviewGenerationExecutor.limitOf(properties, llmProperties, prefetchProperties));
+        properties.setMaxConcurrentGenerations(20);
+        assertEquals(20, InterviewGenerationExecutor.limitOf(properties, llmProperties, prefetchProperties));
+        prefetchProperties.setEnabled(false);
+        properties.setMaxConcurrentGenerations(0);
+        assertEquals(48, InterviewGenerationExecutor.limitOf(properties, llmProperties, prefetchProperties));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
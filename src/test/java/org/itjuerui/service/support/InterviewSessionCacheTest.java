@@ -0,0 +1,131 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewSessionCacheProperties;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.enums.InterviewStage;
+import org.itjuerui.domain.interview.enums.SessionStatus;
+import org.itjuerui.infra.repo.InterviewSessionMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 会话状态缓存测试
+ */
+class InterviewSessionCacheTest {
+
+    private InterviewSessionMapper sessionMapper;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private InterviewSessionCache sessionCache;
+
+    @BeforeEach
+    void setUp() {
+        sessionMapper = mock(InterviewSessionMapper.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        sessionCache = new InterviewSessionCache(new InterviewSessionCacheProperties(), sessionMapper,
+                eventPublisher, meterRegistry);
+        when(sessionMapper.selectById(1L)).thenReturn(buildSession());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testSecondReadHitsCacheAndReturnsCopy() {
+        InterviewSession first = sessionCache.get(1L);
+        first.setStatus(SessionStatus.ENDED);
+
+        InterviewSession second = sessionCache.get(1L);
+
+        assertEquals(SessionStatus.RUNNING, second.getStatus());
+        verify(sessionMapper, times(1)).selectById(1L);
+        assertEquals(1.0, meterRegistry.counter("interview.session.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("interview.session.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void testWriteThroughRefreshesCacheAndPublishesEvent() {
+        InterviewSession session = sessionCache.get(1L);
+        session.setCurrentStage(InterviewStage.PROJECT);
+
+        sessionCache.updateById(session);
+
+        verify(sessionMapper).updateById(session);
+        assertEquals(InterviewStage.PROJECT, sessionCache.get(1L).getCurrentStage());
+        verify(eventPublisher).publishEvent(any(InterviewSessionChangedEvent.class));
+        assertEquals(1, meterRegistry.timer("interview.session.cache.flush.lag").count());
+    }
+
+    @Test
+    void testRollbackEvictsInsteadOfCaching() {
+        sessionCache.get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        InterviewSession session = sessionCache.get(1L);
+        session.setStatus(SessionStatus.ENDED);
+        sessionCache.updateById(session);
+        // 提交前缓存仍是旧状态
+        assertEquals(SessionStatus.RUNNING, sessionCache.get(1L).getStatus());
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        sessionCache.get(1L);
+        verify(sessionMapper, times(2)).selectById(1L);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testMissDoesNotOverwriteNewerRefresh() {
+        // 读库事务读到旧状态，提交前另一个请求的写穿透刷新已提交
+        TransactionSynchronizationManager.initSynchronization();
+        sessionCache.get(1L);
+        List<TransactionSynchronization> missCommit = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        InterviewSession ended = buildSession();
+        ended.setStatus(SessionStatus.ENDED);
+        ended.setCurrentStage(InterviewStage.PROJECT);
+        sessionCache.refresh(ended);
+        TransactionSynchronizationUtils.invokeAfterCompletion(missCommit, TransactionSynchronization.STATUS_COMMITTED);
+
+        InterviewSession cached = sessionCache.get(1L);
+        assertEquals(SessionStatus.ENDED, cached.getStatus());
+        assertEquals(InterviewStage.PROJECT, cached.getCurrentStage());
+        verify(sessionMapper, times(1)).selectById(1L);
+    }
+
+    @Test
+    void testEvictLocalForcesReload() {
+        sessionCache.get(1L);
+        sessionCache.evictLocal(1L);
+        sessionCache.get(1L);
+
+        verify(sessionMapper, times(2)).selectById(1L);
+    }
+
+    private InterviewSession buildSession() {
+        InterviewSession session = new InterviewSession();
+        session.setId(1L);
+        session.setStatus(SessionStatus.RUNNING);
+        session.setCurrentStage(InterviewStage.BASICS);
+        return session;
+    }
+}
@@ -0,0 +1,88 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.itjuerui.api.dto.InterviewCreateRequest;
+import org.itjuerui.api.dto.TurnRequest;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.service.InterviewService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * 轮次日志读取行数基准：面试增长到 100+ 轮时，每次提问从数据库读取的轮次行数保持不变
+ * （全量读取方式下为当前轮次总数，整场面试累计 O(n²)）
+ * 默认不运行，执行方式：mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "spring.datasource.url=jdbc:h2:mem:turnlog;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+    "interview.prefetch.enabled=false",
+    "interview.context.summary-enabled=false"
+})
+@ActiveProfiles("test")
+class InterviewTurnLogRowsReadTest {
+
+    private static final int ROUNDS = 60;
+
+    @Autowired
+    private InterviewService interviewService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private LlmService llmService;
+
+    @Test
+    void testRowsReadPerQuestionStayConstant() {
+        when(llmService.chat(anyList())).thenReturn("请讲讲 ConcurrentHashMap 的实现");
+
+        InterviewCreateRequest createRequest = new InterviewCreateRequest();
+        createRequest.setResumeId(1L);
+        createRequest.setDurationMinutes(120);
+        Long sessionId = interviewService.createInterview(createRequest);
+
+        System.out.printf("%-8s %-8s %-14s %-14s%n", "round", "turns", "rowsRead", "fullScanRows");
+        long fullScanTotal = 0;
+        long rowsTotal = 0;
+        double maxRowsAfterWarmUp = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            int turnsBefore = (round - 1) * 2;
+            double before = rowsRead();
+            interviewService.getNextQuestion(sessionId, null);
+            double rows = rowsRead() - before;
+
+            TurnRequest answer = new TurnRequest();
+            answer.setRole("candidate");
+            answer.setContent("第" + round + "轮回答：分段锁与 CAS");
+            interviewService.addTurn(sessionId, answer);
+
+            rowsTotal += (long) rows;
+            fullScanTotal += turnsBefore;
+            if (round > 1) {
+                maxRowsAfterWarmUp = Math.max(maxRowsAfterWarmUp, rows);
+            }
+            if (round == 1 || round % 10 == 0) {
+                System.out.printf("%-8d %-8d %-14.0f %-14d%n", round, turnsBefore, rows, turnsBefore);
+            }
+        }
+        System.out.printf("total rows read: turn-log=%d, full-scan=%d%n", rowsTotal, fullScanTotal);
+
+        assertEquals(ROUNDS * 2, interviewService.getSessionDetail(sessionId).getTurns().size());
+        assertTrue(maxRowsAfterWarmUp <= 1, "每次提问读取行数应为常数，实际最大 " + maxRowsAfterWarmUp);
+        assertTrue(rowsTotal < ROUNDS * 2);
+    }
+
+    private double rowsRead() {
+        return meterRegistry.counter("interview.turn-log.rows.read").count();
+    }
+}
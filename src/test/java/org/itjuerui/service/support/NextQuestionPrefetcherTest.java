@@ -0,0 +1,185 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewPrefetchProperties;
+import org.itjuerui.infra.llm.LlmCancellationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 下一道问题预生成测试
+ */
+class NextQuestionPrefetcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NextQuestionPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        InterviewPrefetchProperties properties = new InterviewPrefetchProperties();
+        properties.setMaxWaitMillis(2000);
+        meterRegistry = new SimpleMeterRegistry();
+        prefetcher = new NextQuestionPrefetcher(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void testHitWhenHistoryUnchanged() {
+        prefetcher.start(1L, 10L,
+                (token, sink) -> new NextQuestionPrefetcher.Result("BASICS", "什么是 HashMap？"));
+
+        assertEquals("什么是 HashMap？", prefetcher.take(1L, 10L, "BASICS"));
+        // 取用后槽位被清空
+        assertNull(prefetcher.take(1L, 10L, "BASICS"));
+        assertEquals(1.0, outcomeCount("hit") + outcomeCount("hit_pending"));
+        assertEquals(1.0, outcomeCount("miss"));
+    }
+
+    @Test
+    void testWaitsForPendingGeneration() {
+        CountDownLatch release = new CountDownLatch(1);
+        prefetcher.start(1L, 10L, (token, sink) -> {
+            awaitQuietly(release);
+            return new NextQuestionPrefetcher.Result("BASICS", "讲讲 volatile");
+        });
+
+        new Thread(() -> {
+            sleepQuietly(100);
+            release.countDown();
+        }).start();
+
+        assertEquals("讲讲 volatile", prefetcher.take(1L, 10L, "BASICS"));
+        assertEquals(1.0, outcomeCount("hit_pending"));
+    }
+
+    @Test
+    void testRelayForwardsPendingGenerationDeltas() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        prefetcher.start(1L, 10L, (token, sink) -> {
+            sink.stage("BASICS");
+            sink.delta("讲讲");
+            started.countDown();
+            awaitQuietly(release);
+            sink.delta(" volatile");
+            return new NextQuestionPrefetcher.Result("BASICS", "讲讲 volatile");
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        String question = prefetcher.relay(1L, 10L, "BASICS", delta -> {
+            deltas.add(delta);
+            // 已生成的部分先补发，预生成此时仍在进行
+            release.countDown();
+        }, new LlmCancellationToken());
+
+        assertEquals("讲讲 volatile", question);
+        assertEquals(List.of("讲讲", " volatile"), deltas);
+        assertEquals(1.0, outcomeCount("hit_pending"));
+    }
+
+    @Test
+    void testRelayCancelsQueuedGeneration() throws InterruptedException {
+        InterviewPrefetchProperties properties = new InterviewPrefetchProperties();
+        properties.setMaxConcurrent(1);
+        NextQuestionPrefetcher single = new NextQuestionPrefetcher(properties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        try {
+            single.start(1L, 10L, (token, sink) -> {
+                awaitQuietly(release);
+                return null;
+            });
+            single.start(2L, 20L, (token, sink) -> {
+                queuedRan.set(true);
+                return new NextQuestionPrefetcher.Result("BASICS", "排队中的问题");
+            });
+
+            // 仍在排队的预生成不值得等待，取消后由调用方直接生成
+            assertNull(single.relay(2L, 20L, "BASICS", delta -> fail("不应推送增量"), new LlmCancellationToken()));
+            release.countDown();
+            sleepQuietly(200);
+            assertFalse(queuedRan.get());
+            assertEquals(1.0, outcomeCount("miss"));
+        } finally {
+            release.countDown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testStaleWhenHistoryChanged() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        prefetcher.start(1L, 10L, (token, sink) -> {
+            done.countDown();
+            return new NextQuestionPrefetcher.Result("BASICS", "旧问题");
+        });
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+
+        assertNull(prefetcher.take(1L, 12L, "BASICS"));
+        assertEquals(1.0, outcomeCount("stale"));
+        assertEquals(1.0, meterRegistry.counter("interview.prefetch.wasted", "reason", "stale").count());
+    }
+
+    @Test
+    void testStaleWhenStageAdvanced() {
+        prefetcher.start(1L, 10L, (token, sink) -> new NextQuestionPrefetcher.Result("BASICS", "基础问题"));
+
+        assertNull(prefetcher.take(1L, 10L, "PROJECT"));
+        assertEquals(1.0, outcomeCount("stale"));
+        assertEquals(4.0, meterRegistry.counter("interview.prefetch.wasted.chars").count());
+    }
+
+    @Test
+    void testSupersededGenerationIsCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        prefetcher.start(1L, 10L, (token, sink) -> {
+            token.onCancel(cancelled::countDown);
+            started.countDown();
+            awaitQuietly(cancelled);
+            token.throwIfCancelled();
+            return null;
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        prefetcher.start(1L, 12L, (token, sink) -> new NextQuestionPrefetcher.Result("BASICS", "新问题"));
+
+        assertTrue(cancelled.await(2, TimeUnit.SECONDS));
+        assertEquals("新问题", prefetcher.take(1L, 12L, "BASICS"));
+        assertEquals(1.0, meterRegistry.counter("interview.prefetch.wasted", "reason", "superseded").count());
+    }
+
+    private double outcomeCount(String outcome) {
+        return meterRegistry.counter("interview.prefetch.requests", "outcome", outcome).count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
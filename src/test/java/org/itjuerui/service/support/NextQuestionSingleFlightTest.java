@@ -0,0 +1,175 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewIdempotencyProperties;
+import org.itjuerui.common.config.InterviewStreamReplayProperties;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 下一道问题单飞测试
+ */
+class NextQuestionSingleFlightTest {
+
+    private NextQuestionSingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new NextQuestionSingleFlight(new InterviewIdempotencyProperties(),
+                new InterviewStreamReplayProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testConcurrentCallersShareOneGeneration() {
+        NextQuestionSingleFlight.Flight leader = singleFlight.join(1L, "key-a");
+        NextQuestionSingleFlight.Flight follower = singleFlight.join(1L, "key-b");
+
+        assertSame(leader, follower);
+        assertTrue(leader.tryStart());
+        assertFalse(follower.tryStart());
+
+        InterviewTurn turn = turn(100L, "什么是 CAS？");
+        singleFlight.complete(leader, turn);
+
+        assertSame(turn, follower.result().join());
+        assertSame(turn, singleFlight.completed(1L, "key-a"));
+        assertSame(turn, singleFlight.completed(1L, "key-b"));
+        assertNull(singleFlight.completed(2L, "key-a"));
+        // 完成后新的请求开启新的生成
+        assertNotSame(leader, singleFlight.join(1L, null));
+    }
+
+    @Test
+    void testLateSubscriberReceivesReplay() {
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(1L, null);
+        List<String> early = new ArrayList<>();
+        flight.subscribe(early::add);
+        flight.publish("请解释");
+
+        List<String> late = new ArrayList<>();
+        flight.subscribe(late::add);
+        flight.publish(" volatile。");
+
+        assertEquals(List.of("请解释", " volatile。"), early);
+        assertEquals(List.of("请解释", " volatile。"), late);
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotHoldFlightLock() throws Exception {
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(1L, null);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        flight.subscribe(delta -> {
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Void> publishing = CompletableFuture.runAsync(() -> flight.publish("请解释"));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        // 生成线程卡在慢订阅方上时，新的订阅方仍可加入并收到已生成的部分
+        List<String> late = new CopyOnWriteArrayList<>();
+        CompletableFuture.runAsync(() -> flight.subscribe(late::add)).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of("请解释"), late);
+        assertFalse(flight.isAbandoned());
+
+        release.countDown();
+        publishing.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCancelsOnlyWhenLastWaiterLeaves() {
+        NextQuestionSingleFlight.Flight first = singleFlight.join(1L, null);
+        NextQuestionSingleFlight.Flight second = singleFlight.join(1L, null);
+
+        first.detach();
+        assertFalse(first.cancellationToken().isCancelled());
+        second.detach();
+        assertTrue(first.cancellationToken().isCancelled());
+
+        // 已取消的生成不再被合并
+        assertNotSame(first, singleFlight.join(1L, null));
+    }
+
+    @Test
+    void testResumeFromLastEventIdReplaysRemainder() {
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(1L, null);
+        List<String> eventIds = new ArrayList<>();
+        flight.subscribe((delta, offset) -> eventIds.add(flight.eventId(offset)), 0);
+        flight.publish("请解释");
+        flight.publish(" volatile。");
+        flight.detach();
+        singleFlight.complete(flight, turn(100L, "请解释 volatile。"));
+
+        assertNull(singleFlight.resume(2L, eventIds.get(0)));
+        assertNull(singleFlight.resume(1L, "unknown:3"));
+
+        NextQuestionSingleFlight.Flight resumed = singleFlight.resume(1L, eventIds.get(0));
+        assertSame(flight, resumed);
+        List<String> replayed = new ArrayList<>();
+        resumed.subscribe((delta, offset) -> replayed.add(delta),
+                NextQuestionSingleFlight.offsetOf(eventIds.get(0)));
+        assertEquals(List.of(" volatile。"), replayed);
+        assertEquals(100L, resumed.result().join().getId());
+    }
+
+    @Test
+    void testStreamedFlightWaitsForReconnectBeforeCancelling() throws InterruptedException {
+        InterviewStreamReplayProperties replayProperties = new InterviewStreamReplayProperties();
+        replayProperties.setResumeGraceMillis(100);
+        singleFlight = new NextQuestionSingleFlight(new InterviewIdempotencyProperties(), replayProperties,
+                new SimpleMeterRegistry());
+
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(1L, null);
+        flight.publish("请解释");
+        flight.detach();
+        assertFalse(flight.cancellationToken().isCancelled());
+
+        // 宽限期内重连：不取消
+        NextQuestionSingleFlight.Flight resumed = singleFlight.resume(1L, flight.eventId(3));
+        Thread.sleep(300);
+        assertFalse(flight.cancellationToken().isCancelled());
+
+        // 重连方也离开且无人再连：宽限期后取消
+        resumed.detach();
+        Thread.sleep(300);
+        assertTrue(flight.cancellationToken().isCancelled());
+    }
+
+    @Test
+    void testAbandonedFlightPersistedWithinGraceIsCounted() {
+        InterviewStreamReplayProperties replayProperties = new InterviewStreamReplayProperties();
+        replayProperties.setResumeGraceMillis(5000);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new NextQuestionSingleFlight(new InterviewIdempotencyProperties(), replayProperties,
+                meterRegistry);
+
+        NextQuestionSingleFlight.Flight flight = singleFlight.join(1L, null);
+        flight.publish("请解释");
+        flight.detach();
+        assertTrue(flight.isAbandoned());
+        singleFlight.complete(flight, turn(100L, "请解释 HashMap"));
+
+        assertEquals(1.0, meterRegistry.counter("interview.single-flight", "outcome", "abandoned_persisted").count());
+    }
+
+    private InterviewTurn turn(Long id, String content) {
+        InterviewTurn turn = new InterviewTurn();
+        turn.setId(id);
+        turn.setContentText(content);
+        return turn;
+    }
+}
@@ -0,0 +1,161 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.ReportAiProperties;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.itjuerui.domain.interview.entity.StageAnswerStats;
+import org.itjuerui.domain.report.entity.Report;
+import org.itjuerui.domain.report.entity.StageMiniReport;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.llm.config.LlmProperties;
+import org.itjuerui.infra.llm.dto.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 报告 AI 润色流水线测试
+ */
+class ReportPolishPipelineTest {
+
+    private static final String AI_JSON = "{\"summary\":\"AI 点评\",\"strengths\":[\"表达清晰\"],"
+            + "\"weaknesses\":[\"细节不足\"],\"suggestions\":[\"补充案例\"]}";
+
+    private final ReportAiProperties properties = new ReportAiProperties();
+    private final AtomicInteger calls = new AtomicInteger();
+    private LlmService llmService;
+    private ReportPolishPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxParallelism(4);
+        llmService = mock(LlmService.class);
+        InterviewContextManager contextManager = mock(InterviewContextManager.class);
+        when(contextManager.enforceBudget(anyList(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        pipeline = new ReportPolishPipeline(llmService, new LlmProperties(), properties, contextManager,
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testParallelStagePolishTakesAboutOneCall() {
+        when(llmService.chat(anyList(), any())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            Thread.sleep(300);
+            return AI_JSON;
+        });
+        List<ReportPolishPipeline.StageInput> stages = stages("BASICS", "PROJECT", "DEEP_DIVE");
+
+        long start = System.nanoTime();
+        Report report = pipeline.polishReport(report(), stats(), List.of(turn("BASICS")), stages);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(4, calls.get());
+        assertTrue(elapsedMillis < 900, "总报告与 3 个阶段应并发润色，实际耗时 " + elapsedMillis + "ms");
+        assertTrue(report.getAiEnabled());
+        assertEquals("AI 点评", report.getSummary());
+        assertTrue(stages.stream().allMatch(ReportPolishPipeline.StageInput::isPolished));
+    }
+
+    @Test
+    void testBatchModeSplitsResponsePerStage() {
+        properties.setPolishMode(ReportAiProperties.PolishMode.BATCH);
+        when(llmService.chat(anyList(), any())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            List<Message> messages = invocation.getArgument(0);
+            if (messages.get(0).getContent().contains("多个阶段")) {
+                return "{\"stages\":[{\"stageCode\":\"BASICS\",\"summary\":\"基础扎实\",\"strengths\":[\"概念清楚\"],"
+                        + "\"weaknesses\":[],\"suggestions\":[]},{\"stageCode\":\"PROJECT\",\"summary\":\"项目清晰\","
+                        + "\"strengths\":[],\"weaknesses\":[],\"suggestions\":[]}]}";
+            }
+            return AI_JSON;
+        });
+        List<ReportPolishPipeline.StageInput> stages = stages("BASICS", "PROJECT", "DEEP_DIVE");
+
+        pipeline.polishReport(report(), stats(), List.of(turn("BASICS")), stages);
+
+        assertEquals(2, calls.get());
+        assertEquals("基础扎实", stages.get(0).getReport().getSummary());
+        assertEquals("项目清晰", stages.get(1).getReport().getSummary());
+        assertTrue(stages.get(0).isPolished());
+        // 响应缺少的阶段保留规则版
+        assertFalse(stages.get(2).isPolished());
+        assertEquals("规则版", stages.get(2).getReport().getSummary());
+    }
+
+    @Test
+    void testStageFailureKeepsRuleVersionForThatStageOnly() {
+        when(llmService.chat(anyList(), any())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            if (messages.get(1).getContent().contains("stageCode=PROJECT")) {
+                throw new RuntimeException("mock error");
+            }
+            return AI_JSON;
+        });
+        List<ReportPolishPipeline.StageInput> stages = stages("BASICS", "PROJECT");
+
+        Report report = pipeline.polishReport(report(), stats(), List.of(turn("BASICS")), stages);
+
+        assertTrue(report.getAiEnabled());
+        assertTrue(stages.get(0).isPolished());
+        assertFalse(stages.get(1).isPolished());
+        assertEquals("规则版", stages.get(1).getReport().getSummary());
+    }
+
+    @Test
+    void testDisabledSkipsLlm() {
+        properties.setEnabled(false);
+
+        Report report = pipeline.polishReport(report(), stats(), List.of(turn("BASICS")), stages("BASICS"));
+
+        assertFalse(report.getAiEnabled());
+        verifyNoInteractions(llmService);
+        assertFalse(pipeline.isStagePolishDeferred());
+    }
+
+    private static Report report() {
+        Report report = new Report();
+        report.setSessionId(1L);
+        report.setOverallScore(70);
+        report.setSummary("规则版");
+        return report;
+    }
+
+    private static StageAnswerStats stats() {
+        StageAnswerStats stats = new StageAnswerStats();
+        stats.setTurnCount(3);
+        stats.setTotalChars(90L);
+        return stats;
+    }
+
+    private static List<ReportPolishPipeline.StageInput> stages(String... stageCodes) {
+        return java.util.Arrays.stream(stageCodes).map(stageCode -> {
+            StageMiniReport miniReport = new StageMiniReport();
+            miniReport.setSessionId(1L);
+            miniReport.setStageCode(stageCode);
+            miniReport.setScore(60);
+            miniReport.setSummary("规则版");
+            return new ReportPolishPipeline.StageInput(miniReport, List.of(turn(stageCode)));
+        }).toList();
+    }
+
+    private static InterviewTurn turn(String stageCode) {
+        InterviewTurn turn = new InterviewTurn();
+        turn.setStageCode(stageCode);
+        turn.setContentText("我在项目中负责订单模块的设计");
+        return turn;
+    }
+}
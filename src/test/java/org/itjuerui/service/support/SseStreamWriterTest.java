@@ -0,0 +1,151 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewSseProperties;
+import org.itjuerui.common.sse.SseEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE 流写出器测试
+ */
+class SseStreamWriterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SseStreamWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void testDeltasCoalescedUntilNextEvent() throws Exception {
+        writer = newWriter(10_000, 512, 60);
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseStreamWriter.Stream stream = writer.open(emitter);
+
+        stream.chunk("请解释", "s:3");
+        stream.chunk(" volatile", "s:12");
+        assertTrue(emitter.events.isEmpty());
+
+        stream.send(SseEvent.named("done").data("{}"));
+        assertEquals(2, emitter.events.size());
+        assertEquals("event: chunk\nid: s:12\ndata: 请解释 volatile\n\n", emitter.events.get(0));
+        assertTrue(emitter.events.get(1).startsWith("event: done"));
+    }
+
+    @Test
+    void testSentenceBoundaryAndByteThresholdFlushImmediately() throws Exception {
+        writer = newWriter(10_000, 16, 60);
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseStreamWriter.Stream stream = writer.open(emitter);
+
+        stream.chunk("什么是", null);
+        stream.chunk(" CAS？", null);
+        assertEquals(1, emitter.events.size());
+
+        // 16 字节阈值：6 个汉字为 18 字节
+        stream.chunk("乐观锁与悲观", null);
+        assertEquals(2, emitter.events.size());
+    }
+
+    @Test
+    void testWindowFlushesPendingDeltas() throws Exception {
+        writer = newWriter(50, 512, 60);
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseStreamWriter.Stream stream = writer.open(emitter);
+
+        stream.chunk("讲讲", null);
+        stream.chunk("线程池", null);
+        Thread.sleep(300);
+
+        assertEquals(List.of("event: chunk\ndata: 讲讲线程池\n\n"), emitter.events);
+    }
+
+    @Test
+    void testSlowClientDoesNotDelayOtherStreams() throws Exception {
+        writer = newWriter(50, 512, 60);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+        RecordingEmitter fast = new RecordingEmitter();
+
+        writer.open(slow).chunk("慢", null);
+        Thread.sleep(150);
+        writer.open(fast).chunk("快", null);
+        Thread.sleep(300);
+
+        assertEquals(List.of("event: chunk\ndata: 快\n\n"), fast.events);
+        assertTrue(slow.events.isEmpty());
+        release.countDown();
+    }
+
+    @Test
+    void testSharedHeartbeatOnIdleStreams() throws Exception {
+        writer = newWriter(0, 512, 1);
+        RecordingEmitter idle = new RecordingEmitter();
+        writer.open(idle);
+        RecordingEmitter closed = new RecordingEmitter();
+        writer.open(closed).close();
+
+        Thread.sleep(1800);
+
+        assertTrue(idle.events.stream().anyMatch(event -> event.startsWith(": heartbeat")));
+        assertTrue(closed.events.isEmpty());
+    }
+
+    @Test
+    void testMetricsRecordedPerStream() throws Exception {
+        writer = newWriter(0, 512, 60);
+        SseStreamWriter.Stream stream = writer.open(new RecordingEmitter());
+
+        stream.chunk("一", null);
+        stream.chunk("二", null);
+        stream.complete();
+
+        assertEquals(2.0, meterRegistry.counter("interview.sse.events").count());
+        assertTrue(meterRegistry.counter("interview.sse.bytes").count() > 0);
+        assertEquals(1, meterRegistry.summary("interview.sse.stream.flushes").count());
+        assertEquals(2.0, meterRegistry.summary("interview.sse.stream.flushes").totalAmount());
+    }
+
+    private SseStreamWriter newWriter(long windowMillis, int maxBytes, long heartbeatSeconds) {
+        InterviewSseProperties properties = new InterviewSseProperties();
+        properties.setCoalesceWindowMillis(windowMillis);
+        properties.setCoalesceMaxBytes(maxBytes);
+        properties.setHeartbeatSeconds(heartbeatSeconds);
+        return new SseStreamWriter(properties, meterRegistry);
+    }
+
+    /**
+     * 记录发送内容的 SseEmitter
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(((SseEvent) builder).text());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.itjuerui.service.support;
+
+import com.alibaba.fastjson2.JSON;
+import org.itjuerui.domain.interview.dto.StagePlanStage;
+import org.itjuerui.domain.interview.entity.InterviewSession;
+import org.itjuerui.domain.interview.entity.InterviewStagePlan;
+import org.itjuerui.domain.interview.support.StagePlan;
+import org.itjuerui.domain.interview.support.StagePlanFactory;
+import org.itjuerui.infra.repo.InterviewSessionMapper;
+import org.itjuerui.infra.repo.InterviewStagePlanMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 阶段计划注册表测试
+ */
+class StagePlanRegistryTest {
+
+    private InterviewStagePlanMapper planMapper;
+    private InterviewSessionMapper sessionMapper;
+    private InterviewSessionCache sessionCache;
+    private StagePlanRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        planMapper = mock(InterviewStagePlanMapper.class);
+        sessionMapper = mock(InterviewSessionMapper.class);
+        sessionCache = mock(InterviewSessionCache.class);
+        registry = new StagePlanRegistry(planMapper, sessionMapper, sessionCache);
+    }
+
+    @Test
+    void testDefaultPlanLookupByCode() {
+        StagePlan plan = registry.get(StagePlanFactory.DEFAULT_PLAN_ID);
+
+        assertSame(registry.defaultPlan(), plan);
+        assertEquals(1, plan.indexOf("project"));
+        assertEquals("项目深挖", plan.stageOf("PROJECT").getName());
+        assertNull(plan.stageOf("UNKNOWN"));
+        assertThrows(UnsupportedOperationException.class, () -> plan.getStages().clear());
+        verifyNoInteractions(planMapper);
+    }
+
+    @Test
+    void testInternDeduplicatesByContent() {
+        String json = JSON.toJSONString(customStages());
+
+        StagePlan first = registry.intern(json);
+        StagePlan second = registry.intern(json);
+
+        assertSame(first, second);
+        assertTrue(first.getId().startsWith("sha-"));
+        verify(planMapper, times(1)).insert(any(InterviewStagePlan.class));
+        // 与默认计划内容相同的历史 JSON 直接映射到内置模板
+        assertSame(registry.defaultPlan(), registry.intern(JSON.toJSONString(StagePlanFactory.defaultStages())));
+    }
+
+    @Test
+    void testLoadsStoredPlanOnce() {
+        InterviewStagePlan row = new InterviewStagePlan();
+        row.setId("sha-1");
+        row.setPlanJson(JSON.toJSONString(customStages()));
+        when(planMapper.selectById("sha-1")).thenReturn(row);
+
+        assertEquals("SCENARIOS", registry.get("sha-1").getStages().get(1).getCode());
+        registry.get("sha-1");
+
+        verify(planMapper, times(1)).selectById("sha-1");
+    }
+
+    @Test
+    void testLegacySessionMigratedToReference() {
+        when(sessionMapper.update(isNull(), any())).thenReturn(1);
+        InterviewSession session = new InterviewSession();
+        session.setId(7L);
+        session.setStagePlanJson(JSON.toJSONString(StagePlanFactory.defaultStages()));
+
+        StagePlan plan = registry.planOf(session);
+
+        assertSame(registry.defaultPlan(), plan);
+        assertEquals(StagePlanFactory.DEFAULT_PLAN_ID, session.getStagePlanId());
+        assertNull(session.getStagePlanJson());
+        verify(sessionMapper).update(isNull(), any());
+        verify(sessionCache).refresh(session);
+    }
+
+    private List<StagePlanStage> customStages() {
+        StagePlanStage basics = new StagePlanStage();
+        basics.setCode("BASICS");
+        basics.setName("自我介绍");
+        basics.setGoal("了解背景");
+        basics.setMinTurns(1);
+        StagePlanStage scenarios = new StagePlanStage();
+        scenarios.setCode("SCENARIOS");
+        scenarios.setName("系统设计");
+        scenarios.setGoal("考察设计能力");
+        scenarios.setMinTurns(2);
+        return List.of(basics, scenarios);
+    }
+}
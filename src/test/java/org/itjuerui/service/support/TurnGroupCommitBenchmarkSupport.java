@@ -0,0 +1,123 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.itjuerui.api.dto.InterviewCreateRequest;
+import org.itjuerui.api.dto.TurnRequest;
+import org.itjuerui.common.config.InterviewTurnGroupCommitProperties;
+import org.itjuerui.infra.llm.LlmService;
+import org.itjuerui.infra.repo.InterviewTurnMapper;
+import org.itjuerui.service.InterviewService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 轮次组提交吞吐基准：多个会话并发逐条追加轮次，对比逐条提交与组提交
+ * 子类指定数据库（内存 / 文件）
+ * 默认不运行，执行方式：mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+abstract class TurnGroupCommitBenchmarkSupport {
+
+    private static final int SESSIONS = 32;
+    private static final int TURNS_PER_SESSION = 40;
+
+    @Autowired
+    private InterviewService interviewService;
+
+    @Autowired
+    private InterviewTurnGroupCommitProperties groupCommitProperties;
+
+    @Autowired
+    private InterviewTurnMapper turnMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private LlmService llmService;
+
+    protected abstract String database();
+
+    @Test
+    void testGroupCommitThroughput() throws Exception {
+        // 预热，避免先执行的方式承担 JIT 与连接池初始化开销
+        run(false, 4);
+        run(true, 4);
+
+        double directRate = run(false, TURNS_PER_SESSION);
+        double batchesBefore = batchCount();
+        double groupedRate = run(true, TURNS_PER_SESSION);
+        double batches = batchCount() - batchesBefore;
+        double averageBatch = SESSIONS * TURNS_PER_SESSION / batches;
+
+        System.out.printf("[%s] %d sessions x %d turns: per-turn commit %.0f turns/s, group commit %.0f turns/s "
+                + "(avg batch %.1f, %.1fx)%n", database(), SESSIONS, TURNS_PER_SESSION, directRate, groupedRate,
+                averageBatch, groupedRate / directRate);
+        assertTrue(averageBatch > 1, "并发写入应被合并为批次，实际平均每批 " + averageBatch);
+    }
+
+    /**
+     * 每个会话一个线程逐条追加轮次，校验序号连续后返回吞吐（轮次/秒）
+     */
+    private double run(boolean groupCommit, int turnsPerSession) throws Exception {
+        groupCommitProperties.setEnabled(groupCommit);
+        List<Long> sessionIds = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            InterviewCreateRequest request = new InterviewCreateRequest();
+            request.setResumeId(1L);
+            request.setDurationMinutes(60);
+            sessionIds.add(interviewService.createInterview(request));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(SESSIONS);
+        long elapsedNanos;
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long sessionId : sessionIds) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int turn = 0; turn < turnsPerSession; turn++) {
+                        TurnRequest request = new TurnRequest();
+                        request.setRole("INTERVIEWER");
+                        request.setContent("第" + turn + "题：请介绍一下线程池的拒绝策略");
+                        interviewService.addTurn(sessionId, request);
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            elapsedNanos = System.nanoTime() - begin;
+        } finally {
+            pool.shutdownNow();
+            // 共享的 Spring 上下文会被后续测试复用，必须恢复为逐条提交
+            groupCommitProperties.setEnabled(false);
+        }
+
+        for (Long sessionId : sessionIds) {
+            assertEquals(turnsPerSession, turnMapper.selectMaxSeq(sessionId));
+            assertEquals(turnsPerSession, interviewService.getTurns(sessionId, 0, null, 500).size());
+        }
+        return SESSIONS * turnsPerSession / (elapsedNanos / 1e9);
+    }
+
+    private double batchCount() {
+        return meterRegistry.summary("interview.turn-group-commit.batch.size").count();
+    }
+}
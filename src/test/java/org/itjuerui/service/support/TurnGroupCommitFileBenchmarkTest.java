@@ -0,0 +1,21 @@
+package org.itjuerui.service.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 轮次组提交吞吐基准（文件 H2，MySQL 模式）：每次提交写入磁盘，接近真实数据库的提交开销
+ */
+@SpringBootTest(properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "spring.datasource.url=jdbc:h2:file:./target/h2-bench/groupcommit;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+    "interview.prefetch.enabled=false"
+})
+@ActiveProfiles("test")
+class TurnGroupCommitFileBenchmarkTest extends TurnGroupCommitBenchmarkSupport {
+
+    @Override
+    protected String database() {
+        return "h2-file";
+    }
+}
@@ -0,0 +1,21 @@
+package org.itjuerui.service.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 轮次组提交吞吐基准（内存 H2，MySQL 模式）：提交几乎没有 I/O，体现批量插入本身的收益
+ */
+@SpringBootTest(properties = {
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+    "spring.datasource.url=jdbc:h2:mem:groupcommit;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+    "interview.prefetch.enabled=false"
+})
+@ActiveProfiles("test")
+class TurnGroupCommitInMemoryBenchmarkTest extends TurnGroupCommitBenchmarkSupport {
+
+    @Override
+    protected String database() {
+        return "h2-mem";
+    }
+}
@@ -0,0 +1,93 @@
+package org.itjuerui.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.itjuerui.common.config.InterviewTurnGroupCommitProperties;
+import org.itjuerui.common.exception.BusinessException;
+import org.itjuerui.domain.interview.entity.InterviewTurn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+
+/**
+ * 轮次组提交测试
+ */
+class TurnGroupCommitterTest {
+
+    private final TurnBatchWriter turnBatchWriter = Mockito.mock(TurnBatchWriter.class);
+    private TurnGroupCommitter committer;
+
+    @AfterEach
+    void tearDown() {
+        if (committer != null) {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void testTimedOutQueuedTurnIsWithdrawn() throws Exception {
+        committer = newCommitter(200);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<InterviewTurn> written = new CopyOnWriteArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            List<InterviewTurn> turns = invocation.getArgument(0);
+            written.addAll(turns);
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(turnBatchWriter).write(anyList());
+
+        InterviewTurn first = turn(1L);
+        CompletableFuture<Void> firstInsert = CompletableFuture.runAsync(() -> committer.insert(first));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // 第二条在队列中等待超时：撤回并返回 503，之后不会再被写入
+        InterviewTurn second = turn(2L);
+        BusinessException ex = assertThrows(BusinessException.class, () -> committer.insert(second));
+        assertEquals(503, ex.getCode());
+
+        // 第一条已在写入中的批次里，超过超时时间仍等待批次结束而不返回 503
+        Thread.sleep(300);
+        assertFalse(firstInsert.isDone());
+        release.countDown();
+        firstInsert.get(5, TimeUnit.SECONDS);
+
+        Thread.sleep(200);
+        assertEquals(List.of(first), written);
+    }
+
+    @Test
+    void testSeqConflictMapsToConflict() {
+        committer = newCommitter(5_000);
+        Mockito.doThrow(new CannotAcquireLockException("deadlock")).when(turnBatchWriter).write(anyList());
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> committer.insert(turn(1L)));
+        assertEquals(409, ex.getCode());
+    }
+
+    private TurnGroupCommitter newCommitter(long timeoutMillis) {
+        InterviewTurnGroupCommitProperties properties = new InterviewTurnGroupCommitProperties();
+        properties.setEnabled(true);
+        properties.setWindowMillis(0);
+        properties.setMaxBatchSize(1);
+        properties.setTimeoutMillis(timeoutMillis);
+        return new TurnGroupCommitter(properties, turnBatchWriter, new SimpleMeterRegistry());
+    }
+
+    private static InterviewTurn turn(Long sessionId) {
+        InterviewTurn turn = new InterviewTurn();
+        turn.setSessionId(sessionId);
+        turn.setContentText("请介绍一下 volatile");
+        return turn;
+    }
+}